@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.msg.Request;
+import com.couchbase.client.core.msg.RequestPriority;
+import com.couchbase.client.core.msg.kv.BulkGetResponse;
+import com.couchbase.client.core.msg.kv.GetRequest;
+import com.couchbase.client.core.msg.kv.GetResponse;
+import com.couchbase.client.core.util.Rx;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableTransformer;
+import io.reactivex.Single;
+import org.reactivestreams.Publisher;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Turns a stream of keys into a stream of {@link BulkGetResponse BulkGetResponses} while
+ * keeping the number of outstanding requests bounded.
+ *
+ * <p>At most {@code maxInFlight} keys are pulled from upstream and dispatched at once. A new
+ * key is only pulled once a result has been handed downstream, so if the consumer stops
+ * requesting, dispatching stops as well once the window is full, and no more than
+ * {@code maxInFlight} results are ever buffered.</p>
+ *
+ * <p>Ordered emission buffers results which complete ahead of an earlier key, unordered
+ * emission hands every result downstream as soon as it completes. Per-key failures are
+ * emitted in-band, the stream itself only fails if upstream fails.</p>
+ *
+ * @since 2.0.0
+ */
+final class BulkGet implements FlowableTransformer<byte[], BulkGetResponse> {
+
+  private final Consumer<Request<GetResponse>> dispatcher;
+  private final Duration timeout;
+  private final int maxInFlight;
+  private final boolean ordered;
+
+  /**
+   * Creates a new {@link BulkGet}.
+   *
+   * @param dispatcher dispatches the individual requests.
+   * @param timeout the timeout of every individual request.
+   * @param maxInFlight the maximum number of outstanding requests, must be positive.
+   * @param ordered true if results should be emitted in the order of the keys.
+   */
+  BulkGet(final Consumer<Request<GetResponse>> dispatcher, final Duration timeout,
+          final int maxInFlight, final boolean ordered) {
+    if (maxInFlight <= 0) {
+      throw new IllegalArgumentException("The maximum number of requests in flight must be "
+          + "positive.");
+    }
+    this.dispatcher = dispatcher;
+    this.timeout = timeout;
+    this.maxInFlight = maxInFlight;
+    this.ordered = ordered;
+  }
+
+  @Override
+  public Publisher<BulkGetResponse> apply(final Flowable<byte[]> keys) {
+    return ordered
+      ? keys.concatMapEager(key -> get(key).toFlowable(), maxInFlight, 1)
+      : keys.flatMapSingle(this::get, false, maxInFlight);
+  }
+
+  /**
+   * Creates the cold single which fetches one key and never fails.
+   *
+   * <p>The request is sent with {@link RequestPriority#BULK}, so it yields to interactive
+   * requests on the same connection. Since it is created on subscription, cancelling the
+   * stream cancels all requests in flight as well.</p>
+   *
+   * @param key the key to fetch.
+   * @return the single with the result of the key.
+   */
+  private Single<BulkGetResponse> get(final byte[] key) {
+    return Rx.single(
+        () -> new GetRequest(key, timeout, Optional.empty()).priority(RequestPriority.BULK),
+        dispatcher
+      )
+      .map(response -> BulkGetResponse.success(key, response))
+      .onErrorReturn(error -> BulkGetResponse.failure(key, error));
+  }
+
+}
@@ -16,13 +16,22 @@
 
 package com.couchbase.client.core;
 
+import com.couchbase.client.core.cache.NearCache;
+import com.couchbase.client.core.conf.ClusterTopology;
 import com.couchbase.client.core.conf.ConfigurationManager;
 import com.couchbase.client.core.conf.DefaultConfigurationManager;
 import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.env.Shards;
 import com.couchbase.client.core.io.Endpoint;
 import com.couchbase.client.core.msg.Request;
 import com.couchbase.client.core.msg.Response;
+import com.couchbase.client.core.msg.ResponseStatus;
+import com.couchbase.client.core.msg.kv.BulkGetResponse;
+import com.couchbase.client.core.msg.kv.GetRequest;
+import com.couchbase.client.core.msg.kv.GetResponse;
+import io.reactivex.FlowableTransformer;
 
+import java.time.Duration;
 import java.util.Optional;
 
 /**
@@ -34,17 +43,86 @@ import java.util.Optional;
 public class Core {
 
   private final CoreEnvironment environment;
+
+  /**
+   * Tracks the timeouts of all requests, null in sharded mode where the shards do.
+   */
   private final TimerWheel timerWheel;
   private final ConfigurationManager configurationManager;
+  private final RequestHedger hedger;
+  private final NearCache nearCache;
+  private final RequestCoalescer coalescer;
+
+  /**
+   * The shards which own the timeouts in sharded mode, null otherwise.
+   *
+   * <p>The endpoints of the shards schedule the timeouts of the requests dispatched to
+   * them, only requests which never reach an endpoint are scheduled here.</p>
+   */
+  private final Shards shards;
 
   public static Core create(final CoreEnvironment environment) {
-    return new Core(environment);
+    return new Core(environment, new DefaultConfigurationManager());
+  }
+
+  /**
+   * Creates a core with a custom {@link ConfigurationManager}, useful for testing.
+   *
+   * @param environment the environment to use.
+   * @param configurationManager the configuration manager to use.
+   * @return the created core.
+   */
+  static Core create(final CoreEnvironment environment,
+                     final ConfigurationManager configurationManager) {
+    return new Core(environment, configurationManager);
   }
 
-  private Core(final CoreEnvironment environment) {
+  private Core(final CoreEnvironment environment,
+               final ConfigurationManager configurationManager) {
     this.environment = environment;
-    this.timerWheel = TimerWheel.create();
-    this.configurationManager = new DefaultConfigurationManager();
+    this.shards = environment.ioConfig().isSharded() ? environment.shards() : null;
+    this.timerWheel = shards == null ? TimerWheel.create() : null;
+    this.configurationManager = configurationManager;
+    this.hedger = new RequestHedger(environment.hedgingConfig());
+    this.nearCache = environment.nearCacheConfig().isEnabled()
+      ? new NearCache(environment.nearCacheConfig())
+      : null;
+    this.coalescer = environment.coalesceReads() ? new RequestCoalescer(this::route) : null;
+  }
+
+  /**
+   * Returns the near cache if it is enabled.
+   *
+   * <p>Components which modify documents must invalidate the affected keys through
+   * the near cache, otherwise reads might return stale documents until they expire.</p>
+   *
+   * @return the near cache, empty if disabled.
+   */
+  public Optional<NearCache> nearCache() {
+    return Optional.ofNullable(nearCache);
+  }
+
+  /**
+   * Creates an operator which fetches a stream of keys with bounded concurrency.
+   *
+   * <p>Apply it through {@code keys.compose(core.bulkGet(...))}. At most {@code maxInFlight}
+   * requests are outstanding at any time, and new keys are only dispatched as the
+   * subscriber requests results, so a slow consumer throttles the requests sent to the
+   * cluster instead of accumulating responses in memory.</p>
+   *
+   * <p>Every key yields exactly one {@link BulkGetResponse}, failures such as timeouts are
+   * reported through it instead of failing the stream.</p>
+   *
+   * @param timeout the timeout of every individual request.
+   * @param maxInFlight the maximum number of outstanding requests, must be positive.
+   * @param ordered true if results should be emitted in the order of the keys, false if
+   *                they should be emitted as soon as they complete.
+   * @return the operator to compose into a stream of keys.
+   */
+  public FlowableTransformer<byte[], BulkGetResponse> bulkGet(final Duration timeout,
+                                                              final int maxInFlight,
+                                                              final boolean ordered) {
+    return new BulkGet(this::dispatch, timeout, maxInFlight, ordered);
   }
 
   /**
@@ -57,14 +135,78 @@ public class Core {
    * @param request the request to dispatch.
    */
   <R extends Response> void dispatch(final Request<R> request) {
-    timerWheel.scheduleTimeout(request);
+    if (nearCache != null && request instanceof GetRequest
+        && serveFromNearCache((GetRequest) request)) {
+      return;
+    }
+
+    if (timerWheel != null) {
+      timerWheel.scheduleTimeout(request);
+    }
+    route(request);
+  }
+
+  /**
+   * Sends the request to its endpoint, unless it can follow an identical read.
+   *
+   * @param request the request to route.
+   */
+  private <R extends Response> void route(final Request<R> request) {
+    if (coalescer != null && request instanceof GetRequest
+        && coalescer.join((GetRequest) request)) {
+      scheduleUnroutedTimeout(request);
+      return;
+    }
 
-    Optional<Endpoint> endpoint = configurationManager.topology().locate(request);
+    final ClusterTopology topology = configurationManager.topology();
+    Optional<Endpoint> endpoint = topology.locate(request);
     if (endpoint.isPresent()) {
       endpoint.get().dispatch(request);
+      if (request instanceof GetRequest) {
+        hedger.dispatched((GetRequest) request, endpoint.get(), topology);
+      }
     } else {
+      scheduleUnroutedTimeout(request);
       // todo: not found! put into retry or cancel loop
     }
   }
 
+  /**
+   * Schedules the timeout of a request which does not reach an endpoint in sharded
+   * mode, on the shard of the calling thread or the next one if it has none.
+   *
+   * @param request the request which has not been dispatched to an endpoint.
+   */
+  private <R extends Response> void scheduleUnroutedTimeout(final Request<R> request) {
+    if (shards != null) {
+      final int current = shards.current();
+      TimerWheel.scheduleTimeout(shards.eventLoop(current < 0 ? shards.next() : current),
+          request);
+    }
+  }
+
+  /**
+   * Completes the request from the near cache if possible, and otherwise makes sure
+   * that its successful response is cached.
+   *
+   * @param request the get request.
+   * @return true if the request has been completed from the cache.
+   */
+  private boolean serveFromNearCache(final GetRequest request) {
+    final byte[] key = request.key();
+    final GetResponse cached = nearCache.get(key);
+    if (cached != null) {
+      request.succeed(cached);
+      return true;
+    }
+
+    final long stamp = nearCache.stamp(key);
+    request.whenComplete((response, throwable) -> {
+      if (throwable == null && response.status() == ResponseStatus.SUCCESS) {
+        nearCache.put(key, response, stamp);
+      }
+    });
+    return false;
+  }
+
 }
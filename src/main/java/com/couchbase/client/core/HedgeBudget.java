@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of hedged requests relative to the number of original requests.
+ *
+ * <p>Every original request deposits a fraction of a token, every hedge withdraws a full
+ * one. Since the balance is capped, a burst of hedges after a long quiet period is
+ * bounded as well. If a node slows down and every request wants to be hedged, the
+ * budget runs dry and hedging stops instead of adding load to an already struggling
+ * cluster.</p>
+ *
+ * @since 2.0.0
+ */
+class HedgeBudget {
+
+  /**
+   * Fixed-point scale for the balance, so fractions of a token can be deposited.
+   */
+  private static final long SCALE = 1000;
+
+  /**
+   * The default maximum number of hedges which can be saved up.
+   */
+  static final int DEFAULT_MAX_BALANCE = 100;
+
+  /**
+   * The current balance, scaled by {@link #SCALE}.
+   */
+  private final AtomicLong balance = new AtomicLong(0);
+
+  /**
+   * The amount deposited for every original request.
+   */
+  private final long deposit;
+
+  /**
+   * The maximum balance, scaled by {@link #SCALE}.
+   */
+  private final long maxBalance;
+
+  /**
+   * Creates a new {@link HedgeBudget}.
+   *
+   * @param ratio the maximum ratio of hedges to original requests.
+   * @param maxBalance the maximum number of hedges which can be saved up.
+   */
+  HedgeBudget(final double ratio, final int maxBalance) {
+    this.deposit = Math.round(ratio * SCALE);
+    this.maxBalance = maxBalance * SCALE;
+  }
+
+  /**
+   * Deposits the share of one original request.
+   */
+  void deposit() {
+    if (deposit > 0 && balance.get() < maxBalance) {
+      balance.accumulateAndGet(deposit, (current, added) -> Math.min(maxBalance, current + added));
+    }
+  }
+
+  /**
+   * Tries to withdraw a single hedge from the budget.
+   *
+   * @return true if the hedge is allowed, false if the budget is exhausted.
+   */
+  boolean tryWithdraw() {
+    while (true) {
+      final long current = balance.get();
+      if (current < SCALE) {
+        return false;
+      }
+      if (balance.compareAndSet(current, current - SCALE)) {
+        return true;
+      }
+    }
+  }
+
+}
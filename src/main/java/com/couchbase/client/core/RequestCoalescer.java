@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.msg.kv.GetRequest;
+import com.couchbase.client.core.msg.kv.GetResponse;
+import com.couchbase.client.core.msg.kv.ReadPreference;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Lets identical reads which are in flight at the same time share one request on the
+ * wire.
+ *
+ * <p>The first read for a key becomes the leader of a "flight" and is sent as usual.
+ * Every identical read which arrives while the leader is in flight follows it instead of
+ * being sent, and completes with the leader's response. Followers keep their own
+ * timeouts: if one of them times out, only that follower fails. If the leader times out
+ * or is cancelled, the followers which are still waiting are routed again, so a short
+ * timeout on the leader never cuts short a follower with a longer one.</p>
+ *
+ * @since 2.0.0
+ */
+class RequestCoalescer {
+
+  private final ConcurrentHashMap<Key, Flight> flights = new ConcurrentHashMap<>();
+
+  /**
+   * Routes followers again when their leader failed for reasons of its own.
+   */
+  private final Consumer<GetRequest> reroute;
+
+  /**
+   * Creates a new {@link RequestCoalescer}.
+   *
+   * @param reroute called with followers which need to be routed again.
+   */
+  RequestCoalescer(final Consumer<GetRequest> reroute) {
+    this.reroute = reroute;
+  }
+
+  /**
+   * Joins an identical read which is in flight, or starts a new flight.
+   *
+   * @param request the read to coalesce.
+   * @return true if the request follows another one and must not be sent, false if it
+   *         leads a new flight and needs to be sent by the caller.
+   */
+  boolean join(final GetRequest request) {
+    final Key key = new Key(request.key(), request.readPreference());
+    while (true) {
+      final Flight flight = flights.get(key);
+      if (flight == null) {
+        final Flight created = new Flight();
+        if (flights.putIfAbsent(key, created) == null) {
+          request.whenComplete((response, throwable) ->
+              land(key, created, response, throwable));
+          return false;
+        }
+      } else if (flight.follow(request)) {
+        return true;
+      } else {
+        flights.remove(key, flight);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of flights currently in the air.
+   *
+   * @return the number of flights.
+   */
+  int inFlight() {
+    return flights.size();
+  }
+
+  /**
+   * Completes all followers of a flight once its leader completed.
+   *
+   * @param key the key of the flight.
+   * @param flight the flight which landed.
+   * @param response the response of the leader, if successful.
+   * @param throwable the error of the leader, if failed.
+   */
+  private void land(final Key key, final Flight flight, final GetResponse response,
+                    final Throwable throwable) {
+    final List<GetRequest> followers = flight.land();
+    flights.remove(key, flight);
+
+    for (GetRequest follower : followers) {
+      if (follower.hasCompleted()) {
+        continue;
+      }
+      if (throwable == null) {
+        follower.succeed(response);
+      } else if (throwable instanceof TimeoutException
+          || throwable instanceof CancellationException) {
+        reroute.accept(follower);
+      } else {
+        follower.fail(throwable);
+      }
+    }
+  }
+
+  /**
+   * Identifies reads which can share a flight.
+   */
+  private static final class Key {
+
+    private final byte[] key;
+    private final ReadPreference readPreference;
+    private final int hash;
+
+    Key(final byte[] key, final ReadPreference readPreference) {
+      this.key = key;
+      this.readPreference = readPreference;
+      this.hash = 31 * Arrays.hashCode(key) + readPreference.hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      final Key that = (Key) other;
+      return readPreference == that.readPreference && Arrays.equals(key, that.key);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+  }
+
+  /**
+   * Holds the followers of one leader until it completes.
+   */
+  private static final class Flight {
+
+    private final List<GetRequest> followers = new ArrayList<>();
+    private boolean landed;
+
+    /**
+     * Adds a follower unless the flight already landed.
+     *
+     * @param request the follower.
+     * @return true if added.
+     */
+    synchronized boolean follow(final GetRequest request) {
+      if (landed) {
+        return false;
+      }
+      followers.add(request);
+      return true;
+    }
+
+    /**
+     * Marks the flight as landed so no more followers are accepted.
+     *
+     * @return all followers of this flight.
+     */
+    synchronized List<GetRequest> land() {
+      landed = true;
+      return followers;
+    }
+
+  }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.conf.ClusterTopology;
+import com.couchbase.client.core.env.HedgingConfig;
+import com.couchbase.client.core.io.Endpoint;
+import com.couchbase.client.core.msg.CancellationReason;
+import com.couchbase.client.core.msg.ResponseStatus;
+import com.couchbase.client.core.msg.kv.GetRequest;
+import com.couchbase.client.core.msg.kv.ReadPreference;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Sends duplicates of reads which may be served by a replica to other copies of their
+ * partition, either right away or once the original is slow to respond.
+ *
+ * <p>The original request is always the one the caller holds on to. Duplicates are
+ * internal requests which complete the original with their value if they win the race,
+ * and are failed as soon as the original completes in any other way so that the
+ * endpoints can discard them.</p>
+ *
+ * @since 2.0.0
+ */
+class RequestHedger {
+
+  /**
+   * The precision of the hedging timer, much finer than the one used for timeouts.
+   */
+  private static final Duration HEDGE_TICK = Duration.ofMillis(1);
+
+  private final HedgingConfig config;
+  private final HedgeBudget budget;
+
+  /**
+   * The timer used to trigger hedges, only created if hedging is enabled.
+   */
+  private final TimerWheel timerWheel;
+
+  /**
+   * Creates a new {@link RequestHedger}.
+   *
+   * @param config the hedging configuration.
+   */
+  RequestHedger(final HedgingConfig config) {
+    this.config = config;
+    this.budget = new HedgeBudget(config.budget(), HedgeBudget.DEFAULT_MAX_BALANCE);
+    this.timerWheel = config.isEnabled() ? TimerWheel.create(HEDGE_TICK) : null;
+  }
+
+  /**
+   * Called after the original request has been dispatched to its primary endpoint, to
+   * fan out or schedule a hedge if the request allows it.
+   *
+   * @param request the original request.
+   * @param primary the endpoint the original has been dispatched to.
+   * @param topology the topology used to locate the primary endpoint.
+   */
+  void dispatched(final GetRequest request, final Endpoint primary,
+                  final ClusterTopology topology) {
+    if (request.readPreference() == ReadPreference.ACTIVE) {
+      return;
+    }
+    final List<Endpoint> copies = topology.locateAll(request);
+    if (copies.size() < 2) {
+      return;
+    }
+
+    if (request.readPreference() == ReadPreference.ANY_REPLICA) {
+      for (Endpoint copy : copies) {
+        if (copy != primary) {
+          sendDuplicate(request, copy, copy != copies.get(0));
+        }
+      }
+    } else if (timerWheel != null) {
+      budget.deposit();
+      final Timer timer = timerWheel.schedule(t -> hedge(request, primary, copies),
+          delay(primary));
+      request.whenComplete((value, throwable) -> timer.cancel());
+    }
+  }
+
+  /**
+   * Sends a hedge to the best copy other than the primary, if the budget allows it.
+   *
+   * @param request the original request.
+   * @param primary the endpoint the original has been dispatched to.
+   * @param copies all endpoints which are able to serve the request.
+   */
+  private void hedge(final GetRequest request, final Endpoint primary,
+                     final List<Endpoint> copies) {
+    if (request.hasCompleted() || !budget.tryWithdraw()) {
+      return;
+    }
+
+    Endpoint best = null;
+    for (Endpoint copy : copies) {
+      if (copy != primary && (best == null || copy.stats().score() < best.stats().score())) {
+        best = copy;
+      }
+    }
+    if (best != null) {
+      sendDuplicate(request, best, best != copies.get(0));
+    }
+  }
+
+  /**
+   * Creates a duplicate of the original request and sends it to the given endpoint.
+   *
+   * <p>The duplicate does not need a timeout on its own, since it is discarded once the
+   * original completes, which includes the original timing out. Only a successful
+   * response completes the original: an error status from a copy (for example
+   * {@link ResponseStatus#NOT_MY_VBUCKET} or {@link ResponseStatus#TEMPORARY_FAILURE})
+   * must not beat a correct but slower answer of the original or another copy.</p>
+   *
+   * @param request the original request.
+   * @param endpoint the endpoint to send the duplicate to.
+   * @param fromReplica true if the endpoint holds a replica and not the active copy.
+   */
+  private static void sendDuplicate(final GetRequest request, final Endpoint endpoint,
+                                    final boolean fromReplica) {
+    final GetRequest duplicate = new GetRequest(
+        request.key(),
+        request.timeout(),
+        request.span(),
+        ReadPreference.ACTIVE
+    );
+    duplicate.partition(request.partition());
+    duplicate.priority(request.priority());
+    duplicate.fromReplica(fromReplica);
+    duplicate.whenComplete((value, throwable) -> {
+      if (throwable == null && value.status() == ResponseStatus.SUCCESS) {
+        request.succeed(value);
+      }
+    });
+    request.whenComplete((value, throwable) -> duplicate.cancel(CancellationReason.SUPERSEDED));
+    endpoint.dispatch(duplicate);
+  }
+
+  /**
+   * Calculates the hedging delay for a request sent to the given endpoint.
+   *
+   * @param primary the endpoint the original has been dispatched to.
+   * @return the delay after which to hedge.
+   */
+  private Duration delay(final Endpoint primary) {
+    if (config.percentile() > 0) {
+      final long percentile = primary.stats().latencyPercentile(config.percentile());
+      if (percentile > 0) {
+        return Duration.ofNanos(Math.max(percentile, HEDGE_TICK.toNanos()));
+      }
+    }
+    return config.delay();
+  }
+
+}
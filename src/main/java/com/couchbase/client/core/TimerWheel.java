@@ -16,15 +16,17 @@
 
 package com.couchbase.client.core;
 
+import com.couchbase.client.core.msg.CancellationReason;
 import com.couchbase.client.core.msg.Request;
 import io.netty.util.HashedWheelTimer;
 import io.netty.util.Timeout;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
 
 import java.time.Duration;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -40,25 +42,26 @@ import java.util.stream.Collectors;
 public class TimerWheel {
 
   /**
-   * Pre-create a {@link TimeoutException} for better performance, since where the
-   * timeout happens the stack trace is useless anyways.
+   * The actual timer wheel implementation from netty.
    */
-  private static final TimeoutException TIMEOUT_EXCEPTION = new TimeoutException();
-
-  static {
-    TIMEOUT_EXCEPTION.setStackTrace(new StackTraceElement[0]);
-  }
+  private final HashedWheelTimer timer;
 
   /**
-   * The actual timer wheel implementation from netty.
+   * The default tick duration of the wheel.
    */
-  private final HashedWheelTimer timer;
+  private static final Duration DEFAULT_TICK = Duration.ofMillis(100);
 
   /**
    * Private constructor to create the {@link TimerWheel}.
+   *
+   * @param tick the tick duration and therefore precision of the wheel.
    */
-  private TimerWheel() {
-    timer = new HashedWheelTimer(new DefaultThreadFactory("cb-timer", true));
+  private TimerWheel(final Duration tick) {
+    timer = new HashedWheelTimer(
+      new DefaultThreadFactory("cb-timer", true),
+      tick.toNanos(),
+      TimeUnit.NANOSECONDS
+    );
     timer.start();
   }
 
@@ -68,7 +71,20 @@ public class TimerWheel {
    * @return the newly created {@link TimerWheel}.
    */
   public static TimerWheel create() {
-    return new TimerWheel();
+    return create(DEFAULT_TICK);
+  }
+
+  /**
+   * Creates a new {@link TimerWheel} with a custom tick duration.
+   *
+   * <p>A shorter tick increases precision at the cost of more frequent wakeups, so it
+   * should only be used when sub-100ms precision is actually needed.</p>
+   *
+   * @param tick the tick duration and therefore precision of the wheel.
+   * @return the newly created {@link TimerWheel}.
+   */
+  public static TimerWheel create(final Duration tick) {
+    return new TimerWheel(tick);
   }
 
   /**
@@ -80,7 +96,7 @@ public class TimerWheel {
   public Timer schedule(final Consumer<Timer> task, final Duration timeout) {
     return com.couchbase.client.core.Timer.wrap(timer.newTimeout(
       t -> task.accept(Timer.wrap(t)),
-      timeout.getNano(),
+      timeout.toNanos(),
       TimeUnit.NANOSECONDS
     ));
   }
@@ -93,15 +109,40 @@ public class TimerWheel {
    */
   public <R> void scheduleTimeout(final Request<R> request) {
     final Timeout timeout = timer.newTimeout(
-        t -> request.fail(TIMEOUT_EXCEPTION),
+        t -> request.cancel(CancellationReason.TIMEOUT),
         request.timeout().toNanos(),
         TimeUnit.NANOSECONDS
       );
-    request.response().whenComplete(
+    request.whenComplete(
         (R value, Throwable throwable) -> timeout.cancel()
     );
   }
 
+  /**
+   * Schedules the timeout of a {@link Request} on the given event executor instead of
+   * a wheel, used in sharded mode where every shard keeps its own timeouts.
+   *
+   * <p>The timeout fires at the deadline of the request, so it can be scheduled some time
+   * after the request has been created. When called from the executor itself, both
+   * scheduling and the cancellation on completion happen without touching any shared
+   * state.</p>
+   *
+   * @param executor the executor which owns the timeout.
+   * @param request the message to track for timeout.
+   * @param <R> the generic type of the message, not used at this point.
+   */
+  public static <R> void scheduleTimeout(final EventExecutor executor,
+                                         final Request<R> request) {
+    final ScheduledFuture<?> timeout = executor.schedule(
+        () -> request.cancel(CancellationReason.TIMEOUT),
+        request.deadlineNanos() - System.nanoTime(),
+        TimeUnit.NANOSECONDS
+    );
+    request.whenComplete(
+        (R value, Throwable throwable) -> timeout.cancel(false)
+    );
+  }
+
   /**
    * Returns the number of currently scheduled tasks.
    *
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.cache;
+
+/**
+ * A count-min sketch which estimates the access frequency of keys in little space.
+ *
+ * <p>Every key maps to four 4-bit counters (so frequencies saturate at 15) which all live
+ * in the same 64 bit word for cache friendliness. The estimate is the minimum of the four
+ * counters. Once the number of increments reaches a sample size relative to the cache
+ * size, all counters are halved so that the sketch follows changes in popularity.</p>
+ *
+ * <p>This class is not thread-safe, it is only accessed under the eviction lock of the
+ * {@link NearCache}.</p>
+ *
+ * @since 2.0.0
+ */
+final class FrequencySketch {
+
+  /**
+   * Seeds for the four hash functions.
+   */
+  private static final long[] SEEDS = {
+    0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+  };
+
+  /**
+   * Mask to clear the top bit of every counter after shifting it right by one.
+   */
+  private static final long RESET_MASK = 0x7777777777777777L;
+
+  /**
+   * Mask to isolate the lowest bit of every counter.
+   */
+  private static final long ONE_MASK = 0x1111111111111111L;
+
+  /**
+   * The maximum length of the table.
+   */
+  private static final int MAX_TABLE_LENGTH = 1 << 30;
+
+  private final long[] table;
+  private final int tableMask;
+  private final int sampleSize;
+  private int size;
+
+  /**
+   * Creates a new sketch sized for the given number of cache entries.
+   *
+   * @param maximumSize the maximum number of entries in the cache.
+   */
+  FrequencySketch(final int maximumSize) {
+    final int length = ceilingPowerOfTwo(Math.max(1, Math.min(maximumSize, MAX_TABLE_LENGTH)));
+    this.table = new long[length];
+    this.tableMask = length - 1;
+    this.sampleSize = (int) Math.min(10L * Math.max(maximumSize, 1), Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns the estimated frequency of the given key hash.
+   *
+   * @param keyHash the hash of the key.
+   * @return the estimated frequency, between 0 and 15.
+   */
+  int frequency(final int keyHash) {
+    final int hash = spread(keyHash);
+    final int start = (hash & 3) << 2;
+    int frequency = Integer.MAX_VALUE;
+    for (int i = 0; i < 4; i++) {
+      final int index = indexOf(hash, i);
+      final int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  /**
+   * Increments the estimated frequency of the given key hash.
+   *
+   * @param keyHash the hash of the key.
+   */
+  void increment(final int keyHash) {
+    final int hash = spread(keyHash);
+    final int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      added |= incrementAt(indexOf(hash, i), start + i);
+    }
+    if (added && ++size == sampleSize) {
+      reset();
+    }
+  }
+
+  /**
+   * Increments the counter at the given word and position, unless it is saturated.
+   *
+   * @param index the index of the word in the table.
+   * @param position the position of the counter in the word, from 0 to 15.
+   * @return true if the counter has been incremented.
+   */
+  private boolean incrementAt(final int index, final int position) {
+    final int offset = position << 2;
+    final long mask = 0xfL << offset;
+    if ((table[index] & mask) != mask) {
+      table[index] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Halves every counter, making room for new popular keys.
+   */
+  private void reset() {
+    int odd = 0;
+    for (int i = 0; i < table.length; i++) {
+      odd += Long.bitCount(table[i] & ONE_MASK);
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    size = (size >>> 1) - (odd >>> 2);
+  }
+
+  /**
+   * Calculates the table index of the given hash for one of the hash functions.
+   *
+   * @param hash the spread hash.
+   * @param function the hash function, from 0 to 3.
+   * @return the index in the table.
+   */
+  private int indexOf(final int hash, final int function) {
+    long combined = (hash + SEEDS[function]) * SEEDS[function];
+    combined += combined >>> 32;
+    return ((int) combined) & tableMask;
+  }
+
+  /**
+   * Applies a supplemental hash function to defend against poor quality hash codes.
+   *
+   * @param hash the original hash.
+   * @return the spread hash.
+   */
+  private static int spread(final int hash) {
+    int spread = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    spread = ((spread >>> 16) ^ spread) * 0x45d9f3b;
+    return (spread >>> 16) ^ spread;
+  }
+
+  /**
+   * Returns the smallest power of two which is larger or equal to the given value.
+   *
+   * @param value the value, must be positive.
+   * @return the next power of two.
+   */
+  private static int ceilingPowerOfTwo(final int value) {
+    return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+  }
+
+}
@@ -0,0 +1,575 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.cache;
+
+import com.couchbase.client.core.env.NearCacheConfig;
+import com.couchbase.client.core.msg.kv.GetResponse;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded, client-side cache of documents which sits in front of the network.
+ *
+ * <p>The cache is bounded both by the number of entries and by their size in bytes, and
+ * uses the W-TinyLFU policy to decide what to keep: new entries first enter a small LRU
+ * "window". When they are pushed out of the window, they are only admitted into the main
+ * space if a {@link FrequencySketch} estimates that they are accessed more often than
+ * the entry they would replace. The main space is a segmented LRU, where entries which
+ * are accessed again get promoted from "probation" into "protected". This keeps hot keys
+ * cached even when scans or one-hit wonders flow through the cache.</p>
+ *
+ * <p>Reads are lock-free lookups into a concurrent map. The bookkeeping of the policy
+ * happens under a lock, which readers only try to acquire and skip if it is contended,
+ * so a hot read path never blocks. Losing some access information under contention
+ * only slightly degrades the hit rate. The same goes for expired entries: a reader
+ * removes them if it gets the lock and otherwise only reports a miss, leaving them to
+ * the next read or to eviction.</p>
+ *
+ * <p>Every entry carries the CAS of its document and expires after its time to live.
+ * Writes invalidate entries, and a stamp taken before a read is dispatched makes sure
+ * that a response which raced with an invalidation is never cached.</p>
+ *
+ * @since 2.0.0
+ */
+public class NearCache {
+
+  /**
+   * Rough estimate of the memory needed per entry on top of its key and content.
+   */
+  static final int ENTRY_OVERHEAD = 96;
+
+  /**
+   * The number of invalidation stamp stripes, must be a power of two.
+   */
+  private static final int STAMP_STRIPES = 64;
+
+  /**
+   * The percentage of entries which make up the admission window.
+   */
+  private static final int WINDOW_PERCENT = 1;
+
+  /**
+   * The percentage of the main space which is reserved for protected entries.
+   */
+  private static final int PROTECTED_PERCENT = 80;
+
+  private final ConcurrentHashMap<Key, Node> data = new ConcurrentHashMap<>();
+  private final AtomicLongArray stamps = new AtomicLongArray(STAMP_STRIPES);
+  private final ReentrantLock lock = new ReentrantLock();
+  private final NearCacheStats stats = new NearCacheStats();
+  private final FrequencySketch sketch;
+
+  private final int maxEntries;
+  private final long maxBytes;
+  private final long ttlNanos;
+  private final int windowMax;
+  private final int mainMax;
+  private final int protectedMax;
+
+  private final AccessOrderList window = new AccessOrderList();
+  private final AccessOrderList probation = new AccessOrderList();
+  private final AccessOrderList protectedList = new AccessOrderList();
+
+  // the following counters are only modified under the lock
+  private int windowSize;
+  private int mainSize;
+  private int protectedSize;
+  private volatile long weightedSize;
+
+  /**
+   * Creates a new {@link NearCache}.
+   *
+   * @param config the configuration to use.
+   */
+  public NearCache(final NearCacheConfig config) {
+    this.maxEntries = config.maxEntries();
+    this.maxBytes = config.maxBytes();
+    this.ttlNanos = config.ttl().toNanos();
+    this.windowMax = Math.max(1, maxEntries * WINDOW_PERCENT / 100);
+    this.mainMax = Math.max(1, maxEntries - windowMax);
+    this.protectedMax = Math.max(1, mainMax * PROTECTED_PERCENT / 100);
+    this.sketch = new FrequencySketch(maxEntries);
+  }
+
+  /**
+   * Returns the cached response for the given key, if present and not expired.
+   *
+   * @param key the encoded document key.
+   * @return the cached response, or null if there is none.
+   */
+  public GetResponse get(final byte[] key) {
+    final Key lookup = new Key(key);
+    final Node node = data.get(lookup);
+
+    if (node == null) {
+      stats.recordMiss();
+      if (lock.tryLock()) {
+        try {
+          sketch.increment(lookup.hash);
+        } finally {
+          lock.unlock();
+        }
+      }
+      return null;
+    }
+    return read(node);
+  }
+
+  /**
+   * Serves a read from an entry which has been looked up without holding the lock, so it
+   * might have been evicted or rejected in the meantime.
+   *
+   * <p>Expired entries are a miss either way, but only removed if the lock is free.</p>
+   *
+   * @param node the entry which has been found.
+   * @return the cached response, or null if the entry has expired.
+   */
+  GetResponse read(final Node node) {
+    if (node.expiresAt - System.nanoTime() <= 0) {
+      stats.recordMiss();
+      if (lock.tryLock()) {
+        try {
+          if (node.queue != Node.REMOVED && node.expiresAt - System.nanoTime() <= 0) {
+            remove(node);
+            stats.recordExpiration();
+          }
+        } finally {
+          lock.unlock();
+        }
+      }
+      return null;
+    }
+
+    stats.recordHit();
+    if (lock.tryLock()) {
+      try {
+        onAccess(node);
+      } finally {
+        lock.unlock();
+      }
+    }
+    return node.value;
+  }
+
+  /**
+   * Returns the invalidation stamp of the given key, which needs to be taken before the
+   * read is dispatched and passed into {@link #put(byte[], GetResponse, long)}.
+   *
+   * @param key the encoded document key.
+   * @return the current stamp.
+   */
+  public long stamp(final byte[] key) {
+    return stamps.get(stripe(Arrays.hashCode(key)));
+  }
+
+  /**
+   * Caches a response with the default time to live.
+   *
+   * @param key the encoded document key.
+   * @param response the response to cache.
+   * @param stamp the stamp taken before the read has been dispatched.
+   * @return true if the response has been cached.
+   */
+  public boolean put(final byte[] key, final GetResponse response, final long stamp) {
+    return insert(key, response, stamp, ttlNanos);
+  }
+
+  /**
+   * Caches a response with a custom time to live.
+   *
+   * @param key the encoded document key.
+   * @param response the response to cache.
+   * @param stamp the stamp taken before the read has been dispatched.
+   * @param ttl the time to live of this entry.
+   * @return true if the response has been cached.
+   */
+  public boolean put(final byte[] key, final GetResponse response, final long stamp,
+                     final Duration ttl) {
+    return insert(key, response, stamp, ttl.toNanos());
+  }
+
+  /**
+   * Invalidates the entry for the given key, if present.
+   *
+   * <p>This must be called whenever a document is modified through this client, ideally
+   * both before the write is sent and once it completes.</p>
+   *
+   * @param key the encoded document key.
+   */
+  public void invalidate(final byte[] key) {
+    invalidate(key, 0);
+  }
+
+  /**
+   * Invalidates the entry for the given key unless it holds the given CAS.
+   *
+   * <p>Passing the CAS returned by a write keeps an entry which is already up to date,
+   * while any other version of the document is removed.</p>
+   *
+   * @param key the encoded document key.
+   * @param cas the CAS of the current version of the document, 0 if unknown.
+   */
+  public void invalidate(final byte[] key, final long cas) {
+    final Key lookup = new Key(key);
+    lock.lock();
+    try {
+      final Node node = data.get(lookup);
+      if (cas == 0 || node == null || node.value.cas() != cas) {
+        stamps.incrementAndGet(stripe(lookup.hash));
+        if (node != null) {
+          remove(node);
+          stats.recordInvalidation();
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes all entries from the cache.
+   */
+  public void clear() {
+    lock.lock();
+    try {
+      for (int i = 0; i < STAMP_STRIPES; i++) {
+        stamps.incrementAndGet(i);
+      }
+      for (Node node : data.values()) {
+        remove(node);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the entry of the given key without recording an access.
+   *
+   * @param key the encoded document key.
+   * @return the entry, or null if there is none.
+   */
+  Node entry(final byte[] key) {
+    return data.get(new Key(key));
+  }
+
+  /**
+   * Returns the number of entries in the cache.
+   *
+   * @return the number of entries.
+   */
+  public int size() {
+    return data.size();
+  }
+
+  /**
+   * Returns the estimated size of all entries in bytes.
+   *
+   * @return the size in bytes.
+   */
+  public long weightedSize() {
+    return weightedSize;
+  }
+
+  /**
+   * Returns the hit, miss and eviction statistics of this cache.
+   *
+   * @return the statistics.
+   */
+  public NearCacheStats stats() {
+    return stats;
+  }
+
+  /**
+   * Caches a response, subject to admission.
+   *
+   * @param key the encoded document key.
+   * @param response the response to cache.
+   * @param stamp the stamp taken before the read has been dispatched.
+   * @param ttl the time to live in nanoseconds.
+   * @return true if the response has been cached.
+   */
+  private boolean insert(final byte[] key, final GetResponse response, final long stamp,
+                         final long ttl) {
+    final Key lookup = new Key(key);
+    final long weight = (long) key.length + response.content().length + ENTRY_OVERHEAD;
+    if (weight > maxBytes) {
+      stats.recordRejection();
+      return false;
+    }
+
+    lock.lock();
+    try {
+      if (stamps.get(stripe(lookup.hash)) != stamp) {
+        return false;
+      }
+
+      final long expiresAt = System.nanoTime() + ttl;
+      final Node existing = data.get(lookup);
+      if (existing != null) {
+        weightedSize += weight - existing.weight;
+        existing.value = response;
+        existing.weight = weight;
+        existing.expiresAt = expiresAt;
+        onAccess(existing);
+      } else {
+        final Node node = new Node(lookup, response, weight, expiresAt);
+        data.put(lookup, node);
+        window.addLast(node);
+        windowSize++;
+        weightedSize += weight;
+      }
+      evict();
+      return data.get(lookup) != null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Moves entries which overflow the window into the main space if they are admitted,
+   * and then evicts until both bounds are satisfied again.
+   */
+  private void evict() {
+    while (windowSize > windowMax) {
+      final Node candidate = window.first();
+      window.remove(candidate);
+      windowSize--;
+      admit(candidate);
+    }
+
+    while (data.size() > maxEntries || weightedSize > maxBytes) {
+      Node victim = mainVictim();
+      if (victim == null) {
+        victim = window.first();
+      }
+      if (victim == null) {
+        break;
+      }
+      remove(victim);
+      stats.recordEviction();
+    }
+  }
+
+  /**
+   * Admits a candidate from the window into the main space if it is accessed more
+   * frequently than the entries it needs to replace, and rejects it otherwise.
+   *
+   * @param candidate the candidate which has been pushed out of the window.
+   */
+  private void admit(final Node candidate) {
+    while (mainSize >= mainMax || weightedSize > maxBytes) {
+      final Node victim = mainVictim();
+      if (victim == null) {
+        break;
+      }
+      if (sketch.frequency(candidate.key.hash) > sketch.frequency(victim.key.hash)) {
+        remove(victim);
+        stats.recordEviction();
+      } else {
+        // a concurrent get might still hold the node, so mark it as unlinked
+        candidate.queue = Node.REMOVED;
+        data.remove(candidate.key, candidate);
+        weightedSize -= candidate.weight;
+        stats.recordRejection();
+        return;
+      }
+    }
+    candidate.queue = Node.PROBATION;
+    probation.addLast(candidate);
+    mainSize++;
+  }
+
+  /**
+   * Returns the entry in the main space which is evicted next.
+   *
+   * @return the victim, or null if the main space is empty.
+   */
+  private Node mainVictim() {
+    final Node victim = probation.first();
+    return victim != null ? victim : protectedList.first();
+  }
+
+  /**
+   * Records an access to an entry, which also promotes it through the segments.
+   *
+   * @param node the accessed entry.
+   */
+  private void onAccess(final Node node) {
+    if (node.queue == Node.REMOVED) {
+      return;
+    }
+    sketch.increment(node.key.hash);
+    if (node.queue == Node.WINDOW) {
+      window.moveToLast(node);
+    } else if (node.queue == Node.PROBATION) {
+      probation.remove(node);
+      node.queue = Node.PROTECTED;
+      protectedList.addLast(node);
+      protectedSize++;
+      while (protectedSize > protectedMax) {
+        final Node demoted = protectedList.first();
+        protectedList.remove(demoted);
+        protectedSize--;
+        demoted.queue = Node.PROBATION;
+        probation.addLast(demoted);
+      }
+    } else {
+      protectedList.moveToLast(node);
+    }
+  }
+
+  /**
+   * Removes an entry from the map and its segment.
+   *
+   * @param node the entry to remove.
+   */
+  private void remove(final Node node) {
+    if (node.queue == Node.REMOVED) {
+      return;
+    }
+    if (node.queue == Node.WINDOW) {
+      window.remove(node);
+      windowSize--;
+    } else if (node.queue == Node.PROBATION) {
+      probation.remove(node);
+      mainSize--;
+    } else {
+      protectedList.remove(node);
+      protectedSize--;
+      mainSize--;
+    }
+    node.queue = Node.REMOVED;
+    data.remove(node.key, node);
+    weightedSize -= node.weight;
+  }
+
+  /**
+   * Calculates the stamp stripe for a key hash.
+   *
+   * @param hash the key hash.
+   * @return the stripe index.
+   */
+  private static int stripe(final int hash) {
+    return (hash ^ (hash >>> 16)) & (STAMP_STRIPES - 1);
+  }
+
+  /**
+   * Wraps an encoded key so it can be used in a map.
+   */
+  static final class Key {
+
+    final byte[] bytes;
+    final int hash;
+
+    Key(final byte[] bytes) {
+      this.bytes = bytes;
+      this.hash = Arrays.hashCode(bytes);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      return this == other
+        || (other instanceof Key && Arrays.equals(bytes, ((Key) other).bytes));
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+  }
+
+  /**
+   * A cache entry, which is also a node in one of the access order lists.
+   */
+  static final class Node {
+
+    static final byte WINDOW = 0;
+    static final byte PROBATION = 1;
+    static final byte PROTECTED = 2;
+    static final byte REMOVED = 3;
+
+    final Key key;
+    volatile GetResponse value;
+    volatile long expiresAt;
+    long weight;
+    byte queue = WINDOW;
+    Node prev;
+    Node next;
+
+    Node(final Key key, final GetResponse value, final long weight, final long expiresAt) {
+      this.key = key;
+      this.value = value;
+      this.weight = weight;
+      this.expiresAt = expiresAt;
+    }
+
+  }
+
+  /**
+   * An intrusive doubly-linked list of nodes, ordered from least to most recently used.
+   */
+  static final class AccessOrderList {
+
+    private Node head;
+    private Node tail;
+
+    Node first() {
+      return head;
+    }
+
+    void addLast(final Node node) {
+      node.prev = tail;
+      node.next = null;
+      if (tail == null) {
+        head = node;
+      } else {
+        tail.next = node;
+      }
+      tail = node;
+    }
+
+    void remove(final Node node) {
+      if (node.prev == null) {
+        head = node.next;
+      } else {
+        node.prev.next = node.next;
+      }
+      if (node.next == null) {
+        tail = node.prev;
+      } else {
+        node.next.prev = node.prev;
+      }
+      node.prev = null;
+      node.next = null;
+    }
+
+    void moveToLast(final Node node) {
+      if (tail != node) {
+        remove(node);
+        addLast(node);
+      }
+    }
+
+  }
+
+}
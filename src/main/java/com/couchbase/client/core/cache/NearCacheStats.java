@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit, miss and eviction counters of a {@link NearCache}.
+ *
+ * <p>All counters are cumulative since the cache has been created.</p>
+ *
+ * @since 2.0.0
+ */
+public final class NearCacheStats {
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder expirations = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder rejections = new LongAdder();
+  private final LongAdder invalidations = new LongAdder();
+
+  /**
+   * Package-private constructor, stats are only created by the cache.
+   */
+  NearCacheStats() {
+  }
+
+  void recordHit() {
+    hits.increment();
+  }
+
+  void recordMiss() {
+    misses.increment();
+  }
+
+  void recordExpiration() {
+    expirations.increment();
+  }
+
+  void recordEviction() {
+    evictions.increment();
+  }
+
+  void recordRejection() {
+    rejections.increment();
+  }
+
+  void recordInvalidation() {
+    invalidations.increment();
+  }
+
+  /**
+   * Returns the number of reads which have been served from the cache.
+   *
+   * @return the number of hits.
+   */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns the number of reads which could not be served from the cache, including
+   * the ones which found an expired entry.
+   *
+   * @return the number of misses.
+   */
+  public long misses() {
+    return misses.sum();
+  }
+
+  /**
+   * Returns the ratio of hits to all reads.
+   *
+   * @return the hit rate between 0 and 1, or 0 if there have not been any reads.
+   */
+  public double hitRate() {
+    final long hitCount = hits();
+    final long total = hitCount + misses();
+    return total == 0 ? 0 : (double) hitCount / total;
+  }
+
+  /**
+   * Returns the number of entries which have been found expired.
+   *
+   * @return the number of expirations.
+   */
+  public long expirations() {
+    return expirations.sum();
+  }
+
+  /**
+   * Returns the number of entries which have been evicted to make room for others.
+   *
+   * @return the number of evictions.
+   */
+  public long evictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * Returns the number of new entries which were not admitted, because they were
+   * accessed less frequently than the entries they would have replaced, or too large.
+   *
+   * @return the number of rejections.
+   */
+  public long rejections() {
+    return rejections.sum();
+  }
+
+  /**
+   * Returns the number of entries which have been invalidated.
+   *
+   * @return the number of invalidations.
+   */
+  public long invalidations() {
+    return invalidations.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "NearCacheStats{"
+      + "hits=" + hits()
+      + ", misses=" + misses()
+      + ", expirations=" + expirations()
+      + ", evictions=" + evictions()
+      + ", rejections=" + rejections()
+      + ", invalidations=" + invalidations()
+      + '}';
+  }
+
+}
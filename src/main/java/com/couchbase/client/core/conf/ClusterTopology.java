@@ -19,6 +19,7 @@ package com.couchbase.client.core.conf;
 import com.couchbase.client.core.io.Endpoint;
 import com.couchbase.client.core.msg.Request;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -32,10 +33,26 @@ public interface ClusterTopology {
   /**
    * Locates an endpoint for the given request, or none if not possible.
    *
+   * <p>Key/Value requests which allow reading from replicas (see
+   * {@link com.couchbase.client.core.msg.kv.ReadPreference}) are routed to whichever
+   * copy of their partition currently performs best.</p>
+   *
    * @param request the request to locate an endpoint for.
    * @param <R> the response type, inferred.
    * @return an endpoint if found, none otherwise.
    */
   <R> Optional<Endpoint> locate(Request<R> request);
 
+  /**
+   * Locates all endpoints which are able to serve the given request.
+   *
+   * <p>For Key/Value requests these are the copies of the target partition, with the
+   * endpoint of the active copy first and followed by the replicas.</p>
+   *
+   * @param request the request to locate the endpoints for.
+   * @param <R> the response type, inferred.
+   * @return all endpoints which can serve the request, empty if none.
+   */
+  <R> List<Endpoint> locateAll(Request<R> request);
+
 }
@@ -16,22 +16,183 @@
 
 package com.couchbase.client.core.conf;
 
+import com.couchbase.client.core.io.CircuitBreaker;
 import com.couchbase.client.core.io.Endpoint;
 import com.couchbase.client.core.msg.Request;
+import com.couchbase.client.core.msg.kv.GetRequest;
+import com.couchbase.client.core.msg.kv.KeyValueRequest;
+import com.couchbase.client.core.msg.kv.ReadPreference;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * The main implementation of a {@link ClusterTopology}.
  *
+ * <p>The topology is an immutable snapshot of the partition map: for every partition
+ * it holds the endpoint of the active copy first, followed by the endpoints of its
+ * replicas. A new snapshot is created whenever the cluster configuration changes.</p>
+ *
  * @author Michael Nitschinger
  * @since 2.0.0
  */
 public class DefaultClusterTopology implements ClusterTopology {
 
+  /**
+   * A topology without any partitions, which will not locate anything.
+   */
+  private static final DefaultClusterTopology EMPTY =
+      new DefaultClusterTopology(new Endpoint[0][]);
+
+  /**
+   * For each partition, the active endpoint followed by the replica endpoints.
+   */
+  private final Endpoint[][] partitions;
+
+  /**
+   * The same as {@link #partitions}, but pre-wrapped for {@link #locateAll(Request)}.
+   */
+  private final List<List<Endpoint>> partitionLists;
+
+  /**
+   * Creates a new {@link DefaultClusterTopology}.
+   *
+   * @param partitions the partition map.
+   */
+  private DefaultClusterTopology(final Endpoint[][] partitions) {
+    this.partitions = partitions;
+    final List<List<Endpoint>> lists = new ArrayList<>(partitions.length);
+    for (Endpoint[] copies : partitions) {
+      lists.add(Collections.unmodifiableList(Arrays.asList(copies)));
+    }
+    this.partitionLists = lists;
+  }
+
+  /**
+   * Returns a topology which does not know about any partitions yet.
+   *
+   * @return the empty topology.
+   */
+  public static DefaultClusterTopology empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Creates a topology from the given partition map.
+   *
+   * @param partitions for each partition the active endpoint, followed by its replicas.
+   * @return the created topology.
+   */
+  public static DefaultClusterTopology create(final List<List<Endpoint>> partitions) {
+    final Endpoint[][] map = new Endpoint[partitions.size()][];
+    for (int i = 0; i < map.length; i++) {
+      final List<Endpoint> copies = partitions.get(i);
+      if (copies == null || copies.isEmpty() || copies.contains(null)) {
+        throw new IllegalArgumentException("Partition " + i + " needs at least an active "
+          + "endpoint and must not contain empty slots.");
+      }
+      map[i] = copies.toArray(new Endpoint[0]);
+    }
+    return new DefaultClusterTopology(map);
+  }
+
+  @Override
+  public <R> Optional<Endpoint> locate(final Request<R> request) {
+    final int partition = partition(request);
+    if (partition < 0) {
+      return Optional.empty();
+    }
+
+    final Endpoint[] copies = partitions[partition];
+    final ReadPreference preference = ((KeyValueRequest<R>) request).readPreference();
+    if (preference != ReadPreference.ACTIVE && copies.length > 1) {
+      final Endpoint best = selectBest(copies);
+      if (request instanceof GetRequest) {
+        ((GetRequest) request).fromReplica(best != copies[0]);
+      }
+      return Optional.of(best);
+    }
+    return Optional.of(copies[0]);
+  }
+
   @Override
-  public <R> Optional<Endpoint> locate(Request<R> request) {
-    return Optional.empty();
+  public <R> List<Endpoint> locateAll(final Request<R> request) {
+    final int partition = partition(request);
+    return partition < 0 ? Collections.emptyList() : partitionLists.get(partition);
+  }
+
+  /**
+   * Returns the number of partitions in this topology.
+   *
+   * @return the number of partitions.
+   */
+  public int numPartitions() {
+    return partitions.length;
+  }
+
+  /**
+   * Helper method to find the partition of a request which is part of this topology.
+   *
+   * @param request the request to check.
+   * @return the partition, or -1 if the request does not map to a known partition.
+   */
+  private int partition(final Request<?> request) {
+    if (!(request instanceof KeyValueRequest)) {
+      return -1;
+    }
+    final int partition = ((KeyValueRequest<?>) request).partition();
+    return partition >= 0 && partition < partitions.length ? partition : -1;
+  }
+
+  /**
+   * Picks the better of two randomly chosen copies based on their load score.
+   *
+   * <p>Comparing only two random candidates ("power of two choices") avoids the herd
+   * behavior of always picking the global minimum, where every client moves onto the
+   * same node until its score catches up.</p>
+   *
+   * <p>Copies whose circuit breaker is open are routed around, since they would only
+   * reject the request. If both candidates are open, any other copy which is not is
+   * chosen, and only if all of them are open the request goes to one which fails it.</p>
+   *
+   * @param copies the copies of a partition, at least two.
+   * @return the selected endpoint.
+   */
+  static Endpoint selectBest(final Endpoint[] copies) {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    final int first = random.nextInt(copies.length);
+    int second = random.nextInt(copies.length - 1);
+    if (second >= first) {
+      second++;
+    }
+    final Endpoint left = copies[first];
+    final Endpoint right = copies[second];
+    final boolean leftOpen = isOpen(left);
+    if (leftOpen != isOpen(right)) {
+      return leftOpen ? right : left;
+    }
+    if (leftOpen) {
+      for (Endpoint copy : copies) {
+        if (!isOpen(copy)) {
+          return copy;
+        }
+      }
+    }
+    return left.stats().score() <= right.stats().score() ? left : right;
+  }
+
+  /**
+   * Checks if the circuit breaker of the given endpoint currently rejects requests.
+   *
+   * @param endpoint the endpoint to check.
+   * @return true if its circuit breaker is open.
+   */
+  private static boolean isOpen(final Endpoint endpoint) {
+    return endpoint.circuitBreaker().state() == CircuitBreaker.State.OPEN;
   }
 
 }
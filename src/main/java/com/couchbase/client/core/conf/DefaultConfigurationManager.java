@@ -21,9 +21,23 @@ package com.couchbase.client.core.conf;
  */
 public class DefaultConfigurationManager implements ConfigurationManager {
 
+  /**
+   * The topology currently in use, replaced as a whole on every change.
+   */
+  private volatile ClusterTopology topology = DefaultClusterTopology.empty();
+
   @Override
   public ClusterTopology topology() {
-    return null;
+    return topology;
+  }
+
+  /**
+   * Replaces the topology in use with a new one.
+   *
+   * @param topology the new topology.
+   */
+  public void topology(final ClusterTopology topology) {
+    this.topology = topology;
   }
 
 }
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.env;
+
+import java.time.Duration;
+
+/**
+ * Configures the circuit breaker every endpoint has.
+ *
+ * <p>The breaker opens once the ratio of failed and timed out requests in a sliding
+ * window reaches a threshold, provided the window holds enough requests to be
+ * meaningful. While it is open, requests fail right away instead of tying up memory and
+ * timers until they time out. After a while, a few probe requests are let through: if
+ * all of them succeed, the breaker closes again, otherwise it stays open for another
+ * round.</p>
+ *
+ * @since 2.0.0
+ */
+public class CircuitBreakerConfig {
+
+  /**
+   * The default length of the sliding window.
+   */
+  public static final Duration DEFAULT_WINDOW = Duration.ofSeconds(10);
+
+  /**
+   * The default minimum number of requests in the window before the breaker can open.
+   */
+  public static final int DEFAULT_MIN_REQUESTS = 20;
+
+  /**
+   * The default ratio of failed requests which opens the breaker.
+   */
+  public static final double DEFAULT_FAILURE_RATIO = 0.5;
+
+  /**
+   * The default time the breaker stays open before it lets probes through.
+   */
+  public static final Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(5);
+
+  /**
+   * The default number of probes which need to succeed to close the breaker.
+   */
+  public static final int DEFAULT_PROBES = 3;
+
+  private final boolean enabled;
+  private final Duration window;
+  private final int minRequests;
+  private final double failureRatio;
+  private final Duration openDuration;
+  private final int probes;
+
+  /**
+   * Creates a new {@link CircuitBreakerConfig}.
+   *
+   * @param builder the builder to read the values from.
+   */
+  private CircuitBreakerConfig(final Builder builder) {
+    this.enabled = builder.enabled;
+    this.window = builder.window;
+    this.minRequests = builder.minRequests;
+    this.failureRatio = builder.failureRatio;
+    this.openDuration = builder.openDuration;
+    this.probes = builder.probes;
+  }
+
+  /**
+   * Returns a config with the circuit breaker disabled, which is the default.
+   *
+   * @return the disabled config.
+   */
+  public static CircuitBreakerConfig disabled() {
+    return new Builder().build();
+  }
+
+  /**
+   * Creates a builder with the circuit breaker enabled and all values set to their
+   * defaults.
+   *
+   * @return the builder to customize.
+   */
+  public static Builder enabled() {
+    return new Builder().enabled(true);
+  }
+
+  /**
+   * Returns true if the circuit breaker is enabled.
+   *
+   * @return true if enabled.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the length of the sliding window the failure ratio is calculated over.
+   *
+   * @return the window length.
+   */
+  public Duration window() {
+    return window;
+  }
+
+  /**
+   * Returns the minimum number of requests in the window before the breaker can open.
+   *
+   * @return the minimum number of requests.
+   */
+  public int minRequests() {
+    return minRequests;
+  }
+
+  /**
+   * Returns the ratio of failed requests in the window which opens the breaker.
+   *
+   * @return the failure ratio.
+   */
+  public double failureRatio() {
+    return failureRatio;
+  }
+
+  /**
+   * Returns the time the breaker stays open before it lets probes through.
+   *
+   * @return the open duration.
+   */
+  public Duration openDuration() {
+    return openDuration;
+  }
+
+  /**
+   * Returns the number of probes which need to succeed to close the breaker.
+   *
+   * @return the number of probes.
+   */
+  public int probes() {
+    return probes;
+  }
+
+  /**
+   * Builder for the {@link CircuitBreakerConfig}.
+   */
+  public static class Builder {
+
+    private boolean enabled = false;
+    private Duration window = DEFAULT_WINDOW;
+    private int minRequests = DEFAULT_MIN_REQUESTS;
+    private double failureRatio = DEFAULT_FAILURE_RATIO;
+    private Duration openDuration = DEFAULT_OPEN_DURATION;
+    private int probes = DEFAULT_PROBES;
+
+    /**
+     * Enables or disables the circuit breaker.
+     *
+     * @param enabled true if the circuit breaker should be enabled.
+     * @return this builder for chaining purposes.
+     */
+    public Builder enabled(final boolean enabled) {
+      this.enabled = enabled;
+      return this;
+    }
+
+    /**
+     * Sets the length of the sliding window the failure ratio is calculated over.
+     *
+     * @param window the window length, must be at least 10 milliseconds.
+     * @return this builder for chaining purposes.
+     */
+    public Builder window(final Duration window) {
+      if (window.toMillis() < 10) {
+        throw new IllegalArgumentException("The window must be at least 10 milliseconds.");
+      }
+      this.window = window;
+      return this;
+    }
+
+    /**
+     * Sets the minimum number of requests in the window before the breaker can open.
+     *
+     * @param minRequests the minimum number of requests, must be positive.
+     * @return this builder for chaining purposes.
+     */
+    public Builder minRequests(final int minRequests) {
+      if (minRequests <= 0) {
+        throw new IllegalArgumentException("The minimum number of requests must be positive.");
+      }
+      this.minRequests = minRequests;
+      return this;
+    }
+
+    /**
+     * Sets the ratio of failed requests in the window which opens the breaker.
+     *
+     * @param failureRatio the ratio, larger than 0 and at most 1.
+     * @return this builder for chaining purposes.
+     */
+    public Builder failureRatio(final double failureRatio) {
+      if (failureRatio <= 0 || failureRatio > 1) {
+        throw new IllegalArgumentException("The failure ratio must be larger than 0 and at "
+            + "most 1.");
+      }
+      this.failureRatio = failureRatio;
+      return this;
+    }
+
+    /**
+     * Sets the time the breaker stays open before it lets probes through.
+     *
+     * @param openDuration the open duration, must be positive.
+     * @return this builder for chaining purposes.
+     */
+    public Builder openDuration(final Duration openDuration) {
+      if (openDuration.isNegative() || openDuration.isZero()) {
+        throw new IllegalArgumentException("The open duration must be positive.");
+      }
+      this.openDuration = openDuration;
+      return this;
+    }
+
+    /**
+     * Sets the number of probes which need to succeed to close the breaker.
+     *
+     * @param probes the number of probes, must be positive.
+     * @return this builder for chaining purposes.
+     */
+    public Builder probes(final int probes) {
+      if (probes <= 0) {
+        throw new IllegalArgumentException("The number of probes must be positive.");
+      }
+      this.probes = probes;
+      return this;
+    }
+
+    /**
+     * Creates the {@link CircuitBreakerConfig}.
+     *
+     * @return the created config.
+     */
+    public CircuitBreakerConfig build() {
+      return new CircuitBreakerConfig(this);
+    }
+
+  }
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.env;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+/**
+ * Configures on which threads requests are completed once their responses arrive.
+ *
+ * <p>By default, responses complete their requests right on the IO thread which decoded
+ * them, so every callback chained on a response runs on the event loop as well. This is
+ * the fastest option as long as callbacks are short, but a single slow callback stalls
+ * every connection served by that event loop. In this case completions can be offloaded
+ * to an executor, either one by one or in batches of everything decoded in one read from
+ * the socket.</p>
+ *
+ * <p>Independent of the mode, completions which run on the IO thread for longer than the
+ * blocking threshold are reported with a warning.</p>
+ *
+ * @since 2.0.0
+ */
+public class CompletionConfig {
+
+  /**
+   * The default time a completion may take on the IO thread before a warning is logged.
+   */
+  public static final Duration DEFAULT_BLOCKING_THRESHOLD = Duration.ofMillis(10);
+
+  /**
+   * The default number of threads of the dedicated executor.
+   */
+  public static final int DEFAULT_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+  private final Mode mode;
+  private final Executor executor;
+  private final int poolSize;
+  private final Duration blockingThreshold;
+
+  /**
+   * Creates a new {@link CompletionConfig}.
+   *
+   * @param builder the builder to read the values from.
+   */
+  private CompletionConfig(final Builder builder) {
+    this.mode = builder.mode;
+    this.executor = builder.executor;
+    this.poolSize = builder.poolSize;
+    this.blockingThreshold = builder.blockingThreshold;
+  }
+
+  /**
+   * Returns a config which completes requests on the IO thread, which is the default.
+   *
+   * @return the default config.
+   */
+  public static CompletionConfig defaults() {
+    return builder().build();
+  }
+
+  /**
+   * Creates a builder with all values set to their defaults.
+   *
+   * @return the builder to customize.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns how completions are dispatched.
+   *
+   * @return the dispatch mode.
+   */
+  public Mode mode() {
+    return mode;
+  }
+
+  /**
+   * Returns the externally owned executor to offload to, if set.
+   *
+   * @return the executor, empty if a dedicated one is created on demand.
+   */
+  public Optional<Executor> executor() {
+    return Optional.ofNullable(executor);
+  }
+
+  /**
+   * Returns the number of threads of the dedicated executor.
+   *
+   * @return the pool size.
+   */
+  public int poolSize() {
+    return poolSize;
+  }
+
+  /**
+   * Returns the time a completion may take on the IO thread before a warning is logged.
+   *
+   * @return the blocking threshold, zero if disabled.
+   */
+  public Duration blockingThreshold() {
+    return blockingThreshold;
+  }
+
+  /**
+   * The modes of dispatching completions.
+   */
+  public enum Mode {
+
+    /**
+     * Completes requests right on the IO thread.
+     */
+    INLINE,
+
+    /**
+     * Completes every request in its own task on the executor.
+     */
+    OFFLOAD,
+
+    /**
+     * Collects the completions of one read from the socket and completes them all in one
+     * task on the executor, which saves handoffs when many responses arrive at once.
+     */
+    BATCHED
+
+  }
+
+  /**
+   * Builder for the {@link CompletionConfig}.
+   */
+  public static class Builder {
+
+    private Mode mode = Mode.INLINE;
+    private Executor executor;
+    private int poolSize = DEFAULT_POOL_SIZE;
+    private Duration blockingThreshold = DEFAULT_BLOCKING_THRESHOLD;
+
+    /**
+     * Sets how completions are dispatched.
+     *
+     * @param mode the dispatch mode.
+     * @return this builder for chaining purposes.
+     */
+    public Builder mode(final Mode mode) {
+      if (mode == null) {
+        throw new IllegalArgumentException("The mode must not be null.");
+      }
+      this.mode = mode;
+      return this;
+    }
+
+    /**
+     * Sets an externally owned executor to offload completions to.
+     *
+     * <p>It is not shut down together with the environment.</p>
+     *
+     * @param executor the executor to use.
+     * @return this builder for chaining purposes.
+     */
+    public Builder executor(final Executor executor) {
+      if (executor == null) {
+        throw new IllegalArgumentException("The executor must not be null.");
+      }
+      this.executor = executor;
+      return this;
+    }
+
+    /**
+     * Sets the number of threads of the dedicated executor, which is only created if
+     * completions are offloaded and no executor is set.
+     *
+     * @param poolSize the number of threads, must be positive.
+     * @return this builder for chaining purposes.
+     */
+    public Builder poolSize(final int poolSize) {
+      if (poolSize <= 0) {
+        throw new IllegalArgumentException("The pool size must be positive.");
+      }
+      this.poolSize = poolSize;
+      return this;
+    }
+
+    /**
+     * Sets the time a completion may take on the IO thread before a warning is logged.
+     *
+     * @param blockingThreshold the threshold, zero disables the detection.
+     * @return this builder for chaining purposes.
+     */
+    public Builder blockingThreshold(final Duration blockingThreshold) {
+      if (blockingThreshold.isNegative()) {
+        throw new IllegalArgumentException("The blocking threshold must not be negative.");
+      }
+      this.blockingThreshold = blockingThreshold;
+      return this;
+    }
+
+    /**
+     * Creates the config.
+     *
+     * @return the created config.
+     */
+    public CompletionConfig build() {
+      return new CompletionConfig(this);
+    }
+
+  }
+
+}
@@ -16,5 +16,168 @@
 
 package com.couchbase.client.core.env;
 
+import com.couchbase.client.core.io.ServiceType;
+import com.couchbase.client.core.metrics.EventLoopWatchdog;
+import io.netty.channel.EventLoopGroup;
+import io.netty.handler.ssl.SslContext;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+/**
+ * The {@link CoreEnvironment} holds all the configuration and shared resources of a core.
+ *
+ * @author Michael Nitschinger
+ * @since 2.0.0
+ */
 public interface CoreEnvironment {
+
+  /**
+   * Returns the hedging configuration for reads which may be served by a replica.
+   *
+   * @return the hedging configuration.
+   */
+  HedgingConfig hedgingConfig();
+
+  /**
+   * Returns the configuration of the client-side near cache for document reads.
+   *
+   * @return the near cache configuration.
+   */
+  NearCacheConfig nearCacheConfig();
+
+  /**
+   * Returns true if identical reads which are in flight at the same time should share
+   * one request on the wire.
+   *
+   * <p>A coalesced read may complete with a response to a request which has been sent
+   * shortly before the read itself was issued.</p>
+   *
+   * @return true if reads are coalesced.
+   */
+  boolean coalesceReads();
+
+  /**
+   * Returns the configuration for reconnecting endpoints.
+   *
+   * @return the reconnect configuration.
+   */
+  ReconnectConfig reconnectConfig();
+
+  /**
+   * Returns the configuration of the event loop groups used for network IO.
+   *
+   * @return the IO configuration.
+   */
+  IoConfig ioConfig();
+
+  /**
+   * Returns the maximum size of a Key/Value frame including its header.
+   *
+   * <p>Larger frames are discarded, so this has to be large enough for the largest
+   * document plus its header and extras.</p>
+   *
+   * @return the maximum frame size in bytes.
+   */
+  int maxFrameSize();
+
+  /**
+   * Returns the configuration of the handlers of Key/Value channels.
+   *
+   * @return the pipeline configuration.
+   */
+  PipelineConfig pipelineConfig();
+
+  /**
+   * Returns the configuration of the server features Key/Value connections negotiate.
+   *
+   * @return the feature configuration.
+   */
+  FeatureConfig featureConfig();
+
+  /**
+   * Returns the configuration of the circuit breaker every endpoint has.
+   *
+   * @return the circuit breaker configuration.
+   */
+  CircuitBreakerConfig circuitBreakerConfig();
+
+  /**
+   * Returns the configuration of the transport encryption.
+   *
+   * @return the security configuration.
+   */
+  SecurityConfig securityConfig();
+
+  /**
+   * Returns the TLS context shared by all encrypted connections, if TLS is enabled.
+   *
+   * <p>Sharing the context shares its session cache, so connections can resume sessions
+   * negotiated before instead of doing a full handshake.</p>
+   *
+   * @return the TLS context, empty if disabled.
+   */
+  Optional<SslContext> sslContext();
+
+  /**
+   * Returns the event loop group which endpoints of the given service should use.
+   *
+   * <p>All services share one group unless a dedicated group is configured.</p>
+   *
+   * @param serviceType the service of the endpoint.
+   * @return the event loop group to use.
+   */
+  EventLoopGroup eventLoopGroup(ServiceType serviceType);
+
+  /**
+   * Returns the shards formed by the event loops of the Key/Value group, used when the
+   * core runs in sharded mode.
+   *
+   * @return the shards.
+   */
+  Shards shards();
+
+  /**
+   * Returns the configuration of the threads which complete requests.
+   *
+   * @return the completion configuration.
+   */
+  CompletionConfig completionConfig();
+
+  /**
+   * Returns the executor completions are offloaded to, unless they run inline.
+   *
+   * <p>If no external executor is configured, a dedicated one is created on first use and
+   * owned by this environment.</p>
+   *
+   * @return the executor to offload completions to.
+   */
+  Executor completionExecutor();
+
+  /**
+   * Returns the configuration of the event loop watchdog.
+   *
+   * @return the watchdog configuration.
+   */
+  WatchdogConfig watchdogConfig();
+
+  /**
+   * Returns the watchdog which measures the lag of all event loops handed out by
+   * {@link #eventLoopGroup(ServiceType)}, if it is enabled.
+   *
+   * @return the watchdog, empty if disabled.
+   */
+  Optional<EventLoopWatchdog> eventLoopWatchdog();
+
+  /**
+   * Shuts down all resources owned by this environment, like the event loop groups.
+   *
+   * <p>Externally owned event loop groups are not shut down.</p>
+   *
+   * @param timeout the maximum time to wait for the shutdown to complete.
+   * @return true if everything has been shut down within the timeout.
+   */
+  boolean shutdown(Duration timeout);
+
 }
@@ -16,6 +16,23 @@
 
 package com.couchbase.client.core.env;
 
+import com.couchbase.client.core.io.ServiceType;
+import com.couchbase.client.core.metrics.EventLoopWatchdog;
+import io.netty.channel.EventLoopGroup;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLException;
+
 /**
  * This class represents the main way to configure this library and instances of the core.
  *
@@ -24,6 +41,12 @@ package com.couchbase.client.core.env;
  */
 public class DefaultCoreEnvironment implements CoreEnvironment {
 
+  /**
+   * The default maximum frame size, which gives the 20MB documents plus header some
+   * wiggle room.
+   */
+  public static final int DEFAULT_MAX_FRAME_SIZE = 25 * 1024 * 1024;
+
   public static DefaultCoreEnvironment defaults() {
     return builder().build();
   }
@@ -32,12 +55,358 @@ public class DefaultCoreEnvironment implements CoreEnvironment {
     return new Builder();
   }
 
+  private final HedgingConfig hedgingConfig;
+  private final NearCacheConfig nearCacheConfig;
+  private final boolean coalesceReads;
+  private final ReconnectConfig reconnectConfig;
+  private final IoConfig ioConfig;
+  private final int maxFrameSize;
+  private final PipelineConfig pipelineConfig;
+  private final FeatureConfig featureConfig;
+  private final CircuitBreakerConfig circuitBreakerConfig;
+  private final SecurityConfig securityConfig;
+  private final SslContext sslContext;
+  private final EventLoopGroups eventLoopGroups;
+  private final CompletionConfig completionConfig;
+  private final WatchdogConfig watchdogConfig;
+  private final EventLoopWatchdog eventLoopWatchdog;
+
+  /**
+   * The lazily created dedicated completion executor, guarded by this.
+   */
+  private ExecutorService completionExecutor;
+
   protected DefaultCoreEnvironment(final Builder<?> builder) {
+    this.securityConfig = builder.securityConfig;
+    this.sslContext = securityConfig.isEnabled() ? createSslContext(securityConfig) : null;
+    this.hedgingConfig = builder.hedgingConfig;
+    this.nearCacheConfig = builder.nearCacheConfig;
+    this.coalesceReads = builder.coalesceReads;
+    this.reconnectConfig = builder.reconnectConfig;
+    this.ioConfig = builder.ioConfig;
+    this.maxFrameSize = builder.maxFrameSize;
+    this.pipelineConfig = builder.pipelineConfig;
+    this.featureConfig = builder.featureConfig;
+    this.circuitBreakerConfig = builder.circuitBreakerConfig;
+    this.eventLoopGroups = new EventLoopGroups(ioConfig);
+    this.completionConfig = builder.completionConfig;
+    this.watchdogConfig = builder.watchdogConfig;
+    if (watchdogConfig.isEnabled()) {
+      this.eventLoopWatchdog = new EventLoopWatchdog(watchdogConfig);
+      eventLoopWatchdog.start();
+    } else {
+      this.eventLoopWatchdog = null;
+    }
+  }
+
+  @Override
+  public HedgingConfig hedgingConfig() {
+    return hedgingConfig;
+  }
+
+  @Override
+  public NearCacheConfig nearCacheConfig() {
+    return nearCacheConfig;
+  }
+
+  @Override
+  public boolean coalesceReads() {
+    return coalesceReads;
+  }
+
+  @Override
+  public ReconnectConfig reconnectConfig() {
+    return reconnectConfig;
+  }
+
+  @Override
+  public IoConfig ioConfig() {
+    return ioConfig;
+  }
+
+  @Override
+  public int maxFrameSize() {
+    return maxFrameSize;
+  }
+
+  @Override
+  public PipelineConfig pipelineConfig() {
+    return pipelineConfig;
+  }
+
+  @Override
+  public FeatureConfig featureConfig() {
+    return featureConfig;
+  }
+
+  @Override
+  public CircuitBreakerConfig circuitBreakerConfig() {
+    return circuitBreakerConfig;
+  }
+
+  @Override
+  public SecurityConfig securityConfig() {
+    return securityConfig;
+  }
+
+  @Override
+  public Optional<SslContext> sslContext() {
+    return Optional.ofNullable(sslContext);
+  }
+
+  @Override
+  public EventLoopGroup eventLoopGroup(final ServiceType serviceType) {
+    final EventLoopGroup group = eventLoopGroups.get(serviceType);
+    if (eventLoopWatchdog != null) {
+      eventLoopWatchdog.watch(group);
+    }
+    return group;
+  }
+
+  @Override
+  public Shards shards() {
+    if (eventLoopWatchdog != null) {
+      eventLoopWatchdog.watch(eventLoopGroups.get(ServiceType.KV));
+    }
+    return eventLoopGroups.shards();
+  }
+
+  @Override
+  public CompletionConfig completionConfig() {
+    return completionConfig;
+  }
+
+  @Override
+  public synchronized Executor completionExecutor() {
+    if (completionConfig.executor().isPresent()) {
+      return completionConfig.executor().get();
+    }
+    if (completionExecutor == null) {
+      completionExecutor = Executors.newFixedThreadPool(
+          completionConfig.poolSize(),
+          new DefaultThreadFactory("cb-completion", true)
+      );
+    }
+    return completionExecutor;
+  }
+
+  @Override
+  public WatchdogConfig watchdogConfig() {
+    return watchdogConfig;
+  }
 
+  @Override
+  public Optional<EventLoopWatchdog> eventLoopWatchdog() {
+    return Optional.ofNullable(eventLoopWatchdog);
+  }
+
+  @Override
+  public boolean shutdown(final Duration timeout) {
+    final long deadline = System.nanoTime() + timeout.toNanos();
+    if (eventLoopWatchdog != null) {
+      eventLoopWatchdog.stop();
+    }
+    boolean terminated = eventLoopGroups.shutdown(timeout);
+    final ExecutorService executor;
+    synchronized (this) {
+      executor = completionExecutor;
+      completionExecutor = null;
+    }
+    if (executor != null) {
+      executor.shutdown();
+      try {
+        terminated &= executor.awaitTermination(
+            Math.max(0, deadline - System.nanoTime()),
+            TimeUnit.NANOSECONDS
+        );
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        terminated = false;
+      }
+    }
+    return terminated;
+  }
+
+  /**
+   * Creates the client context all encrypted connections of this environment share.
+   *
+   * <p>OpenSSL is only used on request, since the JDK engine is the one which caches
+   * client sessions and can resume them on reconnect.</p>
+   *
+   * @param config the security configuration.
+   * @return the created context.
+   */
+  private static SslContext createSslContext(final SecurityConfig config) {
+    final SslProvider provider = config.isNativeTlsEnabled() && OpenSsl.isAvailable()
+        ? SslProvider.OPENSSL
+        : SslProvider.JDK;
+    final SslContextBuilder builder = SslContextBuilder.forClient()
+        .sslProvider(provider)
+        .sessionCacheSize(config.sessionCacheSize())
+        .sessionTimeout(config.sessionTimeout().getSeconds());
+    if (config.trustCertificates().isPresent()) {
+      builder.trustManager(config.trustCertificates().get());
+    } else if (config.trustManagerFactory().isPresent()) {
+      builder.trustManager(config.trustManagerFactory().get());
+    }
+    config.keyManagerFactory().ifPresent(builder::keyManager);
+    try {
+      return builder.build();
+    } catch (SSLException ex) {
+      throw new IllegalArgumentException("Could not create the TLS context.", ex);
+    }
   }
 
   public static class Builder<B extends Builder<B>> {
 
+    private HedgingConfig hedgingConfig = HedgingConfig.disabled();
+    private NearCacheConfig nearCacheConfig = NearCacheConfig.disabled();
+    private boolean coalesceReads = false;
+    private ReconnectConfig reconnectConfig = ReconnectConfig.defaults();
+    private IoConfig ioConfig = IoConfig.defaults();
+    private int maxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+    private PipelineConfig pipelineConfig = PipelineConfig.defaults();
+    private FeatureConfig featureConfig = FeatureConfig.defaults();
+    private CircuitBreakerConfig circuitBreakerConfig = CircuitBreakerConfig.disabled();
+    private SecurityConfig securityConfig = SecurityConfig.disabled();
+    private CompletionConfig completionConfig = CompletionConfig.defaults();
+    private WatchdogConfig watchdogConfig = WatchdogConfig.disabled();
+
+    /**
+     * Customizes if and how reads from replicas are hedged.
+     *
+     * @param hedgingConfig the hedging configuration.
+     * @return this builder for chaining purposes.
+     */
+    public B hedgingConfig(final HedgingConfig hedgingConfig) {
+      this.hedgingConfig = hedgingConfig;
+      return getThis();
+    }
+
+    /**
+     * Customizes if and how documents are cached on the client side.
+     *
+     * @param nearCacheConfig the near cache configuration.
+     * @return this builder for chaining purposes.
+     */
+    public B nearCacheConfig(final NearCacheConfig nearCacheConfig) {
+      this.nearCacheConfig = nearCacheConfig;
+      return getThis();
+    }
+
+    /**
+     * Enables or disables sharing one request between identical concurrent reads.
+     *
+     * @param coalesceReads true if identical concurrent reads should be coalesced.
+     * @return this builder for chaining purposes.
+     */
+    public B coalesceReads(final boolean coalesceReads) {
+      this.coalesceReads = coalesceReads;
+      return getThis();
+    }
+
+    /**
+     * Customizes how endpoints reconnect and buffer requests while not connected.
+     *
+     * @param reconnectConfig the reconnect configuration.
+     * @return this builder for chaining purposes.
+     */
+    public B reconnectConfig(final ReconnectConfig reconnectConfig) {
+      this.reconnectConfig = reconnectConfig;
+      return getThis();
+    }
+
+    /**
+     * Customizes the event loop groups used for network IO.
+     *
+     * @param ioConfig the IO configuration.
+     * @return this builder for chaining purposes.
+     */
+    public B ioConfig(final IoConfig ioConfig) {
+      this.ioConfig = ioConfig;
+      return getThis();
+    }
+
+    /**
+     * Sets the maximum size of a Key/Value frame including its header.
+     *
+     * @param maxFrameSize the maximum frame size in bytes, at least the header size.
+     * @return this builder for chaining purposes.
+     */
+    public B maxFrameSize(final int maxFrameSize) {
+      if (maxFrameSize < 24) {
+        throw new IllegalArgumentException("The maximum frame size must be at least the "
+            + "24 byte header.");
+      }
+      this.maxFrameSize = maxFrameSize;
+      return getThis();
+    }
+
+    /**
+     * Customizes the handlers of Key/Value channels.
+     *
+     * @param pipelineConfig the pipeline configuration.
+     * @return this builder for chaining purposes.
+     */
+    public B pipelineConfig(final PipelineConfig pipelineConfig) {
+      this.pipelineConfig = pipelineConfig;
+      return getThis();
+    }
+
+    /**
+     * Customizes which optional server features Key/Value connections negotiate.
+     *
+     * @param featureConfig the feature configuration.
+     * @return this builder for chaining purposes.
+     */
+    public B featureConfig(final FeatureConfig featureConfig) {
+      this.featureConfig = featureConfig;
+      return getThis();
+    }
+
+    /**
+     * Customizes if and when endpoints reject requests right away after failures.
+     *
+     * @param circuitBreakerConfig the circuit breaker configuration.
+     * @return this builder for chaining purposes.
+     */
+    public B circuitBreakerConfig(final CircuitBreakerConfig circuitBreakerConfig) {
+      this.circuitBreakerConfig = circuitBreakerConfig;
+      return getThis();
+    }
+
+    /**
+     * Customizes if and how Key/Value connections are encrypted.
+     *
+     * @param securityConfig the security configuration.
+     * @return this builder for chaining purposes.
+     */
+    public B securityConfig(final SecurityConfig securityConfig) {
+      this.securityConfig = securityConfig;
+      return getThis();
+    }
+
+    /**
+     * Customizes on which threads requests are completed.
+     *
+     * @param completionConfig the completion configuration.
+     * @return this builder for chaining purposes.
+     */
+    public B completionConfig(final CompletionConfig completionConfig) {
+      this.completionConfig = completionConfig;
+      return getThis();
+    }
+
+    /**
+     * Customizes if and how the lag of the event loops is watched.
+     *
+     * @param watchdogConfig the watchdog configuration.
+     * @return this builder for chaining purposes.
+     */
+    public B watchdogConfig(final WatchdogConfig watchdogConfig) {
+      this.watchdogConfig = watchdogConfig;
+      return getThis();
+    }
 
     @SuppressWarnings({"unchecked"})
     protected B getThis() {
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.env;
+
+import com.couchbase.client.core.io.ServiceType;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.Future;
+
+import java.nio.channels.spi.SelectorProvider;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates and owns the event loop groups of an environment.
+ *
+ * <p>Groups are created lazily on first use, so an environment which never opens a
+ * connection never starts IO threads. Only the groups created here are shut down,
+ * externally owned groups are left alone.</p>
+ *
+ * @since 2.0.0
+ */
+final class EventLoopGroups {
+
+  private final IoConfig config;
+
+  /**
+   * The groups used per service, guarded by this.
+   */
+  private final Map<ServiceType, EventLoopGroup> groups = new EnumMap<>(ServiceType.class);
+
+  /**
+   * The groups created by and therefore owned by this instance, guarded by this.
+   */
+  private final List<EventLoopGroup> owned = new ArrayList<>();
+
+  /**
+   * The lazily created shared group, guarded by this.
+   */
+  private EventLoopGroup shared;
+
+  /**
+   * The lazily created shards, guarded by this.
+   */
+  private Shards shards;
+
+  /**
+   * Set once shut down, guarded by this.
+   */
+  private boolean shutdown;
+
+  /**
+   * Creates a new {@link EventLoopGroups}.
+   *
+   * @param config the IO configuration.
+   */
+  EventLoopGroups(final IoConfig config) {
+    this.config = config;
+  }
+
+  /**
+   * Returns the group the given service should use, creating it if needed.
+   *
+   * @param serviceType the service.
+   * @return the group for the service.
+   */
+  synchronized EventLoopGroup get(final ServiceType serviceType) {
+    if (shutdown) {
+      throw new IllegalStateException("The environment has been shut down already.");
+    }
+
+    EventLoopGroup group = groups.get(serviceType);
+    if (group == null) {
+      final EventLoopGroup external = config.dedicatedEventLoopGroups().get(serviceType);
+      final Integer poolSize = config.dedicatedPoolSizes().get(serviceType);
+      if (external != null) {
+        group = external;
+      } else if (poolSize != null) {
+        group = create(poolSize, serviceType.name().toLowerCase(Locale.ROOT));
+      } else {
+        group = shared();
+      }
+      groups.put(serviceType, group);
+    }
+    return group;
+  }
+
+  /**
+   * Returns the shards formed by the event loops of the Key/Value group.
+   *
+   * @return the shards.
+   */
+  synchronized Shards shards() {
+    if (shards == null) {
+      shards = new Shards(get(ServiceType.KV));
+    }
+    return shards;
+  }
+
+  /**
+   * Shuts down all owned groups and waits for them to terminate.
+   *
+   * @param timeout the maximum time to wait.
+   * @return true if all owned groups terminated within the timeout.
+   */
+  boolean shutdown(final Duration timeout) {
+    final List<EventLoopGroup> toShutdown;
+    synchronized (this) {
+      shutdown = true;
+      toShutdown = new ArrayList<>(owned);
+      owned.clear();
+      groups.clear();
+      shared = null;
+      shards = null;
+    }
+
+    final List<Future<?>> terminations = new ArrayList<>(toShutdown.size());
+    for (EventLoopGroup group : toShutdown) {
+      terminations.add(group.shutdownGracefully(0, timeout.toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    final long deadline = System.nanoTime() + timeout.toNanos();
+    boolean terminated = true;
+    for (Future<?> termination : terminations) {
+      final long remaining = Math.max(0, deadline - System.nanoTime());
+      terminated &= termination.awaitUninterruptibly(remaining, TimeUnit.NANOSECONDS);
+    }
+    return terminated;
+  }
+
+  /**
+   * Returns the shared group, creating it if needed.
+   *
+   * @return the shared group.
+   */
+  private EventLoopGroup shared() {
+    if (shared == null) {
+      shared = config.eventLoopGroup().isPresent()
+        ? config.eventLoopGroup().get()
+        : create(config.poolSize(), "shared");
+    }
+    return shared;
+  }
+
+  /**
+   * Creates a new owned group.
+   *
+   * @param poolSize the number of threads.
+   * @param name the name used for the threads.
+   * @return the created group.
+   */
+  private EventLoopGroup create(final int poolSize, final String name) {
+    final EventLoopGroup group = new NioEventLoopGroup(
+        poolSize,
+        new DefaultThreadFactory("cb-io-" + name, true),
+        SelectorProvider.provider(),
+        config.selectStrategy().factory()
+    );
+    owned.add(group);
+    return group;
+  }
+
+}
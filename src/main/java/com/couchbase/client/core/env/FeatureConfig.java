@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.env;
+
+import com.couchbase.client.core.msg.kv.ServerFeature;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Configures which optional {@link ServerFeature ServerFeatures} are requested when a
+ * Key/Value connection is opened.
+ *
+ * <p>By default, all features known to this library are requested. The server enables
+ * the subset it supports, so requesting a feature from an older server is harmless. If
+ * no feature is requested, the negotiation is skipped altogether.</p>
+ *
+ * @since 2.0.0
+ */
+public class FeatureConfig {
+
+  private final Set<ServerFeature> features;
+
+  /**
+   * Creates a new {@link FeatureConfig}.
+   *
+   * @param builder the builder to read the values from.
+   */
+  private FeatureConfig(final Builder builder) {
+    this.features = Collections.unmodifiableSet(EnumSet.copyOf(builder.features));
+  }
+
+  /**
+   * Returns a config which requests all features, which is the default.
+   *
+   * @return the default config.
+   */
+  public static FeatureConfig defaults() {
+    return builder().build();
+  }
+
+  /**
+   * Returns a config which requests no feature and skips the negotiation.
+   *
+   * @return the disabled config.
+   */
+  public static FeatureConfig disabled() {
+    final Builder builder = builder();
+    for (ServerFeature feature : ServerFeature.values()) {
+      builder.feature(feature, false);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Creates a builder which requests all features.
+   *
+   * @return the builder to customize.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns the features to request.
+   *
+   * @return the requested features, empty if the negotiation is skipped.
+   */
+  public Set<ServerFeature> features() {
+    return features;
+  }
+
+  /**
+   * Returns true if the given feature is requested.
+   *
+   * @param feature the feature to check.
+   * @return true if requested.
+   */
+  public boolean isRequested(final ServerFeature feature) {
+    return features.contains(feature);
+  }
+
+  /**
+   * Builder for the {@link FeatureConfig}.
+   */
+  public static class Builder {
+
+    private final Set<ServerFeature> features = EnumSet.allOf(ServerFeature.class);
+
+    /**
+     * Requests a feature or stops requesting it.
+     *
+     * @param feature the feature.
+     * @param requested true if the feature should be requested.
+     * @return this builder for chaining purposes.
+     */
+    public Builder feature(final ServerFeature feature, final boolean requested) {
+      if (feature == null) {
+        throw new IllegalArgumentException("The feature must not be null.");
+      }
+      if (requested) {
+        features.add(feature);
+      } else {
+        features.remove(feature);
+      }
+      return this;
+    }
+
+    /**
+     * Creates the {@link FeatureConfig}.
+     *
+     * @return the created config.
+     */
+    public FeatureConfig build() {
+      return new FeatureConfig(this);
+    }
+
+  }
+
+}
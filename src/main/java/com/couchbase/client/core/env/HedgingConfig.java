@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.env;
+
+import java.time.Duration;
+
+/**
+ * Configures if and when reads which are allowed to be served from a replica are hedged.
+ *
+ * <p>A hedged read sends a duplicate request to another copy of the partition if the
+ * original request has not completed after a delay. The delay is either fixed or
+ * derived from a latency percentile of the endpoint the original was sent to, so that
+ * only the slowest requests are hedged. To make sure hedging cannot amplify an outage,
+ * the number of hedges is capped by a budget relative to the number of reads.</p>
+ *
+ * @since 2.0.0
+ */
+public class HedgingConfig {
+
+  /**
+   * The default delay used when no latency percentile is available.
+   */
+  public static final Duration DEFAULT_DELAY = Duration.ofMillis(10);
+
+  /**
+   * By default, hedge after the 95th percentile of the endpoint latency.
+   */
+  public static final double DEFAULT_PERCENTILE = 95.0;
+
+  /**
+   * By default, allow at most 5% of extra reads.
+   */
+  public static final double DEFAULT_BUDGET = 0.05;
+
+  private final boolean enabled;
+  private final Duration delay;
+  private final double percentile;
+  private final double budget;
+
+  /**
+   * Creates a new {@link HedgingConfig}.
+   *
+   * @param builder the builder to read the values from.
+   */
+  private HedgingConfig(final Builder builder) {
+    this.enabled = builder.enabled;
+    this.delay = builder.delay;
+    this.percentile = builder.percentile;
+    this.budget = builder.budget;
+  }
+
+  /**
+   * Returns a config with hedging disabled, which is the default.
+   *
+   * @return the disabled config.
+   */
+  public static HedgingConfig disabled() {
+    return new Builder().build();
+  }
+
+  /**
+   * Creates a builder with hedging enabled and all values set to their defaults.
+   *
+   * @return the builder to customize.
+   */
+  public static Builder enabled() {
+    return new Builder().enabled(true);
+  }
+
+  /**
+   * Returns true if hedging is enabled.
+   *
+   * @return true if enabled.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the fixed delay, which is also the fallback if no percentile is available.
+   *
+   * @return the fixed delay.
+   */
+  public Duration delay() {
+    return delay;
+  }
+
+  /**
+   * Returns the latency percentile of the target endpoint to use as the delay.
+   *
+   * @return the percentile, or 0 if only the fixed delay should be used.
+   */
+  public double percentile() {
+    return percentile;
+  }
+
+  /**
+   * Returns the maximum ratio of hedged reads to reads.
+   *
+   * @return the budget ratio.
+   */
+  public double budget() {
+    return budget;
+  }
+
+  /**
+   * Builder for the {@link HedgingConfig}.
+   */
+  public static class Builder {
+
+    private boolean enabled = false;
+    private Duration delay = DEFAULT_DELAY;
+    private double percentile = DEFAULT_PERCENTILE;
+    private double budget = DEFAULT_BUDGET;
+
+    /**
+     * Enables or disables hedging.
+     *
+     * @param enabled true if hedging should be enabled.
+     * @return this builder for chaining purposes.
+     */
+    public Builder enabled(final boolean enabled) {
+      this.enabled = enabled;
+      return this;
+    }
+
+    /**
+     * Sets the fixed hedging delay.
+     *
+     * @param delay the delay, must be positive.
+     * @return this builder for chaining purposes.
+     */
+    public Builder delay(final Duration delay) {
+      if (delay.isNegative() || delay.isZero()) {
+        throw new IllegalArgumentException("The hedging delay must be positive.");
+      }
+      this.delay = delay;
+      return this;
+    }
+
+    /**
+     * Sets the latency percentile which is used as the delay.
+     *
+     * @param percentile the percentile, or 0 to always use the fixed delay.
+     * @return this builder for chaining purposes.
+     */
+    public Builder percentile(final double percentile) {
+      if (percentile < 0 || percentile > 100) {
+        throw new IllegalArgumentException("The percentile must be between 0 and 100.");
+      }
+      this.percentile = percentile;
+      return this;
+    }
+
+    /**
+     * Sets the maximum ratio of hedged reads to reads.
+     *
+     * @param budget the ratio, for example 0.05 for at most 5% extra reads.
+     * @return this builder for chaining purposes.
+     */
+    public Builder budget(final double budget) {
+      if (budget < 0 || budget > 1) {
+        throw new IllegalArgumentException("The budget must be between 0 and 1.");
+      }
+      this.budget = budget;
+      return this;
+    }
+
+    public HedgingConfig build() {
+      return new HedgingConfig(this);
+    }
+
+  }
+
+}
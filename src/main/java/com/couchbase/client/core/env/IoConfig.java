@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.env;
+
+import com.couchbase.client.core.io.ServiceType;
+import io.netty.channel.EventLoopGroup;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Configures the event loop groups which perform the network IO of all endpoints.
+ *
+ * <p>By default, all endpoints share one group with one thread per core, no matter how
+ * many nodes and connections there are. Services can get a dedicated group so that for
+ * example slow query responses do not delay Key/Value traffic. Instead of letting the
+ * environment create a group, an externally owned group can be passed in, which is then
+ * used but never shut down by the environment.</p>
+ *
+ * @since 2.0.0
+ */
+public class IoConfig {
+
+  /**
+   * The default number of threads of the shared group.
+   */
+  public static final int DEFAULT_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+  private final int poolSize;
+  private final SelectStrategyConfig selectStrategy;
+  private final boolean sharded;
+  private final Optional<EventLoopGroup> eventLoopGroup;
+  private final Map<ServiceType, Integer> dedicatedPoolSizes;
+  private final Map<ServiceType, EventLoopGroup> dedicatedEventLoopGroups;
+
+  /**
+   * Creates a new {@link IoConfig}.
+   *
+   * @param builder the builder to read the values from.
+   */
+  private IoConfig(final Builder builder) {
+    this.poolSize = builder.poolSize;
+    this.selectStrategy = builder.selectStrategy;
+    this.sharded = builder.sharded;
+    this.eventLoopGroup = Optional.ofNullable(builder.eventLoopGroup);
+    this.dedicatedPoolSizes = Collections.unmodifiableMap(
+        new EnumMap<>(builder.dedicatedPoolSizes)
+    );
+    this.dedicatedEventLoopGroups = Collections.unmodifiableMap(
+        new EnumMap<>(builder.dedicatedEventLoopGroups)
+    );
+  }
+
+  /**
+   * Returns a config with all values set to their defaults.
+   *
+   * @return the default config.
+   */
+  public static IoConfig defaults() {
+    return builder().build();
+  }
+
+  /**
+   * Creates a builder with all values set to their defaults.
+   *
+   * @return the builder to customize.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns the number of threads of the shared group, if created by the environment.
+   *
+   * @return the pool size.
+   */
+  public int poolSize() {
+    return poolSize;
+  }
+
+  /**
+   * Returns how the IO threads of the groups created by the environment wait for events.
+   *
+   * @return the select strategy.
+   */
+  public SelectStrategyConfig selectStrategy() {
+    return selectStrategy;
+  }
+
+  /**
+   * Returns true if the core runs in sharded mode.
+   *
+   * @return true if sharded.
+   */
+  public boolean isSharded() {
+    return sharded;
+  }
+
+  /**
+   * Returns the externally owned shared group, if one has been set.
+   *
+   * @return the external shared group.
+   */
+  public Optional<EventLoopGroup> eventLoopGroup() {
+    return eventLoopGroup;
+  }
+
+  /**
+   * Returns the thread counts of the dedicated groups the environment should create.
+   *
+   * @return the dedicated pool sizes per service.
+   */
+  public Map<ServiceType, Integer> dedicatedPoolSizes() {
+    return dedicatedPoolSizes;
+  }
+
+  /**
+   * Returns the externally owned dedicated groups.
+   *
+   * @return the external groups per service.
+   */
+  public Map<ServiceType, EventLoopGroup> dedicatedEventLoopGroups() {
+    return dedicatedEventLoopGroups;
+  }
+
+  /**
+   * Builder for the {@link IoConfig}.
+   */
+  public static class Builder {
+
+    private int poolSize = DEFAULT_POOL_SIZE;
+    private SelectStrategyConfig selectStrategy = SelectStrategyConfig.blocking();
+    private boolean sharded = false;
+    private EventLoopGroup eventLoopGroup;
+    private final Map<ServiceType, Integer> dedicatedPoolSizes = new EnumMap<>(ServiceType.class);
+    private final Map<ServiceType, EventLoopGroup> dedicatedEventLoopGroups =
+        new EnumMap<>(ServiceType.class);
+
+    /**
+     * Sets the number of threads of the shared group.
+     *
+     * @param poolSize the number of threads, must be positive.
+     * @return this builder for chaining purposes.
+     */
+    public Builder poolSize(final int poolSize) {
+      if (poolSize <= 0) {
+        throw new IllegalArgumentException("The pool size must be positive.");
+      }
+      this.poolSize = poolSize;
+      return this;
+    }
+
+    /**
+     * Sets how the IO threads of the groups created by the environment wait for events.
+     *
+     * <p>This does not apply to externally owned groups.</p>
+     *
+     * @param selectStrategy the select strategy.
+     * @return this builder for chaining purposes.
+     */
+    public Builder selectStrategy(final SelectStrategyConfig selectStrategy) {
+      this.selectStrategy = selectStrategy;
+      return this;
+    }
+
+    /**
+     * Enables or disables the sharded mode of the core.
+     *
+     * <p>In sharded mode, every event loop of the Key/Value group is a shard which owns
+     * its own connections, in-flight requests and timeouts, so threads do not contend
+     * with each other on the dispatch path. The number of shards is the size of the
+     * Key/Value group.</p>
+     *
+     * @param sharded true if the core should run sharded.
+     * @return this builder for chaining purposes.
+     */
+    public Builder sharded(final boolean sharded) {
+      this.sharded = sharded;
+      return this;
+    }
+
+    /**
+     * Uses an externally owned group as the shared group.
+     *
+     * <p>The environment never shuts this group down, this is up to its owner.</p>
+     *
+     * @param eventLoopGroup the group to use.
+     * @return this builder for chaining purposes.
+     */
+    public Builder eventLoopGroup(final EventLoopGroup eventLoopGroup) {
+      this.eventLoopGroup = eventLoopGroup;
+      return this;
+    }
+
+    /**
+     * Lets the environment create a dedicated group for the given service.
+     *
+     * @param serviceType the service which should get its own group.
+     * @param poolSize the number of threads of the group, must be positive.
+     * @return this builder for chaining purposes.
+     */
+    public Builder dedicatedPool(final ServiceType serviceType, final int poolSize) {
+      if (poolSize <= 0) {
+        throw new IllegalArgumentException("The pool size must be positive.");
+      }
+      dedicatedEventLoopGroups.remove(serviceType);
+      dedicatedPoolSizes.put(serviceType, poolSize);
+      return this;
+    }
+
+    /**
+     * Uses an externally owned group as the dedicated group for the given service.
+     *
+     * <p>The environment never shuts this group down, this is up to its owner.</p>
+     *
+     * @param serviceType the service which should use the group.
+     * @param eventLoopGroup the group to use.
+     * @return this builder for chaining purposes.
+     */
+    public Builder dedicatedPool(final ServiceType serviceType,
+                                 final EventLoopGroup eventLoopGroup) {
+      dedicatedPoolSizes.remove(serviceType);
+      dedicatedEventLoopGroups.put(serviceType, eventLoopGroup);
+      return this;
+    }
+
+    public IoConfig build() {
+      return new IoConfig(this);
+    }
+
+  }
+
+}
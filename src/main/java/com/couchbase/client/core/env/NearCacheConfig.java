@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.env;
+
+import java.time.Duration;
+
+/**
+ * Configures the optional client-side near cache for document reads.
+ *
+ * <p>Documents served from the near cache can be stale for up to the configured time
+ * to live if they are modified by another client, so it should only be enabled for
+ * read-mostly data where this is acceptable.</p>
+ *
+ * @since 2.0.0
+ */
+public class NearCacheConfig {
+
+  /**
+   * The default maximum number of entries.
+   */
+  public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+  /**
+   * The default maximum size of all entries, in bytes.
+   */
+  public static final long DEFAULT_MAX_BYTES = 64 * 1024 * 1024;
+
+  /**
+   * The default time to live of an entry.
+   */
+  public static final Duration DEFAULT_TTL = Duration.ofSeconds(10);
+
+  private final boolean enabled;
+  private final int maxEntries;
+  private final long maxBytes;
+  private final Duration ttl;
+
+  /**
+   * Creates a new {@link NearCacheConfig}.
+   *
+   * @param builder the builder to read the values from.
+   */
+  private NearCacheConfig(final Builder builder) {
+    this.enabled = builder.enabled;
+    this.maxEntries = builder.maxEntries;
+    this.maxBytes = builder.maxBytes;
+    this.ttl = builder.ttl;
+  }
+
+  /**
+   * Returns a config with the near cache disabled, which is the default.
+   *
+   * @return the disabled config.
+   */
+  public static NearCacheConfig disabled() {
+    return new Builder().build();
+  }
+
+  /**
+   * Creates a builder with the near cache enabled and all values set to their defaults.
+   *
+   * @return the builder to customize.
+   */
+  public static Builder enabled() {
+    return new Builder().enabled(true);
+  }
+
+  /**
+   * Returns true if the near cache is enabled.
+   *
+   * @return true if enabled.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the maximum number of entries.
+   *
+   * @return the maximum number of entries.
+   */
+  public int maxEntries() {
+    return maxEntries;
+  }
+
+  /**
+   * Returns the maximum size of all entries in bytes.
+   *
+   * @return the maximum size in bytes.
+   */
+  public long maxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * Returns the default time to live of an entry.
+   *
+   * @return the time to live.
+   */
+  public Duration ttl() {
+    return ttl;
+  }
+
+  /**
+   * Builder for the {@link NearCacheConfig}.
+   */
+  public static class Builder {
+
+    private boolean enabled = false;
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private Duration ttl = DEFAULT_TTL;
+
+    /**
+     * Enables or disables the near cache.
+     *
+     * @param enabled true if the near cache should be enabled.
+     * @return this builder for chaining purposes.
+     */
+    public Builder enabled(final boolean enabled) {
+      this.enabled = enabled;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of entries.
+     *
+     * @param maxEntries the maximum number of entries, must be positive.
+     * @return this builder for chaining purposes.
+     */
+    public Builder maxEntries(final int maxEntries) {
+      if (maxEntries <= 0) {
+        throw new IllegalArgumentException("The maximum number of entries must be positive.");
+      }
+      this.maxEntries = maxEntries;
+      return this;
+    }
+
+    /**
+     * Sets the maximum size of all entries.
+     *
+     * @param maxBytes the maximum size in bytes, must be positive.
+     * @return this builder for chaining purposes.
+     */
+    public Builder maxBytes(final long maxBytes) {
+      if (maxBytes <= 0) {
+        throw new IllegalArgumentException("The maximum size must be positive.");
+      }
+      this.maxBytes = maxBytes;
+      return this;
+    }
+
+    /**
+     * Sets the default time to live of an entry.
+     *
+     * @param ttl the time to live, must be positive.
+     * @return this builder for chaining purposes.
+     */
+    public Builder ttl(final Duration ttl) {
+      if (ttl.isNegative() || ttl.isZero()) {
+        throw new IllegalArgumentException("The time to live must be positive.");
+      }
+      this.ttl = ttl;
+      return this;
+    }
+
+    public NearCacheConfig build() {
+      return new NearCacheConfig(this);
+    }
+
+  }
+
+}
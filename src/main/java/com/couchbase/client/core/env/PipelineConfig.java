@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.env;
+
+/**
+ * Configures the handlers which process the traffic of Key/Value channels.
+ *
+ * @since 2.0.0
+ */
+public class PipelineConfig {
+
+  /**
+   * The default size of a buffer requests are gathered into.
+   */
+  public static final int DEFAULT_GATHER_BUFFER_SIZE = 16 * 1024;
+
+  /**
+   * The default size above which a request gets its own buffer instead of being gathered.
+   */
+  public static final int DEFAULT_MAX_GATHERED_SIZE = 2 * 1024;
+
+  private final boolean fused;
+  private final boolean gatheringWrites;
+  private final int gatherBufferSize;
+  private final int maxGatheredSize;
+
+  /**
+   * Creates a new {@link PipelineConfig}.
+   *
+   * @param builder the builder to read the values from.
+   */
+  private PipelineConfig(final Builder builder) {
+    this.fused = builder.fused;
+    this.gatheringWrites = builder.gatheringWrites;
+    this.gatherBufferSize = builder.gatherBufferSize;
+    this.maxGatheredSize = builder.maxGatheredSize;
+  }
+
+  /**
+   * Returns a config with all values set to their defaults.
+   *
+   * @return the default config.
+   */
+  public static PipelineConfig defaults() {
+    return builder().build();
+  }
+
+  /**
+   * Creates a builder with all values set to their defaults.
+   *
+   * @return the builder to customize.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns true if channels use one fused handler instead of separate handlers for
+   * framing and messages.
+   *
+   * <p>This is always the case with gathering writes, which are implemented by the
+   * fused handler.</p>
+   *
+   * @return true if fused.
+   */
+  public boolean isFused() {
+    return fused || gatheringWrites;
+  }
+
+  /**
+   * Returns true if consecutive requests are encoded into shared buffers.
+   *
+   * @return true if writes are gathered.
+   */
+  public boolean isGatheringWrites() {
+    return gatheringWrites;
+  }
+
+  /**
+   * Returns the size of a buffer requests are gathered into.
+   *
+   * @return the gather buffer size in bytes.
+   */
+  public int gatherBufferSize() {
+    return gatherBufferSize;
+  }
+
+  /**
+   * Returns the encoded size above which a request gets its own buffer.
+   *
+   * @return the maximum gathered request size in bytes.
+   */
+  public int maxGatheredSize() {
+    return maxGatheredSize;
+  }
+
+  /**
+   * Builder for the {@link PipelineConfig}.
+   */
+  public static class Builder {
+
+    private boolean fused = false;
+    private boolean gatheringWrites = false;
+    private int gatherBufferSize = DEFAULT_GATHER_BUFFER_SIZE;
+    private int maxGatheredSize = DEFAULT_MAX_GATHERED_SIZE;
+
+    /**
+     * Enables or disables the fused handler.
+     *
+     * <p>The fused handler frames, decodes and encodes in one place, which saves the
+     * pipeline hops and message lists between the separate handlers on every frame.</p>
+     *
+     * @param fused true if channels should use the fused handler.
+     * @return this builder for chaining purposes.
+     */
+    public Builder fused(final boolean fused) {
+      this.fused = fused;
+      return this;
+    }
+
+    /**
+     * Enables or disables gathering writes.
+     *
+     * <p>Instead of one buffer per request, consecutive requests written before a flush
+     * are encoded back to back into pooled direct buffers of the gather buffer size, so
+     * a small read costs a few bytes of copying instead of a buffer of its own and the
+     * socket write needs far fewer buffers. Requests larger than the maximum gathered
+     * size, or whose size is not known up front, still get their own buffer.</p>
+     *
+     * @param gatheringWrites true if writes should be gathered.
+     * @return this builder for chaining purposes.
+     */
+    public Builder gatheringWrites(final boolean gatheringWrites) {
+      this.gatheringWrites = gatheringWrites;
+      return this;
+    }
+
+    /**
+     * Sets the size of a buffer requests are gathered into.
+     *
+     * @param gatherBufferSize the size in bytes, must be positive.
+     * @return this builder for chaining purposes.
+     */
+    public Builder gatherBufferSize(final int gatherBufferSize) {
+      if (gatherBufferSize <= 0) {
+        throw new IllegalArgumentException("The gather buffer size must be positive.");
+      }
+      this.gatherBufferSize = gatherBufferSize;
+      return this;
+    }
+
+    /**
+     * Sets the encoded size above which a request gets its own buffer.
+     *
+     * @param maxGatheredSize the size in bytes, must not be negative.
+     * @return this builder for chaining purposes.
+     */
+    public Builder maxGatheredSize(final int maxGatheredSize) {
+      if (maxGatheredSize < 0) {
+        throw new IllegalArgumentException("The maximum gathered size must not be negative.");
+      }
+      this.maxGatheredSize = maxGatheredSize;
+      return this;
+    }
+
+    /**
+     * Creates the {@link PipelineConfig}.
+     *
+     * @return the created config.
+     */
+    public PipelineConfig build() {
+      return new PipelineConfig(this);
+    }
+
+  }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.env;
+
+import java.time.Duration;
+
+/**
+ * Configures how endpoints reconnect after their connection has been lost.
+ *
+ * <p>Reconnect attempts back off exponentially from the minimum to the maximum delay,
+ * and every delay is picked at random below that bound so that many clients which lost
+ * their connections at the same time do not reconnect in lockstep. While an endpoint is
+ * not connected, requests are buffered up to a limit and sent once it is.</p>
+ *
+ * @since 2.0.0
+ */
+public class ReconnectConfig {
+
+  /**
+   * The default upper bound for the first reconnect delay.
+   */
+  public static final Duration DEFAULT_MIN_DELAY = Duration.ofMillis(32);
+
+  /**
+   * The default upper bound for all reconnect delays.
+   */
+  public static final Duration DEFAULT_MAX_DELAY = Duration.ofSeconds(4);
+
+  /**
+   * The default maximum number of requests buffered while not connected.
+   */
+  public static final int DEFAULT_MAX_BUFFERED_REQUESTS = 1024;
+
+  private final Duration minDelay;
+  private final Duration maxDelay;
+  private final int maxBufferedRequests;
+
+  /**
+   * Creates a new {@link ReconnectConfig}.
+   *
+   * @param builder the builder to read the values from.
+   */
+  private ReconnectConfig(final Builder builder) {
+    this.minDelay = builder.minDelay;
+    this.maxDelay = builder.maxDelay;
+    this.maxBufferedRequests = builder.maxBufferedRequests;
+  }
+
+  /**
+   * Returns a config with all values set to their defaults.
+   *
+   * @return the default config.
+   */
+  public static ReconnectConfig defaults() {
+    return builder().build();
+  }
+
+  /**
+   * Creates a builder with all values set to their defaults.
+   *
+   * @return the builder to customize.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns the upper bound for the first reconnect delay.
+   *
+   * @return the minimum delay.
+   */
+  public Duration minDelay() {
+    return minDelay;
+  }
+
+  /**
+   * Returns the upper bound for all reconnect delays.
+   *
+   * @return the maximum delay.
+   */
+  public Duration maxDelay() {
+    return maxDelay;
+  }
+
+  /**
+   * Returns the maximum number of requests buffered while an endpoint is not connected.
+   *
+   * @return the maximum number of buffered requests.
+   */
+  public int maxBufferedRequests() {
+    return maxBufferedRequests;
+  }
+
+  /**
+   * Builder for the {@link ReconnectConfig}.
+   */
+  public static class Builder {
+
+    private Duration minDelay = DEFAULT_MIN_DELAY;
+    private Duration maxDelay = DEFAULT_MAX_DELAY;
+    private int maxBufferedRequests = DEFAULT_MAX_BUFFERED_REQUESTS;
+
+    /**
+     * Sets the upper bound for the first reconnect delay.
+     *
+     * @param minDelay the minimum delay, must be positive.
+     * @return this builder for chaining purposes.
+     */
+    public Builder minDelay(final Duration minDelay) {
+      if (minDelay.isNegative() || minDelay.isZero()) {
+        throw new IllegalArgumentException("The minimum delay must be positive.");
+      }
+      this.minDelay = minDelay;
+      return this;
+    }
+
+    /**
+     * Sets the upper bound for all reconnect delays.
+     *
+     * @param maxDelay the maximum delay, must be positive.
+     * @return this builder for chaining purposes.
+     */
+    public Builder maxDelay(final Duration maxDelay) {
+      if (maxDelay.isNegative() || maxDelay.isZero()) {
+        throw new IllegalArgumentException("The maximum delay must be positive.");
+      }
+      this.maxDelay = maxDelay;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of requests buffered while an endpoint is not connected.
+     *
+     * @param maxBufferedRequests the maximum number of requests, must be positive.
+     * @return this builder for chaining purposes.
+     */
+    public Builder maxBufferedRequests(final int maxBufferedRequests) {
+      if (maxBufferedRequests <= 0) {
+        throw new IllegalArgumentException("The maximum number of buffered requests must "
+          + "be positive.");
+      }
+      this.maxBufferedRequests = maxBufferedRequests;
+      return this;
+    }
+
+    /**
+     * Builds the config after checking that the delays are consistent.
+     *
+     * @return the built config.
+     */
+    public ReconnectConfig build() {
+      if (minDelay.compareTo(maxDelay) > 0) {
+        throw new IllegalArgumentException("The minimum delay must not be larger than the "
+          + "maximum delay.");
+      }
+      return new ReconnectConfig(this);
+    }
+
+  }
+
+}
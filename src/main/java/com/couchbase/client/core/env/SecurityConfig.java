@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.env;
+
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.TrustManagerFactory;
+
+/**
+ * Configures transport encryption (TLS) of the Key/Value connections.
+ *
+ * <p>All connections of an environment share one context, so sessions negotiated by one
+ * connection can be resumed by the next one to the same node, which keeps reconnects
+ * after a network blip cheap. This relies on the client session cache of the JDK
+ * engine, which is used by default.</p>
+ *
+ * <p>The native OpenSSL engine encrypts with less overhead, but its client side does not
+ * cache sessions in the netty version this library builds on, so every connection does
+ * a full handshake. It is therefore only used if native TLS is enabled explicitly and
+ * {@code netty-tcnative} is on the classpath, which trades cheap reconnects for cheaper
+ * encryption on long lived connections.</p>
+ *
+ * @since 2.0.0
+ */
+public class SecurityConfig {
+
+  /**
+   * The default number of sessions kept for resumption.
+   */
+  public static final int DEFAULT_SESSION_CACHE_SIZE = 1024;
+
+  /**
+   * The default time a session can be resumed for.
+   */
+  public static final Duration DEFAULT_SESSION_TIMEOUT = Duration.ofMinutes(30);
+
+  private final boolean enabled;
+  private final boolean nativeTlsEnabled;
+  private final boolean hostnameVerification;
+  private final X509Certificate[] trustCertificates;
+  private final TrustManagerFactory trustManagerFactory;
+  private final KeyManagerFactory keyManagerFactory;
+  private final int sessionCacheSize;
+  private final Duration sessionTimeout;
+
+  /**
+   * Creates a new {@link SecurityConfig}.
+   *
+   * @param builder the builder to read the values from.
+   */
+  private SecurityConfig(final Builder builder) {
+    this.enabled = builder.enabled;
+    this.nativeTlsEnabled = builder.nativeTlsEnabled;
+    this.hostnameVerification = builder.hostnameVerification;
+    this.trustCertificates = builder.trustCertificates;
+    this.trustManagerFactory = builder.trustManagerFactory;
+    this.keyManagerFactory = builder.keyManagerFactory;
+    this.sessionCacheSize = builder.sessionCacheSize;
+    this.sessionTimeout = builder.sessionTimeout;
+  }
+
+  /**
+   * Returns a config with TLS disabled, which is the default.
+   *
+   * @return the disabled config.
+   */
+  public static SecurityConfig disabled() {
+    return new Builder().build();
+  }
+
+  /**
+   * Creates a builder with TLS enabled and all values set to their defaults.
+   *
+   * <p>Unless certificates or a trust manager factory are configured, the server
+   * certificate is verified against the default trust store of the JVM.</p>
+   *
+   * @return the builder to customize.
+   */
+  public static Builder enabled() {
+    return new Builder().enabled(true);
+  }
+
+  /**
+   * Returns true if TLS is enabled.
+   *
+   * @return true if enabled.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns true if the OpenSSL engine should be used when it is available, at the
+   * expense of session resumption.
+   *
+   * @return true if native TLS is enabled.
+   */
+  public boolean isNativeTlsEnabled() {
+    return nativeTlsEnabled;
+  }
+
+  /**
+   * Returns true if the server certificate must match the hostname connected to.
+   *
+   * @return true if the hostname is verified.
+   */
+  public boolean isHostnameVerification() {
+    return hostnameVerification;
+  }
+
+  /**
+   * Returns the certificates the server certificate is verified against, if set.
+   *
+   * @return the trusted certificates, empty if not set.
+   */
+  public Optional<X509Certificate[]> trustCertificates() {
+    return Optional.ofNullable(trustCertificates).map(X509Certificate[]::clone);
+  }
+
+  /**
+   * Returns the trust manager factory which verifies the server certificate, if set.
+   *
+   * @return the trust manager factory, empty if not set.
+   */
+  public Optional<TrustManagerFactory> trustManagerFactory() {
+    return Optional.ofNullable(trustManagerFactory);
+  }
+
+  /**
+   * Returns the key manager factory which provides the client certificate, if set.
+   *
+   * @return the key manager factory, empty if not set.
+   */
+  public Optional<KeyManagerFactory> keyManagerFactory() {
+    return Optional.ofNullable(keyManagerFactory);
+  }
+
+  /**
+   * Returns the number of sessions kept for resumption.
+   *
+   * @return the session cache size.
+   */
+  public int sessionCacheSize() {
+    return sessionCacheSize;
+  }
+
+  /**
+   * Returns the time a session can be resumed for.
+   *
+   * @return the session timeout.
+   */
+  public Duration sessionTimeout() {
+    return sessionTimeout;
+  }
+
+  /**
+   * Builder for the {@link SecurityConfig}.
+   */
+  public static class Builder {
+
+    private boolean enabled = false;
+    private boolean nativeTlsEnabled = false;
+    private boolean hostnameVerification = true;
+    private X509Certificate[] trustCertificates;
+    private TrustManagerFactory trustManagerFactory;
+    private KeyManagerFactory keyManagerFactory;
+    private int sessionCacheSize = DEFAULT_SESSION_CACHE_SIZE;
+    private Duration sessionTimeout = DEFAULT_SESSION_TIMEOUT;
+
+    /**
+     * Enables or disables TLS.
+     *
+     * @param enabled true if TLS should be enabled.
+     * @return this builder for chaining purposes.
+     */
+    public Builder enabled(final boolean enabled) {
+      this.enabled = enabled;
+      return this;
+    }
+
+    /**
+     * Allows or prevents the use of the OpenSSL engine if it is available, disabled by
+     * default since its client side does not resume sessions.
+     *
+     * @param nativeTlsEnabled true if the OpenSSL engine should be preferred.
+     * @return this builder for chaining purposes.
+     */
+    public Builder nativeTlsEnabled(final boolean nativeTlsEnabled) {
+      this.nativeTlsEnabled = nativeTlsEnabled;
+      return this;
+    }
+
+    /**
+     * Enables or disables verification of the hostname against the server certificate.
+     *
+     * @param hostnameVerification true if the hostname should be verified.
+     * @return this builder for chaining purposes.
+     */
+    public Builder hostnameVerification(final boolean hostnameVerification) {
+      this.hostnameVerification = hostnameVerification;
+      return this;
+    }
+
+    /**
+     * Sets the certificates the server certificate is verified against.
+     *
+     * <p>This replaces a trust manager factory set before.</p>
+     *
+     * @param trustCertificates the trusted certificates, must not be empty.
+     * @return this builder for chaining purposes.
+     */
+    public Builder trustCertificates(final X509Certificate... trustCertificates) {
+      if (trustCertificates == null || trustCertificates.length == 0) {
+        throw new IllegalArgumentException("At least one trusted certificate is needed.");
+      }
+      this.trustCertificates = Arrays.copyOf(trustCertificates, trustCertificates.length);
+      this.trustManagerFactory = null;
+      return this;
+    }
+
+    /**
+     * Sets the trust manager factory which verifies the server certificate.
+     *
+     * <p>This replaces trusted certificates set before.</p>
+     *
+     * @param trustManagerFactory the trust manager factory, must not be null.
+     * @return this builder for chaining purposes.
+     */
+    public Builder trustManagerFactory(final TrustManagerFactory trustManagerFactory) {
+      if (trustManagerFactory == null) {
+        throw new IllegalArgumentException("The trust manager factory must not be null.");
+      }
+      this.trustManagerFactory = trustManagerFactory;
+      this.trustCertificates = null;
+      return this;
+    }
+
+    /**
+     * Sets the key manager factory which provides the client certificate.
+     *
+     * @param keyManagerFactory the key manager factory, must not be null.
+     * @return this builder for chaining purposes.
+     */
+    public Builder keyManagerFactory(final KeyManagerFactory keyManagerFactory) {
+      if (keyManagerFactory == null) {
+        throw new IllegalArgumentException("The key manager factory must not be null.");
+      }
+      this.keyManagerFactory = keyManagerFactory;
+      return this;
+    }
+
+    /**
+     * Sets the number of sessions kept for resumption.
+     *
+     * @param sessionCacheSize the number of sessions, must be positive.
+     * @return this builder for chaining purposes.
+     */
+    public Builder sessionCacheSize(final int sessionCacheSize) {
+      if (sessionCacheSize <= 0) {
+        throw new IllegalArgumentException("The session cache size must be positive.");
+      }
+      this.sessionCacheSize = sessionCacheSize;
+      return this;
+    }
+
+    /**
+     * Sets the time a session can be resumed for.
+     *
+     * @param sessionTimeout the session timeout, must be at least one second.
+     * @return this builder for chaining purposes.
+     */
+    public Builder sessionTimeout(final Duration sessionTimeout) {
+      if (sessionTimeout.getSeconds() < 1) {
+        throw new IllegalArgumentException("The session timeout must be at least one second.");
+      }
+      this.sessionTimeout = sessionTimeout;
+      return this;
+    }
+
+    /**
+     * Creates the {@link SecurityConfig}.
+     *
+     * @return the created config.
+     */
+    public SecurityConfig build() {
+      return new SecurityConfig(this);
+    }
+
+  }
+
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.env;
+
+import io.netty.channel.DefaultSelectStrategyFactory;
+import io.netty.channel.SelectStrategy;
+import io.netty.channel.SelectStrategyFactory;
+import io.netty.util.IntSupplier;
+
+import java.time.Duration;
+
+/**
+ * Configures how the IO threads wait for network events.
+ *
+ * <p>By default, an IO thread blocks in the selector when it has nothing to do, which
+ * costs the least CPU but adds the latency of a thread wakeup to every response which
+ * arrives on an idle connection. Applications which trade CPU for latency can let the
+ * IO threads spin instead:</p>
+ *
+ * <ul>
+ *   <li>{@link #blocking()} blocks right away when idle, this is the default.</li>
+ *   <li>{@link #busySpin()} never blocks and keeps every IO thread at 100% CPU.</li>
+ *   <li>{@link #spinThenPark(Duration)} spins for a budget once it runs out of work,
+ *   and only blocks if nothing arrived within that budget. This keeps the latency of
+ *   busy connections low while idle threads still go to sleep.</li>
+ * </ul>
+ *
+ * @since 2.0.0
+ */
+public class SelectStrategyConfig {
+
+  /**
+   * The default spin budget of the spin-then-park strategy.
+   */
+  public static final Duration DEFAULT_SPIN_BUDGET = Duration.ofMillis(1);
+
+  private static final SelectStrategyConfig BLOCKING =
+      new SelectStrategyConfig(Mode.BLOCKING, Duration.ZERO);
+
+  private static final SelectStrategyConfig BUSY_SPIN =
+      new SelectStrategyConfig(Mode.BUSY_SPIN, Duration.ZERO);
+
+  private final Mode mode;
+  private final Duration spinBudget;
+
+  /**
+   * Creates a new {@link SelectStrategyConfig}.
+   *
+   * @param mode the strategy mode.
+   * @param spinBudget how long to spin before blocking, only used when spinning then parking.
+   */
+  private SelectStrategyConfig(final Mode mode, final Duration spinBudget) {
+    this.mode = mode;
+    this.spinBudget = spinBudget;
+  }
+
+  /**
+   * Returns a config which blocks in the selector whenever there is nothing to do.
+   *
+   * @return the blocking config.
+   */
+  public static SelectStrategyConfig blocking() {
+    return BLOCKING;
+  }
+
+  /**
+   * Returns a config which never blocks and polls the selector in a tight loop.
+   *
+   * @return the busy spin config.
+   */
+  public static SelectStrategyConfig busySpin() {
+    return BUSY_SPIN;
+  }
+
+  /**
+   * Returns a config which spins with the default budget before blocking.
+   *
+   * @return the spin-then-park config.
+   */
+  public static SelectStrategyConfig spinThenPark() {
+    return spinThenPark(DEFAULT_SPIN_BUDGET);
+  }
+
+  /**
+   * Returns a config which spins for the given budget before blocking.
+   *
+   * @param spinBudget how long an idle thread spins before it blocks, must be positive.
+   * @return the spin-then-park config.
+   */
+  public static SelectStrategyConfig spinThenPark(final Duration spinBudget) {
+    if (spinBudget.isNegative() || spinBudget.isZero()) {
+      throw new IllegalArgumentException("The spin budget must be positive.");
+    }
+    return new SelectStrategyConfig(Mode.SPIN_THEN_PARK, spinBudget);
+  }
+
+  /**
+   * Returns the mode of this strategy.
+   *
+   * @return the mode.
+   */
+  public Mode mode() {
+    return mode;
+  }
+
+  /**
+   * Returns how long an idle thread spins before it blocks.
+   *
+   * @return the spin budget, zero unless spinning then parking.
+   */
+  public Duration spinBudget() {
+    return spinBudget;
+  }
+
+  /**
+   * Creates the netty factory which implements this strategy.
+   *
+   * @return the select strategy factory.
+   */
+  SelectStrategyFactory factory() {
+    switch (mode) {
+      case BUSY_SPIN:
+        return () -> (selectSupplier, hasTasks) -> selectSupplier.get();
+      case SPIN_THEN_PARK:
+        final long spinNanos = spinBudget.toNanos();
+        return () -> new SpinThenParkSelectStrategy(spinNanos);
+      default:
+        return DefaultSelectStrategyFactory.INSTANCE;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "SelectStrategyConfig{mode=" + mode + ", spinBudget=" + spinBudget + '}';
+  }
+
+  /**
+   * The available select strategies.
+   */
+  public enum Mode {
+
+    /**
+     * Block in the selector when there is nothing to do.
+     */
+    BLOCKING,
+
+    /**
+     * Never block, poll the selector in a tight loop.
+     */
+    BUSY_SPIN,
+
+    /**
+     * Poll the selector for a budget once idle, then block.
+     */
+    SPIN_THEN_PARK
+
+  }
+
+  /**
+   * A {@link SelectStrategy} which polls for a budget once idle and then blocks.
+   *
+   * <p>netty creates one strategy per event loop, so the state is only ever accessed by
+   * a single thread.</p>
+   */
+  static final class SpinThenParkSelectStrategy implements SelectStrategy {
+
+    private final long spinNanos;
+
+    /**
+     * The time the event loop became idle, or 0 if it is busy.
+     */
+    private long idleSince;
+
+    SpinThenParkSelectStrategy(final long spinNanos) {
+      this.spinNanos = spinNanos;
+    }
+
+    @Override
+    public int calculateStrategy(final IntSupplier selectSupplier,
+                                 final boolean hasTasks) throws Exception {
+      final int ready = selectSupplier.get();
+      if (ready > 0 || hasTasks) {
+        idleSince = 0;
+        return ready;
+      }
+
+      final long now = System.nanoTime();
+      if (idleSince == 0) {
+        idleSince = now;
+        return ready;
+      }
+      if (now - idleSince < spinNanos) {
+        return ready;
+      }
+
+      idleSince = 0;
+      return SelectStrategy.SELECT;
+    }
+
+  }
+
+}
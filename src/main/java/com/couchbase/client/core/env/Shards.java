@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.env;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.FastThreadLocal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Maps threads onto the event loops of a group, which act as the shards of a sharded core.
+ *
+ * <p>Each shard is one event loop, and everything a shard owns (its connections, their
+ * in-flight requests and the timeouts of the requests written to them) is only touched
+ * by that event loop. Event loop threads always map to their own shard, so work which is
+ * dispatched from an IO thread never leaves it. Every other thread belongs to no shard,
+ * its work goes to the shard which owns the target of the request instead. Targets are
+ * handed out to the shards in a round robin fashion through {@link #next()}.</p>
+ *
+ * <p>The mapping is stored in a thread local, so looking up the current shard is free of
+ * shared state.</p>
+ *
+ * @since 2.0.0
+ */
+public final class Shards {
+
+  private final EventLoop[] eventLoops;
+
+  /**
+   * Hands out shards in a round robin fashion, only used when a target is created.
+   */
+  private final AtomicInteger nextAssignment = new AtomicInteger();
+
+  /**
+   * The shard of the current thread, -1 if it is not the event loop of a shard.
+   */
+  private final FastThreadLocal<Integer> current = new FastThreadLocal<Integer>() {
+    @Override
+    protected Integer initialValue() {
+      return lookup();
+    }
+  };
+
+  /**
+   * Creates new {@link Shards} for all event loops of the given group.
+   *
+   * @param group the event loop group.
+   */
+  Shards(final EventLoopGroup group) {
+    final List<EventLoop> loops = new ArrayList<>();
+    for (EventExecutor executor : group) {
+      loops.add((EventLoop) executor);
+    }
+    this.eventLoops = loops.toArray(new EventLoop[0]);
+  }
+
+  /**
+   * Returns the number of shards.
+   *
+   * @return the number of shards.
+   */
+  public int count() {
+    return eventLoops.length;
+  }
+
+  /**
+   * Returns the event loop which owns the given shard.
+   *
+   * @param shard the shard index.
+   * @return the event loop of the shard.
+   */
+  public EventLoop eventLoop(final int shard) {
+    return eventLoops[shard];
+  }
+
+  /**
+   * Returns the shard of the calling thread.
+   *
+   * @return the shard index, or -1 if the calling thread is not the event loop of a shard.
+   */
+  public int current() {
+    return current.get();
+  }
+
+  /**
+   * Returns the next shard in a round robin fashion, used to spread targets such as
+   * connections evenly across the shards.
+   *
+   * @return the shard index.
+   */
+  public int next() {
+    return Math.floorMod(nextAssignment.getAndIncrement(), eventLoops.length);
+  }
+
+  /**
+   * Finds the shard for a thread which asks for the first time.
+   *
+   * @return the shard index, or -1 if the thread is not the event loop of a shard.
+   */
+  private int lookup() {
+    for (int i = 0; i < eventLoops.length; i++) {
+      if (eventLoops[i].inEventLoop()) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.env;
+
+import com.couchbase.client.core.metrics.BlockedEventLoop;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Configures the optional watchdog which measures how long tasks wait until the event
+ * loops used for network IO get to run them.
+ *
+ * <p>Every interval, the watchdog schedules a probe on each event loop and records the
+ * time until it runs into a histogram. If a probe does not run within the threshold,
+ * the event loop is considered blocked and the stack trace of its thread is reported,
+ * which usually points right at the code which blocks it.</p>
+ *
+ * @since 2.0.0
+ */
+public class WatchdogConfig {
+
+  /**
+   * The default interval between probes of one event loop.
+   */
+  public static final Duration DEFAULT_INTERVAL = Duration.ofMillis(100);
+
+  /**
+   * The default time after which an event loop which did not run its probe is reported.
+   */
+  public static final Duration DEFAULT_THRESHOLD = Duration.ofMillis(500);
+
+  /**
+   * The default window of the lag histogram.
+   */
+  public static final Duration DEFAULT_WINDOW = Duration.ofSeconds(10);
+
+  private final boolean enabled;
+  private final Duration interval;
+  private final Duration threshold;
+  private final Duration window;
+  private final Consumer<BlockedEventLoop> listener;
+
+  /**
+   * Creates a new {@link WatchdogConfig}.
+   *
+   * @param builder the builder to read the values from.
+   */
+  private WatchdogConfig(final Builder builder) {
+    this.enabled = builder.enabled;
+    this.interval = builder.interval;
+    this.threshold = builder.threshold;
+    this.window = builder.window;
+    this.listener = builder.listener;
+  }
+
+  /**
+   * Returns a config with the watchdog disabled, which is the default.
+   *
+   * @return the disabled config.
+   */
+  public static WatchdogConfig disabled() {
+    return new Builder().build();
+  }
+
+  /**
+   * Creates a builder with the watchdog enabled and all values set to their defaults.
+   *
+   * @return the builder to customize.
+   */
+  public static Builder enabled() {
+    return new Builder().enabled(true);
+  }
+
+  /**
+   * Returns true if the watchdog is enabled.
+   *
+   * @return true if enabled.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the interval between probes of one event loop.
+   *
+   * @return the probe interval.
+   */
+  public Duration interval() {
+    return interval;
+  }
+
+  /**
+   * Returns the time after which an event loop which did not run its probe is reported.
+   *
+   * @return the blocking threshold.
+   */
+  public Duration threshold() {
+    return threshold;
+  }
+
+  /**
+   * Returns the window of the lag histogram.
+   *
+   * @return the histogram window.
+   */
+  public Duration window() {
+    return window;
+  }
+
+  /**
+   * Returns the listener for blocked event loops, if set.
+   *
+   * @return the listener, empty if blocked event loops are logged.
+   */
+  public Optional<Consumer<BlockedEventLoop>> listener() {
+    return Optional.ofNullable(listener);
+  }
+
+  /**
+   * Builder for the {@link WatchdogConfig}.
+   */
+  public static class Builder {
+
+    private boolean enabled = false;
+    private Duration interval = DEFAULT_INTERVAL;
+    private Duration threshold = DEFAULT_THRESHOLD;
+    private Duration window = DEFAULT_WINDOW;
+    private Consumer<BlockedEventLoop> listener;
+
+    /**
+     * Enables or disables the watchdog.
+     *
+     * @param enabled true if the watchdog should be enabled.
+     * @return this builder for chaining purposes.
+     */
+    public Builder enabled(final boolean enabled) {
+      this.enabled = enabled;
+      return this;
+    }
+
+    /**
+     * Sets the interval between probes of one event loop.
+     *
+     * @param interval the probe interval, must be positive.
+     * @return this builder for chaining purposes.
+     */
+    public Builder interval(final Duration interval) {
+      if (interval.isNegative() || interval.isZero()) {
+        throw new IllegalArgumentException("The interval must be positive.");
+      }
+      this.interval = interval;
+      return this;
+    }
+
+    /**
+     * Sets the time after which an event loop which did not run its probe is reported.
+     *
+     * @param threshold the blocking threshold, must be positive.
+     * @return this builder for chaining purposes.
+     */
+    public Builder threshold(final Duration threshold) {
+      if (threshold.isNegative() || threshold.isZero()) {
+        throw new IllegalArgumentException("The threshold must be positive.");
+      }
+      this.threshold = threshold;
+      return this;
+    }
+
+    /**
+     * Sets the window of the lag histogram.
+     *
+     * @param window the histogram window, must be positive.
+     * @return this builder for chaining purposes.
+     */
+    public Builder window(final Duration window) {
+      if (window.isNegative() || window.isZero()) {
+        throw new IllegalArgumentException("The window must be positive.");
+      }
+      this.window = window;
+      return this;
+    }
+
+    /**
+     * Sets a listener which is called with every blocked event loop instead of logging
+     * a warning.
+     *
+     * <p>The listener is called from the watchdog thread, so it must not block.</p>
+     *
+     * @param listener the listener to call.
+     * @return this builder for chaining purposes.
+     */
+    public Builder listener(final Consumer<BlockedEventLoop> listener) {
+      if (listener == null) {
+        throw new IllegalArgumentException("The listener must not be null.");
+      }
+      this.listener = listener;
+      return this;
+    }
+
+    /**
+     * Creates the config.
+     *
+     * @return the created config.
+     */
+    public WatchdogConfig build() {
+      return new WatchdogConfig(this);
+    }
+
+  }
+
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io;
+
+import com.couchbase.client.core.env.CircuitBreakerConfig;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Guards a single {@link Endpoint} against piling up requests while it is failing.
+ *
+ * <p>Outcomes are counted in a sliding window made of a fixed number of time buckets.
+ * Once the window holds at least the configured minimum of requests and the ratio of
+ * failures among them reaches the threshold, the breaker opens and every request is
+ * rejected right away. After the open duration a limited number of probe requests are
+ * let through (half-open): if all of them succeed the breaker closes with an empty
+ * window, a single failed probe opens it again.</p>
+ *
+ * <p>Acquiring a permit in the closed state and rejecting in the open state only read a
+ * volatile field (plus the clock while open), so the check is cheap enough to be done
+ * for every request. Outcomes and state transitions are synchronized, but are usually
+ * only reported from the IO thread of the endpoint so the lock is uncontended.</p>
+ *
+ * @since 2.0.0
+ */
+public class CircuitBreaker {
+
+  /**
+   * The number of buckets the sliding window is split into.
+   */
+  private static final int BUCKETS = 10;
+
+  /**
+   * The state of a {@link CircuitBreaker}.
+   */
+  public enum State {
+    /**
+     * All requests are let through and their outcomes are counted.
+     */
+    CLOSED,
+    /**
+     * All requests are rejected until the open duration has passed.
+     */
+    OPEN,
+    /**
+     * A limited number of probe requests are let through to test the endpoint.
+     */
+    HALF_OPEN
+  }
+
+  /**
+   * The result of {@link #acquire()}, which needs to be passed back with the outcome.
+   */
+  public enum Permit {
+    /**
+     * The request must not be sent.
+     */
+    REJECTED,
+    /**
+     * The request may be sent, its outcome is counted in the window.
+     */
+    PERMITTED,
+    /**
+     * The request may be sent as one of the probes while half-open.
+     */
+    PROBE
+  }
+
+  private final LongSupplier clock;
+  private final boolean enabled;
+  private final long bucketNanos;
+  private final int minRequests;
+  private final double failureRatio;
+  private final long openNanos;
+  private final int probes;
+
+  /**
+   * The number of requests per bucket.
+   */
+  private final int[] totals = new int[BUCKETS];
+
+  /**
+   * The number of failed requests per bucket.
+   */
+  private final int[] failures = new int[BUCKETS];
+
+  /**
+   * The index of the time slice each bucket currently counts for.
+   */
+  private final long[] slices = new long[BUCKETS];
+
+  /**
+   * The sum of all {@link #totals}.
+   */
+  private int total;
+
+  /**
+   * The sum of all {@link #failures}.
+   */
+  private int failed;
+
+  /**
+   * The number of probes currently in flight while half-open.
+   */
+  private int probesInFlight;
+
+  /**
+   * The number of probes which succeeded while half-open.
+   */
+  private int probesSucceeded;
+
+  /**
+   * The timestamp the breaker opened at.
+   */
+  private volatile long openedAt;
+
+  /**
+   * The current state.
+   */
+  private volatile State state = State.CLOSED;
+
+  /**
+   * Creates a new {@link CircuitBreaker}.
+   *
+   * @param config the config to read the thresholds from.
+   */
+  public CircuitBreaker(final CircuitBreakerConfig config) {
+    this(config, System::nanoTime);
+  }
+
+  /**
+   * Creates a new {@link CircuitBreaker} with a custom clock.
+   *
+   * @param config the config to read the thresholds from.
+   * @param clock the source of the current time in nanoseconds.
+   */
+  CircuitBreaker(final CircuitBreakerConfig config, final LongSupplier clock) {
+    this.clock = clock;
+    this.enabled = config.isEnabled();
+    this.bucketNanos = Math.max(1, config.window().toNanos() / BUCKETS);
+    this.minRequests = config.minRequests();
+    this.failureRatio = config.failureRatio();
+    this.openNanos = config.openDuration().toNanos();
+    this.probes = config.probes();
+  }
+
+  /**
+   * Asks whether a request may be sent.
+   *
+   * <p>Every permit other than {@link Permit#REJECTED} must be handed back to exactly one
+   * of {@link #succeeded(Permit)}, {@link #failed(Permit)} or {@link #ignored(Permit)}.</p>
+   *
+   * @return the permit, {@link Permit#REJECTED} if the request must fail right away.
+   */
+  public Permit acquire() {
+    final State current = state;
+    if (current == State.CLOSED) {
+      return Permit.PERMITTED;
+    }
+    if (current == State.OPEN && clock.getAsLong() - openedAt < openNanos) {
+      return Permit.REJECTED;
+    }
+    return acquireSlow();
+  }
+
+  /**
+   * Moves an open breaker into half-open and hands out the probe permits.
+   *
+   * @return the permit.
+   */
+  private synchronized Permit acquireSlow() {
+    if (state == State.OPEN && clock.getAsLong() - openedAt >= openNanos) {
+      probesInFlight = 0;
+      probesSucceeded = 0;
+      state = State.HALF_OPEN;
+    }
+    switch (state) {
+      case CLOSED:
+        return Permit.PERMITTED;
+      case HALF_OPEN:
+        if (probesInFlight + probesSucceeded < probes) {
+          probesInFlight++;
+          return Permit.PROBE;
+        }
+        return Permit.REJECTED;
+      default:
+        return Permit.REJECTED;
+    }
+  }
+
+  /**
+   * Reports that the request of the permit succeeded.
+   *
+   * @param permit the permit returned from {@link #acquire()}.
+   */
+  public void succeeded(final Permit permit) {
+    if (!enabled) {
+      return;
+    }
+    if (permit == Permit.PERMITTED) {
+      record(false);
+    } else if (permit == Permit.PROBE) {
+      probeSucceeded();
+    }
+  }
+
+  /**
+   * Reports that the request of the permit failed or timed out.
+   *
+   * @param permit the permit returned from {@link #acquire()}.
+   */
+  public void failed(final Permit permit) {
+    if (!enabled) {
+      return;
+    }
+    if (permit == Permit.PERMITTED) {
+      record(true);
+    } else if (permit == Permit.PROBE) {
+      probeFailed();
+    }
+  }
+
+  /**
+   * Reports that the request of the permit completed without telling anything about the
+   * health of the endpoint, for example because it has been cancelled.
+   *
+   * @param permit the permit returned from {@link #acquire()}.
+   */
+  public synchronized void ignored(final Permit permit) {
+    if (permit == Permit.PROBE && state == State.HALF_OPEN) {
+      probesInFlight--;
+    }
+  }
+
+  /**
+   * Returns the current state.
+   *
+   * @return the current state.
+   */
+  public State state() {
+    final State current = state;
+    if (current == State.OPEN && clock.getAsLong() - openedAt >= openNanos) {
+      return State.HALF_OPEN;
+    }
+    return current;
+  }
+
+  /**
+   * Counts the outcome of a request in the window and opens the breaker if needed.
+   *
+   * @param failure true if the request failed.
+   */
+  private synchronized void record(final boolean failure) {
+    if (state != State.CLOSED) {
+      return;
+    }
+    final long now = clock.getAsLong();
+    final long slice = Math.floorDiv(now, bucketNanos);
+    final int index = (int) Math.floorMod(slice, (long) BUCKETS);
+    if (slices[index] != slice) {
+      expire(slice);
+    }
+    totals[index]++;
+    total++;
+    if (failure) {
+      failures[index]++;
+      failed++;
+      if (total >= minRequests && failed >= failureRatio * total) {
+        open(now);
+      }
+    }
+  }
+
+  /**
+   * Clears all buckets which are no longer part of the window ending at the given slice.
+   *
+   * @param slice the current time slice.
+   */
+  private void expire(final long slice) {
+    for (int i = 0; i < BUCKETS; i++) {
+      if (slices[i] > slice || slice - slices[i] >= BUCKETS) {
+        total -= totals[i];
+        failed -= failures[i];
+        totals[i] = 0;
+        failures[i] = 0;
+        slices[i] = slice - Math.floorMod(slice - i, (long) BUCKETS);
+      }
+    }
+  }
+
+  /**
+   * Counts a successful probe and closes the breaker once enough of them succeeded.
+   */
+  private synchronized void probeSucceeded() {
+    if (state != State.HALF_OPEN) {
+      return;
+    }
+    probesInFlight--;
+    if (++probesSucceeded >= probes) {
+      clear();
+      state = State.CLOSED;
+    }
+  }
+
+  /**
+   * Opens the breaker again after a failed probe.
+   */
+  private synchronized void probeFailed() {
+    if (state == State.HALF_OPEN) {
+      open(clock.getAsLong());
+    }
+  }
+
+  /**
+   * Opens the breaker at the given time.
+   *
+   * @param now the current timestamp.
+   */
+  private void open(final long now) {
+    openedAt = now;
+    state = State.OPEN;
+  }
+
+  /**
+   * Empties the window.
+   */
+  private void clear() {
+    for (int i = 0; i < BUCKETS; i++) {
+      totals[i] = 0;
+      failures[i] = 0;
+    }
+    total = 0;
+    failed = 0;
+  }
+
+}
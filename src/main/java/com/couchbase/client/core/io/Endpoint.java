@@ -28,4 +28,37 @@ public interface Endpoint {
 
   <R> void dispatch(Request<R> request);
 
+  /**
+   * Starts connecting this {@link Endpoint} without waiting for the connection.
+   *
+   * <p>Requests dispatched before the connection is established are buffered.</p>
+   */
+  void connect();
+
+  /**
+   * Closes the connection of this {@link Endpoint} and stops reconnecting.
+   */
+  void disconnect();
+
+  /**
+   * Returns the current lifecycle state of this {@link Endpoint}.
+   *
+   * @return the current state.
+   */
+  EndpointState state();
+
+  /**
+   * Returns the load statistics of this {@link Endpoint}.
+   *
+   * @return the statistics, used for load-aware selection.
+   */
+  EndpointStats stats();
+
+  /**
+   * Returns the circuit breaker of this {@link Endpoint}.
+   *
+   * @return the circuit breaker, used to fail fast and to route around failing endpoints.
+   */
+  CircuitBreaker circuitBreaker();
+
 }
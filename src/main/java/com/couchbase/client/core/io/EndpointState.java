@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io;
+
+/**
+ * Describes the lifecycle states of an {@link Endpoint}.
+ *
+ * @since 2.0.0
+ */
+public enum EndpointState {
+
+  /**
+   * The endpoint is not connected and does not try to connect.
+   */
+  DISCONNECTED,
+
+  /**
+   * The endpoint is connecting or waiting for its next reconnect attempt.
+   */
+  CONNECTING,
+
+  /**
+   * The endpoint is connected and sends requests right away.
+   */
+  CONNECTED,
+
+  /**
+   * The endpoint is closing its connection and will not reconnect.
+   */
+  DISCONNECTING
+
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io;
+
+import com.couchbase.client.core.metrics.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks the load of a single {@link Endpoint}: the number of requests in flight as
+ * well as an exponentially weighted moving average (EWMA) of its response latency.
+ *
+ * <p>The average is "peak sensitive": a sample slower than the current average replaces
+ * it right away, while faster samples pull it down with a weight based on how much time
+ * has passed since the last sample. When no samples arrive, the average decays towards
+ * zero so that an endpoint which was slow once and stopped receiving traffic because of
+ * it is eventually probed again.</p>
+ *
+ * <p>In addition, all latency samples are recorded into a rolling {@link LatencyHistogram}
+ * so that percentiles (for example as a hedging delay) can be derived. If the server
+ * reports how long it spent on a request, that part and the remainder spent in the
+ * network and the client are recorded into histograms of their own, which tells a slow
+ * cluster apart from a slow network or client.</p>
+ *
+ * <p>Latency is usually recorded from the IO thread of the endpoint, so the update path
+ * is hardly contended (a sharded endpoint keeps one instance per shard and adds them up
+ * when read). Readers only ever see a slightly stale value, which is fine since the
+ * score is only used as a load balancing heuristic.</p>
+ *
+ * @since 2.0.0
+ */
+public class EndpointStats {
+
+  /**
+   * The default decay time, the same as used by other well-known peak EWMA balancers.
+   */
+  public static final Duration DEFAULT_DECAY = Duration.ofSeconds(10);
+
+  /**
+   * The window of the latency histogram.
+   */
+  private static final Duration HISTOGRAM_WINDOW = Duration.ofSeconds(5);
+
+  /**
+   * The number of requests currently in flight.
+   */
+  private final AtomicInteger inFlight = new AtomicInteger(0);
+
+  /**
+   * The decay time in nanoseconds.
+   */
+  private final double decayNanos;
+
+  /**
+   * Holds the latency distribution of the last completed window.
+   */
+  private final LatencyHistogram histogram = new LatencyHistogram(HISTOGRAM_WINDOW);
+
+  /**
+   * Holds the distribution of the time the server reported to spend on requests.
+   */
+  private final LatencyHistogram serverHistogram = new LatencyHistogram(HISTOGRAM_WINDOW);
+
+  /**
+   * Holds the distribution of the latency remaining after the server duration.
+   */
+  private final LatencyHistogram clientHistogram = new LatencyHistogram(HISTOGRAM_WINDOW);
+
+  /**
+   * The current moving average in nanoseconds.
+   */
+  private volatile double ewmaNanos;
+
+  /**
+   * The timestamp of the last latency update.
+   */
+  private volatile long lastUpdate;
+
+  /**
+   * Creates new {@link EndpointStats} with the {@link #DEFAULT_DECAY}.
+   */
+  public EndpointStats() {
+    this(DEFAULT_DECAY);
+  }
+
+  /**
+   * Creates new {@link EndpointStats} with a custom decay time.
+   *
+   * @param decay the time it takes for an old sample to lose most of its weight.
+   */
+  public EndpointStats(final Duration decay) {
+    if (decay.isNegative() || decay.isZero()) {
+      throw new IllegalArgumentException("The decay time must be positive.");
+    }
+    this.decayNanos = decay.toNanos();
+    this.lastUpdate = System.nanoTime();
+  }
+
+  /**
+   * Marks the start of a request and returns the start timestamp which needs to be
+   * passed into {@link #requestCompleted(long)} or {@link #requestAbandoned()}.
+   *
+   * @return the start timestamp in nanoseconds.
+   */
+  public long requestStarted() {
+    inFlight.incrementAndGet();
+    return System.nanoTime();
+  }
+
+  /**
+   * Marks a request as completed and records its latency.
+   *
+   * @param start the timestamp returned from {@link #requestStarted()}.
+   */
+  public void requestCompleted(final long start) {
+    requestCompleted(start, -1);
+  }
+
+  /**
+   * Marks a request as completed and records its latency, split into the duration the
+   * server reported and the remainder.
+   *
+   * @param start the timestamp returned from {@link #requestStarted()}.
+   * @param serverDurationNanos the server duration in nanoseconds, -1 if not reported.
+   */
+  public void requestCompleted(final long start, final long serverDurationNanos) {
+    inFlight.decrementAndGet();
+    final long latencyNanos = System.nanoTime() - start;
+    record(latencyNanos);
+    if (serverDurationNanos >= 0) {
+      serverHistogram.record(serverDurationNanos);
+      clientHistogram.record(latencyNanos - serverDurationNanos);
+    }
+  }
+
+  /**
+   * Marks a request as no longer in flight without recording its latency.
+   *
+   * <p>This is used for requests which did not complete because of the endpoint itself,
+   * for example because they have been cancelled.</p>
+   */
+  public void requestAbandoned() {
+    inFlight.decrementAndGet();
+  }
+
+  /**
+   * Records a latency sample into the moving average.
+   *
+   * @param latencyNanos the latency of the sample in nanoseconds.
+   */
+  public synchronized void record(final long latencyNanos) {
+    histogram.record(latencyNanos);
+    final long now = System.nanoTime();
+    if (latencyNanos > ewmaNanos) {
+      ewmaNanos = latencyNanos;
+    } else {
+      final double weight = Math.exp(-Math.max(0, now - lastUpdate) / decayNanos);
+      ewmaNanos = ewmaNanos * weight + latencyNanos * (1 - weight);
+    }
+    lastUpdate = now;
+  }
+
+  /**
+   * Returns the number of requests currently in flight.
+   *
+   * @return the number of in flight requests.
+   */
+  public int inFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * Returns the current moving average of the latency in nanoseconds.
+   *
+   * @return the latency average.
+   */
+  public double latencyNanos() {
+    return decayed(System.nanoTime());
+  }
+
+  /**
+   * Returns the latency at the given percentile over the last completed histogram window.
+   *
+   * @param percentile the percentile, between 0 and 100.
+   * @return the latency in nanoseconds, or 0 if there is not enough data yet.
+   */
+  public long latencyPercentile(final double percentile) {
+    return histogram.valueAtPercentile(percentile);
+  }
+
+  /**
+   * Returns the server duration at the given percentile over the last completed window.
+   *
+   * @param percentile the percentile, between 0 and 100.
+   * @return the server duration in nanoseconds, or 0 if the server did not report any.
+   */
+  public long serverLatencyPercentile(final double percentile) {
+    return serverHistogram.valueAtPercentile(percentile);
+  }
+
+  /**
+   * Returns the latency without the server duration at the given percentile over the
+   * last completed window, which is the time spent in the network and the client.
+   *
+   * @param percentile the percentile, between 0 and 100.
+   * @return the remaining latency in nanoseconds, or 0 if the server reported none.
+   */
+  public long clientLatencyPercentile(final double percentile) {
+    return clientHistogram.valueAtPercentile(percentile);
+  }
+
+  /**
+   * Returns the load score of this endpoint, lower is better.
+   *
+   * <p>The score is the average latency weighted by the outstanding requests, so it
+   * approximates how long a new request would have to wait. Endpoints without any
+   * latency samples yet are compared by their outstanding requests alone.</p>
+   *
+   * @return the load score.
+   */
+  public double score() {
+    return (latencyNanos() + 1) * (inFlight() + 1);
+  }
+
+  /**
+   * Helper method to calculate the average decayed up to the given point in time.
+   *
+   * @param now the current timestamp in nanoseconds.
+   * @return the decayed average.
+   */
+  private double decayed(final long now) {
+    final long elapsed = Math.max(0, now - lastUpdate);
+    return ewmaNanos * Math.exp(-elapsed / decayNanos);
+  }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io;
+
+/**
+ * Describes the services an endpoint can connect to.
+ *
+ * @since 2.0.0
+ */
+public enum ServiceType {
+
+  /**
+   * The Key/Value service.
+   */
+  KV,
+
+  /**
+   * The query service.
+   */
+  QUERY,
+
+  /**
+   * The full text search service.
+   */
+  SEARCH,
+
+  /**
+   * The view service.
+   */
+  VIEWS,
+
+  /**
+   * The analytics service.
+   */
+  ANALYTICS,
+
+  /**
+   * The cluster management service.
+   */
+  MANAGER
+
+}
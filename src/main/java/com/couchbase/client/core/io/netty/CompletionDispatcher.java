@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io.netty;
+
+import com.couchbase.client.core.env.CompletionConfig;
+import com.couchbase.client.core.msg.Request;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Completes the requests of one channel according to the {@link CompletionConfig}.
+ *
+ * <p>All methods are called from the event loop of the channel. Whenever a completion
+ * runs on the event loop (always in inline mode, or as a fallback if the executor
+ * rejects a task) it is timed, and completions which take longer than the blocking
+ * threshold are reported with a warning, since the callbacks chained on the response
+ * stall every other connection of the event loop in the meantime.</p>
+ *
+ * @since 2.0.0
+ */
+final class CompletionDispatcher {
+
+  private static final InternalLogger LOGGER =
+      InternalLoggerFactory.getInstance(CompletionDispatcher.class);
+
+  /**
+   * The initial capacity of the batch, in requests.
+   */
+  private static final int INITIAL_BATCH_SIZE = 16;
+
+  private final CompletionConfig.Mode mode;
+  private final Executor executor;
+  private final long blockingThresholdNanos;
+
+  /**
+   * Requests and their results (either the response or the failure) which are completed
+   * at the end of the current read, alternating. Only used in batched mode.
+   */
+  private Object[] batch;
+  private int batchSize;
+
+  /**
+   * Creates a new {@link CompletionDispatcher}.
+   *
+   * @param config the completion configuration.
+   * @param executor the executor to offload to, only used if not inline.
+   */
+  CompletionDispatcher(final CompletionConfig config, final Executor executor) {
+    this.mode = config.mode();
+    this.executor = executor;
+    this.blockingThresholdNanos = config.blockingThreshold().toNanos();
+    if (mode == CompletionConfig.Mode.BATCHED) {
+      batch = new Object[INITIAL_BATCH_SIZE * 2];
+    }
+  }
+
+  /**
+   * Completes the request successfully with the given response.
+   *
+   * @param request the request to complete.
+   * @param response the response to complete it with.
+   * @param <R> the response type.
+   */
+  <R> void succeed(final Request<R> request, final R response) {
+    switch (mode) {
+      case OFFLOAD:
+        offload(() -> request.succeed(response), request, response);
+        break;
+      case BATCHED:
+        add(request, response);
+        break;
+      default:
+        complete(request, response);
+    }
+  }
+
+  /**
+   * Completes the request with the given failure.
+   *
+   * @param request the request to complete.
+   * @param error the failure to complete it with.
+   */
+  void fail(final Request<?> request, final Throwable error) {
+    switch (mode) {
+      case OFFLOAD:
+        offload(() -> request.fail(error), request, error);
+        break;
+      case BATCHED:
+        add(request, error);
+        break;
+      default:
+        complete(request, error);
+    }
+  }
+
+  /**
+   * Hands all completions collected during the current read to the executor at once.
+   */
+  void flush() {
+    if (batchSize == 0) {
+      return;
+    }
+    final Object[] completions = Arrays.copyOf(batch, batchSize);
+    Arrays.fill(batch, 0, batchSize, null);
+    batchSize = 0;
+    try {
+      executor.execute(() -> {
+        for (int i = 0; i < completions.length; i += 2) {
+          completeNow((Request<?>) completions[i], completions[i + 1]);
+        }
+      });
+    } catch (RejectedExecutionException ex) {
+      for (int i = 0; i < completions.length; i += 2) {
+        complete((Request<?>) completions[i], completions[i + 1]);
+      }
+    }
+  }
+
+  /**
+   * Adds a completion to the current batch.
+   *
+   * @param request the request to complete.
+   * @param result the response or the failure.
+   */
+  private void add(final Request<?> request, final Object result) {
+    if (batchSize == batch.length) {
+      batch = Arrays.copyOf(batch, batch.length * 2);
+    }
+    batch[batchSize++] = request;
+    batch[batchSize++] = result;
+  }
+
+  /**
+   * Runs a completion on the executor, or on the event loop if the executor rejects it.
+   *
+   * @param completion the completion to run.
+   * @param request the request to complete.
+   * @param result the response or the failure.
+   */
+  private void offload(final Runnable completion, final Request<?> request,
+                       final Object result) {
+    try {
+      executor.execute(completion);
+    } catch (RejectedExecutionException ex) {
+      complete(request, result);
+    }
+  }
+
+  /**
+   * Completes a request on the event loop and warns if the callbacks took too long.
+   *
+   * @param request the request to complete.
+   * @param result the response or the failure.
+   */
+  private void complete(final Request<?> request, final Object result) {
+    if (blockingThresholdNanos == 0) {
+      completeNow(request, result);
+      return;
+    }
+    final long start = System.nanoTime();
+    completeNow(request, result);
+    final long took = System.nanoTime() - start;
+    if (took > blockingThresholdNanos) {
+      LOGGER.warn("Completing {} blocked the IO thread for {}ms, callbacks on responses "
+          + "should not block or be offloaded through the CompletionConfig.",
+          request.getClass().getSimpleName(), TimeUnit.NANOSECONDS.toMillis(took));
+    }
+  }
+
+  /**
+   * Completes a request with the given result.
+   *
+   * @param request the request to complete.
+   * @param result the response or the failure.
+   */
+  @SuppressWarnings("unchecked")
+  private static void completeNow(final Request<?> request, final Object result) {
+    if (result instanceof Throwable) {
+      request.fail((Throwable) result);
+    } else {
+      ((Request<Object>) request).succeed(result);
+    }
+  }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io.netty;
+
+import com.couchbase.client.core.msg.ResponseStatus;
+import com.couchbase.client.core.msg.kv.HelloRequest;
+import com.couchbase.client.core.msg.kv.HelloResponse;
+import com.couchbase.client.core.msg.kv.ServerFeature;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.AttributeKey;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Negotiates the optional {@link ServerFeature ServerFeatures} of a Key/Value channel
+ * and stores the outcome as an attribute of the channel.
+ *
+ * <p>The handler sits at the tail of the pipeline, so its {@link HelloRequest} goes
+ * through the regular encoding and in-flight tracking. The request is sent when the
+ * channel becomes active or in front of the first write, whichever comes first, which
+ * makes it the first request on the wire even if the endpoint drains its buffer before
+ * the channel active event reaches this handler. Requests written before the response
+ * arrives are not held back, the server handles the negotiation first.</p>
+ *
+ * <p>The {@link InFlightRequests} of the channel only accept responses which use the
+ * flexible framing extras of {@code TRACING} or the compressed values of {@code SNAPPY}
+ * once the respective feature has been granted.</p>
+ *
+ * @since 2.0.0
+ */
+final class FeatureNegotiationHandler extends ChannelDuplexHandler {
+
+  private static final InternalLogger LOGGER =
+      InternalLoggerFactory.getInstance(FeatureNegotiationHandler.class);
+
+  /**
+   * The attribute holding the features negotiated on a channel.
+   */
+  static final AttributeKey<Set<ServerFeature>> SERVER_FEATURES =
+      AttributeKey.valueOf("cb-server-features");
+
+  /**
+   * The name the client identifies itself with in the server logs.
+   */
+  static final String CLIENT_NAME = "couchbase-jvm-core";
+
+  /**
+   * The timeout of the negotiation, the request is failed anyway once the channel closes.
+   */
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+  private final Set<ServerFeature> requested;
+
+  /**
+   * True once the negotiation has been written, only accessed from the event loop.
+   */
+  private boolean sent;
+
+  /**
+   * Creates a new {@link FeatureNegotiationHandler}.
+   *
+   * @param requested the features to request, must not be empty.
+   */
+  FeatureNegotiationHandler(final Set<ServerFeature> requested) {
+    this.requested = requested;
+  }
+
+  /**
+   * Returns the features negotiated on the given channel.
+   *
+   * @param channel the channel.
+   * @return the negotiated features, empty until the negotiation completed.
+   */
+  static Set<ServerFeature> negotiated(final Channel channel) {
+    final Set<ServerFeature> features = channel.attr(SERVER_FEATURES).get();
+    return features == null ? Collections.emptySet() : features;
+  }
+
+  @Override
+  public void channelActive(final ChannelHandlerContext ctx) throws Exception {
+    if (!sent) {
+      negotiate(ctx);
+      ctx.flush();
+    }
+    super.channelActive(ctx);
+  }
+
+  @Override
+  public void write(final ChannelHandlerContext ctx, final Object msg,
+                    final ChannelPromise promise) {
+    if (!sent) {
+      negotiate(ctx);
+    }
+    ctx.write(msg, promise);
+  }
+
+  /**
+   * Writes the negotiation and stores the features once the server responded.
+   *
+   * <p>The features are stored while the response is decoded on the event loop rather
+   * than when the request completes, which might be on another thread. This way they are
+   * in place before the next response of the channel is checked against them.</p>
+   *
+   * @param ctx the channel handler context.
+   */
+  private void negotiate(final ChannelHandlerContext ctx) {
+    sent = true;
+    final Channel channel = ctx.channel();
+    final HelloRequest request = new HelloRequest(
+        CLIENT_NAME, requested, TIMEOUT, Optional.empty()
+    ) {
+      @Override
+      public HelloResponse decode(final ByteBuf response) {
+        final HelloResponse decoded = super.decode(response);
+        if (decoded.status() == ResponseStatus.SUCCESS) {
+          channel.attr(SERVER_FEATURES).set(decoded.features());
+          LOGGER.debug("Negotiated {} on {}.", decoded.features(), channel);
+        } else {
+          LOGGER.debug("Feature negotiation rejected with {} on {}.", decoded.status(), channel);
+        }
+        return decoded;
+      }
+    };
+    ctx.write(request, ctx.voidPromise());
+  }
+
+}
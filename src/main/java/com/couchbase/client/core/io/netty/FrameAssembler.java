@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.TooLongFrameException;
+
+/**
+ * Chops a byte stream into full frames of the memcached binary protocol.
+ *
+ * <p>Frames which are fully contained in a read are passed on as retained slices without
+ * copying. As soon as the header of a frame which spans multiple reads is available, a
+ * buffer of exactly the frame size is allocated and every following read is copied into
+ * it once. Compared to a cumulating decoder, which grows one buffer and copies everything
+ * received so far whenever it runs out of space, a 20MB document costs one copy and no
+ * over-allocation no matter how many reads it arrives in.</p>
+ *
+ * <p>Frames larger than the maximum frame size are discarded and reported through
+ * {@link TooLongFrameException}, the frames after them are decoded as usual.</p>
+ *
+ * <p>This is used by the {@link KeyValueFrameDecoder} and the {@link FusedKeyValueHandler}
+ * and only accessed from the event loop of the channel.</p>
+ *
+ * @since 2.0.0
+ */
+final class FrameAssembler {
+
+  /**
+   * The size of the header, which has to be read before the frame size is known.
+   */
+  static final int HEADER_SIZE = 24;
+
+  /**
+   * In the KV header, the body length starts at byte offset 8.
+   */
+  private static final int BODY_LENGTH_OFFSET = 8;
+
+  private final int maxFrameSize;
+  private final FrameListener listener;
+
+  /**
+   * Holds the start of a header which spans multiple reads, null otherwise.
+   */
+  private ByteBuf header;
+
+  /**
+   * Holds a frame which spans multiple reads, allocated with its exact size, null otherwise.
+   */
+  private ByteBuf frame;
+
+  /**
+   * The number of bytes left of a discarded frame which is too long.
+   */
+  private long bytesToDiscard;
+
+  /**
+   * Creates a new {@link FrameAssembler}.
+   *
+   * @param maxFrameSize the maximum size of a frame including its header.
+   * @param listener receives every complete frame.
+   */
+  FrameAssembler(final int maxFrameSize, final FrameListener listener) {
+    this.maxFrameSize = maxFrameSize;
+    this.listener = listener;
+  }
+
+  /**
+   * Reads all bytes of the given buffer and passes on the frames they complete.
+   *
+   * <p>The buffer itself is not released.</p>
+   *
+   * @param ctx the channel handler context.
+   * @param in the bytes read from the channel.
+   */
+  void read(final ChannelHandlerContext ctx, final ByteBuf in) {
+    while (in.isReadable() && !ctx.isRemoved()) {
+      if (bytesToDiscard > 0) {
+        final int discarded = (int) Math.min(bytesToDiscard, in.readableBytes());
+        in.skipBytes(discarded);
+        bytesToDiscard -= discarded;
+      } else if (frame != null) {
+        frame.writeBytes(in, Math.min(frame.writableBytes(), in.readableBytes()));
+        if (!frame.isWritable()) {
+          final ByteBuf complete = frame;
+          frame = null;
+          listener.frameReceived(ctx, complete);
+        }
+      } else if (header != null) {
+        header.writeBytes(in, Math.min(header.writableBytes(), in.readableBytes()));
+        if (!header.isWritable()) {
+          final ByteBuf complete = header;
+          header = null;
+          startFrame(ctx, complete);
+        }
+      } else if (in.readableBytes() < HEADER_SIZE) {
+        header = ctx.alloc().buffer(HEADER_SIZE, HEADER_SIZE).writeBytes(in);
+      } else {
+        final long frameSize = frameSize(in, in.readerIndex());
+        if (frameSize > maxFrameSize) {
+          tooLong(ctx, frameSize, frameSize);
+        } else if (in.readableBytes() >= frameSize) {
+          listener.frameReceived(ctx, in.readRetainedSlice((int) frameSize));
+        } else {
+          frame = ctx.alloc().buffer((int) frameSize, (int) frameSize).writeBytes(in);
+        }
+      }
+    }
+  }
+
+  /**
+   * Continues with a header which has been assembled from multiple reads.
+   *
+   * @param ctx the channel handler context.
+   * @param complete the complete header, which is released or passed on.
+   */
+  private void startFrame(final ChannelHandlerContext ctx, final ByteBuf complete) {
+    final long frameSize = frameSize(complete, 0);
+    if (frameSize > maxFrameSize) {
+      complete.release();
+      tooLong(ctx, frameSize, frameSize - HEADER_SIZE);
+    } else if (frameSize == HEADER_SIZE) {
+      listener.frameReceived(ctx, complete);
+    } else {
+      frame = ctx.alloc().buffer((int) frameSize, (int) frameSize).writeBytes(complete);
+      complete.release();
+    }
+  }
+
+  /**
+   * Starts discarding a frame which is larger than the maximum frame size.
+   *
+   * @param ctx the channel handler context.
+   * @param frameSize the size of the frame.
+   * @param remaining the number of bytes of the frame which have not been read yet.
+   */
+  private void tooLong(final ChannelHandlerContext ctx, final long frameSize,
+                       final long remaining) {
+    bytesToDiscard = remaining;
+    ctx.fireExceptionCaught(new TooLongFrameException("Frame length exceeds "
+        + maxFrameSize + ": " + frameSize + " - discarded"));
+  }
+
+  /**
+   * Reads the size of the frame including its header.
+   *
+   * @param buffer the buffer which contains the header.
+   * @param headerIndex the index of the header in the buffer.
+   * @return the frame size.
+   */
+  private static long frameSize(final ByteBuf buffer, final int headerIndex) {
+    return HEADER_SIZE + buffer.getUnsignedInt(headerIndex + BODY_LENGTH_OFFSET);
+  }
+
+  /**
+   * Releases a partially received frame, once the channel goes away.
+   */
+  void release() {
+    if (header != null) {
+      header.release();
+      header = null;
+    }
+    if (frame != null) {
+      frame.release();
+      frame = null;
+    }
+  }
+
+  /**
+   * Receives the frames of a {@link FrameAssembler}.
+   */
+  interface FrameListener {
+
+    /**
+     * Called with every complete frame, which has to be released by the listener.
+     *
+     * @param ctx the channel handler context.
+     * @param frame the complete frame, including its header.
+     */
+    void frameReceived(ChannelHandlerContext ctx, ByteBuf frame);
+
+  }
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io.netty;
+
+import com.couchbase.client.core.env.CompletionConfig;
+import com.couchbase.client.core.env.PipelineConfig;
+import com.couchbase.client.core.msg.Response;
+import com.couchbase.client.core.msg.kv.KeyValueRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Handles a Key/Value channel in one handler instead of the {@link KeyValueFrameDecoder}
+ * followed by the {@link KeyValueMessageHandler}.
+ *
+ * <p>Framing, the opaque lookup, response decoding and request encoding all happen
+ * here, so every frame completes its request without being passed to another handler
+ * and without the intermediate message lists of a {@code MessageToMessageCodec}.</p>
+ *
+ * <p>With gathering writes, requests are encoded back to back into a shared pooled
+ * buffer until the next flush, a write which cannot be gathered, or until the buffer is
+ * full. The buffers are direct, since a heap buffer would be copied into a direct one
+ * by the socket write anyway.</p>
+ *
+ * @since 2.0.0
+ */
+class FusedKeyValueHandler extends ChannelDuplexHandler
+    implements FrameAssembler.FrameListener {
+
+  private final FrameAssembler assembler;
+  private final InFlightRequests requests;
+  private final boolean gatheringWrites;
+  private final int gatherBufferSize;
+  private final int maxGatheredSize;
+
+  /**
+   * The buffer requests are currently gathered into, null if there is none.
+   */
+  private ByteBuf gathered;
+
+  /**
+   * Creates a new {@link FusedKeyValueHandler}.
+   *
+   * @param maxFrameSize the maximum size of a frame including its header.
+   * @param pipelineConfig the pipeline configuration.
+   * @param completionConfig the completion configuration.
+   * @param completionExecutor the executor to offload completions to, if not inline.
+   */
+  FusedKeyValueHandler(final int maxFrameSize, final PipelineConfig pipelineConfig,
+                       final CompletionConfig completionConfig,
+                       final Executor completionExecutor) {
+    this.assembler = new FrameAssembler(maxFrameSize, this);
+    this.requests = new InFlightRequests(completionConfig, completionExecutor);
+    this.gatheringWrites = pipelineConfig.isGatheringWrites();
+    this.gatherBufferSize = pipelineConfig.gatherBufferSize();
+    this.maxGatheredSize = pipelineConfig.maxGatheredSize();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void write(final ChannelHandlerContext ctx, final Object msg,
+                    final ChannelPromise promise) {
+    if (msg instanceof KeyValueRequest) {
+      final KeyValueRequest<Response> request = (KeyValueRequest<Response>) msg;
+      // a real promise can only be completed by the write of its own buffer.
+      if (gatheringWrites && promise.isVoid()) {
+        final int size = request.encodedSize();
+        if (size >= 0 && size <= maxGatheredSize) {
+          gather(ctx, request, size);
+          return;
+        }
+      }
+      writeGathered(ctx);
+      ctx.write(requests.encode(ctx, request), promise);
+    } else {
+      writeGathered(ctx);
+      ctx.write(msg, promise);
+    }
+  }
+
+  /**
+   * Encodes the request into the current gather buffer, which is written first and
+   * replaced if the request does not fit anymore.
+   *
+   * @param ctx the channel handler context.
+   * @param request the request to encode.
+   * @param size the encoded size of the request.
+   */
+  private void gather(final ChannelHandlerContext ctx, final KeyValueRequest<Response> request,
+                      final int size) {
+    if (gathered != null && gathered.writableBytes() < size) {
+      writeGathered(ctx);
+    }
+    if (gathered == null) {
+      gathered = PooledByteBufAllocator.DEFAULT.directBuffer(Math.max(gatherBufferSize, size));
+    }
+    requests.encode(ctx, request, gathered);
+  }
+
+  /**
+   * Writes the current gather buffer, if any, so that it keeps its place in the order
+   * of writes.
+   *
+   * @param ctx the channel handler context.
+   */
+  private void writeGathered(final ChannelHandlerContext ctx) {
+    final ByteBuf current = gathered;
+    if (current == null) {
+      return;
+    }
+    gathered = null;
+    if (current.isReadable()) {
+      ctx.write(current, ctx.voidPromise());
+    } else {
+      current.release();
+    }
+  }
+
+  @Override
+  public void flush(final ChannelHandlerContext ctx) {
+    writeGathered(ctx);
+    ctx.flush();
+  }
+
+  @Override
+  public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+    if (!(msg instanceof ByteBuf)) {
+      ctx.fireChannelRead(msg);
+      return;
+    }
+
+    final ByteBuf in = (ByteBuf) msg;
+    try {
+      assembler.read(ctx, in);
+    } finally {
+      in.release();
+    }
+  }
+
+  @Override
+  public void frameReceived(final ChannelHandlerContext ctx, final ByteBuf frame) {
+    try {
+      requests.complete(ctx, frame);
+    } finally {
+      frame.release();
+    }
+  }
+
+  /**
+   * Hands the completions of the current read over, if they are batched.
+   *
+   * @param ctx the channel handler context.
+   */
+  @Override
+  public void channelReadComplete(final ChannelHandlerContext ctx) {
+    requests.flush();
+    ctx.fireChannelReadComplete();
+  }
+
+  /**
+   * Fails all outstanding requests once the channel is closed.
+   *
+   * @param ctx the channel handler context.
+   */
+  @Override
+  public void channelInactive(final ChannelHandlerContext ctx) {
+    requests.failAll();
+    ctx.fireChannelInactive();
+  }
+
+  @Override
+  public void handlerRemoved(final ChannelHandlerContext ctx) {
+    assembler.release();
+    if (gathered != null) {
+      gathered.release();
+      gathered = null;
+    }
+  }
+
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io.netty;
+
+import com.couchbase.client.core.env.CompletionConfig;
+import com.couchbase.client.core.error.EndpointDisconnectedException;
+import com.couchbase.client.core.msg.Response;
+import com.couchbase.client.core.msg.codec.KeyValueCodec;
+import com.couchbase.client.core.msg.kv.KeyValueRequest;
+import com.couchbase.client.core.msg.kv.ServerFeature;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.collection.IntObjectHashMap;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+
+/**
+ * Keeps track of the requests in flight on one Key/Value channel: it assigns their
+ * opaques when they are encoded and completes them when their responses arrive.
+ *
+ * <p>This is shared by the {@link KeyValueMessageHandler} and the
+ * {@link FusedKeyValueHandler}. All methods are called from the event loop of the
+ * channel, so it does not need to be thread-safe.</p>
+ *
+ * <p>Responses are matched by their opaque alone and never by their position, so they
+ * can arrive in any order. This is what allows the server to execute requests out of
+ * order once {@code UNORDERED_EXECUTION} has been negotiated.</p>
+ *
+ * <p>Responses which use a feature the server has not granted on the channel, as stored
+ * by the {@link FeatureNegotiationHandler}, fail their request instead of being decoded.</p>
+ *
+ * @since 2.0.0
+ */
+final class InFlightRequests {
+
+  /**
+   * Pre-create the exception for requests which are outstanding when the channel goes
+   * away, since the stack trace would only point into netty.
+   */
+  private static final EndpointDisconnectedException CHANNEL_CLOSED =
+      new EndpointDisconnectedException();
+
+  /**
+   * Pre-create the exception for responses which use a feature that has not been granted.
+   */
+  private static final IllegalStateException FEATURE_NOT_NEGOTIATED =
+      new IllegalStateException("The response uses a server feature which has not been "
+          + "negotiated on this channel.");
+
+  static {
+    CHANNEL_CLOSED.setStackTrace(new StackTraceElement[0]);
+    FEATURE_NOT_NEGOTIATED.setStackTrace(new StackTraceElement[0]);
+  }
+
+  private final IntObjectHashMap<Slot> requests;
+
+  /**
+   * Completes the requests of this channel on the configured threads.
+   */
+  private final CompletionDispatcher completions;
+
+  /**
+   * The last opaque assigned on this channel.
+   */
+  private int opaque;
+
+  /**
+   * Creates a new {@link InFlightRequests}.
+   *
+   * @param completionConfig the completion configuration.
+   * @param completionExecutor the executor to offload completions to, if not inline.
+   */
+  InFlightRequests(final CompletionConfig completionConfig, final Executor completionExecutor) {
+    // TODO: this should ideally be the same as the max supported outstanding reqs
+    requests = new IntObjectHashMap<>(128);
+    completions = new CompletionDispatcher(completionConfig, completionExecutor);
+  }
+
+  /**
+   * Encodes the request with a fresh opaque and tracks it until it completes.
+   *
+   * @param ctx the channel handler context.
+   * @param request the request to encode.
+   * @return the encoded request, or an empty buffer if there is nothing to write.
+   */
+  ByteBuf encode(final ChannelHandlerContext ctx, final KeyValueRequest<Response> request) {
+    if (request.hasCompleted()) {
+      // cancelled before it was written (i.e. a hedge which lost), no need to send it.
+      return Unpooled.EMPTY_BUFFER;
+    }
+
+    final int opaque = nextOpaque();
+    ByteBuffer encoded;
+    try {
+      encoded = request.encode(opaque);
+    } catch (Exception ex) {
+      // requests are written with a void promise, so the failure has to go to the request.
+      request.fail(ex);
+      return Unpooled.EMPTY_BUFFER;
+    }
+    encoded.flip();
+    track(ctx, opaque, request);
+    return Unpooled.wrappedBuffer(encoded);
+  }
+
+  /**
+   * Encodes the request with a fresh opaque at the writer index of the target buffer and
+   * tracks it until it completes.
+   *
+   * @param ctx the channel handler context.
+   * @param request the request to encode.
+   * @param target the buffer to write into, left untouched if nothing is written.
+   */
+  void encode(final ChannelHandlerContext ctx, final KeyValueRequest<Response> request,
+              final ByteBuf target) {
+    if (request.hasCompleted()) {
+      return;
+    }
+
+    final int opaque = nextOpaque();
+    final int writerIndex = target.writerIndex();
+    try {
+      request.encode(opaque, target);
+    } catch (Exception ex) {
+      target.writerIndex(writerIndex);
+      request.fail(ex);
+      return;
+    }
+    track(ctx, opaque, request);
+  }
+
+  /**
+   * Tracks a written request under its opaque until it completes.
+   *
+   * @param ctx the channel handler context.
+   * @param opaque the opaque the request has been encoded with.
+   * @param request the written request.
+   */
+  private void track(final ChannelHandlerContext ctx, final int opaque,
+                     final KeyValueRequest<Response> request) {
+    final Slot slot = new Slot(ctx, opaque, request);
+    requests.put(opaque, slot);
+    request.whenComplete(slot);
+  }
+
+  /**
+   * Assigns the next opaque of this channel.
+   *
+   * <p>Every write of a request gets a fresh opaque, so a request which is written again
+   * (for example after a reconnect) can never be completed by a late response to an
+   * earlier attempt. Opaques which are still in flight are skipped once the counter
+   * wraps around.</p>
+   *
+   * @return the opaque for the request about to be written.
+   */
+  private int nextOpaque() {
+    do {
+      opaque++;
+    } while (requests.containsKey(opaque));
+    return opaque;
+  }
+
+  /**
+   * Removes a slot whose request has been completed from somewhere else (for example
+   * because it timed out or another copy of a hedged read won) from the in-flight
+   * requests, so it does not leak if no response ever arrives.
+   *
+   * <p>Slots removed through {@link #complete(ChannelHandlerContext, ByteBuf)} or
+   * {@link #failAll()} are flagged before their request is completed, so completing
+   * them on another thread does not hop back to the event loop. Only requests which
+   * are cancelled or time out off the event loop pay for it.</p>
+   *
+   * @param slot the slot of the completed request.
+   */
+  private void discard(final Slot slot) {
+    if (slot.removed) {
+      return;
+    }
+    if (slot.ctx.executor().inEventLoop()) {
+      if (requests.get(slot.opaque) == slot) {
+        requests.remove(slot.opaque);
+        slot.removed = true;
+      }
+    } else {
+      slot.ctx.executor().execute(() -> discard(slot));
+    }
+  }
+
+  /**
+   * Removes the slot of the given opaque and flags it as removed.
+   *
+   * @param opaque the opaque of the response.
+   * @return the removed slot, or null if there is none.
+   */
+  private Slot remove(final int opaque) {
+    final Slot slot = requests.remove(opaque);
+    if (slot != null) {
+      slot.removed = true;
+    }
+    return slot;
+  }
+
+  /**
+   * Completes the request the given response frame belongs to.
+   *
+   * <p>The frame is not released.</p>
+   *
+   * @param ctx the channel handler context.
+   * @param frame the full response frame.
+   */
+  void complete(final ChannelHandlerContext ctx, final ByteBuf frame) {
+    final Slot slot = remove(frame.getInt(KeyValueCodec.OPAQUE_OFFSET));
+    if (slot == null) {
+      // the request has been discarded already, so the response is dropped.
+      return;
+    }
+    final KeyValueRequest<Response> request = slot.request;
+    if (!isGranted(ctx.channel(), frame)) {
+      completions.fail(request, FEATURE_NOT_NEGOTIATED);
+      return;
+    }
+    final Response response;
+    try {
+      response = request.decode(frame);
+    } catch (Exception ex) {
+      // the request has been removed already, so it has to be failed here.
+      completions.fail(request, ex);
+      return;
+    }
+    completions.succeed(request, response);
+  }
+
+  /**
+   * Returns true if the response frame only uses optional features which have been
+   * granted on the channel.
+   *
+   * <p>The granted features are only looked up if the frame uses one at all, so plain
+   * responses do not pay for it.</p>
+   *
+   * @param channel the channel the frame has been read from.
+   * @param frame the full response frame.
+   * @return true if the frame can be decoded.
+   */
+  private static boolean isGranted(final Channel channel, final ByteBuf frame) {
+    final boolean flexible = KeyValueCodec.isFlexible(frame);
+    final boolean compressed = KeyValueCodec.isCompressed(frame);
+    if (!flexible && !compressed) {
+      return true;
+    }
+    final Set<ServerFeature> granted = FeatureNegotiationHandler.negotiated(channel);
+    return (!flexible || granted.contains(ServerFeature.TRACING))
+        && (!compressed || granted.contains(ServerFeature.SNAPPY));
+  }
+
+  /**
+   * Hands the completions of the current read over, if they are batched.
+   */
+  void flush() {
+    completions.flush();
+  }
+
+  /**
+   * Fails all outstanding requests once the channel is closed, since their responses
+   * can never arrive and they would otherwise wait for their timeouts.
+   */
+  void failAll() {
+    final List<Slot> outstanding = new ArrayList<>(requests.values());
+    requests.clear();
+    for (Slot slot : outstanding) {
+      slot.removed = true;
+      completions.fail(slot.request, CHANNEL_CLOSED);
+    }
+    completions.flush();
+  }
+
+  /**
+   * A request in flight under its opaque, which also listens for its completion to
+   * discard it.
+   */
+  private final class Slot implements BiConsumer<Response, Throwable> {
+
+    private final ChannelHandlerContext ctx;
+    private final int opaque;
+    private final KeyValueRequest<Response> request;
+
+    /**
+     * Set on the event loop once the slot has been removed, before the request is
+     * completed. Not volatile: a thread which completes the request after the removal
+     * sees it through the hand-off to that thread, and a stale read only costs a hop
+     * back to the event loop, where the slot is checked again.
+     */
+    private boolean removed;
+
+    Slot(final ChannelHandlerContext ctx, final int opaque,
+         final KeyValueRequest<Response> request) {
+      this.ctx = ctx;
+      this.opaque = opaque;
+      this.request = request;
+    }
+
+    @Override
+    public void accept(final Response response, final Throwable throwable) {
+      discard(this);
+    }
+
+  }
+
+}
@@ -16,60 +16,48 @@
 
 package com.couchbase.client.core.io.netty;
 
-import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
 
 /**
- * The {@link KeyValueFrameDecoder} is a subclass of the {@link LengthFieldBasedFrameDecoder}
- * which chops a byte stream into the right size chunks.
- *
- * <p>The way it is configured for the memcached binary protocol is that it looks at
- * the total body length in the header and calculates the frame length.</p>
+ * The {@link KeyValueFrameDecoder} chops a byte stream into full frames of the memcached
+ * binary protocol and passes them on, see {@link FrameAssembler} for the details.
  *
  * @author Michael Nitschinger
  * @since 2.0.0
  */
-class KeyValueFrameDecoder extends LengthFieldBasedFrameDecoder {
+class KeyValueFrameDecoder extends ChannelInboundHandlerAdapter {
 
-  /**
-   * Max number of bytes for the frame, which also acts as a rough check that
-   * we are not balooning over the 20MB docs + header. So lets stick with
-   * 25MB to give some wiggle room.
-   */
-  private static final int MAX_FRAME_LENGTH = 25 * 1024 * 1024;
-
-  /**
-   * In the KV header, the body length starts at byte offset 8.
-   */
-  private static final int BODY_LENGTH_OFFSET = 8;
-
-  /**
-   * The body length is 4 bytes (note that our max frame length is smaller).
-   */
-  private static final int BODY_LENGTH_FIELD_LENGTH = 4;
+  private final FrameAssembler assembler;
 
   /**
-   * Length adjustment represents the number of bytes from the end of the
-   * body length field to the end of the header so netty can account
-   * for it.
+   * Create a new {@link KeyValueFrameDecoder}.
+   *
+   * @param maxFrameSize the maximum size of a frame including its header.
    */
-  private static final int LENGTH_ADJUSTMENT = 12;
+  KeyValueFrameDecoder(final int maxFrameSize) {
+    this.assembler = new FrameAssembler(maxFrameSize, ChannelHandlerContext::fireChannelRead);
+  }
 
-  /**
-   * We don't need to strip initial bytes.
-   */
-  private static final int BYTES_TO_STRIP = 0;
+  @Override
+  public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+    if (!(msg instanceof ByteBuf)) {
+      ctx.fireChannelRead(msg);
+      return;
+    }
+
+    final ByteBuf in = (ByteBuf) msg;
+    try {
+      assembler.read(ctx, in);
+    } finally {
+      in.release();
+    }
+  }
 
-  /**
-   * Create a new {@link KeyValueFrameDecoder}.
-   */
-  KeyValueFrameDecoder() {
-    super(
-        MAX_FRAME_LENGTH,
-        BODY_LENGTH_OFFSET,
-        BODY_LENGTH_FIELD_LENGTH,
-        LENGTH_ADJUSTMENT,
-        BYTES_TO_STRIP
-    );
+  @Override
+  public void handlerRemoved(final ChannelHandlerContext ctx) {
+    assembler.release();
   }
 
 }
@@ -16,58 +16,67 @@
 
 package com.couchbase.client.core.io.netty;
 
+import com.couchbase.client.core.env.CompletionConfig;
 import com.couchbase.client.core.msg.Response;
-import com.couchbase.client.core.msg.codec.KeyValueCodec;
-import com.couchbase.client.core.msg.kv.GetResponse;
 import com.couchbase.client.core.msg.kv.KeyValueRequest;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageCodec;
-import io.netty.util.collection.IntObjectHashMap;
 
-import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 public class KeyValueMessageHandler
     extends MessageToMessageCodec<ByteBuf, KeyValueRequest<Response>> {
 
-  private final IntObjectHashMap<KeyValueRequest<Response>> requests;
+  private final InFlightRequests requests;
 
   public KeyValueMessageHandler() {
-    // TODO: this should ideally be the same as the max supported outstanding reqs
-    requests = new IntObjectHashMap<>(128);
+    this(CompletionConfig.defaults(), null);
+  }
+
+  /**
+   * Creates a new {@link KeyValueMessageHandler} which completes requests as configured.
+   *
+   * @param completionConfig the completion configuration.
+   * @param completionExecutor the executor to offload completions to, if not inline.
+   */
+  public KeyValueMessageHandler(final CompletionConfig completionConfig,
+                                final Executor completionExecutor) {
+    requests = new InFlightRequests(completionConfig, completionExecutor);
   }
 
   @Override
   protected void encode(ChannelHandlerContext ctx, KeyValueRequest<Response> msg, List<Object> out)
     throws Exception {
-    ByteBuffer encoded = msg.encode();
-    encoded.flip();
-    ByteBuf buff = Unpooled.wrappedBuffer(encoded);
-    if (requests.putIfAbsent(msg.opaque(), msg) != null) {
-      // todo: whooops a requests already existed in that slot
-    }
-    out.add(buff);
+    out.add(requests.encode(ctx, msg));
   }
 
   @Override
   protected void decode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) throws Exception {
-    KeyValueRequest<Response> request = requests.remove(opaqueFromHeader(msg));
-    if (request == null) {
-      // TODO: whooops got a opaque for a request which we not sent
-    }
-    request.succeed(new GetResponse());
+    requests.complete(ctx, msg);
+  }
+
+  /**
+   * Hands the completions of the current read over, if they are batched.
+   *
+   * @param ctx the channel handler context.
+   */
+  @Override
+  public void channelReadComplete(final ChannelHandlerContext ctx) throws Exception {
+    requests.flush();
+    super.channelReadComplete(ctx);
   }
 
   /**
-   * Helper method to extract the opaque value from a header.
+   * Fails all outstanding requests once the channel is closed.
    *
-   * @param header the header to check.
-   * @return the opaque.
+   * @param ctx the channel handler context.
    */
-  private static int opaqueFromHeader(final ByteBuf header) {
-    return header.getInt(KeyValueCodec.OPAQUE_OFFSET);
+  @Override
+  public void channelInactive(final ChannelHandlerContext ctx) throws Exception {
+    requests.failAll();
+    super.channelInactive(ctx);
   }
 
 }
@@ -16,78 +16,782 @@
 
 package com.couchbase.client.core.io.netty;
 
+import com.couchbase.client.core.TimerWheel;
+import com.couchbase.client.core.env.CompletionConfig;
+import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.env.DefaultCoreEnvironment;
+import com.couchbase.client.core.env.PipelineConfig;
+import com.couchbase.client.core.env.ReconnectConfig;
+import com.couchbase.client.core.error.CircuitOpenException;
+import com.couchbase.client.core.error.EndpointDisconnectedException;
+import com.couchbase.client.core.error.RequestBufferFullException;
+import com.couchbase.client.core.io.CircuitBreaker;
 import com.couchbase.client.core.io.Endpoint;
+import com.couchbase.client.core.io.EndpointState;
+import com.couchbase.client.core.io.EndpointStats;
+import com.couchbase.client.core.io.ServiceType;
 import com.couchbase.client.core.msg.Request;
+import com.couchbase.client.core.msg.Response;
+import com.couchbase.client.core.msg.ResponseStatus;
+import com.couchbase.client.core.msg.kv.ServerFeature;
 import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.SelectStrategy;
-import io.netty.channel.SelectStrategyFactory;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.util.AttributeKey;
+import io.netty.util.internal.PlatformDependent;
+import io.opentracing.Span;
 
-import java.nio.channels.spi.SelectorProvider;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
 
 /**
  * The netty-based implementation of an {@link Endpoint}.
  *
+ * <p>Connecting never blocks: {@link #connect()} starts the first attempt and returns
+ * right away. Once connected, a lost connection is re-established in the background with
+ * a jittered exponential backoff until {@link #disconnect()} is called. While the
+ * endpoint is not connected, dispatched requests are held in a bounded buffer which is
+ * drained as soon as the connection is up, and requests which were written to a
+ * connection that went away are failed right away instead of waiting for their
+ * timeouts.</p>
+ *
+ * <p>Requests dispatched from threads other than the event loop of the channel are
+ * handed off through a lock-free queue and written in batches by a single task, while
+ * requests dispatched from the event loop itself are written inline.</p>
+ *
+ * <p>Handed off requests pass through the {@link WriteScheduler} of the channel, which
+ * writes them by priority class and deadline and sheds the ones which expired while
+ * waiting. Writing stops while the channel is not writable, so under overload requests
+ * wait in the scheduler (where they can still be reordered and shed) instead of in the
+ * FIFO outbound buffer of the channel.</p>
+ *
+ * <p>The endpoint does not own its event loop group, it uses the one provided by the
+ * environment for its service. In sharded mode it is pinned to the event loop of a
+ * shard, which then also owns the timeouts of its requests: they are scheduled inline
+ * if dispatched from that event loop, and by the batched write task otherwise.</p>
+ *
  * @author Michael Nitschinger
  * @since 2.0.0
  */
 public class NettyEndpoint implements Endpoint {
 
+  /**
+   * The span tag holding the time the server spent on a request, in microseconds.
+   */
+  public static final String SPAN_TAG_SERVER_DURATION = "server_duration_us";
+
+  /**
+   * The span tag holding the latency of a request without the server duration, which is
+   * the time spent in the network and the client, in microseconds.
+   */
+  public static final String SPAN_TAG_CLIENT_DURATION = "client_duration_us";
+
+  /**
+   * Pre-create the exception for requests which are dropped on disconnect, since its
+   * stack trace would only point into the endpoint itself.
+   */
+  private static final EndpointDisconnectedException DISCONNECTED_EXCEPTION =
+      new EndpointDisconnectedException();
+
+  /**
+   * Pre-create the exception for requests which overflow the buffer.
+   */
+  private static final RequestBufferFullException BUFFER_FULL_EXCEPTION =
+      new RequestBufferFullException();
+
+  /**
+   * Pre-create the exception for requests rejected by the open circuit breaker, so that
+   * failing fast does not cost more than a few field reads.
+   */
+  private static final CircuitOpenException CIRCUIT_OPEN_EXCEPTION =
+      new CircuitOpenException();
+
+  static {
+    DISCONNECTED_EXCEPTION.setStackTrace(new StackTraceElement[0]);
+    BUFFER_FULL_EXCEPTION.setStackTrace(new StackTraceElement[0]);
+    CIRCUIT_OPEN_EXCEPTION.setStackTrace(new StackTraceElement[0]);
+  }
+
+  /**
+   * Holds the {@link WriteScheduler} of a channel, only accessed from its event loop.
+   */
+  static final AttributeKey<WriteScheduler> WRITE_SCHEDULER =
+      AttributeKey.valueOf("cb-write-scheduler");
+
+  /**
+   * Atomic updater for the {@link #state} field.
+   */
+  private static final AtomicReferenceFieldUpdater<NettyEndpoint, EndpointState> STATE_UPDATER =
+      AtomicReferenceFieldUpdater.newUpdater(NettyEndpoint.class, EndpointState.class, "state");
+
+  /**
+   * Atomic updater for the {@link #writeScheduled} field.
+   */
+  private static final AtomicIntegerFieldUpdater<NettyEndpoint> WRITE_SCHEDULED_UPDATER =
+      AtomicIntegerFieldUpdater.newUpdater(NettyEndpoint.class, "writeScheduled");
+
+  private final ReconnectConfig reconnectConfig;
+  private final EventLoopGroup group;
+  private final Bootstrap bootstrap;
+
+  /**
+   * The event loop of the shard this endpoint is pinned to, which owns the timeouts of
+   * its requests, null if the timeouts are tracked by the caller.
+   */
+  private final EventLoop shard;
+
+  /**
+   * Requests dispatched from other threads whose timeouts still need to be scheduled on
+   * the {@link #shard}, drained by the {@link #writeTask}. Null unless pinned to a shard.
+   */
+  private final Queue<Request<?>> unscheduled;
+
+  /**
+   * Holds requests dispatched while the endpoint is not connected.
+   */
+  private final BlockingQueue<Request<?>> buffer;
+
+  /**
+   * Requests handed off from other threads, written in batches by the
+   * {@link #writeTask}.
+   */
+  private final Queue<Request<?>> pending = PlatformDependent.newMpscQueue();
+
+  /**
+   * The task which writes all pending requests, created once and reused.
+   */
+  private final Runnable writeTask = this::writePending;
+
+  /**
+   * Set to 1 while a {@link #writeTask} is scheduled but has not started draining.
+   *
+   * <p>Do not rename this field without updating the {@link #WRITE_SCHEDULED_UPDATER}!</p>
+   */
+  private volatile int writeScheduled;
+
+  /**
+   * Tracks latency and outstanding requests for load-aware selection.
+   */
+  private final EndpointStats stats;
+
+  /**
+   * Rejects requests right away while most of them fail or time out.
+   */
+  private final CircuitBreaker circuitBreaker;
 
-  private final Channel channel;
+  /**
+   * The current lifecycle state.
+   *
+   * <p>Do not rename this field without updating the {@link #STATE_UPDATER}!</p>
+   */
+  private volatile EndpointState state = EndpointState.DISCONNECTED;
 
   /**
-   * Creates a new endpoint, this needs to be fixed up.
+   * The current channel, null until the first connect succeeded.
+   */
+  private volatile Channel channel;
+
+  /**
+   * Creates a new endpoint to a local server with the default environment.
    */
   public NettyEndpoint() {
+    this(DefaultCoreEnvironment.defaults(), "127.0.0.1", 11210);
+  }
 
-    final EventLoopGroup group = new NioEventLoopGroup(
-        0,
-        (Executor) null,
-        SelectorProvider.provider(),
-        new Ssf()
-    );
+  /**
+   * Creates a new endpoint, which needs to be connected through {@link #connect()}.
+   *
+   * @param environment the environment to read the configuration from.
+   * @param hostname the hostname of the remote server.
+   * @param port the port of the remote server.
+   */
+  public NettyEndpoint(final CoreEnvironment environment, final String hostname,
+                       final int port) {
+    this(environment, environment.eventLoopGroup(ServiceType.KV), null, hostname, port);
+  }
+
+  /**
+   * Creates a new endpoint which is pinned to the event loop of a shard, which connects
+   * the endpoint and schedules the timeouts of all requests dispatched to it.
+   *
+   * @param environment the environment to read the configuration from.
+   * @param shard the event loop of the shard.
+   * @param hostname the hostname of the remote server.
+   * @param port the port of the remote server.
+   */
+  NettyEndpoint(final CoreEnvironment environment, final EventLoop shard,
+                final String hostname, final int port) {
+    this(environment, shard, shard, hostname, port);
+  }
+
+  private NettyEndpoint(final CoreEnvironment environment, final EventLoopGroup group,
+                        final EventLoop shard, final String hostname, final int port) {
+    this.stats = new EndpointStats();
+    this.circuitBreaker = new CircuitBreaker(environment.circuitBreakerConfig());
+    this.reconnectConfig = environment.reconnectConfig();
+    this.buffer = new ArrayBlockingQueue<>(reconnectConfig.maxBufferedRequests());
+    this.group = group;
+    this.shard = shard;
+    this.unscheduled = shard == null ? null : PlatformDependent.newMpscQueue();
 
-    Bootstrap bootstrap = new Bootstrap()
-        .remoteAddress("127.0.0.1", 11210)
+    final int maxFrameSize = environment.maxFrameSize();
+    final PipelineConfig pipelineConfig = environment.pipelineConfig();
+    final CompletionConfig completionConfig = environment.completionConfig();
+    final SslContext sslContext = environment.sslContext().orElse(null);
+    final Set<ServerFeature> features = environment.featureConfig().features();
+    final boolean hostnameVerification = environment.securityConfig().isHostnameVerification();
+    final Executor completionExecutor = completionConfig.mode() == CompletionConfig.Mode.INLINE
+        ? null
+        : environment.completionExecutor();
+    bootstrap = new Bootstrap()
+        .remoteAddress(hostname, port)
         .channel(NioSocketChannel.class)
         .group(group)
-        .option(ChannelOption.ALLOCATOR, UnpooledByteBufAllocator.DEFAULT)
+        // the TLS handler allocates and frees buffers for every record, so pool them.
+        .option(ChannelOption.ALLOCATOR, sslContext == null
+            ? UnpooledByteBufAllocator.DEFAULT
+            : PooledByteBufAllocator.DEFAULT)
         .handler(new ChannelInitializer<SocketChannel>() {
           @Override
           protected void initChannel(SocketChannel chan) throws Exception {
-            chan.pipeline().addLast(new KeyValueFrameDecoder());
-            //chan.pipeline().addLast(new LoggingHandler(LogLevel.INFO));
-            chan.pipeline().addLast(new KeyValueMessageHandler());
+            chan.attr(WRITE_SCHEDULER).set(new WriteScheduler());
+            if (sslContext != null) {
+              chan.pipeline().addLast(
+                  sslHandler(sslContext, chan, hostname, port, hostnameVerification)
+              );
+            }
+            if (pipelineConfig.isFused()) {
+              chan.pipeline().addLast(new FusedKeyValueHandler(
+                  maxFrameSize, pipelineConfig, completionConfig, completionExecutor
+              ));
+            } else {
+              chan.pipeline().addLast(new KeyValueFrameDecoder(maxFrameSize));
+              //chan.pipeline().addLast(new LoggingHandler(LogLevel.INFO));
+              chan.pipeline().addLast(
+                  new KeyValueMessageHandler(completionConfig, completionExecutor)
+              );
+            }
+            if (!features.isEmpty()) {
+              chan.pipeline().addLast(new FeatureNegotiationHandler(features));
+            }
+            chan.pipeline().addLast(new WritabilityHandler());
           }
         });
+  }
+
+  /**
+   * Creates the handler which encrypts a channel.
+   *
+   * <p>The engine is created for the remote host and port, which is what the shared
+   * session cache of the context is keyed by, so a reconnect to the same node can
+   * resume the session of the connection it replaces.</p>
+   *
+   * @param sslContext the shared TLS context.
+   * @param chan the channel to encrypt.
+   * @param hostname the hostname of the remote server.
+   * @param port the port of the remote server.
+   * @param hostnameVerification true if the certificate must match the hostname.
+   * @return the created handler.
+   */
+  private static SslHandler sslHandler(final SslContext sslContext, final Channel chan,
+                                       final String hostname, final int port,
+                                       final boolean hostnameVerification) {
+    final SslHandler handler = sslContext.newHandler(chan.alloc(), hostname, port);
+    if (hostnameVerification) {
+      final SSLEngine engine = handler.engine();
+      final SSLParameters parameters = engine.getSSLParameters();
+      parameters.setEndpointIdentificationAlgorithm("HTTPS");
+      engine.setSSLParameters(parameters);
+    }
+    return handler;
+  }
 
-    channel = bootstrap.connect().awaitUninterruptibly().channel();
+  @Override
+  public void connect() {
+    if (group.isShuttingDown()) {
+      throw new IllegalStateException("The event loop group has been shut down already.");
+    }
+    if (STATE_UPDATER.compareAndSet(this, EndpointState.DISCONNECTED, EndpointState.CONNECTING)) {
+      attemptConnect(0);
+    }
   }
 
   @Override
-  public <R> void dispatch(Request<R> request) {
-    channel.writeAndFlush(request);
+  public void disconnect() {
+    EndpointState current;
+    do {
+      current = state;
+      if (current == EndpointState.DISCONNECTING || current == EndpointState.DISCONNECTED) {
+        return;
+      }
+    } while (!STATE_UPDATER.compareAndSet(this, current, EndpointState.DISCONNECTING));
+
+    failBuffered();
+    final Channel open = channel;
+    if (open != null) {
+      open.close().addListener(future -> disconnected());
+    } else {
+      disconnected();
+    }
   }
 
-  class Ssf implements SelectStrategyFactory {
+  @Override
+  public EndpointState state() {
+    return state;
+  }
 
-    @Override
-    public SelectStrategy newSelectStrategy() {
-      return (selectSupplier, hasTasks) -> {
-        return selectSupplier.get();
-        //return hasTasks ? selectSupplier.get() : SelectStrategy.SELECT;
-      };
+  @Override
+  public <R> void dispatch(final Request<R> request) {
+    final CircuitBreaker.Permit permit = circuitBreaker.acquire();
+    if (permit == CircuitBreaker.Permit.REJECTED) {
+      request.fail(CIRCUIT_OPEN_EXCEPTION);
+      return;
     }
+    final long start = stats.requestStarted();
+    request.whenComplete((response, throwable) -> {
+      if (throwable == null) {
+        circuitBreaker.succeeded(permit);
+      } else if (throwable == DISCONNECTED_EXCEPTION || throwable == BUFFER_FULL_EXCEPTION) {
+        // rejected by the lifecycle of this endpoint, which says nothing about the node
+        circuitBreaker.ignored(permit);
+      } else if (throwable instanceof TimeoutException
+          || throwable instanceof EndpointDisconnectedException) {
+        circuitBreaker.failed(permit);
+      } else {
+        circuitBreaker.ignored(permit);
+      }
+      if (response instanceof Response
+          && ((Response) response).status() == ResponseStatus.NOT_MY_VBUCKET) {
+        // rejected without doing any work, which says nothing about the latency of the node
+        stats.requestAbandoned();
+      } else if (throwable == null || throwable instanceof TimeoutException) {
+        final long serverDurationNanos = response instanceof Response
+            ? ((Response) response).serverDurationNanos()
+            : -1;
+        stats.requestCompleted(start, serverDurationNanos);
+        if (serverDurationNanos >= 0 && request.span().isPresent()) {
+          tagDurations(request.span().get(), start, serverDurationNanos);
+        }
+      } else {
+        stats.requestAbandoned();
+      }
+    });
+    send(request);
   }
 
+  /**
+   * Tags the span of a request with the time spent on the server and the remainder
+   * spent in the network and the client, both in microseconds.
+   *
+   * @param span the span of the request.
+   * @param start the timestamp the request has been dispatched at.
+   * @param serverDurationNanos the server duration in nanoseconds.
+   */
+  private static void tagDurations(final Span span, final long start,
+                                   final long serverDurationNanos) {
+    final long latencyNanos = System.nanoTime() - start;
+    span.setTag(SPAN_TAG_SERVER_DURATION, TimeUnit.NANOSECONDS.toMicros(serverDurationNanos));
+    span.setTag(
+        SPAN_TAG_CLIENT_DURATION,
+        TimeUnit.NANOSECONDS.toMicros(Math.max(0, latencyNanos - serverDurationNanos))
+    );
+  }
+
+  @Override
+  public EndpointStats stats() {
+    return stats;
+  }
+
+  @Override
+  public CircuitBreaker circuitBreaker() {
+    return circuitBreaker;
+  }
+
+  /**
+   * Returns the event loop group this endpoint connects through.
+   *
+   * @return the event loop group.
+   */
+  EventLoopGroup eventLoopGroup() {
+    return group;
+  }
+
+  /**
+   * Hands the request off to the channel if connected, and buffers it otherwise.
+   *
+   * <p>Requests which have been cancelled (or completed otherwise) in the meantime are
+   * dropped right away. If the endpoint is pinned to a shard, the timeout of the request
+   * is scheduled first, and requests from other threads are left to the
+   * {@link #writeTask}, so they cost the same single wakeup whether connected or not.</p>
+   *
+   * @param request the request to send.
+   */
+  private void send(final Request<?> request) {
+    if (request.hasCompleted()) {
+      return;
+    }
+    if (shard != null) {
+      if (!shard.inEventLoop()) {
+        unscheduled.offer(request);
+        scheduleWrite(shard);
+        return;
+      }
+      TimerWheel.scheduleTimeout(shard, request);
+    }
+    final Channel current = channel;
+    if (state == EndpointState.CONNECTED && current != null && current.isActive()) {
+      handOff(current, request);
+    } else {
+      buffer(request);
+    }
+  }
+
+  /**
+   * Writes the request right away if called on the event loop of the channel, and
+   * queues it for the next batch otherwise.
+   *
+   * <p>Only the thread which finds no batch scheduled submits the {@link #writeTask}, so
+   * a burst of requests from application threads costs a single event loop wakeup and
+   * a single flush instead of one task per request.</p>
+   *
+   * <p>On the event loop, the request is only written inline if nothing is waiting in
+   * the scheduler and the channel is writable, otherwise it joins the scheduler so it
+   * does not overtake requests of a higher priority or closer to their deadline.</p>
+   *
+   * @param current the channel to write to.
+   * @param request the request to write.
+   */
+  private void handOff(final Channel current, final Request<?> request) {
+    final EventLoop eventLoop = current.eventLoop();
+    if (eventLoop.inEventLoop() && pending.isEmpty()) {
+      final WriteScheduler scheduler = current.attr(WRITE_SCHEDULER).get();
+      if (!scheduler.isEmpty() || !current.isWritable()) {
+        scheduler.offer(request);
+      } else if (!WriteScheduler.shed(request, System.nanoTime())) {
+        write(current, request);
+        current.flush();
+      }
+      return;
+    }
+
+    pending.offer(request);
+    scheduleWrite(eventLoop);
+  }
+
+  /**
+   * Submits the {@link #writeTask} to the given event loop, unless one is scheduled
+   * already.
+   *
+   * @param eventLoop the event loop of the channel.
+   */
+  private void scheduleWrite(final EventLoop eventLoop) {
+    if (WRITE_SCHEDULED_UPDATER.compareAndSet(this, 0, 1)) {
+      try {
+        eventLoop.execute(writeTask);
+      } catch (RejectedExecutionException ex) {
+        writeScheduled = 0;
+        failPending();
+      }
+    }
+  }
+
+  /**
+   * Moves all queued requests into the scheduler of the channel and writes as many of
+   * them as the channel accepts, runs on the event loop.
+   *
+   * <p>The flag is cleared before the queue is drained, so a request offered while
+   * draining either gets picked up by this run or schedules the next one. If the
+   * channel has been replaced by one on another event loop in the meantime, the task
+   * moves over to that loop, since the scheduler must only be touched from there.</p>
+   *
+   * <p>If pinned to a shard, the task runs on the shard and first schedules the timeouts
+   * of the requests handed over by other threads, which then join the pending ones.</p>
+   */
+  private void writePending() {
+    writeScheduled = 0;
+    Request<?> request;
+    if (shard != null) {
+      while ((request = unscheduled.poll()) != null) {
+        if (!request.hasCompleted()) {
+          TimerWheel.scheduleTimeout(shard, request);
+          pending.offer(request);
+        }
+      }
+    }
+    final Channel current = channel;
+    if (current == null || !current.isActive()) {
+      while ((request = pending.poll()) != null) {
+        if (!request.hasCompleted()) {
+          buffer(request);
+        }
+      }
+      return;
+    }
+    if (!current.eventLoop().inEventLoop()) {
+      scheduleWrite(current.eventLoop());
+      return;
+    }
+
+    final WriteScheduler scheduler = current.attr(WRITE_SCHEDULER).get();
+    while ((request = pending.poll()) != null) {
+      if (!request.hasCompleted()) {
+        scheduler.offer(request);
+      }
+    }
+    writeScheduled(current, scheduler);
+  }
+
+  /**
+   * Writes requests from the scheduler until it is empty or the channel stops being
+   * writable, and flushes them at once. Must run on the event loop of the channel.
+   *
+   * @param current the channel to write to.
+   * @param scheduler the scheduler of the channel.
+   */
+  private static void writeScheduled(final Channel current, final WriteScheduler scheduler) {
+    final long now = System.nanoTime();
+    boolean written = false;
+    Request<?> request;
+    while (current.isWritable() && (request = scheduler.poll(now)) != null) {
+      write(current, request);
+      written = true;
+    }
+    if (written) {
+      current.flush();
+    }
+  }
+
+  /**
+   * Moves the requests which have not been written to a closed channel back into the
+   * buffer, so they are written once reconnected (or failed if disconnecting). Runs on
+   * the event loop of the closed channel.
+   *
+   * @param closed the channel which has been closed.
+   */
+  private void rescueScheduled(final Channel closed) {
+    final WriteScheduler scheduler = closed.attr(WRITE_SCHEDULER).get();
+    Request<?> request;
+    while ((request = scheduler.pollAny()) != null) {
+      if (!request.hasCompleted()) {
+        buffer(request);
+      }
+    }
+  }
+
+  /**
+   * Writes the request to the channel without flushing, must run on the event loop.
+   *
+   * <p>The void promise avoids allocating a promise per request. Encoding failures are
+   * propagated to the request by the handler, and the channel is known to be active,
+   * so if it closes later the request is failed by the handler as well.</p>
+   *
+   * @param current the channel to write to.
+   * @param request the request to write.
+   */
+  private static void write(final Channel current, final Request<?> request) {
+    current.write(request, current.voidPromise());
+  }
+
+  /**
+   * Buffers the request until the endpoint is connected.
+   *
+   * <p>The state is checked again after the request has been buffered, so a request
+   * which raced with a state change is either drained or failed and never stranded.</p>
+   *
+   * @param request the request to buffer.
+   */
+  private void buffer(final Request<?> request) {
+    if (isClosing(state)) {
+      request.fail(DISCONNECTED_EXCEPTION);
+      return;
+    }
+    if (!buffer.offer(request)) {
+      request.fail(BUFFER_FULL_EXCEPTION);
+      return;
+    }
+
+    final EndpointState current = state;
+    if (current == EndpointState.CONNECTED) {
+      drainBuffered();
+    } else if (isClosing(current)) {
+      failBuffered();
+    }
+  }
+
+  /**
+   * Hands all buffered requests off to the current channel, if it is active.
+   *
+   * <p>If the channel is not active anymore, the requests stay buffered until the
+   * reconnect completes.</p>
+   */
+  private void drainBuffered() {
+    final Channel current = channel;
+    Request<?> request;
+    while (state == EndpointState.CONNECTED && current != null && current.isActive()
+        && (request = buffer.poll()) != null) {
+      if (!request.hasCompleted()) {
+        handOff(current, request);
+      }
+    }
+  }
+
+  /**
+   * Fails all queued requests, used if the event loop rejects the write task.
+   */
+  private void failPending() {
+    Request<?> request;
+    while ((request = pending.poll()) != null) {
+      request.fail(DISCONNECTED_EXCEPTION);
+    }
+    while (unscheduled != null && (request = unscheduled.poll()) != null) {
+      request.fail(DISCONNECTED_EXCEPTION);
+    }
+  }
+
+  /**
+   * Fails all buffered requests, used once the endpoint is disconnected.
+   */
+  private void failBuffered() {
+    Request<?> request;
+    while ((request = buffer.poll()) != null) {
+      request.fail(DISCONNECTED_EXCEPTION);
+    }
+  }
+
+  /**
+   * Performs a connect attempt and schedules the next one if it fails.
+   *
+   * @param attempt the number of failed attempts before this one.
+   */
+  private void attemptConnect(final int attempt) {
+    bootstrap.connect().addListener((ChannelFutureListener) future -> {
+      if (future.isSuccess()) {
+        connected(future.channel());
+      } else if (state == EndpointState.CONNECTING) {
+        reconnectLater(attempt + 1);
+      }
+    });
+  }
+
+  /**
+   * Called once a connect attempt succeeded.
+   *
+   * <p>The channel is only published once the state change succeeded, so an attempt
+   * which lost against a disconnect or another attempt never replaces the channel the
+   * endpoint is using. If a disconnect slips in between the state change and the
+   * publication, it might not have seen the channel, so it is closed here instead.</p>
+   *
+   * @param connected the connected channel.
+   */
+  private void connected(final Channel connected) {
+    if (!STATE_UPDATER.compareAndSet(this, EndpointState.CONNECTING, EndpointState.CONNECTED)) {
+      // disconnected while the attempt was in progress
+      connected.close();
+      return;
+    }
+    channel = connected;
+    connected.closeFuture().addListener(future -> {
+      if (STATE_UPDATER.compareAndSet(this, EndpointState.CONNECTED, EndpointState.CONNECTING)) {
+        reconnectLater(0);
+      }
+      rescueScheduled(connected);
+    });
+    if (state != EndpointState.CONNECTED) {
+      connected.close();
+      return;
+    }
+    drainBuffered();
+  }
+
+  /**
+   * Schedules the next connect attempt after a jittered backoff.
+   *
+   * @param attempt the number of failed attempts so far.
+   */
+  private void reconnectLater(final int attempt) {
+    if (group.isShuttingDown()) {
+      return;
+    }
+    group.schedule(() -> {
+      if (state == EndpointState.CONNECTING) {
+        attemptConnect(attempt);
+      }
+    }, backoffNanos(reconnectConfig, attempt), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Completes a disconnect, after which the endpoint may be connected again.
+   */
+  private void disconnected() {
+    STATE_UPDATER.compareAndSet(this, EndpointState.DISCONNECTING, EndpointState.DISCONNECTED);
+  }
+
+  /**
+   * Calculates the delay before the next connect attempt.
+   *
+   * <p>The upper bound doubles with every failed attempt, starting at the minimum and
+   * capped at the maximum delay. The actual delay is picked at random below that bound
+   * ("full jitter") so reconnects of many clients are spread out.</p>
+   *
+   * @param config the reconnect configuration.
+   * @param attempt the number of failed attempts so far.
+   * @return the delay in nanoseconds.
+   */
+  static long backoffNanos(final ReconnectConfig config, final int attempt) {
+    final long max = config.maxDelay().toNanos();
+    final long bound = Math.min(max, config.minDelay().toNanos() << Math.min(attempt, 20));
+    return ThreadLocalRandom.current().nextLong(bound + 1);
+  }
+
+  /**
+   * Returns true if the given state does not accept requests anymore.
+   *
+   * @param state the state to check.
+   * @return true if disconnecting or disconnected.
+   */
+  private static boolean isClosing(final EndpointState state) {
+    return state == EndpointState.DISCONNECTING || state == EndpointState.DISCONNECTED;
+  }
+
+  /**
+   * Resumes writing scheduled requests once the channel is writable again.
+   *
+   * <p>The event usually fires while the channel is being flushed, so writing is left to
+   * the {@link #writeTask} instead of writing (and flushing) from within the flush.</p>
+   */
+  private final class WritabilityHandler extends ChannelInboundHandlerAdapter {
+
+    @Override
+    public void channelWritabilityChanged(final ChannelHandlerContext ctx) throws Exception {
+      if (ctx.channel().isWritable()) {
+        scheduleWrite(ctx.channel().eventLoop());
+      }
+      ctx.fireChannelWritabilityChanged();
+    }
+
+  }
 
 }
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io.netty;
+
+import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.env.Shards;
+import com.couchbase.client.core.io.CircuitBreaker;
+import com.couchbase.client.core.io.Endpoint;
+import com.couchbase.client.core.io.EndpointState;
+import com.couchbase.client.core.io.EndpointStats;
+import com.couchbase.client.core.msg.Request;
+
+/**
+ * An {@link Endpoint} for sharded mode, which keeps one connection per shard.
+ *
+ * <p>Every connection is pinned to the event loop of its shard, which also schedules the
+ * timeouts of the requests dispatched to it. A request dispatched from the event loop
+ * of a shard goes to the connection of that shard, so it is written, tracked,
+ * completed and timed out without ever leaving it. Requests from any other thread go
+ * to the home shard of the endpoint, which is handed out round robin when the endpoint
+ * is created, so the nodes of a cluster are spread across the shards and every
+ * application thread hands off to the shard which owns the target.</p>
+ *
+ * <p>Every shard records into its own {@link EndpointStats} and has its own
+ * {@link CircuitBreaker}, so the hot path of a shard never writes to state another shard
+ * writes to as well. {@link #stats()} is a read-only view which adds up the statistics
+ * of all shards whenever it is read, so load-aware selection still sees the load of the
+ * whole node. {@link #circuitBreaker()} returns the breaker of the shard the calling
+ * thread dispatches to, since that is the one which would accept or reject its
+ * request.</p>
+ *
+ * @since 2.0.0
+ */
+public class ShardedEndpoint implements Endpoint {
+
+  private final Shards shards;
+  private final NettyEndpoint[] endpoints;
+  private final EndpointStats stats;
+
+  /**
+   * The shard which takes the requests of threads which are not the event loop of a
+   * shard.
+   */
+  private final int home;
+
+  /**
+   * Creates a new {@link ShardedEndpoint} with one connection per shard.
+   *
+   * @param environment the environment to read the configuration and shards from.
+   * @param hostname the hostname of the remote server.
+   * @param port the port of the remote server.
+   */
+  public ShardedEndpoint(final CoreEnvironment environment, final String hostname,
+                         final int port) {
+    this.shards = environment.shards();
+    this.endpoints = new NettyEndpoint[shards.count()];
+    final EndpointStats[] shardStats = new EndpointStats[endpoints.length];
+    for (int i = 0; i < endpoints.length; i++) {
+      endpoints[i] = new NettyEndpoint(environment, shards.eventLoop(i), hostname, port);
+      shardStats[i] = endpoints[i].stats();
+    }
+    this.stats = new CombinedStats(shardStats);
+    this.home = shards.next();
+  }
+
+  @Override
+  public <R> void dispatch(final Request<R> request) {
+    target().dispatch(request);
+  }
+
+  @Override
+  public void connect() {
+    for (NettyEndpoint endpoint : endpoints) {
+      endpoint.connect();
+    }
+  }
+
+  @Override
+  public void disconnect() {
+    for (NettyEndpoint endpoint : endpoints) {
+      endpoint.disconnect();
+    }
+  }
+
+  /**
+   * Returns the combined state of all shards.
+   *
+   * <p>The endpoint is only connected or disconnected if all shards are, and is
+   * disconnecting if any shard is. Otherwise at least one shard is still connecting.</p>
+   *
+   * @return the combined state.
+   */
+  @Override
+  public EndpointState state() {
+    int connected = 0;
+    int disconnected = 0;
+    for (NettyEndpoint endpoint : endpoints) {
+      final EndpointState state = endpoint.state();
+      if (state == EndpointState.DISCONNECTING) {
+        return EndpointState.DISCONNECTING;
+      } else if (state == EndpointState.CONNECTED) {
+        connected++;
+      } else if (state == EndpointState.DISCONNECTED) {
+        disconnected++;
+      }
+    }
+    if (connected == endpoints.length) {
+      return EndpointState.CONNECTED;
+    } else if (disconnected == endpoints.length) {
+      return EndpointState.DISCONNECTED;
+    }
+    return EndpointState.CONNECTING;
+  }
+
+  /**
+   * Returns a read-only view which adds up the statistics of all shards.
+   *
+   * @return the statistics of the node.
+   */
+  @Override
+  public EndpointStats stats() {
+    return stats;
+  }
+
+  /**
+   * Returns the circuit breaker of the shard the calling thread dispatches to.
+   *
+   * @return the circuit breaker which decides on requests of the calling thread.
+   */
+  @Override
+  public CircuitBreaker circuitBreaker() {
+    return target().circuitBreaker();
+  }
+
+  /**
+   * Returns the endpoint of the shard the calling thread dispatches to.
+   *
+   * @return the endpoint of the current shard if called from one, of the home shard
+   *         otherwise.
+   */
+  private NettyEndpoint target() {
+    final int current = shards.current();
+    return endpoints[current < 0 ? home : current];
+  }
+
+  /**
+   * Returns the endpoint of the given shard.
+   *
+   * @param shard the shard index.
+   * @return the endpoint of the shard.
+   */
+  NettyEndpoint shard(final int shard) {
+    return endpoints[shard];
+  }
+
+  /**
+   * Adds up the statistics of the shards of a node whenever it is read.
+   *
+   * <p>The in-flight requests are summed up. The latency average and percentiles are the
+   * highest of all shards, which keeps the view as peak sensitive as the average of a
+   * single endpoint and errs on the side of hedging later. Reading it touches every
+   * shard, but writes stay on the shards, so the readers never contend with each
+   * other.</p>
+   */
+  private static final class CombinedStats extends EndpointStats {
+
+    private final EndpointStats[] shards;
+
+    CombinedStats(final EndpointStats[] shards) {
+      this.shards = shards;
+    }
+
+    @Override
+    public long requestStarted() {
+      throw new UnsupportedOperationException("Requests are recorded by the shards.");
+    }
+
+    @Override
+    public void requestCompleted(final long start, final long serverDurationNanos) {
+      throw new UnsupportedOperationException("Requests are recorded by the shards.");
+    }
+
+    @Override
+    public void requestAbandoned() {
+      throw new UnsupportedOperationException("Requests are recorded by the shards.");
+    }
+
+    @Override
+    public void record(final long latencyNanos) {
+      throw new UnsupportedOperationException("Requests are recorded by the shards.");
+    }
+
+    @Override
+    public int inFlight() {
+      int inFlight = 0;
+      for (EndpointStats shard : shards) {
+        inFlight += shard.inFlight();
+      }
+      return inFlight;
+    }
+
+    @Override
+    public double latencyNanos() {
+      double latency = 0;
+      for (EndpointStats shard : shards) {
+        latency = Math.max(latency, shard.latencyNanos());
+      }
+      return latency;
+    }
+
+    @Override
+    public long latencyPercentile(final double percentile) {
+      long latency = 0;
+      for (EndpointStats shard : shards) {
+        latency = Math.max(latency, shard.latencyPercentile(percentile));
+      }
+      return latency;
+    }
+
+    @Override
+    public long serverLatencyPercentile(final double percentile) {
+      long latency = 0;
+      for (EndpointStats shard : shards) {
+        latency = Math.max(latency, shard.serverLatencyPercentile(percentile));
+      }
+      return latency;
+    }
+
+    @Override
+    public long clientLatencyPercentile(final double percentile) {
+      long latency = 0;
+      for (EndpointStats shard : shards) {
+        latency = Math.max(latency, shard.clientLatencyPercentile(percentile));
+      }
+      return latency;
+    }
+
+  }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io.netty;
+
+import com.couchbase.client.core.msg.CancellationReason;
+import com.couchbase.client.core.msg.Request;
+import com.couchbase.client.core.msg.RequestPriority;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Orders the requests waiting to be written to one connection.
+ *
+ * <p>Every {@link RequestPriority} has a queue of its own, ordered by the deadline of the
+ * requests so that the one closest to timing out is written first (ties are broken by
+ * the request ID, which keeps the order of a single thread). Queues are served strictly
+ * by priority, so a bulk request is only written once no interactive one is waiting.</p>
+ *
+ * <p>Requests which are past their deadline or have completed in the meantime are shed
+ * when they reach the head of the queue, before any work is spent on encoding them.
+ * Expired requests are cancelled with {@link CancellationReason#TIMEOUT}, just like
+ * their timer would do.</p>
+ *
+ * <p>This class is not thread-safe, it is only accessed from the event loop of the
+ * endpoint.</p>
+ *
+ * @since 2.0.0
+ */
+final class WriteScheduler {
+
+  /**
+   * Orders requests by deadline, and by ID if the deadlines are equal.
+   */
+  private static final Comparator<Request<?>> BY_DEADLINE = (left, right) -> {
+    final long diff = left.deadlineNanos() - right.deadlineNanos();
+    if (diff != 0) {
+      return diff < 0 ? -1 : 1;
+    }
+    return Long.compare(left.id(), right.id());
+  };
+
+  /**
+   * The initial capacity of every queue.
+   */
+  private static final int INITIAL_CAPACITY = 64;
+
+  /**
+   * One lane per priority, indexed by its ordinal.
+   */
+  private final Lane[] lanes;
+
+  /**
+   * The number of requests in all queues.
+   */
+  private int size;
+
+  /**
+   * Creates a new, empty {@link WriteScheduler}.
+   */
+  WriteScheduler() {
+    lanes = new Lane[RequestPriority.values().length];
+    for (int i = 0; i < lanes.length; i++) {
+      lanes[i] = new Lane();
+    }
+  }
+
+  /**
+   * Adds a request to the queue of its priority.
+   *
+   * @param request the request to add.
+   */
+  void offer(final Request<?> request) {
+    lanes[request.priority().ordinal()].requests.offer(request);
+    size++;
+  }
+
+  /**
+   * Removes and returns the next request which should be written, shedding all requests
+   * at the head of the queues which have completed or expired.
+   *
+   * @param now the current value of {@link System#nanoTime()}.
+   * @return the next request, null if there is none.
+   */
+  Request<?> poll(final long now) {
+    for (Lane lane : lanes) {
+      Request<?> request;
+      while ((request = lane.requests.poll()) != null) {
+        size--;
+        if (!shed(request, now)) {
+          return request;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Removes and returns any request without shedding, used to move all of them elsewhere.
+   *
+   * @return a request, null if there is none.
+   */
+  Request<?> pollAny() {
+    for (Lane lane : lanes) {
+      final Request<?> request = lane.requests.poll();
+      if (request != null) {
+        size--;
+        return request;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns true if no request is waiting.
+   *
+   * @return true if empty.
+   */
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns the number of waiting requests, including ones which will be shed.
+   *
+   * @return the number of requests.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Checks if the request must not be written anymore, and cancels it if it expired.
+   *
+   * @param request the request to check.
+   * @param now the current value of {@link System#nanoTime()}.
+   * @return true if the request has been shed.
+   */
+  static boolean shed(final Request<?> request, final long now) {
+    if (request.hasCompleted()) {
+      return true;
+    }
+    if (now - request.deadlineNanos() >= 0) {
+      request.cancel(CancellationReason.TIMEOUT);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * The requests of one priority, ordered by deadline. Kept in a holder so the lanes form
+   * a typed array instead of a generic one.
+   */
+  private static final class Lane {
+
+    private final PriorityQueue<Request<?>> requests =
+        new PriorityQueue<>(INITIAL_CAPACITY, BY_DEADLINE);
+
+  }
+
+}
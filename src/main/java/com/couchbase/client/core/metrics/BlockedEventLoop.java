@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.metrics;
+
+import java.time.Duration;
+
+/**
+ * Reported by the {@link EventLoopWatchdog} when an event loop did not run its probe
+ * within the threshold.
+ *
+ * @since 2.0.0
+ */
+public final class BlockedEventLoop {
+
+  private final String threadName;
+  private final Duration blockedFor;
+  private final StackTraceElement[] stackTrace;
+
+  /**
+   * Creates a new {@link BlockedEventLoop}.
+   *
+   * @param threadName the name of the event loop thread.
+   * @param blockedFor how long the probe has been waiting when the stack was captured.
+   * @param stackTrace the stack trace of the event loop thread.
+   */
+  public BlockedEventLoop(final String threadName, final Duration blockedFor,
+                          final StackTraceElement[] stackTrace) {
+    this.threadName = threadName;
+    this.blockedFor = blockedFor;
+    this.stackTrace = stackTrace;
+  }
+
+  /**
+   * Returns the name of the blocked event loop thread.
+   *
+   * @return the thread name.
+   */
+  public String threadName() {
+    return threadName;
+  }
+
+  /**
+   * Returns how long the probe has been waiting when the stack was captured.
+   *
+   * @return the time the event loop has been blocked for at least.
+   */
+  public Duration blockedFor() {
+    return blockedFor;
+  }
+
+  /**
+   * Returns the stack trace of the event loop thread at the time it was blocked.
+   *
+   * @return the stack trace, empty if the thread was not known yet.
+   */
+  public StackTraceElement[] stackTrace() {
+    return stackTrace.clone();
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder builder = new StringBuilder()
+        .append("Event loop thread ")
+        .append(threadName)
+        .append(" has been blocked for at least ")
+        .append(blockedFor.toMillis())
+        .append("ms");
+    for (StackTraceElement element : stackTrace) {
+      builder.append(System.lineSeparator()).append("\tat ").append(element);
+    }
+    return builder.toString();
+  }
+
+}
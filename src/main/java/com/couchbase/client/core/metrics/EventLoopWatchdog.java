@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.metrics;
+
+import com.couchbase.client.core.env.WatchdogConfig;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Measures the scheduling lag of event loops and reports event loops which are blocked.
+ *
+ * <p>Every interval, a probe is submitted to each watched event loop unless the previous
+ * one is still waiting. Once a probe runs, the time since its submission is recorded
+ * into the {@link #lag()} histogram. A probe which waits for longer than the threshold
+ * means the event loop is blocked: the stack trace of its thread is captured and
+ * reported once per probe, either to the configured listener or as a warning.</p>
+ *
+ * <p>Probes are plain tasks, so they also wait behind a long queue of pending tasks and
+ * not only behind a single blocking one; both show up as lag.</p>
+ *
+ * @since 2.0.0
+ */
+public final class EventLoopWatchdog {
+
+  private static final InternalLogger LOGGER =
+      InternalLoggerFactory.getInstance(EventLoopWatchdog.class);
+
+  private final long intervalNanos;
+  private final long thresholdNanos;
+  private final LatencyHistogram lag;
+  private final Consumer<BlockedEventLoop> listener;
+  private final AtomicLong blocked = new AtomicLong();
+
+  /**
+   * The groups which are watched already.
+   */
+  private final Set<EventExecutorGroup> groups = ConcurrentHashMap.newKeySet();
+
+  /**
+   * One probe per watched event loop.
+   */
+  private final List<Probe> probes = new CopyOnWriteArrayList<>();
+
+  /**
+   * The thread which checks the probes, only set while started.
+   */
+  private ScheduledExecutorService scheduler;
+
+  /**
+   * Creates a new {@link EventLoopWatchdog}, which needs to be started separately.
+   *
+   * @param config the watchdog configuration.
+   */
+  public EventLoopWatchdog(final WatchdogConfig config) {
+    this.intervalNanos = config.interval().toNanos();
+    this.thresholdNanos = config.threshold().toNanos();
+    this.lag = new LatencyHistogram(config.window());
+    this.listener = config.listener().orElse(EventLoopWatchdog::log);
+  }
+
+  /**
+   * Starts checking the watched event loops every interval.
+   */
+  public synchronized void start() {
+    if (scheduler == null) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(
+          new DefaultThreadFactory("cb-watchdog", true));
+      scheduler.scheduleAtFixedRate(this::check, intervalNanos, intervalNanos,
+          TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Stops checking the event loops.
+   */
+  public synchronized void stop() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      scheduler = null;
+    }
+  }
+
+  /**
+   * Watches all event loops of the given group, unless it is watched already.
+   *
+   * @param group the group to watch.
+   */
+  public void watch(final EventExecutorGroup group) {
+    if (groups.add(group)) {
+      for (EventExecutor executor : group) {
+        probes.add(new Probe(executor));
+      }
+    }
+  }
+
+  /**
+   * Returns the histogram of the time probes waited until they ran, in nanoseconds.
+   *
+   * @return the lag histogram.
+   */
+  public LatencyHistogram lag() {
+    return lag;
+  }
+
+  /**
+   * Returns how many times an event loop has been reported as blocked.
+   *
+   * @return the number of blocked event loops reported.
+   */
+  public long blockedCount() {
+    return blocked.get();
+  }
+
+  /**
+   * Submits a probe to every event loop which does not have one waiting, and reports
+   * the ones whose probe waits for longer than the threshold.
+   */
+  void check() {
+    final long now = System.nanoTime();
+    for (Probe probe : probes) {
+      if (probe.executor.isShuttingDown()) {
+        probes.remove(probe);
+      } else {
+        probe.check(now);
+      }
+    }
+  }
+
+  /**
+   * Default listener which logs blocked event loops as a warning.
+   *
+   * @param event the blocked event loop.
+   */
+  private static void log(final BlockedEventLoop event) {
+    LOGGER.warn(event.toString());
+  }
+
+  /**
+   * The probe of a single event loop.
+   */
+  private final class Probe implements Runnable {
+
+    private final EventExecutor executor;
+
+    /**
+     * The thread of the event loop, known once the first probe ran.
+     */
+    private volatile Thread thread;
+
+    /**
+     * When the waiting probe has been submitted, 0 if none is waiting.
+     */
+    private volatile long submitted;
+
+    /**
+     * True if the waiting probe has been reported, only accessed by the checking thread.
+     */
+    private boolean reported;
+
+    Probe(final EventExecutor executor) {
+      this.executor = executor;
+    }
+
+    /**
+     * Submits this probe if none is waiting, or reports it if it waits for too long.
+     *
+     * @param now the current time in nanoseconds.
+     */
+    void check(final long now) {
+      final long waitingSince = submitted;
+      if (waitingSince == 0) {
+        reported = false;
+        submitted = now;
+        try {
+          executor.execute(this);
+        } catch (RejectedExecutionException ex) {
+          submitted = 0;
+        }
+      } else if (!reported && now - waitingSince > thresholdNanos) {
+        reported = true;
+        blocked.incrementAndGet();
+        final Thread current = thread;
+        try {
+          listener.accept(new BlockedEventLoop(
+              current == null ? "unknown" : current.getName(),
+              Duration.ofNanos(now - waitingSince),
+              current == null ? new StackTraceElement[0] : current.getStackTrace()
+          ));
+        } catch (RuntimeException ex) {
+          // a failing listener must not stop the periodic checks.
+          LOGGER.warn("The listener for blocked event loops failed.", ex);
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      thread = Thread.currentThread();
+      lag.record(System.nanoTime() - submitted);
+      submitted = 0;
+    }
+
+  }
+
+}
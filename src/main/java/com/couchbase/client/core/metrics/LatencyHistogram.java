@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.metrics;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free, rolling histogram of latency values in nanoseconds.
+ *
+ * <p>Values are recorded into log-linear buckets: every power of two is split into
+ * eight sub-buckets, which keeps the relative error of any reported value below
+ * 12.5% while needing only a few hundred counters for the full range of a long.</p>
+ *
+ * <p>The histogram rolls over every window: values are always recorded into the current
+ * window, while percentiles are read from a {@link Snapshot} of the last completed one.
+ * This keeps reads cheap and stable, at the cost of being up to one window behind.</p>
+ *
+ * @since 2.0.0
+ */
+public class LatencyHistogram {
+
+  /**
+   * The number of bits used to split each power of two into sub-buckets.
+   */
+  private static final int SUB_BUCKET_BITS = 3;
+
+  /**
+   * The number of sub-buckets per power of two.
+   */
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * The total number of buckets needed to cover all positive long values.
+   */
+  static final int NUM_BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  /**
+   * The length of one window in nanoseconds.
+   */
+  private final long windowNanos;
+
+  /**
+   * The counters of the window which is currently being recorded into.
+   */
+  private volatile AtomicLongArray current = new AtomicLongArray(NUM_BUCKETS);
+
+  /**
+   * The snapshot of the last completed window.
+   */
+  private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+  /**
+   * The point in time when the current window ends.
+   */
+  private volatile long windowEnd;
+
+  /**
+   * Creates a new {@link LatencyHistogram}.
+   *
+   * @param window the length of a single window.
+   */
+  public LatencyHistogram(final Duration window) {
+    if (window.isNegative() || window.isZero()) {
+      throw new IllegalArgumentException("The window must be positive.");
+    }
+    this.windowNanos = window.toNanos();
+    this.windowEnd = System.nanoTime() + windowNanos;
+  }
+
+  /**
+   * Records a latency value.
+   *
+   * @param latencyNanos the latency in nanoseconds, negative values are treated as 0.
+   */
+  public void record(final long latencyNanos) {
+    rollIfNeeded(System.nanoTime());
+    current.incrementAndGet(bucketIndex(Math.max(0, latencyNanos)));
+  }
+
+  /**
+   * Returns the snapshot of the last completed window.
+   *
+   * @return the last snapshot, empty if no window has completed yet.
+   */
+  public Snapshot snapshot() {
+    rollIfNeeded(System.nanoTime());
+    return snapshot;
+  }
+
+  /**
+   * Convenience method to read a percentile from the last completed window.
+   *
+   * @param percentile the percentile, between 0 and 100.
+   * @return the value at the percentile in nanoseconds, or 0 if there is no data.
+   */
+  public long valueAtPercentile(final double percentile) {
+    return snapshot().valueAtPercentile(percentile);
+  }
+
+  /**
+   * Completes the current window if it has ended.
+   *
+   * <p>Only one thread wins the race to roll the window, values concurrently recorded
+   * into the old counters while the snapshot is being taken may get lost, which is
+   * acceptable for statistical purposes.</p>
+   *
+   * @param now the current timestamp in nanoseconds.
+   */
+  private void rollIfNeeded(final long now) {
+    final long end = windowEnd;
+    if (now - end < 0) {
+      return;
+    }
+    synchronized (this) {
+      if (end != windowEnd) {
+        return;
+      }
+      final AtomicLongArray completed = current;
+      current = new AtomicLongArray(NUM_BUCKETS);
+      windowEnd = now + windowNanos;
+      // if a whole window was skipped, the completed counters are too old to be useful
+      snapshot = now - end > windowNanos ? Snapshot.EMPTY : Snapshot.of(completed);
+    }
+  }
+
+  /**
+   * Calculates the bucket index for a value.
+   *
+   * @param value the non-negative value.
+   * @return the index of its bucket.
+   */
+  static int bucketIndex(final long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    final int msb = 63 - Long.numberOfLeadingZeros(value);
+    final int sub = (int) (value >>> (msb - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return SUB_BUCKETS + (msb - SUB_BUCKET_BITS) * SUB_BUCKETS + sub;
+  }
+
+  /**
+   * Calculates the highest value which still falls into the given bucket.
+   *
+   * @param index the index of the bucket.
+   * @return the highest value of the bucket.
+   */
+  static long bucketUpperBound(final int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    final int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+    final long sub = (index - SUB_BUCKETS) % SUB_BUCKETS;
+    final long lower = (SUB_BUCKETS + sub) << shift;
+    return lower + (1L << shift) - 1;
+  }
+
+  /**
+   * An immutable view on the recorded values of one window.
+   */
+  public static final class Snapshot {
+
+    /**
+     * A snapshot without any recorded values.
+     */
+    static final Snapshot EMPTY = new Snapshot(new long[NUM_BUCKETS]);
+
+    /**
+     * The cumulative counts, so percentiles can be found with a binary search.
+     */
+    private final long[] cumulative;
+
+    /**
+     * Creates a new snapshot from cumulative counts.
+     *
+     * @param cumulative the cumulative counts per bucket.
+     */
+    private Snapshot(final long[] cumulative) {
+      this.cumulative = cumulative;
+    }
+
+    /**
+     * Creates a snapshot from the raw counters.
+     *
+     * @param counters the counters per bucket.
+     * @return the created snapshot.
+     */
+    static Snapshot of(final AtomicLongArray counters) {
+      final long[] cumulative = new long[NUM_BUCKETS];
+      long total = 0;
+      for (int i = 0; i < NUM_BUCKETS; i++) {
+        total += counters.get(i);
+        cumulative[i] = total;
+      }
+      return new Snapshot(cumulative);
+    }
+
+    /**
+     * Returns the number of values in this snapshot.
+     *
+     * @return the number of recorded values.
+     */
+    public long count() {
+      return cumulative[NUM_BUCKETS - 1];
+    }
+
+    /**
+     * Returns the (upper bound of the) value at the given percentile.
+     *
+     * @param percentile the percentile, between 0 and 100.
+     * @return the value at the percentile, or 0 if there is no data.
+     */
+    public long valueAtPercentile(final double percentile) {
+      final long count = count();
+      if (count == 0) {
+        return 0;
+      }
+      final long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * count));
+      int low = 0;
+      int high = NUM_BUCKETS - 1;
+      while (low < high) {
+        final int mid = (low + high) >>> 1;
+        if (cumulative[mid] < rank) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return bucketUpperBound(low);
+    }
+
+  }
+
+}
@@ -16,6 +16,8 @@
 
 package com.couchbase.client.core.msg;
 
+import com.couchbase.client.core.util.Completion;
+import io.netty.util.concurrent.FastThreadLocal;
 import io.opentracing.Span;
 
 import java.nio.ByteBuffer;
@@ -23,7 +25,7 @@ import java.time.Duration;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiConsumer;
 
 /**
  * Common parent implementation for all {@link Request Requests}.
@@ -34,20 +36,29 @@ import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 public abstract class BaseRequest<R> implements Request<R> {
 
   /**
-   * Atomic updater for the {@link #state} field.
+   * The number of message IDs a thread reserves at once.
    */
-  private static final AtomicReferenceFieldUpdater<BaseRequest, State> STATE_UPDATER =
-      AtomicReferenceFieldUpdater.newUpdater(BaseRequest.class, State.class, "state");
+  private static final int ID_BLOCK_SIZE = 1024;
 
   /**
-   * A ever-increasing, unique message ID for every message created.
+   * The start of the next block of message IDs which has not been reserved yet.
    */
-  private static final AtomicLong MESSAGE_ID = new AtomicLong(0);
+  private static final AtomicLong NEXT_ID_BLOCK = new AtomicLong(0);
 
   /**
-   * Contains the response which will eventually complete.
+   * The block of message IDs reserved by the current thread.
    */
-  private final CompletableFuture<R> response = new CompletableFuture<>();
+  private static final FastThreadLocal<IdBlock> ID_BLOCK = new FastThreadLocal<IdBlock>() {
+    @Override
+    protected IdBlock initialValue() {
+      return new IdBlock();
+    }
+  };
+
+  /**
+   * Holds the state and the response which will eventually complete.
+   */
+  private final Completion<R> completion = new Completion<>();
 
   /**
    * The stored message ID.
@@ -65,11 +76,14 @@ public abstract class BaseRequest<R> implements Request<R> {
   private final Duration timeout;
 
   /**
-   * The {@link State} this {@link Request} is in at the moment.
-   *
-   * <p>Do not rename this field without updating the {@link #STATE_UPDATER}!</p>
+   * The point in time this message times out at, relative to {@link System#nanoTime()}.
    */
-  private volatile State state = State.INCOMPLETE;
+  private final long deadlineNanos;
+
+  /**
+   * The priority class of this message.
+   */
+  private volatile RequestPriority priority = RequestPriority.INTERACTIVE;
 
   /**
    * Creates a new {@link BaseRequest}.
@@ -78,38 +92,73 @@ public abstract class BaseRequest<R> implements Request<R> {
    * test stubs.</p>
    */
   protected BaseRequest(final Duration timeout, final Optional<Span> span) {
-    id = MESSAGE_ID.incrementAndGet();
+    id = nextId();
     this.timeout = timeout;
+    this.deadlineNanos = System.nanoTime() + timeout.toNanos();
     this.span = span;
   }
 
+  /**
+   * Returns a unique message ID from the block of the current thread.
+   *
+   * <p>Threads only touch the shared counter once every {@link #ID_BLOCK_SIZE} messages,
+   * so creating requests from many threads does not contend on one cache line. The IDs
+   * are unique and positive, but only increasing per thread.</p>
+   *
+   * @return the next message ID.
+   */
+  private static long nextId() {
+    final IdBlock block = ID_BLOCK.get();
+    if (block.next == block.limit) {
+      block.next = NEXT_ID_BLOCK.getAndAdd(ID_BLOCK_SIZE);
+      block.limit = block.next + ID_BLOCK_SIZE;
+    }
+    return ++block.next;
+  }
+
   @Override
   public CompletableFuture<R> response() {
-    return response;
+    return completion.future();
+  }
+
+  @Override
+  public void whenComplete(final BiConsumer<? super R, ? super Throwable> listener) {
+    completion.whenComplete(listener);
+  }
+
+  @Override
+  public boolean hasCompleted() {
+    return completion.isDone();
   }
 
   @Override
   public boolean hasSucceeded() {
-    return state == State.SUCCESS;
+    return completion.hasSucceeded();
   }
 
   @Override
   public boolean hasFailed() {
-    return state == State.FAILURE;
+    return completion.hasFailed();
   }
 
   @Override
   public void succeed(final R value) {
-    if (STATE_UPDATER.compareAndSet(this, State.INCOMPLETE, State.SUCCESS)) {
-      response.complete(value);
-    }
+    completion.succeed(value);
   }
 
   @Override
   public void fail(final Throwable error) {
-    if (STATE_UPDATER.compareAndSet(this, State.INCOMPLETE, State.FAILURE)) {
-      response.completeExceptionally(error);
-    }
+    completion.fail(error);
+  }
+
+  @Override
+  public void cancel(final CancellationReason reason) {
+    completion.fail(reason.exception());
+  }
+
+  @Override
+  public Optional<CancellationReason> cancellationReason() {
+    return Optional.ofNullable(CancellationReason.of(completion.failure()));
   }
 
   @Override
@@ -117,6 +166,22 @@ public abstract class BaseRequest<R> implements Request<R> {
     return timeout;
   }
 
+  @Override
+  public long deadlineNanos() {
+    return deadlineNanos;
+  }
+
+  @Override
+  public RequestPriority priority() {
+    return priority;
+  }
+
+  @Override
+  public Request<R> priority(final RequestPriority priority) {
+    this.priority = priority;
+    return this;
+  }
+
   @Override
   public long id() {
     return id;
@@ -134,28 +199,11 @@ public abstract class BaseRequest<R> implements Request<R> {
   }
 
   /**
-   * Represents the states this {@link Request} can be in.
-   *
-   * <p>Right now it is only used to internally track different modes in one volatile
-   * variable instead of many.</p>
+   * A range of message IDs reserved by one thread, the next ID is {@code next + 1}.
    */
-  private enum State {
-
-    /**
-     * This {@link Request} is not complete yet.
-     */
-    INCOMPLETE,
-
-    /**
-     * This request has been completed successfully.
-     */
-    SUCCESS,
-
-    /**
-     * This request has been completed with failure.
-     */
-    FAILURE
-
+  private static final class IdBlock {
+    private long next;
+    private long limit;
   }
 
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.msg;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Describes why a {@link Request} has been cancelled.
+ *
+ * <p>Every reason comes with the pre-created exception the request is failed with, so
+ * cancelling does not capture a stack trace (which would only point into a timer or an
+ * event loop anyway).</p>
+ *
+ * @since 2.0.0
+ */
+public enum CancellationReason {
+
+  /**
+   * The request did not complete within its timeout.
+   */
+  TIMEOUT(new TimeoutException("The request did not complete within its timeout.")),
+
+  /**
+   * The subscription to the request has been disposed.
+   */
+  DISPOSED(new CancellationException("The subscription of the request has been disposed.")),
+
+  /**
+   * Another copy of the request completed first, so its result is not needed anymore.
+   */
+  SUPERSEDED(new CancellationException("Another copy of the request completed first."));
+
+  private final Exception exception;
+
+  CancellationReason(final Exception exception) {
+    exception.setStackTrace(new StackTraceElement[0]);
+    this.exception = exception;
+  }
+
+  /**
+   * Returns the exception a request cancelled for this reason fails with.
+   *
+   * @return the exception.
+   */
+  public Exception exception() {
+    return exception;
+  }
+
+  /**
+   * Finds the reason a request has been cancelled for from the failure it completed with.
+   *
+   * @param failure the failure, might be null.
+   * @return the reason, or null if the failure is not caused by a cancellation.
+   */
+  static CancellationReason of(final Throwable failure) {
+    for (CancellationReason reason : values()) {
+      if (reason.exception == failure) {
+        return reason;
+      }
+    }
+    return null;
+  }
+
+}
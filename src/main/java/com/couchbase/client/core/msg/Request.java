@@ -22,6 +22,7 @@ import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 
 /**
  * The {@link Request} is the common parent interface for all requests flowing through
@@ -35,10 +36,21 @@ public interface Request<R> {
   /**
    * Returns the response represented by a {@link CompletableFuture} for this {@link Request}.
    *
+   * <p>The future is only created on the first call, so components inside the library
+   * should prefer {@link #whenComplete(BiConsumer)}.</p>
+   *
    * @return the response which is completed once the future completes.
    */
   CompletableFuture<R> response();
 
+  /**
+   * Registers a listener which is called with either the response or the failure once
+   * this {@link Request} completes, or right away if it already has.
+   *
+   * @param listener the listener to call.
+   */
+  void whenComplete(BiConsumer<? super R, ? super Throwable> listener);
+
   /**
    * Returns true if the {@link Request Requests} underlying response has been completed,
    * either with success or with a failure.
@@ -79,6 +91,26 @@ public interface Request<R> {
    */
   void fail(Throwable error);
 
+  /**
+   * Cancels this {@link Request}, unless it has completed already.
+   *
+   * <p>The request fails with the exception of the reason. If it has not been written
+   * yet, it is skipped instead of being encoded, and if it is in flight its slot on the
+   * connection is freed right away instead of waiting for a response which might never
+   * arrive. Its timeout is cancelled as well. If a response completes the request at
+   * the same time, exactly one of them wins.</p>
+   *
+   * @param reason the reason for the cancellation.
+   */
+  void cancel(CancellationReason reason);
+
+  /**
+   * Returns the reason this {@link Request} has been cancelled for.
+   *
+   * @return the reason, empty if it has not been cancelled.
+   */
+  Optional<CancellationReason> cancellationReason();
+
   /**
    * Returns the relative timeout duration of this {@link Request}.
    *
@@ -86,6 +118,30 @@ public interface Request<R> {
    */
   Duration timeout();
 
+  /**
+   * Returns the point in time this {@link Request} times out at, as a value of
+   * {@link System#nanoTime()}.
+   *
+   * @return the deadline in nanoseconds.
+   */
+  long deadlineNanos();
+
+  /**
+   * Returns the priority class of this {@link Request}.
+   *
+   * @return the priority, {@link RequestPriority#INTERACTIVE} unless changed.
+   */
+  RequestPriority priority();
+
+  /**
+   * Changes the priority class of this {@link Request}, must be called before it is
+   * dispatched.
+   *
+   * @param priority the new priority.
+   * @return this request for chaining purposes.
+   */
+  Request<R> priority(RequestPriority priority);
+
   /**
    * A unique ID for each {@link Request}.
    *
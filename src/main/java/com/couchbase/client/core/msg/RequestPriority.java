@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.msg;
+
+/**
+ * The priority class of a {@link Request}, which decides the order requests waiting for
+ * the same connection are written in.
+ *
+ * <p>Within a class, requests are written in the order of their deadlines. Under
+ * overload interactive requests are always written first, so batch jobs sharing the
+ * connections only use the capacity left over and time out before interactive traffic
+ * does.</p>
+ *
+ * @since 2.0.0
+ */
+public enum RequestPriority {
+
+  /**
+   * A request someone is waiting for, which is the default.
+   */
+  INTERACTIVE,
+
+  /**
+   * A request of a batch job, for example a bulk get, which yields to interactive ones.
+   */
+  BULK
+
+}
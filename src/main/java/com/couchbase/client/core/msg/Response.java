@@ -24,4 +24,24 @@ package com.couchbase.client.core.msg;
  * @since 2.0.0
  */
 public interface Response {
+
+  /**
+   * Returns the status of this response as reported by the server.
+   *
+   * @return the response status.
+   */
+  ResponseStatus status();
+
+  /**
+   * Returns how long the server spent on the request, if it reported it.
+   *
+   * <p>The difference to the latency observed by the client is the time spent in the
+   * network and in the client itself.</p>
+   *
+   * @return the server duration in nanoseconds, or -1 if not reported.
+   */
+  default long serverDurationNanos() {
+    return -1;
+  }
+
 }
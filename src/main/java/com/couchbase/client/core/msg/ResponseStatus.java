@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.msg;
+
+/**
+ * The {@link ResponseStatus} describes the outcome of a request as reported by the server.
+ *
+ * @since 2.0.0
+ */
+public enum ResponseStatus {
+
+  /**
+   * The request completed successfully.
+   */
+  SUCCESS,
+
+  /**
+   * The document or resource has not been found.
+   */
+  NOT_FOUND,
+
+  /**
+   * The document already exists or its CAS did not match.
+   */
+  EXISTS,
+
+  /**
+   * The server is temporarily unable to serve the request.
+   */
+  TEMPORARY_FAILURE,
+
+  /**
+   * The request has been sent to a node which does not own the partition.
+   */
+  NOT_MY_VBUCKET,
+
+  /**
+   * Any status which is not known to this library.
+   */
+  UNKNOWN
+
+}
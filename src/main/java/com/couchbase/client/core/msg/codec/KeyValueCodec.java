@@ -16,9 +16,19 @@
 
 package com.couchbase.client.core.msg.codec;
 
+import com.couchbase.client.core.msg.ResponseStatus;
 import com.couchbase.client.core.msg.kv.GetRequest;
+import com.couchbase.client.core.msg.kv.GetResponse;
+import com.couchbase.client.core.msg.kv.HelloRequest;
+import com.couchbase.client.core.msg.kv.HelloResponse;
+import com.couchbase.client.core.msg.kv.ServerFeature;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.compression.Snappy;
 
 import java.nio.ByteBuffer;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * This codec is responsible for encoding and decoding KeyValue requests and responses.
@@ -58,31 +68,396 @@ public class KeyValueCodec {
    */
   static final byte OPCODE_GET = (byte) 0x00;
 
+  /**
+   * The opcode for a KeyValue get served by a replica.
+   */
+  static final byte OPCODE_GET_REPLICA = (byte) 0x83;
+
+  /**
+   * The opcode of the feature negotiation.
+   */
+  static final byte OPCODE_HELLO = (byte) 0x1f;
+
+  /**
+   * "magic" flag for responses.
+   */
+  static final byte MAGIC_RES = (byte) 0x81;
+
+  /**
+   * The response magic with flexible framing extras, used once tracing is negotiated.
+   */
+  static final byte MAGIC_RES_FLEXIBLE = (byte) 0x18;
+
+  /**
+   * The offset of the framing extras length in a response with flexible framing.
+   */
+  static final int FRAMING_EXTRAS_LENGTH_OFFSET = 2;
+
+  /**
+   * The offset of the one byte key length in a response with flexible framing.
+   */
+  static final int FLEXIBLE_KEY_LENGTH_OFFSET = 3;
+
+  /**
+   * The id of the frame info holding the server duration.
+   */
+  static final int FRAME_ID_SERVER_DURATION = 0;
+
+  /**
+   * The value reported if a response carries no server duration.
+   */
+  public static final long NO_SERVER_DURATION = -1;
+
+  /**
+   * The offset of bytes for the key length header field.
+   */
+  static final int KEY_LENGTH_OFFSET = 2;
+
+  /**
+   * The offset of bytes for the extras length header field.
+   */
+  static final int EXTRAS_LENGTH_OFFSET = 4;
+
+  /**
+   * The offset of the datatype in the header.
+   */
+  static final int DATATYPE_OFFSET = 5;
+
+  /**
+   * The datatype bit which flags a value compressed with Snappy.
+   */
+  static final byte DATATYPE_SNAPPY = 0x02;
+
+  /**
+   * The offset of bytes for the status header field in a response.
+   */
+  static final int STATUS_OFFSET = 6;
+
+  /**
+   * The offset of bytes for the total body length header field.
+   */
+  static final int BODY_LENGTH_OFFSET = 8;
+
   /**
    * The offset of bytes for the opaque header field.
    */
   public static final int OPAQUE_OFFSET = 12;
 
+  /**
+   * The offset of bytes for the CAS header field.
+   */
+  static final int CAS_OFFSET = 16;
+
+  /**
+   * The size of the flags in the extras of a get response.
+   */
+  static final int FLAGS_SIZE = 4;
+
   /**
    * Encodes the given {@link GetRequest} into its {@link ByteBuffer} representation.
    *
    * @param request the request.
+   * @param opaque the opaque assigned by the channel.
    * @return the encoded buffer.
    */
-  public static ByteBuffer encode(final GetRequest request) {
-    short keyLength = (short) request.key().length;
-    ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + keyLength)
+  public static ByteBuffer encode(final GetRequest request, final int opaque) {
+    final byte[] key = request.key();
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + key.length)
         .put(MAGIC_REQ)
-        .put(OPCODE_GET)
-        .putShort(keyLength)
+        .put(request.fromReplica() ? OPCODE_GET_REPLICA : OPCODE_GET)
+        .putShort((short) key.length)
         .put(NO_EXTRAS)
         .put(NO_DATATYPE)
         .putShort(request.partition())
-        .putInt(keyLength)
-        .putInt(request.opaque())
+        .putInt(key.length)
+        .putInt(opaque)
         .putLong(NO_CAS)
-        .put(request.key());
+        .put(key);
+    return buffer;
+  }
+
+  /**
+   * Encodes the given {@link GetRequest} at the writer index of the target buffer.
+   *
+   * @param request the request.
+   * @param opaque the opaque assigned by the channel.
+   * @param target the buffer to write into.
+   */
+  public static void encode(final GetRequest request, final int opaque, final ByteBuf target) {
+    final byte[] key = request.key();
+    target.ensureWritable(HEADER_SIZE + key.length)
+        .writeByte(MAGIC_REQ)
+        .writeByte(request.fromReplica() ? OPCODE_GET_REPLICA : OPCODE_GET)
+        .writeShort(key.length)
+        .writeByte(NO_EXTRAS)
+        .writeByte(NO_DATATYPE)
+        .writeShort(request.partition())
+        .writeInt(key.length)
+        .writeInt(opaque)
+        .writeLong(NO_CAS)
+        .writeBytes(key);
+  }
+
+  /**
+   * Encodes the given {@link HelloRequest} into its {@link ByteBuffer} representation.
+   *
+   * @param request the request.
+   * @param opaque the opaque assigned by the channel.
+   * @return the encoded buffer.
+   */
+  public static ByteBuffer encode(final HelloRequest request, final int opaque) {
+    final ByteBuffer buffer = ByteBuffer.allocate(encodedSize(request));
+    final ByteBuf target = Unpooled.wrappedBuffer(buffer).clear();
+    encode(request, opaque, target);
+    buffer.position(target.writerIndex());
     return buffer;
   }
 
+  /**
+   * Encodes the given {@link HelloRequest} at the writer index of the target buffer.
+   *
+   * <p>The client name is sent as key and the requested features as value, one
+   * unsigned short each.</p>
+   *
+   * @param request the request.
+   * @param opaque the opaque assigned by the channel.
+   * @param target the buffer to write into.
+   */
+  public static void encode(final HelloRequest request, final int opaque,
+                            final ByteBuf target) {
+    final byte[] key = request.clientName();
+    final Set<ServerFeature> features = request.features();
+    target.ensureWritable(encodedSize(request))
+        .writeByte(MAGIC_REQ)
+        .writeByte(OPCODE_HELLO)
+        .writeShort(key.length)
+        .writeByte(NO_EXTRAS)
+        .writeByte(NO_DATATYPE)
+        .writeShort(0)
+        .writeInt(key.length + features.size() * 2)
+        .writeInt(opaque)
+        .writeLong(NO_CAS)
+        .writeBytes(key);
+    for (ServerFeature feature : features) {
+      target.writeShort(feature.code());
+    }
+  }
+
+  /**
+   * Returns the size of the given {@link GetRequest} once encoded.
+   *
+   * @param request the request.
+   * @return the encoded size in bytes.
+   */
+  public static int encodedSize(final GetRequest request) {
+    return HEADER_SIZE + request.key().length;
+  }
+
+  /**
+   * Returns the size of the given {@link HelloRequest} once encoded.
+   *
+   * @param request the request.
+   * @return the encoded size in bytes.
+   */
+  public static int encodedSize(final HelloRequest request) {
+    return HEADER_SIZE + request.clientName().length + request.features().size() * 2;
+  }
+
+  /**
+   * Decodes a full response frame into a {@link GetResponse}.
+   *
+   * <p>The content is copied out of the frame, so the frame can be released right after
+   * this method returns. Content compressed with Snappy, which the server only sends
+   * if it has been negotiated, is decompressed on the way.</p>
+   *
+   * @param response the response frame, including the header.
+   * @return the decoded response.
+   */
+  public static GetResponse decodeGetResponse(final ByteBuf response) {
+    final ResponseStatus status = decodeStatus(response.getShort(STATUS_OFFSET));
+    final long cas = response.getLong(CAS_OFFSET);
+    final int framingExtrasLength = framingExtrasLength(response);
+    final int extrasLength = response.getUnsignedByte(EXTRAS_LENGTH_OFFSET);
+    final int keyLength = keyLength(response);
+    final int bodyLength = response.getInt(BODY_LENGTH_OFFSET);
+
+    final int extrasOffset = HEADER_SIZE + framingExtrasLength;
+    final int flags = extrasLength >= FLAGS_SIZE ? response.getInt(extrasOffset) : 0;
+    final int contentOffset = extrasOffset + extrasLength + keyLength;
+    final int contentLength = bodyLength - framingExtrasLength - extrasLength - keyLength;
+    byte[] content = null;
+    if (status == ResponseStatus.SUCCESS && contentLength > 0) {
+      if (isCompressed(response)) {
+        content = decompress(response.slice(contentOffset, contentLength));
+      } else {
+        content = new byte[contentLength];
+        response.getBytes(contentOffset, content);
+      }
+    }
+    return new GetResponse(status, content, cas, flags, serverDurationNanos(response));
+  }
+
+  /**
+   * Decodes a full response frame into a {@link HelloResponse}.
+   *
+   * <p>Features which are not known to this library are skipped.</p>
+   *
+   * @param response the response frame, including the header.
+   * @return the decoded response.
+   */
+  public static HelloResponse decodeHelloResponse(final ByteBuf response) {
+    final ResponseStatus status = decodeStatus(response.getShort(STATUS_OFFSET));
+    final Set<ServerFeature> features = EnumSet.noneOf(ServerFeature.class);
+    if (status == ResponseStatus.SUCCESS) {
+      final int extrasLength = response.getUnsignedByte(EXTRAS_LENGTH_OFFSET);
+      final int valueOffset = HEADER_SIZE + framingExtrasLength(response) + extrasLength
+          + keyLength(response);
+      final int valueEnd = HEADER_SIZE + response.getInt(BODY_LENGTH_OFFSET);
+      for (int offset = valueOffset; offset + 2 <= valueEnd; offset += 2) {
+        final ServerFeature feature = ServerFeature.of(response.getShort(offset));
+        if (feature != null) {
+          features.add(feature);
+        }
+      }
+    }
+    return new HelloResponse(status, features);
+  }
+
+  /**
+   * Returns how long the server spent on the request of the given response, which it
+   * reports in the flexible framing extras once tracing has been negotiated.
+   *
+   * <p>The server encodes the duration into two bytes with a loss of precision that
+   * grows with the duration, from a microsecond up to about two minutes. Decoding it
+   * does not allocate.</p>
+   *
+   * @param response the response frame, including the header.
+   * @return the server duration in nanoseconds, or {@link #NO_SERVER_DURATION}.
+   */
+  public static long serverDurationNanos(final ByteBuf response) {
+    final int end = HEADER_SIZE + framingExtrasLength(response);
+    int offset = HEADER_SIZE;
+    while (offset < end) {
+      final int head = response.getUnsignedByte(offset++);
+      int id = head >>> 4;
+      int length = head & 0x0f;
+      // a nibble of 15 means the actual value is 15 plus the next byte.
+      if (id == 0x0f) {
+        id += response.getUnsignedByte(offset++);
+      }
+      if (length == 0x0f) {
+        length += response.getUnsignedByte(offset++);
+      }
+      if (id == FRAME_ID_SERVER_DURATION && length == 2 && offset + 2 <= end) {
+        final int encoded = response.getUnsignedShort(offset);
+        return Math.round(Math.pow(encoded, 1.74) / 2 * 1000);
+      }
+      offset += length;
+    }
+    return NO_SERVER_DURATION;
+  }
+
+  /**
+   * Returns true if the response carries flexible framing extras, which the server only
+   * sends once tracing has been negotiated.
+   *
+   * @param response the response frame.
+   * @return true if the response uses flexible framing.
+   */
+  public static boolean isFlexible(final ByteBuf response) {
+    return response.getByte(0) == MAGIC_RES_FLEXIBLE;
+  }
+
+  /**
+   * Returns true if the value of the response is compressed with Snappy, which the
+   * server only does once Snappy has been negotiated.
+   *
+   * @param response the response frame.
+   * @return true if the value is compressed.
+   */
+  public static boolean isCompressed(final ByteBuf response) {
+    return (response.getByte(DATATYPE_OFFSET) & DATATYPE_SNAPPY) != 0;
+  }
+
+  /**
+   * Returns the length of the flexible framing extras of a response.
+   *
+   * @param response the response frame.
+   * @return the length of the framing extras, 0 if the response has none.
+   */
+  private static int framingExtrasLength(final ByteBuf response) {
+    return isFlexible(response)
+        ? response.getUnsignedByte(FRAMING_EXTRAS_LENGTH_OFFSET)
+        : 0;
+  }
+
+  /**
+   * Returns the key length of a response, which is only one byte wide with flexible
+   * framing.
+   *
+   * @param response the response frame.
+   * @return the length of the key.
+   */
+  private static int keyLength(final ByteBuf response) {
+    return isFlexible(response)
+        ? response.getUnsignedByte(FLEXIBLE_KEY_LENGTH_OFFSET)
+        : response.getUnsignedShort(KEY_LENGTH_OFFSET);
+  }
+
+  /**
+   * Decompresses a value compressed with Snappy into an array of its exact size.
+   *
+   * @param compressed the compressed value, starting with its uncompressed length.
+   * @return the decompressed value.
+   */
+  private static byte[] decompress(final ByteBuf compressed) {
+    final byte[] content = new byte[uncompressedLength(compressed)];
+    new Snappy().decode(compressed, Unpooled.wrappedBuffer(content).clear());
+    return content;
+  }
+
+  /**
+   * Reads the uncompressed length a Snappy value starts with, without consuming it.
+   *
+   * @param compressed the compressed value.
+   * @return the uncompressed length.
+   */
+  private static int uncompressedLength(final ByteBuf compressed) {
+    int length = 0;
+    for (int index = 0; index < 5; index++) {
+      final byte current = compressed.getByte(compressed.readerIndex() + index);
+      length |= (current & 0x7f) << (7 * index);
+      if ((current & 0x80) == 0) {
+        if (length < 0) {
+          break;
+        }
+        return length;
+      }
+    }
+    throw new IllegalArgumentException("Invalid uncompressed length of a Snappy value.");
+  }
+
+  /**
+   * Converts the raw status of the binary protocol into a {@link ResponseStatus}.
+   *
+   * @param status the raw status.
+   * @return the converted status.
+   */
+  static ResponseStatus decodeStatus(final short status) {
+    switch (status) {
+      case 0x00:
+        return ResponseStatus.SUCCESS;
+      case 0x01:
+        return ResponseStatus.NOT_FOUND;
+      case 0x02:
+        return ResponseStatus.EXISTS;
+      case 0x07:
+        return ResponseStatus.NOT_MY_VBUCKET;
+      case 0x86:
+        return ResponseStatus.TEMPORARY_FAILURE;
+      default:
+        return ResponseStatus.UNKNOWN;
+    }
+  }
+
 }
@@ -17,11 +17,12 @@
 package com.couchbase.client.core.msg.kv;
 
 import com.couchbase.client.core.msg.BaseRequest;
+import io.netty.buffer.ByteBuf;
 import io.opentracing.Span;
 
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Base class for all {@link KeyValueRequest KeyValueRequests}.
@@ -34,16 +35,6 @@ public abstract class BaseKeyValueRequest<R>
     extends BaseRequest<R>
     implements KeyValueRequest<R> {
 
-  /**
-   * A ever-increasing, unique message ID for every message created.
-   */
-  private static final AtomicInteger OPAQUE = new AtomicInteger(0);
-
-  /**
-   * The opaque for this request.
-   */
-  private final int opaque;
-
   /**
    * The partition for this request.
    */
@@ -51,12 +42,12 @@ public abstract class BaseKeyValueRequest<R>
 
   protected BaseKeyValueRequest(final Duration timeout, final Optional<Span> span) {
     super(timeout, span);
-    opaque = OPAQUE.incrementAndGet();
   }
 
   @Override
-  public int opaque() {
-    return opaque;
+  public ByteBuffer encode(final int opaque) {
+    throw new UnsupportedOperationException("This Request is not encodable, "
+      + "please implement this method.");
   }
 
   @Override
@@ -70,6 +61,12 @@ public abstract class BaseKeyValueRequest<R>
     return partition;
   }
 
+  @Override
+  public R decode(final ByteBuf response) {
+    throw new UnsupportedOperationException("This Request is not decodable, "
+      + "please implement this method.");
+  }
+
   /**
    * Helper method which can be called from children that need to verify
    * that a key is certain shape.
@@ -77,7 +74,10 @@ public abstract class BaseKeyValueRequest<R>
    * @param key the key to check
    */
   static void verifyKey(final byte[] key) {
-    if (key == null || key.length > 250 || key.length == 0) {
+    if (key == null) {
+      throw new IllegalArgumentException("The document key must not be null.");
+    }
+    if (key.length > 250 || key.length == 0) {
       throw new IllegalArgumentException("The encoded document key must "
         + "be between 1 and 250 bytes in size.");
     }
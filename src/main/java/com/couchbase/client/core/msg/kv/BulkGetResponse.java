@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.msg.kv;
+
+/**
+ * The outcome of a single key within a bulk get, see
+ * {@link com.couchbase.client.core.Core#bulkGet}.
+ *
+ * <p>Bulk results can be emitted out of order, so every result carries its key. A key
+ * which failed on the client side (for example because it timed out) is reported in-band
+ * through {@link #error()} instead of terminating the whole stream.</p>
+ *
+ * @since 2.0.0
+ */
+public class BulkGetResponse {
+
+  private final byte[] key;
+  private final GetResponse response;
+  private final Throwable error;
+
+  /**
+   * Creates a new {@link BulkGetResponse}.
+   *
+   * @param key the key of the document.
+   * @param response the response from the server, null if failed.
+   * @param error the failure, null if a response has been received.
+   */
+  private BulkGetResponse(final byte[] key, final GetResponse response, final Throwable error) {
+    this.key = key;
+    this.response = response;
+    this.error = error;
+  }
+
+  /**
+   * Creates a result for a key which received a response.
+   *
+   * @param key the key of the document.
+   * @param response the response from the server.
+   * @return the created result.
+   */
+  public static BulkGetResponse success(final byte[] key, final GetResponse response) {
+    return new BulkGetResponse(key, response, null);
+  }
+
+  /**
+   * Creates a result for a key which did not receive a response.
+   *
+   * @param key the key of the document.
+   * @param error the reason for the failure.
+   * @return the created result.
+   */
+  public static BulkGetResponse failure(final byte[] key, final Throwable error) {
+    return new BulkGetResponse(key, null, error);
+  }
+
+  /**
+   * Returns the key of the document.
+   *
+   * @return the key.
+   */
+  public byte[] key() {
+    return key;
+  }
+
+  /**
+   * Returns true if a response has been received for this key.
+   *
+   * <p>Note that the response itself might still carry a non-successful status, for
+   * example if the document does not exist.</p>
+   *
+   * @return true if a response is present.
+   */
+  public boolean hasResponse() {
+    return response != null;
+  }
+
+  /**
+   * Returns the response from the server.
+   *
+   * @return the response, null if the key failed.
+   */
+  public GetResponse response() {
+    return response;
+  }
+
+  /**
+   * Returns the reason why no response has been received.
+   *
+   * @return the failure, null if a response is present.
+   */
+  public Throwable error() {
+    return error;
+  }
+
+}
@@ -16,7 +16,10 @@
 
 package com.couchbase.client.core.msg.kv;
 
+import com.couchbase.client.core.msg.ResponseStatus;
 import com.couchbase.client.core.msg.codec.KeyValueCodec;
+import com.couchbase.client.core.util.Constants;
+import io.netty.buffer.ByteBuf;
 import io.opentracing.Span;
 
 import java.nio.ByteBuffer;
@@ -32,20 +35,100 @@ import java.util.Optional;
 public final class GetRequest extends BaseKeyValueRequest<GetResponse> {
 
   /**
-   * The document key.
+   * The encoded document key.
    */
   private final byte[] key;
 
   /**
-   * Creates a new {@link GetRequest}.
+   * Which copy of the document this request may be served from.
+   */
+  private final ReadPreference readPreference;
+
+  /**
+   * True if this request is sent to a replica and needs to be encoded as a replica read.
+   */
+  private volatile boolean fromReplica;
+
+  /**
+   * Creates a new {@link GetRequest} which reads from the active partition.
    *
    * @param key the key of the document.
    * @param timeout the timeout used for this request.
    */
   public GetRequest(final byte[] key, final Duration timeout, final Optional<Span> span) {
+    this(key, timeout, span, ReadPreference.ACTIVE);
+  }
+
+  /**
+   * Creates a new {@link GetRequest} with a custom {@link ReadPreference}.
+   *
+   * @param key the key of the document.
+   * @param timeout the timeout used for this request.
+   * @param readPreference which copy of the document to read from.
+   */
+  public GetRequest(final byte[] key, final Duration timeout, final Optional<Span> span,
+                    final ReadPreference readPreference) {
     super(timeout, span);
     verifyKey(key);
     this.key = key;
+    this.readPreference = readPreference;
+  }
+
+  /**
+   * Creates a new {@link GetRequest} for a key which is encoded as UTF-8, reading from
+   * the active partition.
+   *
+   * @param key the key of the document, encoded as UTF-8.
+   * @param timeout the timeout used for this request.
+   */
+  public GetRequest(final CharSequence key, final Duration timeout, final Optional<Span> span) {
+    this(key, timeout, span, ReadPreference.ACTIVE);
+  }
+
+  /**
+   * Creates a new {@link GetRequest} for a key which is encoded as UTF-8.
+   *
+   * <p>The key is encoded once right away, so it may be modified afterwards and every
+   * write of the request reuses the same bytes.</p>
+   *
+   * @param key the key of the document, encoded as UTF-8.
+   * @param timeout the timeout used for this request.
+   * @param readPreference which copy of the document to read from.
+   */
+  public GetRequest(final CharSequence key, final Duration timeout, final Optional<Span> span,
+                    final ReadPreference readPreference) {
+    this(key.toString().getBytes(Constants.CHARSET), timeout, span, readPreference);
+  }
+
+  /**
+   * Creates a new {@link GetRequest} for a key which has been encoded and verified
+   * up front, reading from the active partition.
+   *
+   * @param key the handle of the key.
+   * @param timeout the timeout used for this request.
+   */
+  public GetRequest(final KeyHandle key, final Duration timeout, final Optional<Span> span) {
+    this(key, timeout, span, ReadPreference.ACTIVE);
+  }
+
+  /**
+   * Creates a new {@link GetRequest} for a key which has been encoded and verified
+   * up front.
+   *
+   * <p>The request is assigned the partition the handle has cached for
+   * {@link KeyHandle#DEFAULT_PARTITIONS}, which can be overridden through
+   * {@link #partition(short)} for a bucket with a different number of partitions.</p>
+   *
+   * @param key the handle of the key.
+   * @param timeout the timeout used for this request.
+   * @param readPreference which copy of the document to read from.
+   */
+  public GetRequest(final KeyHandle key, final Duration timeout, final Optional<Span> span,
+                    final ReadPreference readPreference) {
+    super(timeout, span);
+    this.key = key.bytes();
+    this.readPreference = readPreference;
+    partition(key.partition());
   }
 
   /**
@@ -58,8 +141,49 @@ public final class GetRequest extends BaseKeyValueRequest<GetResponse> {
   }
 
   @Override
-  public ByteBuffer encode() {
-    return KeyValueCodec.encode(this);
+  public ReadPreference readPreference() {
+    return readPreference;
+  }
+
+  /**
+   * Marks this request as sent to a replica, since replicas only answer replica reads
+   * and reply to a regular get with {@link ResponseStatus#NOT_MY_VBUCKET}.
+   *
+   * @param fromReplica true if the request is sent to a replica.
+   * @return this request for chaining purposes.
+   */
+  public GetRequest fromReplica(final boolean fromReplica) {
+    this.fromReplica = fromReplica;
+    return this;
+  }
+
+  /**
+   * Returns true if this request is sent to a replica.
+   *
+   * @return true if it reads from a replica.
+   */
+  public boolean fromReplica() {
+    return fromReplica;
+  }
+
+  @Override
+  public ByteBuffer encode(final int opaque) {
+    return KeyValueCodec.encode(this, opaque);
+  }
+
+  @Override
+  public void encode(final int opaque, final ByteBuf target) {
+    KeyValueCodec.encode(this, opaque, target);
+  }
+
+  @Override
+  public int encodedSize() {
+    return KeyValueCodec.encodedSize(this);
+  }
+
+  @Override
+  public GetResponse decode(final ByteBuf response) {
+    return KeyValueCodec.decodeGetResponse(response);
   }
 
 }
@@ -17,6 +17,96 @@
 package com.couchbase.client.core.msg.kv;
 
 import com.couchbase.client.core.msg.Response;
+import com.couchbase.client.core.msg.ResponseStatus;
 
+/**
+ * The {@link GetResponse} holds the outcome of a {@link GetRequest}.
+ *
+ * <p>Note that responses might be shared between callers (for example when served from
+ * the near cache), so the content must be treated as read-only.</p>
+ *
+ * @author Michael Nitschinger
+ * @since 2.0.0
+ */
 public class GetResponse implements Response {
+
+  /**
+   * Shared empty content for responses without a body.
+   */
+  private static final byte[] NO_CONTENT = new byte[0];
+
+  private final ResponseStatus status;
+  private final byte[] content;
+  private final long cas;
+  private final int flags;
+  private final long serverDurationNanos;
+
+  /**
+   * Creates a new {@link GetResponse} without a server duration.
+   *
+   * @param status the status of the response.
+   * @param content the raw document content, might be null if not successful.
+   * @param cas the CAS value of the document.
+   * @param flags the flags stored with the document.
+   */
+  public GetResponse(final ResponseStatus status, final byte[] content, final long cas,
+                     final int flags) {
+    this(status, content, cas, flags, -1);
+  }
+
+  /**
+   * Creates a new {@link GetResponse}.
+   *
+   * @param status the status of the response.
+   * @param content the raw document content, might be null if not successful.
+   * @param cas the CAS value of the document.
+   * @param flags the flags stored with the document.
+   * @param serverDurationNanos the server duration in nanoseconds, -1 if not reported.
+   */
+  public GetResponse(final ResponseStatus status, final byte[] content, final long cas,
+                     final int flags, final long serverDurationNanos) {
+    this.status = status;
+    this.content = content == null ? NO_CONTENT : content;
+    this.cas = cas;
+    this.flags = flags;
+    this.serverDurationNanos = serverDurationNanos;
+  }
+
+  @Override
+  public ResponseStatus status() {
+    return status;
+  }
+
+  /**
+   * Returns the raw content of the document, which must not be modified.
+   *
+   * @return the document content, empty if there is none.
+   */
+  public byte[] content() {
+    return content;
+  }
+
+  /**
+   * Returns the CAS value of the document.
+   *
+   * @return the CAS value.
+   */
+  public long cas() {
+    return cas;
+  }
+
+  /**
+   * Returns the flags stored with the document.
+   *
+   * @return the document flags.
+   */
+  public int flags() {
+    return flags;
+  }
+
+  @Override
+  public long serverDurationNanos() {
+    return serverDurationNanos;
+  }
+
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.msg.kv;
+
+import com.couchbase.client.core.msg.codec.KeyValueCodec;
+import com.couchbase.client.core.util.Constants;
+import io.netty.buffer.ByteBuf;
+import io.opentracing.Span;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Negotiates the optional {@link ServerFeature ServerFeatures} of a connection.
+ *
+ * <p>The server answers with the subset of the requested features it supports, which
+ * stay enabled for the lifetime of the connection. The request is sent once per
+ * connection before any other request.</p>
+ *
+ * @since 2.0.0
+ */
+public class HelloRequest extends BaseKeyValueRequest<HelloResponse> {
+
+  private final byte[] clientName;
+  private final Set<ServerFeature> features;
+
+  /**
+   * Creates a new {@link HelloRequest}.
+   *
+   * @param clientName the name the client identifies itself with in the server logs.
+   * @param features the features to request.
+   * @param timeout the timeout of the request.
+   * @param span the tracing span, if any.
+   */
+  public HelloRequest(final String clientName, final Set<ServerFeature> features,
+                      final Duration timeout, final Optional<Span> span) {
+    super(timeout, span);
+    this.clientName = clientName.getBytes(Constants.CHARSET);
+    verifyKey(this.clientName);
+    this.features = features.isEmpty()
+        ? Collections.emptySet()
+        : Collections.unmodifiableSet(EnumSet.copyOf(features));
+  }
+
+  /**
+   * Returns the encoded name the client identifies itself with, which is sent as key.
+   *
+   * @return the encoded client name.
+   */
+  public byte[] clientName() {
+    return clientName;
+  }
+
+  /**
+   * Returns the features to request.
+   *
+   * @return the requested features.
+   */
+  public Set<ServerFeature> features() {
+    return features;
+  }
+
+  @Override
+  public ByteBuffer encode(final int opaque) {
+    return KeyValueCodec.encode(this, opaque);
+  }
+
+  @Override
+  public void encode(final int opaque, final ByteBuf target) {
+    KeyValueCodec.encode(this, opaque, target);
+  }
+
+  @Override
+  public int encodedSize() {
+    return KeyValueCodec.encodedSize(this);
+  }
+
+  @Override
+  public HelloResponse decode(final ByteBuf response) {
+    return KeyValueCodec.decodeHelloResponse(response);
+  }
+
+}
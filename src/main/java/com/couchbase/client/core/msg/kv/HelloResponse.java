@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.msg.kv;
+
+import com.couchbase.client.core.msg.Response;
+import com.couchbase.client.core.msg.ResponseStatus;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * The {@link HelloResponse} holds the outcome of a {@link HelloRequest}.
+ *
+ * @since 2.0.0
+ */
+public class HelloResponse implements Response {
+
+  private final ResponseStatus status;
+  private final Set<ServerFeature> features;
+
+  /**
+   * Creates a new {@link HelloResponse}.
+   *
+   * @param status the status of the response.
+   * @param features the features the server agreed to.
+   */
+  public HelloResponse(final ResponseStatus status, final Set<ServerFeature> features) {
+    this.status = status;
+    this.features = Collections.unmodifiableSet(features);
+  }
+
+  @Override
+  public ResponseStatus status() {
+    return status;
+  }
+
+  /**
+   * Returns the features the server agreed to, which are enabled on the connection.
+   *
+   * @return the negotiated features, empty if none.
+   */
+  public Set<ServerFeature> features() {
+    return features;
+  }
+
+}
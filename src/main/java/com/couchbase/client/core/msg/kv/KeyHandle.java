@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.msg.kv;
+
+import com.couchbase.client.core.util.Constants;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * A document key which has been encoded, verified and hashed once so that it can be
+ * reused across many operations.
+ *
+ * <p>Requests created from a handle skip the encoding and the length check, and are
+ * assigned the partition cached for {@link #DEFAULT_PARTITIONS}. For any other number
+ * of partitions it can be calculated from the cached hash through
+ * {@link #partition(int)}.
+ * Handles are immutable and can be shared between threads, which makes them a good fit
+ * for hot keys.</p>
+ *
+ * @since 2.0.0
+ */
+public final class KeyHandle {
+
+  /**
+   * The number of partitions of a bucket unless configured otherwise.
+   */
+  public static final int DEFAULT_PARTITIONS = 1024;
+
+  private final byte[] bytes;
+  private final int partitionHash;
+  private final short partition;
+
+  /**
+   * Creates a new {@link KeyHandle}.
+   *
+   * @param bytes the encoded and verified key.
+   */
+  private KeyHandle(final byte[] bytes) {
+    this.bytes = bytes;
+    this.partitionHash = hash(bytes);
+    this.partition = partition(DEFAULT_PARTITIONS);
+  }
+
+  /**
+   * Creates a handle for the given key, encoded as UTF-8.
+   *
+   * @param key the key of the document.
+   * @return the created handle.
+   * @throws IllegalArgumentException if the encoded key is empty or too long.
+   */
+  public static KeyHandle of(final CharSequence key) {
+    final byte[] bytes = key.toString().getBytes(Constants.CHARSET);
+    BaseKeyValueRequest.verifyKey(bytes);
+    return new KeyHandle(bytes);
+  }
+
+  /**
+   * Creates a handle for the given encoded key.
+   *
+   * @param key the encoded key of the document, which must not be modified afterwards.
+   * @return the created handle.
+   * @throws IllegalArgumentException if the key is empty or too long.
+   */
+  public static KeyHandle of(final byte[] key) {
+    BaseKeyValueRequest.verifyKey(key);
+    return new KeyHandle(key);
+  }
+
+  /**
+   * Returns the encoded key, which must not be modified.
+   *
+   * @return the encoded key.
+   */
+  public byte[] bytes() {
+    return bytes;
+  }
+
+  /**
+   * Returns the CRC32 based hash which selects the partition of this key.
+   *
+   * @return the partition hash, between 0 and 0x7fff.
+   */
+  public int partitionHash() {
+    return partitionHash;
+  }
+
+  /**
+   * Returns the partition of this key for {@link #DEFAULT_PARTITIONS}, which is cached.
+   *
+   * @return the partition of this key.
+   */
+  public short partition() {
+    return partition;
+  }
+
+  /**
+   * Returns the partition of this key.
+   *
+   * @param partitions the number of partitions, must be a power of two.
+   * @return the partition of this key.
+   */
+  public short partition(final int partitions) {
+    return (short) (partitionHash & (partitions - 1));
+  }
+
+  @Override
+  public boolean equals(final Object other) {
+    return this == other
+      || (other instanceof KeyHandle && Arrays.equals(bytes, ((KeyHandle) other).bytes));
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(bytes);
+  }
+
+  /**
+   * Calculates the partition hash the same way the server does.
+   *
+   * @param key the encoded key.
+   * @return the partition hash.
+   */
+  private static int hash(final byte[] key) {
+    final CRC32 crc = new CRC32();
+    crc.update(key, 0, key.length);
+    return (int) ((crc.getValue() >> 16) & 0x7fff);
+  }
+
+}
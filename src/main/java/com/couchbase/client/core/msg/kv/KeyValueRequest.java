@@ -17,6 +17,9 @@
 package com.couchbase.client.core.msg.kv;
 
 import com.couchbase.client.core.msg.Request;
+import io.netty.buffer.ByteBuf;
+
+import java.nio.ByteBuffer;
 
 /**
  * The {@link KeyValueRequest} is the common parent interface for all KeyValue requests
@@ -28,11 +31,41 @@ import com.couchbase.client.core.msg.Request;
 public interface KeyValueRequest<R> extends Request<R> {
 
   /**
-   * Returns the opaque for this request.
+   * Encodes this request with the given opaque.
+   *
+   * <p>The opaque is not a property of the request, it is assigned by the channel the
+   * request is written to every time it is written. This keeps opaques unique per
+   * channel and makes sure a late response to an earlier attempt never matches a
+   * retry.</p>
+   *
+   * @param opaque the opaque to encode into the header.
+   * @return the encoded request.
+   */
+  ByteBuffer encode(int opaque);
+
+  /**
+   * Encodes this request with the given opaque at the writer index of the target buffer.
+   *
+   * <p>This allows many requests to share one buffer. The default implementation copies
+   * the result of {@link #encode(int)}, requests override it to write directly.</p>
+   *
+   * @param opaque the opaque to encode into the header.
+   * @param target the buffer to write into.
+   */
+  default void encode(final int opaque, final ByteBuf target) {
+    final ByteBuffer encoded = encode(opaque);
+    encoded.flip();
+    target.writeBytes(encoded);
+  }
+
+  /**
+   * Returns the size of this request once encoded, if it is known up front.
    *
-   * @return the opaque, automatically created.
+   * @return the encoded size in bytes, or -1 if unknown.
    */
-  int opaque();
+  default int encodedSize() {
+    return -1;
+  }
 
   /**
    * Allows to set the partition for the this request.
@@ -48,4 +81,24 @@ public interface KeyValueRequest<R> extends Request<R> {
    * @return the partition or 0 if not set.
    */
   short partition();
+
+  /**
+   * Decodes the response frame for this request into its response type.
+   *
+   * @param response the full response frame, including the header.
+   * @return the decoded response.
+   */
+  R decode(ByteBuf response);
+
+  /**
+   * Returns which copy of the document this request may be served from.
+   *
+   * <p>Only reads can opt into anything other than {@link ReadPreference#ACTIVE}.</p>
+   *
+   * @return the read preference.
+   */
+  default ReadPreference readPreference() {
+    return ReadPreference.ACTIVE;
+  }
+
 }
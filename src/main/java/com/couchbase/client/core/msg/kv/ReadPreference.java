@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.msg.kv;
+
+/**
+ * Describes which copy of a document a {@link KeyValueRequest} is allowed to read from.
+ *
+ * @since 2.0.0
+ */
+public enum ReadPreference {
+
+  /**
+   * Always read from the active partition, which is the only consistent choice.
+   */
+  ACTIVE,
+
+  /**
+   * Read from whichever copy, active or replica, currently performs best.
+   *
+   * <p>Note that a replica might return a stale version of the document. If hedging is
+   * enabled in the environment, such reads are also hedged against another copy when
+   * they are slow to respond.</p>
+   */
+  BEST_REPLICA,
+
+  /**
+   * Read from all copies at once and complete with the first successful response.
+   *
+   * <p>This trades extra load for the lowest possible latency, and just like
+   * {@link #BEST_REPLICA} it might return a stale version of the document.</p>
+   */
+  ANY_REPLICA
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.msg.kv;
+
+/**
+ * The optional features of the Key/Value protocol which are negotiated through a
+ * {@link HelloRequest} when a connection is opened.
+ *
+ * @since 2.0.0
+ */
+public enum ServerFeature {
+
+  /**
+   * The server disables Nagle's algorithm on its side of the connection.
+   */
+  TCP_NODELAY((short) 0x03),
+
+  /**
+   * The server sends extended error codes instead of closing the connection when it
+   * has to report an error the client might not know.
+   */
+  XERROR((short) 0x07),
+
+  /**
+   * The server may send values compressed with Snappy, flagged in their datatype.
+   */
+  SNAPPY((short) 0x0a),
+
+  /**
+   * The server may execute requests of the connection out of order and respond as
+   * soon as each of them is done, so a slow request does not hold up the ones behind it.
+   */
+  UNORDERED_EXECUTION((short) 0x0e),
+
+  /**
+   * The server reports how long it spent on a request in the flexible framing extras of
+   * its response.
+   */
+  TRACING((short) 0x0f);
+
+  private final short code;
+
+  ServerFeature(final short code) {
+    this.code = code;
+  }
+
+  /**
+   * Returns the code of this feature on the wire.
+   *
+   * @return the feature code.
+   */
+  public short code() {
+    return code;
+  }
+
+  /**
+   * Returns the feature with the given code on the wire.
+   *
+   * @param code the feature code.
+   * @return the feature, or null if it is not known to this library.
+   */
+  public static ServerFeature of(final short code) {
+    for (ServerFeature feature : values()) {
+      if (feature.code == code) {
+        return feature;
+      }
+    }
+    return null;
+  }
+
+}
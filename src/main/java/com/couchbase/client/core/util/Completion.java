@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.util;
+
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiConsumer;
+
+/**
+ * A lightweight, write-once completion which replaces a {@link CompletableFuture} on the
+ * hot path of a request.
+ *
+ * <p>The state lives in one volatile field which is only ever changed through a CAS, so
+ * no lock is taken. Once complete, it holds the value itself (so a successful completion
+ * does not allocate) or a wrapper around the failure. While incomplete, it holds an
+ * immutable {@link Waiting} state with the listeners registered so far: the first two
+ * live in fields of their own, which covers the tracking of a request and a caller
+ * waiting for it, and only further ones spill into an array.</p>
+ *
+ * <p>Listeners run exactly once, in the order they have been registered, either on the
+ * thread which completes or, if registered afterwards, on the registering thread. A
+ * listener which throws is logged and does not prevent the others from running, unless
+ * it throws a {@link VirtualMachineError} which is passed on. A
+ * {@link CompletableFuture} is only created if someone asks for it through
+ * {@link #future()}.</p>
+ *
+ * @since 2.0.0
+ * @param <T> the type of the value.
+ */
+public final class Completion<T> {
+
+  private static final InternalLogger LOGGER = InternalLoggerFactory.getInstance(Completion.class);
+
+  /**
+   * Atomic updater for the {@link #state} field.
+   */
+  private static final AtomicReferenceFieldUpdater<Completion, Object> STATE_UPDATER =
+      AtomicReferenceFieldUpdater.newUpdater(Completion.class, Object.class, "state");
+
+  /**
+   * Atomic updater for the {@link #future} field.
+   */
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<Completion, CompletableFuture>
+      FUTURE_UPDATER = AtomicReferenceFieldUpdater.newUpdater(
+          Completion.class, CompletableFuture.class, "future");
+
+  /**
+   * The state of a completion which has not completed yet and has no listeners.
+   */
+  private static final Waiting INCOMPLETE = new Waiting(null, null, null);
+
+  /**
+   * The state of a completion which succeeded with a null value.
+   */
+  private static final Object NULL_VALUE = new Object();
+
+  /**
+   * Either a {@link Waiting} state, a {@link Failure} or the value.
+   *
+   * <p>Do not rename this field without updating the {@link #STATE_UPDATER}!</p>
+   */
+  private volatile Object state = INCOMPLETE;
+
+  /**
+   * The future, only created on demand.
+   *
+   * <p>Do not rename this field without updating the {@link #FUTURE_UPDATER}!</p>
+   */
+  private volatile CompletableFuture<T> future;
+
+  /**
+   * Completes with a value, unless already completed.
+   *
+   * @param value the value to complete with.
+   * @return true if this call completed it.
+   */
+  public boolean succeed(final T value) {
+    return complete(value == null ? NULL_VALUE : value);
+  }
+
+  /**
+   * Completes with a failure, unless already completed.
+   *
+   * @param error the failure to complete with.
+   * @return true if this call completed it.
+   */
+  public boolean fail(final Throwable error) {
+    return complete(new Failure(error));
+  }
+
+  /**
+   * Returns true if completed, either successfully or with a failure.
+   *
+   * @return true if completed.
+   */
+  public boolean isDone() {
+    return !(state instanceof Waiting);
+  }
+
+  /**
+   * Returns true if completed successfully.
+   *
+   * @return true if succeeded.
+   */
+  public boolean hasSucceeded() {
+    final Object current = state;
+    return !(current instanceof Waiting) && !(current instanceof Failure);
+  }
+
+  /**
+   * Returns true if completed with a failure.
+   *
+   * @return true if failed.
+   */
+  public boolean hasFailed() {
+    return state instanceof Failure;
+  }
+
+  /**
+   * Returns the failure this completed with.
+   *
+   * @return the failure, or null if not completed or completed successfully.
+   */
+  public Throwable failure() {
+    final Object current = state;
+    return current instanceof Failure ? ((Failure) current).error : null;
+  }
+
+  /**
+   * Registers a listener which is called with either the value or the failure once
+   * completed, or right away if already completed.
+   *
+   * @param listener the listener to call.
+   */
+  public void whenComplete(final BiConsumer<? super T, ? super Throwable> listener) {
+    Object current;
+    while ((current = state) instanceof Waiting) {
+      if (STATE_UPDATER.compareAndSet(this, current, ((Waiting) current).with(listener))) {
+        return;
+      }
+    }
+    notify(listener, current);
+  }
+
+  /**
+   * Returns a {@link CompletableFuture} which completes together with this completion.
+   *
+   * <p>The future is created and registered as a listener on the first call, every
+   * further call returns the same instance.</p>
+   *
+   * @return the future.
+   */
+  @SuppressWarnings("unchecked")
+  public CompletableFuture<T> future() {
+    final CompletableFuture<T> existing = future;
+    if (existing != null) {
+      return existing;
+    }
+    final CompletableFuture<T> created = new CompletableFuture<>();
+    if (!FUTURE_UPDATER.compareAndSet(this, null, created)) {
+      return future;
+    }
+    whenComplete((value, error) -> {
+      if (error != null) {
+        created.completeExceptionally(error);
+      } else {
+        created.complete(value);
+      }
+    });
+    return created;
+  }
+
+  /**
+   * Swaps the listeners for the final state and notifies them.
+   *
+   * @param result the final state.
+   * @return true if this call completed it.
+   */
+  private boolean complete(final Object result) {
+    Object current;
+    while ((current = state) instanceof Waiting) {
+      if (STATE_UPDATER.compareAndSet(this, current, result)) {
+        ((Waiting) current).notifyListeners(result);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Calls a listener with the final state.
+   *
+   * @param listener the listener to call.
+   * @param result the final state.
+   */
+  @SuppressWarnings("unchecked")
+  private static void notify(final BiConsumer<?, ?> listener, final Object result) {
+    final BiConsumer<Object, Throwable> consumer = (BiConsumer<Object, Throwable>) listener;
+    try {
+      if (result instanceof Failure) {
+        consumer.accept(null, ((Failure) result).error);
+      } else {
+        consumer.accept(result == NULL_VALUE ? null : result, null);
+      }
+    } catch (VirtualMachineError err) {
+      throw err;
+    } catch (Throwable ex) {
+      // a misbehaving listener must not keep the remaining ones from being notified.
+      LOGGER.warn("A completion listener failed, notifying the remaining ones.", ex);
+    }
+  }
+
+  /**
+   * The state while incomplete, holding the listeners in the order they have been
+   * registered. It is never modified, registering a listener swaps in a new one.
+   */
+  private static final class Waiting {
+
+    private final BiConsumer<?, ?> first;
+    private final BiConsumer<?, ?> second;
+
+    /**
+     * The listeners after the first two, null until there are more than two.
+     */
+    private final BiConsumer<?, ?>[] rest;
+
+    Waiting(final BiConsumer<?, ?> first, final BiConsumer<?, ?> second,
+            final BiConsumer<?, ?>[] rest) {
+      this.first = first;
+      this.second = second;
+      this.rest = rest;
+    }
+
+    /**
+     * Returns the state with the given listener added at the end.
+     *
+     * @param listener the listener to add.
+     * @return the new state.
+     */
+    Waiting with(final BiConsumer<?, ?> listener) {
+      if (first == null) {
+        return new Waiting(listener, null, null);
+      } else if (second == null) {
+        return new Waiting(first, listener, null);
+      } else if (rest == null) {
+        return new Waiting(first, second, new BiConsumer<?, ?>[] { listener });
+      }
+      final BiConsumer<?, ?>[] grown = Arrays.copyOf(rest, rest.length + 1);
+      grown[rest.length] = listener;
+      return new Waiting(first, second, grown);
+    }
+
+    /**
+     * Notifies all listeners in the order they have been registered.
+     *
+     * @param result the final state.
+     */
+    void notifyListeners(final Object result) {
+      if (first == null) {
+        return;
+      }
+      Completion.notify(first, result);
+      if (second == null) {
+        return;
+      }
+      Completion.notify(second, result);
+      if (rest != null) {
+        for (BiConsumer<?, ?> listener : rest) {
+          Completion.notify(listener, result);
+        }
+      }
+    }
+
+  }
+
+  /**
+   * Wraps the failure, so it can be told apart from a value.
+   */
+  private static final class Failure {
+
+    private final Throwable error;
+
+    Failure(final Throwable error) {
+      this.error = error;
+    }
+
+  }
+
+}
@@ -16,11 +16,19 @@
 
 package com.couchbase.client.core.util;
 
+import com.couchbase.client.core.msg.CancellationReason;
 import com.couchbase.client.core.msg.Request;
 import io.reactivex.Single;
+import io.reactivex.SingleObserver;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.exceptions.Exceptions;
+import io.reactivex.internal.disposables.EmptyDisposable;
 import io.reactivex.subjects.SingleSubject;
 
 import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * This class contains static helper functions when using the library with RxJava.
@@ -50,7 +58,7 @@ public enum Rx {
    */
   public static <T> Single<T> single(final Request<T> request) {
     final SingleSubject<T> subject = SingleSubject.create();
-    request.response().whenComplete((val, err) -> {
+    request.whenComplete((val, err) -> {
       if (err != null) {
         subject.onError(err);
       } else if (val != null) {
@@ -62,4 +70,121 @@ public enum Rx {
     return subject;
   }
 
+  /**
+   * Creates a cold RxJava {@link Single} which creates and dispatches a new request for
+   * every subscriber.
+   *
+   * <p>Unlike {@link #single(Request)}, no subject sits in between: the subscriber is
+   * completed straight from the request. Disposing the subscription completes the request
+   * as {@link CancellationReason#DISPOSED}, which frees its slot on the connection and
+   * cancels its timeout.</p>
+   *
+   * @param request creates the request for a subscriber.
+   * @param dispatcher dispatches the request, for example into the core.
+   * @param <T> the type of the response.
+   * @return the cold {@link Single}.
+   */
+  public static <T> Single<T> single(final Supplier<? extends Request<T>> request,
+                                     final Consumer<? super Request<T>> dispatcher) {
+    return new RequestSingle<>(request, dispatcher);
+  }
+
+  /**
+   * A {@link Single} which dispatches a request on subscription.
+   *
+   * @param <T> the type of the response.
+   */
+  private static final class RequestSingle<T> extends Single<T> {
+
+    private final Supplier<? extends Request<T>> request;
+    private final Consumer<? super Request<T>> dispatcher;
+
+    RequestSingle(final Supplier<? extends Request<T>> request,
+                  final Consumer<? super Request<T>> dispatcher) {
+      this.request = request;
+      this.dispatcher = dispatcher;
+    }
+
+    /**
+     * Creates and dispatches the request for the given subscriber.
+     *
+     * <p>If the request cannot be created, for example because its key is invalid, the
+     * subscriber is failed right away. If dispatching throws, the request is failed, which
+     * fails the subscriber through its listener.</p>
+     *
+     * @param observer the subscriber.
+     */
+    @Override
+    protected void subscribeActual(final SingleObserver<? super T> observer) {
+      final Request<T> created;
+      try {
+        created = request.get();
+      } catch (Throwable ex) {
+        Exceptions.throwIfFatal(ex);
+        EmptyDisposable.error(ex, observer);
+        return;
+      }
+      final RequestSubscription<T> subscription = new RequestSubscription<>(observer, created);
+      observer.onSubscribe(subscription);
+      if (subscription.isDisposed()) {
+        return;
+      }
+      created.whenComplete(subscription);
+      try {
+        dispatcher.accept(created);
+      } catch (Throwable ex) {
+        Exceptions.throwIfFatal(ex);
+        created.fail(ex);
+      }
+    }
+
+  }
+
+  /**
+   * The subscription of a single subscriber to its request, which is both the listener
+   * for its completion and the handle to dispose it.
+   *
+   * @param <T> the type of the response.
+   */
+  private static final class RequestSubscription<T>
+      implements Disposable, BiConsumer<T, Throwable> {
+
+    private final SingleObserver<? super T> observer;
+    private final Request<T> request;
+    private volatile boolean disposed;
+
+    RequestSubscription(final SingleObserver<? super T> observer, final Request<T> request) {
+      this.observer = observer;
+      this.request = request;
+    }
+
+    @Override
+    public void accept(final T value, final Throwable error) {
+      if (disposed) {
+        return;
+      }
+      if (error != null) {
+        observer.onError(error);
+      } else if (value != null) {
+        observer.onSuccess(value);
+      } else {
+        observer.onError(NO_SUCH_ELEMENT_EXCEPTION);
+      }
+    }
+
+    @Override
+    public void dispose() {
+      if (!disposed) {
+        disposed = true;
+        request.cancel(CancellationReason.DISPOSED);
+      }
+    }
+
+    @Override
+    public boolean isDisposed() {
+      return disposed;
+    }
+
+  }
+
 }
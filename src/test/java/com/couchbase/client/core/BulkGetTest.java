@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.couchbase.client.core.msg.CancellationReason;
+import com.couchbase.client.core.msg.Request;
+import com.couchbase.client.core.msg.ResponseStatus;
+import com.couchbase.client.core.msg.kv.BulkGetResponse;
+import com.couchbase.client.core.msg.kv.GetResponse;
+import com.couchbase.client.core.util.Constants;
+import io.reactivex.Flowable;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Verifies the functionality of the {@link BulkGet} operator.
+ *
+ * @since 2.0.0
+ */
+class BulkGetTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(2);
+
+  private final List<Request<GetResponse>> dispatched = new ArrayList<>();
+
+  @Test
+  void shouldBoundRequestsInFlightByWindowAndDemand() {
+    final TestSubscriber<BulkGetResponse> subscriber = keys(10)
+        .compose(new BulkGet(dispatched::add, TIMEOUT, 3, false))
+        .test(0);
+    assertEquals(3, dispatched.size());
+
+    for (Request<GetResponse> request : new ArrayList<>(dispatched)) {
+      request.succeed(success());
+    }
+    assertEquals(3, dispatched.size());
+    subscriber.assertValueCount(0);
+
+    subscriber.request(2);
+    subscriber.assertValueCount(2);
+    assertEquals(5, dispatched.size());
+  }
+
+  @Test
+  void shouldEmitInKeyOrderWhenOrdered() {
+    TestSubscriber<BulkGetResponse> subscriber = keys(3)
+        .compose(new BulkGet(dispatched::add, TIMEOUT, 3, true))
+        .test();
+
+    dispatched.get(2).succeed(success());
+    dispatched.get(1).succeed(success());
+    subscriber.assertValueCount(0);
+    dispatched.get(0).succeed(success());
+
+    subscriber.assertComplete();
+    assertEquals("0", key(subscriber.values().get(0)));
+    assertEquals("1", key(subscriber.values().get(1)));
+    assertEquals("2", key(subscriber.values().get(2)));
+  }
+
+  @Test
+  void shouldEmitInCompletionOrderWhenUnordered() {
+    TestSubscriber<BulkGetResponse> subscriber = keys(2)
+        .compose(new BulkGet(dispatched::add, TIMEOUT, 2, false))
+        .test();
+
+    dispatched.get(1).succeed(success());
+    dispatched.get(0).succeed(success());
+
+    subscriber.assertComplete();
+    assertEquals("1", key(subscriber.values().get(0)));
+    assertEquals("0", key(subscriber.values().get(1)));
+  }
+
+  @Test
+  void shouldReportFailuresInBand() {
+    TestSubscriber<BulkGetResponse> subscriber = keys(2)
+        .compose(new BulkGet(dispatched::add, TIMEOUT, 2, true))
+        .test();
+
+    dispatched.get(0).cancel(CancellationReason.TIMEOUT);
+    GetResponse response = success();
+    dispatched.get(1).succeed(response);
+
+    subscriber.assertComplete();
+    BulkGetResponse failed = subscriber.values().get(0);
+    assertTrue(!failed.hasResponse());
+    assertSame(CancellationReason.TIMEOUT.exception(), failed.error());
+    BulkGetResponse succeeded = subscriber.values().get(1);
+    assertSame(response, succeeded.response());
+    assertNull(succeeded.error());
+  }
+
+  @Test
+  void shouldReportInvalidKeysInBand() {
+    TestSubscriber<BulkGetResponse> subscriber = Flowable
+        .just(new byte[] { 1 }, new byte[0], new byte[] { 2 })
+        .compose(new BulkGet(dispatched::add, TIMEOUT, 3, true))
+        .test();
+
+    assertEquals(2, dispatched.size());
+    for (Request<GetResponse> request : dispatched) {
+      request.succeed(success());
+    }
+
+    subscriber.assertComplete();
+    subscriber.assertValueCount(3);
+    assertTrue(subscriber.values().get(0).hasResponse());
+    BulkGetResponse failed = subscriber.values().get(1);
+    assertTrue(!failed.hasResponse());
+    assertTrue(failed.error() instanceof IllegalArgumentException);
+    assertTrue(subscriber.values().get(2).hasResponse());
+  }
+
+  @Test
+  void shouldReportDispatchFailuresInBand() {
+    IllegalStateException failure = new IllegalStateException();
+    TestSubscriber<BulkGetResponse> subscriber = keys(1)
+        .compose(new BulkGet(request -> {
+          throw failure;
+        }, TIMEOUT, 1, false))
+        .test();
+
+    subscriber.assertComplete();
+    assertSame(failure, subscriber.values().get(0).error());
+  }
+
+  @Test
+  void shouldCancelRequestsInFlightWhenCancelled() {
+    TestSubscriber<BulkGetResponse> subscriber = keys(2)
+        .compose(new BulkGet(dispatched::add, TIMEOUT, 2, false))
+        .test();
+
+    subscriber.cancel();
+    for (Request<GetResponse> request : dispatched) {
+      assertEquals(Optional.of(CancellationReason.DISPOSED), request.cancellationReason());
+    }
+  }
+
+  @Test
+  void shouldRejectNonPositiveWindow() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new BulkGet(dispatched::add, TIMEOUT, 0, false));
+  }
+
+  /**
+   * Helper method to create a stream of numbered keys.
+   */
+  private static Flowable<byte[]> keys(final int count) {
+    return Flowable.range(0, count).map(i -> Integer.toString(i).getBytes(Constants.CHARSET));
+  }
+
+  /**
+   * Helper method to read the key of a result.
+   */
+  private static String key(final BulkGetResponse response) {
+    return new String(response.key(), Constants.CHARSET);
+  }
+
+  /**
+   * Helper method to create a successful response.
+   */
+  private static GetResponse success() {
+    return new GetResponse(ResponseStatus.SUCCESS, new byte[] { 1 }, 1, 0);
+  }
+
+}
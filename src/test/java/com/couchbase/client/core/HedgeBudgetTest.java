@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Verifies the functionality of the {@link HedgeBudget}.
+ *
+ * @since 2.0.0
+ */
+class HedgeBudgetTest {
+
+  @Test
+  void shouldStartEmpty() {
+    HedgeBudget budget = new HedgeBudget(0.05, 100);
+    assertFalse(budget.tryWithdraw());
+  }
+
+  @Test
+  void shouldAllowRatioOfHedges() {
+    HedgeBudget budget = new HedgeBudget(0.05, 100);
+
+    int hedges = 0;
+    for (int i = 0; i < 1000; i++) {
+      budget.deposit();
+      if (budget.tryWithdraw()) {
+        hedges++;
+      }
+    }
+    assertEquals(50, hedges);
+  }
+
+  @Test
+  void shouldCapBalance() {
+    HedgeBudget budget = new HedgeBudget(0.5, 10);
+    for (int i = 0; i < 1000; i++) {
+      budget.deposit();
+    }
+
+    int hedges = 0;
+    while (budget.tryWithdraw()) {
+      hedges++;
+    }
+    assertEquals(10, hedges);
+  }
+
+  @Test
+  void shouldNeverAllowWithZeroRatio() {
+    HedgeBudget budget = new HedgeBudget(0, 10);
+    for (int i = 0; i < 1000; i++) {
+      budget.deposit();
+    }
+    assertFalse(budget.tryWithdraw());
+  }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.couchbase.client.core.msg.ResponseStatus;
+import com.couchbase.client.core.msg.kv.GetRequest;
+import com.couchbase.client.core.msg.kv.GetResponse;
+import com.couchbase.client.core.msg.kv.ReadPreference;
+import com.couchbase.client.core.util.Constants;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Verifies the functionality of the {@link RequestCoalescer}.
+ *
+ * @since 2.0.0
+ */
+class RequestCoalescerTest {
+
+  private final List<GetRequest> rerouted = new CopyOnWriteArrayList<>();
+  private final RequestCoalescer coalescer = new RequestCoalescer(rerouted::add);
+
+  @Test
+  void shouldShareResponseWithFollowers() throws Exception {
+    GetRequest leader = request("foo");
+    GetRequest follower = request("foo");
+
+    assertFalse(coalescer.join(leader));
+    assertTrue(coalescer.join(follower));
+    assertEquals(1, coalescer.inFlight());
+
+    GetResponse response = success();
+    leader.succeed(response);
+
+    assertAll(
+        () -> assertSame(response, follower.response().get()),
+        () -> assertEquals(0, coalescer.inFlight()),
+        () -> assertTrue(rerouted.isEmpty())
+    );
+  }
+
+  @Test
+  void shouldNotCoalesceDifferentReads() {
+    assertFalse(coalescer.join(request("foo")));
+    assertFalse(coalescer.join(request("bar")));
+    assertFalse(coalescer.join(new GetRequest(key("foo"), Duration.ofSeconds(1),
+        Optional.empty(), ReadPreference.BEST_REPLICA)));
+    assertEquals(3, coalescer.inFlight());
+  }
+
+  @Test
+  void shouldStartNewFlightAfterLanding() {
+    GetRequest first = request("foo");
+    assertFalse(coalescer.join(first));
+    first.succeed(success());
+
+    assertFalse(coalescer.join(request("foo")));
+  }
+
+  @Test
+  void shouldRerouteFollowersIfLeaderTimesOut() {
+    GetRequest leader = request("foo");
+    GetRequest waiting = request("foo");
+    GetRequest timedOut = request("foo");
+    coalescer.join(leader);
+    coalescer.join(waiting);
+    coalescer.join(timedOut);
+
+    timedOut.fail(new TimeoutException());
+    leader.fail(new TimeoutException());
+
+    assertAll(
+        () -> assertEquals(1, rerouted.size()),
+        () -> assertSame(waiting, rerouted.get(0)),
+        () -> assertFalse(waiting.hasCompleted())
+    );
+  }
+
+  @Test
+  void shouldPropagateOtherFailures() {
+    GetRequest leader = request("foo");
+    GetRequest follower = request("foo");
+    coalescer.join(leader);
+    coalescer.join(follower);
+
+    IllegalStateException error = new IllegalStateException();
+    leader.fail(error);
+
+    ExecutionException thrown = null;
+    try {
+      follower.response().get();
+    } catch (Exception ex) {
+      thrown = (ExecutionException) ex;
+    }
+    assertSame(error, thrown.getCause());
+    assertTrue(rerouted.isEmpty());
+  }
+
+  private static GetRequest request(final String key) {
+    return new GetRequest(key(key), Duration.ofSeconds(1), Optional.empty());
+  }
+
+  private static byte[] key(final String key) {
+    return key.getBytes(Constants.CHARSET);
+  }
+
+  private static GetResponse success() {
+    return new GetResponse(ResponseStatus.SUCCESS, new byte[]{1}, 1, 0);
+  }
+
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.couchbase.client.core.conf.DefaultClusterTopology;
+import com.couchbase.client.core.env.CircuitBreakerConfig;
+import com.couchbase.client.core.env.HedgingConfig;
+import com.couchbase.client.core.io.CircuitBreaker;
+import com.couchbase.client.core.io.Endpoint;
+import com.couchbase.client.core.io.EndpointState;
+import com.couchbase.client.core.io.EndpointStats;
+import com.couchbase.client.core.msg.Request;
+import com.couchbase.client.core.msg.ResponseStatus;
+import com.couchbase.client.core.msg.kv.GetRequest;
+import com.couchbase.client.core.msg.kv.GetResponse;
+import com.couchbase.client.core.msg.kv.ReadPreference;
+import com.couchbase.client.core.util.Constants;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Verifies the functionality of the {@link RequestHedger}.
+ *
+ * @since 2.0.0
+ */
+class RequestHedgerTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(2);
+  private static final byte[] KEY = "key".getBytes(Constants.CHARSET);
+
+  private final DummyEndpoint active = new DummyEndpoint();
+  private final DummyEndpoint replica = new DummyEndpoint();
+  private final DefaultClusterTopology topology = DefaultClusterTopology.create(
+      Collections.singletonList(Arrays.asList(active, replica))
+  );
+
+  @Test
+  void shouldNeverHedgeActiveReads() throws Exception {
+    RequestHedger hedger = new RequestHedger(hedgeAfter(Duration.ofMillis(1), 1.0));
+    GetRequest request = new GetRequest(KEY, TIMEOUT, Optional.empty());
+
+    hedger.dispatched(request, active, topology);
+    Thread.sleep(50);
+    assertTrue(replica.dispatched.isEmpty());
+  }
+
+  @Test
+  void shouldFanOutAnyReplicaReadsAndCompleteWithFirst() {
+    RequestHedger hedger = new RequestHedger(HedgingConfig.disabled());
+    GetRequest request = new GetRequest(KEY, TIMEOUT, Optional.empty(),
+        ReadPreference.ANY_REPLICA);
+
+    hedger.dispatched(request, active, topology);
+    assertEquals(1, replica.dispatched.size());
+    Request<?> duplicate = replica.dispatched.get(0);
+    assertTrue(((GetRequest) duplicate).fromReplica());
+
+    GetResponse response = success();
+    ((GetRequest) duplicate).succeed(response);
+    assertTrue(request.hasSucceeded());
+    assertSame(response, request.response().join());
+  }
+
+  @Test
+  void shouldNotCompleteWithErrorStatusOfDuplicate() {
+    RequestHedger hedger = new RequestHedger(HedgingConfig.disabled());
+    GetRequest request = new GetRequest(KEY, TIMEOUT, Optional.empty(),
+        ReadPreference.ANY_REPLICA);
+
+    hedger.dispatched(request, active, topology);
+    GetRequest duplicate = (GetRequest) replica.dispatched.get(0);
+    duplicate.succeed(new GetResponse(ResponseStatus.NOT_MY_VBUCKET, null, 0, 0));
+    assertFalse(request.hasCompleted());
+
+    GetResponse response = success();
+    request.succeed(response);
+    assertSame(response, request.response().join());
+  }
+
+  @Test
+  void shouldDiscardDuplicateOnceOriginalCompletes() {
+    RequestHedger hedger = new RequestHedger(HedgingConfig.disabled());
+    GetRequest request = new GetRequest(KEY, TIMEOUT, Optional.empty(),
+        ReadPreference.ANY_REPLICA);
+
+    hedger.dispatched(request, active, topology);
+    request.succeed(success());
+    assertTrue(replica.dispatched.get(0).hasFailed());
+  }
+
+  @Test
+  void shouldHedgeSlowReadAfterDelay() {
+    RequestHedger hedger = new RequestHedger(hedgeAfter(Duration.ofMillis(5), 1.0));
+    GetRequest request = new GetRequest(KEY, TIMEOUT, Optional.empty(),
+        ReadPreference.BEST_REPLICA);
+
+    hedger.dispatched(request, active, topology);
+    assertTimeout(Duration.ofSeconds(1), () -> {
+      while (replica.dispatched.isEmpty()) {
+        Thread.sleep(1);
+      }
+    });
+    assertTrue(active.dispatched.isEmpty());
+  }
+
+  @Test
+  void shouldNotHedgeCompletedRead() throws Exception {
+    RequestHedger hedger = new RequestHedger(hedgeAfter(Duration.ofMillis(5), 1.0));
+    GetRequest request = new GetRequest(KEY, TIMEOUT, Optional.empty(),
+        ReadPreference.BEST_REPLICA);
+
+    hedger.dispatched(request, active, topology);
+    request.succeed(success());
+    Thread.sleep(50);
+    assertTrue(replica.dispatched.isEmpty());
+  }
+
+  @Test
+  void shouldNotHedgeWithoutBudget() throws Exception {
+    RequestHedger hedger = new RequestHedger(hedgeAfter(Duration.ofMillis(5), 0));
+    GetRequest request = new GetRequest(KEY, TIMEOUT, Optional.empty(),
+        ReadPreference.BEST_REPLICA);
+
+    hedger.dispatched(request, active, topology);
+    Thread.sleep(50);
+    assertTrue(replica.dispatched.isEmpty());
+  }
+
+  /**
+   * Helper method to create a successful response.
+   */
+  private static GetResponse success() {
+    return new GetResponse(ResponseStatus.SUCCESS, new byte[] { 1 }, 1, 0);
+  }
+
+  /**
+   * Helper method to create a config which hedges after a fixed delay.
+   */
+  private static HedgingConfig hedgeAfter(final Duration delay, final double budget) {
+    return HedgingConfig.enabled().delay(delay).percentile(0).budget(budget).build();
+  }
+
+  /**
+   * Helper class to implement an {@link Endpoint} which records dispatched requests.
+   */
+  class DummyEndpoint implements Endpoint {
+
+    final List<Request<?>> dispatched = new CopyOnWriteArrayList<>();
+    private final EndpointStats stats = new EndpointStats();
+    private final CircuitBreaker circuitBreaker =
+        new CircuitBreaker(CircuitBreakerConfig.disabled());
+
+    @Override
+    public <R> void dispatch(Request<R> request) {
+      dispatched.add(request);
+    }
+
+    @Override
+    public void connect() {
+    }
+
+    @Override
+    public void disconnect() {
+    }
+
+    @Override
+    public EndpointState state() {
+      return EndpointState.CONNECTED;
+    }
+
+    @Override
+    public EndpointStats stats() {
+      return stats;
+    }
+
+    @Override
+    public CircuitBreaker circuitBreaker() {
+      return circuitBreaker;
+    }
+  }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core;
+
+import static java.util.Collections.singletonList;
+
+import com.couchbase.client.core.conf.DefaultClusterTopology;
+import com.couchbase.client.core.conf.DefaultConfigurationManager;
+import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.env.DefaultCoreEnvironment;
+import com.couchbase.client.core.env.IoConfig;
+import com.couchbase.client.core.io.Endpoint;
+import com.couchbase.client.core.io.EndpointState;
+import com.couchbase.client.core.io.netty.NettyEndpoint;
+import com.couchbase.client.core.io.netty.ShardedEndpoint;
+import com.couchbase.client.core.msg.codec.KeyValueCodec;
+import com.couchbase.client.core.msg.kv.GetRequest;
+import com.couchbase.client.core.msg.kv.GetResponse;
+import com.couchbase.client.core.util.Constants;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of a shared endpoint with the sharded mode, where every event
+ * loop owns its own connection, in-flight requests and timeouts.
+ *
+ * <p>The core talks to one node per event loop, all served by the same local server, and
+ * the keys are spread across them, so in sharded mode every node is owned by a different
+ * shard. Every benchmark thread keeps one request in flight, so the throughput should
+ * grow with the number of threads until the shared connections or the shared timer
+ * become the bottleneck. Change the thread count with {@code -t} and the number of event loops
+ * with the {@code poolSize} parameter; the sharded mode should scale close to linearly
+ * as long as there are enough cores for the client, the server and the benchmark
+ * threads.</p>
+ *
+ * <p>Run it through the {@link #main} method, for example from the IDE.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Threads(4)
+@Fork(1)
+public class ShardedCoreBenchmark {
+
+  @Param({"false", "true"})
+  public boolean sharded;
+
+  @Param({"4"})
+  public int poolSize;
+
+  private EventLoopGroup serverGroup;
+  private CoreEnvironment environment;
+  private List<Endpoint> endpoints;
+  private Core core;
+  private byte[][] keys;
+
+  /**
+   * Starts a local server which answers every request and builds a core around it.
+   */
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    serverGroup = new NioEventLoopGroup(poolSize);
+    Channel server = new ServerBootstrap()
+        .group(serverGroup)
+        .channel(NioServerSocketChannel.class)
+        .childHandler(new ChannelInitializer<SocketChannel>() {
+          @Override
+          protected void initChannel(SocketChannel chan) {
+            chan.pipeline().addLast(new LengthFieldBasedFrameDecoder(
+                Integer.MAX_VALUE, 8, 4, 12, 0));
+            chan.pipeline().addLast(new SimpleChannelInboundHandler<ByteBuf>() {
+              @Override
+              protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
+                ctx.writeAndFlush(ctx.alloc().buffer(24)
+                    .writeByte(0x81)
+                    .writeByte(0)
+                    .writeZero(6)
+                    .writeInt(0)
+                    .writeInt(msg.getInt(KeyValueCodec.OPAQUE_OFFSET))
+                    .writeLong(0));
+              }
+            });
+          }
+        })
+        .bind("127.0.0.1", 0)
+        .sync()
+        .channel();
+    int port = ((InetSocketAddress) server.localAddress()).getPort();
+
+    environment = DefaultCoreEnvironment.builder()
+        .ioConfig(IoConfig.builder().poolSize(poolSize).sharded(sharded).build())
+        .build();
+    endpoints = new ArrayList<>();
+    List<List<Endpoint>> partitions = new ArrayList<>();
+    for (int i = 0; i < poolSize; i++) {
+      Endpoint endpoint = sharded
+          ? new ShardedEndpoint(environment, "127.0.0.1", port)
+          : new NettyEndpoint(environment, "127.0.0.1", port);
+      endpoint.connect();
+      while (endpoint.state() != EndpointState.CONNECTED) {
+        Thread.sleep(1);
+      }
+      endpoints.add(endpoint);
+      partitions.add(singletonList(endpoint));
+    }
+
+    DefaultConfigurationManager configurationManager = new DefaultConfigurationManager();
+    configurationManager.topology(DefaultClusterTopology.create(partitions));
+    core = Core.create(environment, configurationManager);
+    keys = new byte[64][];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = ("benchmark-" + i).getBytes(Constants.CHARSET);
+    }
+  }
+
+  /**
+   * Disconnects the endpoint and stops the server.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    for (Endpoint endpoint : endpoints) {
+      endpoint.disconnect();
+    }
+    environment.shutdown(Duration.ofSeconds(5));
+    serverGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+  }
+
+  /**
+   * Dispatches a request through the core and waits for its response.
+   */
+  @Benchmark
+  public GetResponse roundTrip() {
+    final byte[] key = keys[ThreadLocalRandom.current().nextInt(keys.length)];
+    final GetRequest request = new GetRequest(key, Duration.ofSeconds(5), Optional.empty());
+    core.dispatch(request);
+    return request.response().join();
+  }
+
+  /**
+   * Runs this benchmark.
+   */
+  public static void main(String... args) throws Exception {
+    new Runner(new OptionsBuilder()
+        .include(ShardedCoreBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+
+}
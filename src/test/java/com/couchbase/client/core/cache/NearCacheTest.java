@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.cache;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.couchbase.client.core.env.NearCacheConfig;
+import com.couchbase.client.core.msg.ResponseStatus;
+import com.couchbase.client.core.msg.kv.GetResponse;
+import com.couchbase.client.core.util.Constants;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Verifies the functionality of the {@link NearCache}.
+ *
+ * @since 2.0.0
+ */
+class NearCacheTest {
+
+  @Test
+  void shouldCacheAndServeResponses() {
+    NearCache cache = new NearCache(NearCacheConfig.enabled().build());
+    byte[] key = key("foo");
+    GetResponse response = response(1, 10);
+
+    assertNull(cache.get(key));
+    assertTrue(cache.put(key, response, cache.stamp(key)));
+    assertSame(response, cache.get(key("foo")));
+
+    assertAll(
+        () -> assertEquals(1, cache.size()),
+        () -> assertEquals(1, cache.stats().hits()),
+        () -> assertEquals(1, cache.stats().misses()),
+        () -> assertEquals(0.5, cache.stats().hitRate()),
+        () -> assertEquals(
+          key.length + 10 + NearCache.ENTRY_OVERHEAD, cache.weightedSize())
+    );
+  }
+
+  @Test
+  void shouldNotCacheIfInvalidatedInBetween() {
+    NearCache cache = new NearCache(NearCacheConfig.enabled().build());
+    byte[] key = key("foo");
+
+    long stamp = cache.stamp(key);
+    cache.invalidate(key);
+    assertFalse(cache.put(key, response(1, 10), stamp));
+    assertNull(cache.get(key));
+  }
+
+  @Test
+  void shouldInvalidateBasedOnCas() {
+    NearCache cache = new NearCache(NearCacheConfig.enabled().build());
+    byte[] key = key("foo");
+    cache.put(key, response(5, 10), cache.stamp(key));
+
+    cache.invalidate(key, 5);
+    assertNotNull(cache.get(key));
+
+    cache.invalidate(key, 6);
+    assertNull(cache.get(key));
+    assertEquals(1, cache.stats().invalidations());
+  }
+
+  @Test
+  void shouldExpireEntries() {
+    NearCache cache = new NearCache(NearCacheConfig.enabled().build());
+    byte[] key = key("foo");
+    cache.put(key, response(1, 10), cache.stamp(key), Duration.ofNanos(1));
+
+    assertNull(cache.get(key));
+    assertAll(
+        () -> assertEquals(0, cache.size()),
+        () -> assertEquals(0, cache.weightedSize()),
+        () -> assertEquals(1, cache.stats().expirations())
+    );
+  }
+
+  @Test
+  void shouldBoundNumberOfEntries() {
+    NearCache cache = new NearCache(NearCacheConfig.enabled().maxEntries(100).build());
+    for (int i = 0; i < 1000; i++) {
+      byte[] key = key("key-" + i);
+      cache.put(key, response(1, 10), cache.stamp(key));
+    }
+    assertTrue(cache.size() <= 100);
+    assertTrue(cache.stats().evictions() + cache.stats().rejections() >= 900);
+  }
+
+  @Test
+  void shouldBoundSizeInBytes() {
+    long maxBytes = 10 * (NearCache.ENTRY_OVERHEAD + 100);
+    NearCache cache = new NearCache(NearCacheConfig.enabled().maxBytes(maxBytes).build());
+
+    byte[] large = key("large");
+    assertFalse(cache.put(large, response(1, (int) maxBytes), cache.stamp(large)));
+
+    for (int i = 0; i < 100; i++) {
+      byte[] key = key("key-" + i);
+      cache.put(key, response(1, 90), cache.stamp(key));
+    }
+    assertTrue(cache.weightedSize() <= maxBytes);
+    assertTrue(cache.size() <= 10);
+  }
+
+  @Test
+  void shouldKeepFrequentlyUsedEntriesDuringScan() {
+    NearCache cache = new NearCache(NearCacheConfig.enabled().maxEntries(100).build());
+
+    for (int i = 0; i < 50; i++) {
+      byte[] key = key("hot-" + i);
+      cache.get(key);
+      cache.put(key, response(1, 10), cache.stamp(key));
+    }
+    for (int round = 0; round < 5; round++) {
+      for (int i = 0; i < 50; i++) {
+        assertNotNull(cache.get(key("hot-" + i)));
+      }
+    }
+
+    for (int i = 0; i < 1000; i++) {
+      byte[] key = key("cold-" + i);
+      cache.get(key);
+      cache.put(key, response(1, 10), cache.stamp(key));
+    }
+
+    for (int i = 0; i < 50; i++) {
+      assertNotNull(cache.get(key("hot-" + i)), "hot-" + i);
+    }
+  }
+
+  @Test
+  void shouldIgnoreStaleReadsOfRejectedEntries() {
+    NearCache cache = new NearCache(NearCacheConfig.enabled().maxEntries(50).build());
+    for (int i = 0; i < 49; i++) {
+      byte[] key = key("hot-" + i);
+      cache.put(key, response(1, 10), cache.stamp(key));
+      cache.put(key("filler-" + i), response(1, 10), cache.stamp(key("filler-" + i)));
+      for (int round = 0; round < 5; round++) {
+        cache.get(key);
+      }
+    }
+
+    byte[] live = key("live");
+    byte[] expired = key("expired");
+    cache.put(live, response(1, 10), cache.stamp(live));
+    final NearCache.Node liveNode = cache.entry(live);
+    cache.put(expired, response(1, 10), cache.stamp(expired), Duration.ofNanos(1));
+    final NearCache.Node expiredNode = cache.entry(expired);
+    cache.put(key("next"), response(1, 10), cache.stamp(key("next")));
+    assertNull(cache.entry(live));
+    assertNull(cache.entry(expired));
+
+    // reads which found the entries right before they were rejected
+    cache.read(liveNode);
+    cache.read(expiredNode);
+
+    for (int i = 0; i < 200; i++) {
+      byte[] key = key("after-" + i);
+      cache.put(key, response(1, 10), cache.stamp(key));
+    }
+    assertTrue(cache.size() <= 50);
+    assertNull(cache.entry(key("next")), "entry lost from its access order list");
+    byte[] key = key("fresh");
+    cache.get(key);
+    cache.get(key);
+    cache.put(key, response(1, 10), cache.stamp(key));
+    assertNotNull(cache.get(key));
+  }
+
+  @Test
+  void shouldStayConsistentUnderConcurrentRejections() throws Exception {
+    NearCache cache = new NearCache(NearCacheConfig.enabled().maxEntries(50).build());
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(() -> {
+        try {
+          for (int i = 0; i < 20_000; i++) {
+            byte[] key = key("key-" + ThreadLocalRandom.current().nextInt(100));
+            cache.get(key);
+            cache.put(key, response(1, 10), cache.stamp(key), Duration.ofMillis(1));
+          }
+        } catch (Throwable ex) {
+          failure.compareAndSet(null, ex);
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertNull(failure.get());
+    assertTrue(cache.stats().rejections() > 0);
+    assertTrue(cache.size() <= 50);
+    assertNull(cache.entry(key("next")), "entry lost from its access order list");
+    byte[] key = key("fresh");
+    assertTrue(cache.put(key, response(1, 10), cache.stamp(key)));
+    assertNotNull(cache.get(key));
+  }
+
+  @Test
+  void shouldClearAllEntries() {
+    NearCache cache = new NearCache(NearCacheConfig.enabled().build());
+    byte[] key = key("foo");
+    long stamp = cache.stamp(key);
+    cache.put(key, response(1, 10), stamp);
+
+    cache.clear();
+    assertAll(
+        () -> assertEquals(0, cache.size()),
+        () -> assertEquals(0, cache.weightedSize()),
+        () -> assertFalse(cache.put(key, response(1, 10), stamp))
+    );
+  }
+
+  private static byte[] key(final String key) {
+    return key.getBytes(Constants.CHARSET);
+  }
+
+  private static GetResponse response(final long cas, final int size) {
+    return new GetResponse(ResponseStatus.SUCCESS, new byte[size], cas, 0);
+  }
+
+}
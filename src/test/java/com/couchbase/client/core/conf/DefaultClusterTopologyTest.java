@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.conf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.couchbase.client.core.env.CircuitBreakerConfig;
+import com.couchbase.client.core.io.CircuitBreaker;
+import com.couchbase.client.core.io.Endpoint;
+import com.couchbase.client.core.io.EndpointState;
+import com.couchbase.client.core.io.EndpointStats;
+import com.couchbase.client.core.msg.Request;
+import com.couchbase.client.core.msg.kv.GetRequest;
+import com.couchbase.client.core.msg.kv.ReadPreference;
+import com.couchbase.client.core.util.Constants;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Verifies the functionality of the {@link DefaultClusterTopology}.
+ *
+ * @since 2.0.0
+ */
+class DefaultClusterTopologyTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(1);
+  private static final byte[] KEY = "key".getBytes(Constants.CHARSET);
+
+  @Test
+  void shouldNotLocateInEmptyTopology() {
+    GetRequest request = new GetRequest(KEY, TIMEOUT, Optional.empty());
+    assertFalse(DefaultClusterTopology.empty().locate(request).isPresent());
+  }
+
+  @Test
+  void shouldLocateActiveByDefault() {
+    DummyEndpoint active = new DummyEndpoint();
+    DummyEndpoint replica = new DummyEndpoint();
+    DefaultClusterTopology topology = topology(active, replica);
+
+    GetRequest request = new GetRequest(KEY, TIMEOUT, Optional.empty());
+    for (int i = 0; i < 100; i++) {
+      assertSame(active, topology.locate(request).get());
+    }
+  }
+
+  @Test
+  void shouldNotLocateUnknownPartition() {
+    DefaultClusterTopology topology = topology(new DummyEndpoint());
+
+    GetRequest request = new GetRequest(KEY, TIMEOUT, Optional.empty());
+    request.partition((short) 1);
+    assertFalse(topology.locate(request).isPresent());
+  }
+
+  @Test
+  void shouldPreferFasterCopyForBestReplica() {
+    DummyEndpoint active = new DummyEndpoint();
+    DummyEndpoint replica = new DummyEndpoint();
+    active.stats().record(50_000_000);
+    replica.stats().record(1_000_000);
+    DefaultClusterTopology topology = topology(active, replica);
+
+    GetRequest request = new GetRequest(KEY, TIMEOUT, Optional.empty(),
+        ReadPreference.BEST_REPLICA);
+    for (int i = 0; i < 100; i++) {
+      assertSame(replica, topology.locate(request).get());
+    }
+  }
+
+  @Test
+  void shouldMarkReadsRoutedToReplica() {
+    DummyEndpoint active = new DummyEndpoint();
+    DummyEndpoint replica = new DummyEndpoint();
+    DefaultClusterTopology topology = topology(active, replica);
+
+    active.stats().record(50_000_000);
+    replica.stats().record(1_000_000);
+    GetRequest toReplica = new GetRequest(KEY, TIMEOUT, Optional.empty(),
+        ReadPreference.BEST_REPLICA);
+    assertSame(replica, topology.locate(toReplica).get());
+    assertTrue(toReplica.fromReplica());
+
+    replica.stats().record(100_000_000);
+    GetRequest toActive = new GetRequest(KEY, TIMEOUT, Optional.empty(),
+        ReadPreference.BEST_REPLICA);
+    assertSame(active, topology.locate(toActive).get());
+    assertFalse(toActive.fromReplica());
+
+    GetRequest activeOnly = new GetRequest(KEY, TIMEOUT, Optional.empty());
+    topology.locate(activeOnly);
+    assertFalse(activeOnly.fromReplica());
+  }
+
+  @Test
+  void shouldSpreadLoadAcrossIdleCopies() {
+    DummyEndpoint active = new DummyEndpoint();
+    DummyEndpoint replica = new DummyEndpoint();
+    DefaultClusterTopology topology = topology(active, replica);
+
+    GetRequest request = new GetRequest(KEY, TIMEOUT, Optional.empty(),
+        ReadPreference.BEST_REPLICA);
+    for (int i = 0; i < 100; i++) {
+      topology.locate(request).get().stats().requestStarted();
+    }
+    assertEquals(100, active.stats().inFlight() + replica.stats().inFlight());
+    assertFalse(active.stats().inFlight() == 0 || replica.stats().inFlight() == 0);
+  }
+
+  @Test
+  void shouldRouteAroundOpenCircuitForBestReplica() {
+    DummyEndpoint active = new DummyEndpoint();
+    DummyEndpoint replica = new DummyEndpoint();
+    DummyEndpoint other = new DummyEndpoint();
+    active.stats().record(1_000_000);
+    replica.stats().record(50_000_000);
+    other.stats().record(50_000_000);
+    active.circuitBreaker().failed(active.circuitBreaker().acquire());
+    replica.circuitBreaker().failed(replica.circuitBreaker().acquire());
+    assertEquals(CircuitBreaker.State.OPEN, active.circuitBreaker().state());
+    DefaultClusterTopology topology = topology(active, replica, other);
+
+    GetRequest request = new GetRequest(KEY, TIMEOUT, Optional.empty(),
+        ReadPreference.BEST_REPLICA);
+    for (int i = 0; i < 100; i++) {
+      assertSame(other, topology.locate(request).get());
+    }
+  }
+
+  @Test
+  void shouldRejectPartitionWithoutActive() {
+    List<List<Endpoint>> partitions = Collections.singletonList(Collections.emptyList());
+    assertThrows(IllegalArgumentException.class, () -> DefaultClusterTopology.create(partitions));
+  }
+
+  /**
+   * Helper method to create a single-partition topology.
+   */
+  private static DefaultClusterTopology topology(final Endpoint... copies) {
+    return DefaultClusterTopology.create(Collections.singletonList(Arrays.asList(copies)));
+  }
+
+  /**
+   * Helper class to implement a simple {@link Endpoint}.
+   */
+  class DummyEndpoint implements Endpoint {
+
+    private final EndpointStats stats = new EndpointStats(Duration.ofDays(1));
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(
+        CircuitBreakerConfig.enabled().minRequests(1).openDuration(Duration.ofDays(1)).build()
+    );
+
+    @Override
+    public <R> void dispatch(Request<R> request) {
+    }
+
+    @Override
+    public void connect() {
+    }
+
+    @Override
+    public void disconnect() {
+    }
+
+    @Override
+    public EndpointState state() {
+      return EndpointState.CONNECTED;
+    }
+
+    @Override
+    public EndpointStats stats() {
+      return stats;
+    }
+
+    @Override
+    public CircuitBreaker circuitBreaker() {
+      return circuitBreaker;
+    }
+  }
+
+}
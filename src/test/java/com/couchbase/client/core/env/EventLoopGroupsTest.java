@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.env;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.couchbase.client.core.io.ServiceType;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+/**
+ * Verifies the functionality of the {@link EventLoopGroups}.
+ *
+ * @since 2.0.0
+ */
+class EventLoopGroupsTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+  @Test
+  void shouldShareGroupAcrossServices() {
+    EventLoopGroups groups = new EventLoopGroups(IoConfig.builder().poolSize(1).build());
+
+    EventLoopGroup kv = groups.get(ServiceType.KV);
+    assertSame(kv, groups.get(ServiceType.QUERY));
+    assertSame(kv, groups.get(ServiceType.KV));
+
+    assertTrue(groups.shutdown(TIMEOUT));
+    assertTrue(kv.isTerminated());
+  }
+
+  @Test
+  void shouldCreateDedicatedGroups() {
+    EventLoopGroups groups = new EventLoopGroups(IoConfig.builder()
+        .poolSize(1)
+        .dedicatedPool(ServiceType.QUERY, 1)
+        .build());
+
+    EventLoopGroup query = groups.get(ServiceType.QUERY);
+    EventLoopGroup kv = groups.get(ServiceType.KV);
+    assertNotSame(kv, query);
+
+    assertTrue(groups.shutdown(TIMEOUT));
+    assertTrue(kv.isTerminated());
+    assertTrue(query.isTerminated());
+  }
+
+  @Test
+  void shouldNotShutdownExternalGroups() {
+    EventLoopGroup shared = new NioEventLoopGroup(1);
+    EventLoopGroup search = new NioEventLoopGroup(1);
+    try {
+      EventLoopGroups groups = new EventLoopGroups(IoConfig.builder()
+          .eventLoopGroup(shared)
+          .dedicatedPool(ServiceType.SEARCH, search)
+          .build());
+
+      assertSame(shared, groups.get(ServiceType.KV));
+      assertSame(search, groups.get(ServiceType.SEARCH));
+
+      assertTrue(groups.shutdown(TIMEOUT));
+      assertFalse(shared.isShuttingDown());
+      assertFalse(search.isShuttingDown());
+    } finally {
+      shared.shutdownGracefully();
+      search.shutdownGracefully();
+    }
+  }
+
+  @Test
+  void shouldRejectUseAfterShutdown() {
+    EventLoopGroups groups = new EventLoopGroups(IoConfig.defaults());
+    assertTrue(groups.shutdown(TIMEOUT));
+    assertThrows(IllegalStateException.class, () -> groups.get(ServiceType.KV));
+  }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.env;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.netty.channel.SelectStrategy;
+import io.netty.util.IntSupplier;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+/**
+ * Verifies the functionality of the {@link SelectStrategyConfig}.
+ *
+ * @since 2.0.0
+ */
+class SelectStrategyConfigTest {
+
+  private static final IntSupplier IDLE = () -> 0;
+  private static final IntSupplier READY = () -> 3;
+
+  @Test
+  void shouldBlockWhenIdleByDefault() throws Exception {
+    SelectStrategy strategy = SelectStrategyConfig.blocking().factory().newSelectStrategy();
+    assertEquals(SelectStrategy.SELECT, strategy.calculateStrategy(IDLE, false));
+    assertEquals(0, strategy.calculateStrategy(IDLE, true));
+  }
+
+  @Test
+  void shouldNeverBlockWhenBusySpinning() throws Exception {
+    SelectStrategy strategy = SelectStrategyConfig.busySpin().factory().newSelectStrategy();
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(0, strategy.calculateStrategy(IDLE, false));
+    }
+    assertEquals(3, strategy.calculateStrategy(READY, false));
+  }
+
+  @Test
+  void shouldSpinWithinBudgetThenPark() throws Exception {
+    SelectStrategy strategy = SelectStrategyConfig.spinThenPark(Duration.ofMillis(20))
+        .factory()
+        .newSelectStrategy();
+
+    assertEquals(3, strategy.calculateStrategy(READY, false));
+    assertEquals(0, strategy.calculateStrategy(IDLE, false));
+    assertEquals(0, strategy.calculateStrategy(IDLE, false));
+
+    Thread.sleep(30);
+    assertEquals(SelectStrategy.SELECT, strategy.calculateStrategy(IDLE, false));
+    assertEquals(0, strategy.calculateStrategy(IDLE, false));
+  }
+
+  @Test
+  void shouldRestartBudgetWhenWorkArrives() throws Exception {
+    SelectStrategy strategy = SelectStrategyConfig.spinThenPark(Duration.ofMillis(20))
+        .factory()
+        .newSelectStrategy();
+
+    assertEquals(0, strategy.calculateStrategy(IDLE, false));
+    Thread.sleep(30);
+    assertEquals(0, strategy.calculateStrategy(IDLE, true));
+    assertEquals(0, strategy.calculateStrategy(IDLE, false));
+  }
+
+  @Test
+  void shouldRejectInvalidSpinBudget() {
+    assertThrows(IllegalArgumentException.class,
+        () -> SelectStrategyConfig.spinThenPark(Duration.ZERO));
+  }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.env;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies the thread to shard mapping of the {@link Shards}.
+ *
+ * @since 2.0.0
+ */
+class ShardsTest {
+
+  private final EventLoopGroup group = new NioEventLoopGroup(3);
+
+  @AfterEach
+  void tearDown() {
+    group.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void shouldMapEventLoopsToTheirOwnShard() throws Exception {
+    Shards shards = new Shards(group);
+    assertEquals(3, shards.count());
+
+    for (int i = 0; i < shards.count(); i++) {
+      final int shard = i;
+      int current = shards.eventLoop(shard).submit(shards::current).get(5, TimeUnit.SECONDS);
+      assertEquals(shard, current);
+    }
+  }
+
+  @Test
+  void shouldNotMapOtherThreadsToAShard() throws Exception {
+    Shards shards = new Shards(group);
+
+    assertEquals(-1, shards.current());
+    CompletableFuture<Integer> other = CompletableFuture.supplyAsync(shards::current,
+        runnable -> new Thread(runnable).start());
+    assertEquals(-1, (int) other.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void shouldHandOutShardsRoundRobin() {
+    Shards shards = new Shards(group);
+
+    int first = shards.next();
+    for (int i = 1; i <= shards.count(); i++) {
+      assertEquals((first + i) % shards.count(), shards.next());
+    }
+  }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.couchbase.client.core.env.CircuitBreakerConfig;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Verifies the functionality of the {@link CircuitBreaker}.
+ *
+ * @since 2.0.0
+ */
+class CircuitBreakerTest {
+
+  /**
+   * The clock of the breakers under test, which starts out negative like
+   * {@link System#nanoTime()} is allowed to.
+   */
+  private final AtomicLong clock = new AtomicLong(-Duration.ofDays(1).toNanos());
+
+  @Test
+  void shouldAlwaysPermitWhenDisabled() {
+    CircuitBreaker breaker = new CircuitBreaker(CircuitBreakerConfig.disabled());
+    for (int i = 0; i < 100; i++) {
+      breaker.failed(breaker.acquire());
+    }
+    assertEquals(CircuitBreaker.Permit.PERMITTED, breaker.acquire());
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+  }
+
+  @Test
+  void shouldNotOpenBelowMinimumRequests() {
+    CircuitBreaker breaker = breaker(Duration.ofDays(1));
+    for (int i = 0; i < 9; i++) {
+      breaker.failed(breaker.acquire());
+    }
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+    breaker.failed(breaker.acquire());
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    assertEquals(CircuitBreaker.Permit.REJECTED, breaker.acquire());
+  }
+
+  @Test
+  void shouldNotOpenBelowFailureRatio() {
+    CircuitBreaker breaker = breaker(Duration.ofDays(1));
+    for (int i = 0; i < 100; i++) {
+      breaker.succeeded(breaker.acquire());
+      if (i % 2 == 0) {
+        breaker.failed(breaker.acquire());
+      }
+    }
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+  }
+
+  @Test
+  void shouldNotCountIgnoredOutcomes() {
+    CircuitBreaker breaker = breaker(Duration.ofDays(1));
+    for (int i = 0; i < 100; i++) {
+      breaker.ignored(breaker.acquire());
+    }
+    breaker.failed(breaker.acquire());
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+  }
+
+  @Test
+  void shouldStayOpenForOpenDuration() {
+    CircuitBreaker breaker = breaker(Duration.ofMillis(50));
+    open(breaker);
+
+    clock.addAndGet(Duration.ofMillis(49).toNanos());
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    assertEquals(CircuitBreaker.Permit.REJECTED, breaker.acquire());
+  }
+
+  @Test
+  void shouldCloseAfterSuccessfulProbes() {
+    CircuitBreaker breaker = breaker(Duration.ofMillis(50));
+    open(breaker);
+    clock.addAndGet(Duration.ofMillis(50).toNanos());
+
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+    CircuitBreaker.Permit first = breaker.acquire();
+    CircuitBreaker.Permit second = breaker.acquire();
+    assertEquals(CircuitBreaker.Permit.PROBE, first);
+    assertEquals(CircuitBreaker.Permit.PROBE, second);
+    assertEquals(CircuitBreaker.Permit.REJECTED, breaker.acquire());
+
+    breaker.succeeded(first);
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+    breaker.succeeded(second);
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    assertEquals(CircuitBreaker.Permit.PERMITTED, breaker.acquire());
+  }
+
+  @Test
+  void shouldReopenAfterFailedProbe() {
+    CircuitBreaker breaker = breaker(Duration.ofMillis(50));
+    open(breaker);
+    clock.addAndGet(Duration.ofMillis(50).toNanos());
+
+    CircuitBreaker.Permit probe = breaker.acquire();
+    assertEquals(CircuitBreaker.Permit.PROBE, probe);
+    breaker.failed(probe);
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    assertEquals(CircuitBreaker.Permit.REJECTED, breaker.acquire());
+  }
+
+  @Test
+  void shouldReleaseIgnoredProbes() {
+    CircuitBreaker breaker = breaker(Duration.ofMillis(50));
+    open(breaker);
+    clock.addAndGet(Duration.ofMillis(50).toNanos());
+
+    breaker.ignored(breaker.acquire());
+    breaker.ignored(breaker.acquire());
+    assertEquals(CircuitBreaker.Permit.PROBE, breaker.acquire());
+  }
+
+  @Test
+  void shouldForgetOutcomesOutsideOfWindow() {
+    CircuitBreaker breaker = new CircuitBreaker(CircuitBreakerConfig.enabled()
+        .window(Duration.ofMillis(50))
+        .minRequests(10)
+        .build(), clock::get);
+    for (int i = 0; i < 9; i++) {
+      breaker.failed(breaker.acquire());
+    }
+    clock.addAndGet(Duration.ofMillis(50).toNanos());
+
+    breaker.failed(breaker.acquire());
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+  }
+
+  @Test
+  void shouldRejectInvalidConfig() {
+    assertThrows(IllegalArgumentException.class,
+        () -> CircuitBreakerConfig.enabled().failureRatio(0));
+    assertThrows(IllegalArgumentException.class,
+        () -> CircuitBreakerConfig.enabled().minRequests(0));
+    assertThrows(IllegalArgumentException.class,
+        () -> CircuitBreakerConfig.enabled().openDuration(Duration.ZERO));
+  }
+
+  /**
+   * Helper method to create a breaker which opens after ten requests and needs two probes.
+   */
+  private CircuitBreaker breaker(final Duration openDuration) {
+    return new CircuitBreaker(CircuitBreakerConfig.enabled()
+        .minRequests(10)
+        .openDuration(openDuration)
+        .probes(2)
+        .build(), clock::get);
+  }
+
+  /**
+   * Helper method to open the given breaker.
+   */
+  private static void open(final CircuitBreaker breaker) {
+    for (int i = 0; i < 10; i++) {
+      breaker.failed(breaker.acquire());
+    }
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+  }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+/**
+ * Verifies the functionality of the {@link EndpointStats}.
+ *
+ * @since 2.0.0
+ */
+class EndpointStatsTest {
+
+  @Test
+  void shouldTrackInFlightRequests() {
+    EndpointStats stats = new EndpointStats();
+    assertEquals(0, stats.inFlight());
+
+    long first = stats.requestStarted();
+    stats.requestStarted();
+    assertEquals(2, stats.inFlight());
+
+    stats.requestCompleted(first);
+    assertEquals(1, stats.inFlight());
+    stats.requestAbandoned();
+    assertEquals(0, stats.inFlight());
+  }
+
+  @Test
+  void shouldJumpToPeakLatency() {
+    EndpointStats stats = new EndpointStats();
+    stats.record(1000);
+    stats.record(1_000_000);
+
+    assertTrue(stats.latencyNanos() > 900_000);
+  }
+
+  @Test
+  void shouldDecayLatencyOverTime() throws Exception {
+    EndpointStats stats = new EndpointStats(Duration.ofMillis(10));
+    stats.record(1_000_000);
+    Thread.sleep(100);
+
+    assertTrue(stats.latencyNanos() < 100_000);
+  }
+
+  @Test
+  void shouldWeightScoreByInFlight() {
+    EndpointStats stats = new EndpointStats(Duration.ofDays(1));
+    stats.record(1_000_000);
+    double idle = stats.score();
+
+    stats.requestStarted();
+    assertTrue(stats.score() > idle);
+  }
+
+  @Test
+  void shouldRejectInvalidDecay() {
+    assertThrows(IllegalArgumentException.class, () -> new EndpointStats(Duration.ZERO));
+  }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io.netty;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.couchbase.client.core.env.CompletionConfig;
+import com.couchbase.client.core.msg.kv.GetRequest;
+import com.couchbase.client.core.msg.kv.GetResponse;
+import com.couchbase.client.core.util.Constants;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Verifies the dispatch modes of the {@link CompletionDispatcher}.
+ */
+class CompletionDispatcherTest {
+
+  private static final GetResponse RESPONSE = new GetResponse(null, null, 0, 0);
+
+  private final List<Runnable> tasks = new ArrayList<>();
+  private final Executor executor = tasks::add;
+
+  @Test
+  void shouldCompleteInline() {
+    CompletionDispatcher dispatcher = new CompletionDispatcher(CompletionConfig.defaults(),
+        null);
+    GetRequest request = request();
+    final Thread caller = Thread.currentThread();
+    List<Thread> completedOn = new ArrayList<>();
+    request.whenComplete((response, error) -> completedOn.add(Thread.currentThread()));
+
+    dispatcher.succeed(request, RESPONSE);
+    assertTrue(request.hasSucceeded());
+    assertSame(caller, completedOn.get(0));
+  }
+
+  @Test
+  void shouldOffloadEveryCompletion() {
+    CompletionDispatcher dispatcher = dispatcher(CompletionConfig.Mode.OFFLOAD);
+    GetRequest succeeded = request();
+    GetRequest failed = request();
+
+    dispatcher.succeed(succeeded, RESPONSE);
+    dispatcher.fail(failed, new Exception());
+    assertFalse(succeeded.hasCompleted());
+    assertFalse(failed.hasCompleted());
+    assertEquals(2, tasks.size());
+
+    tasks.forEach(Runnable::run);
+    assertTrue(succeeded.hasSucceeded());
+    assertTrue(failed.hasFailed());
+  }
+
+  @Test
+  void shouldOffloadBatchOnFlush() {
+    CompletionDispatcher dispatcher = dispatcher(CompletionConfig.Mode.BATCHED);
+    List<GetRequest> requests = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      GetRequest request = request();
+      requests.add(request);
+      dispatcher.succeed(request, RESPONSE);
+    }
+    assertTrue(tasks.isEmpty());
+
+    dispatcher.flush();
+    dispatcher.flush();
+    assertEquals(1, tasks.size());
+    assertFalse(requests.get(0).hasCompleted());
+
+    tasks.get(0).run();
+    for (GetRequest request : requests) {
+      assertTrue(request.hasSucceeded());
+    }
+  }
+
+  @Test
+  void shouldCompleteInlineIfExecutorRejects() {
+    CompletionDispatcher dispatcher = new CompletionDispatcher(
+        CompletionConfig.builder().mode(CompletionConfig.Mode.OFFLOAD).build(),
+        task -> {
+          throw new RejectedExecutionException();
+        });
+    GetRequest request = request();
+
+    dispatcher.succeed(request, RESPONSE);
+    assertTrue(request.hasSucceeded());
+  }
+
+  /**
+   * Helper method to create a dispatcher which offloads to the recorded tasks.
+   */
+  private CompletionDispatcher dispatcher(final CompletionConfig.Mode mode) {
+    return new CompletionDispatcher(CompletionConfig.builder().mode(mode).build(), executor);
+  }
+
+  /**
+   * Helper method to create a request.
+   */
+  private static GetRequest request() {
+    return new GetRequest("key".getBytes(Constants.CHARSET), Duration.ofSeconds(30),
+        Optional.empty());
+  }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io.netty;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.couchbase.client.core.env.CompletionConfig;
+import com.couchbase.client.core.env.PipelineConfig;
+import com.couchbase.client.core.msg.ResponseStatus;
+import com.couchbase.client.core.msg.codec.KeyValueCodec;
+import com.couchbase.client.core.msg.kv.GetRequest;
+import com.couchbase.client.core.msg.kv.ServerFeature;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Verifies the functionality of the {@link FeatureNegotiationHandler}.
+ */
+class FeatureNegotiationHandlerTest {
+
+  private static final int OPCODE_OFFSET = 1;
+  private static final byte OPCODE_HELLO = 0x1f;
+
+  @Test
+  void shouldNegotiateWhenActive() {
+    EmbeddedChannel channel = new EmbeddedChannel(
+        new FusedKeyValueHandler(1024, PipelineConfig.defaults(), CompletionConfig.defaults(),
+            null),
+        new FeatureNegotiationHandler(EnumSet.allOf(ServerFeature.class))
+    );
+    assertTrue(FeatureNegotiationHandler.negotiated(channel).isEmpty());
+
+    ByteBuf hello = channel.readOutbound();
+    assertEquals(OPCODE_HELLO, hello.getByte(OPCODE_OFFSET));
+    int opaque = hello.getInt(KeyValueCodec.OPAQUE_OFFSET);
+    hello.release();
+
+    channel.writeInbound(helloResponse(opaque, ServerFeature.XERROR, ServerFeature.SNAPPY));
+    assertEquals(
+        EnumSet.of(ServerFeature.XERROR, ServerFeature.SNAPPY),
+        FeatureNegotiationHandler.negotiated(channel)
+    );
+  }
+
+  @Test
+  void shouldNegotiateBeforeFirstWrite() {
+    // added to an active channel, so the first write comes before the active event.
+    EmbeddedChannel channel = new EmbeddedChannel();
+    channel.pipeline().addLast(
+        new FusedKeyValueHandler(1024, PipelineConfig.defaults(), CompletionConfig.defaults(),
+            null),
+        new FeatureNegotiationHandler(EnumSet.of(ServerFeature.UNORDERED_EXECUTION))
+    );
+
+    channel.writeOutbound(new GetRequest("key", Duration.ofSeconds(30), Optional.empty()));
+    ByteBuf hello = channel.readOutbound();
+    assertEquals(OPCODE_HELLO, hello.getByte(OPCODE_OFFSET));
+    hello.release();
+    ByteBuf get = channel.readOutbound();
+    assertEquals(0x00, get.getByte(OPCODE_OFFSET));
+    get.release();
+
+    channel.writeOutbound(new GetRequest("key", Duration.ofSeconds(30), Optional.empty()));
+    get = channel.readOutbound();
+    assertEquals(0x00, get.getByte(OPCODE_OFFSET));
+    get.release();
+  }
+
+  @Test
+  void shouldOnlyDecodeFlexibleFramingOnceTracingIsGranted() {
+    EmbeddedChannel channel = new EmbeddedChannel(
+        new FusedKeyValueHandler(1024, PipelineConfig.defaults(), CompletionConfig.defaults(),
+            null),
+        new FeatureNegotiationHandler(EnumSet.allOf(ServerFeature.class))
+    );
+    ByteBuf hello = channel.readOutbound();
+    final int helloOpaque = hello.getInt(KeyValueCodec.OPAQUE_OFFSET);
+    hello.release();
+
+    GetRequest early = new GetRequest("key", Duration.ofSeconds(30), Optional.empty());
+    channel.writeOutbound(early);
+    ByteBuf get = channel.readOutbound();
+    int earlyOpaque = get.getInt(KeyValueCodec.OPAQUE_OFFSET);
+    get.release();
+    channel.writeInbound(flexibleGetResponse(earlyOpaque));
+    assertTrue(early.hasFailed());
+    ExecutionException ex = assertThrows(ExecutionException.class, () -> early.response().get());
+    assertTrue(ex.getCause() instanceof IllegalStateException);
+
+    channel.writeInbound(helloResponse(helloOpaque, ServerFeature.TRACING));
+    GetRequest late = new GetRequest("key", Duration.ofSeconds(30), Optional.empty());
+    channel.writeOutbound(late);
+    get = channel.readOutbound();
+    int lateOpaque = get.getInt(KeyValueCodec.OPAQUE_OFFSET);
+    get.release();
+    channel.writeInbound(flexibleGetResponse(lateOpaque));
+    assertEquals(ResponseStatus.SUCCESS, late.response().getNow(null).status());
+  }
+
+  /**
+   * Helper method to create a successful negotiation response with the given features.
+   */
+  private static ByteBuf helloResponse(final int opaque, final ServerFeature... features) {
+    ByteBuf response = Unpooled.buffer()
+        .writeByte(0x81)
+        .writeByte(OPCODE_HELLO)
+        .writeZero(6)
+        .writeInt(features.length * 2)
+        .writeInt(opaque)
+        .writeLong(0);
+    for (ServerFeature feature : features) {
+      response.writeShort(feature.code());
+    }
+    return response;
+  }
+
+  /**
+   * Helper method to create a get response with flexible framing extras.
+   */
+  private static ByteBuf flexibleGetResponse(final int opaque) {
+    return Unpooled.buffer()
+        .writeByte(0x18)
+        .writeByte(0x00)
+        .writeByte(3)
+        .writeByte(0)
+        .writeByte(0)
+        .writeByte(0)
+        .writeShort(0)
+        .writeInt(3)
+        .writeInt(opaque)
+        .writeLong(0)
+        .writeByte(0x02)
+        .writeShort(1000);
+  }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link KeyValueFrameDecoder} with the previously used
+ * {@link LengthFieldBasedFrameDecoder} for large frames which arrive in many reads.
+ *
+ * <p>Every invocation feeds one frame in 64KB chunks, like a socket read would deliver
+ * it, and releases the decoded frame. The channel uses the unpooled allocator like the
+ * endpoints do. Run through {@link #main} to see the allocation
+ * per frame next to the latency.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class FrameDecoderBenchmark {
+
+  private static final int READ_SIZE = 64 * 1024;
+  private static final int MAX_FRAME_SIZE = 25 * 1024 * 1024;
+
+  @Param({"1048576", "5242880", "20971520"})
+  int bodyLength;
+
+  @Param({"streaming", "cumulating"})
+  String decoder;
+
+  private ByteBuf[] reads;
+  private EmbeddedChannel channel;
+
+  /**
+   * Creates the reads of one frame and the channel to decode them.
+   */
+  @Setup(Level.Trial)
+  public void setup() {
+    final ByteBuf frame = Unpooled.buffer(FrameAssembler.HEADER_SIZE + bodyLength);
+    frame.writeByte(0x81).writeZero(7).writeInt(bodyLength).writeZero(12);
+    frame.writeZero(bodyLength);
+
+    reads = new ByteBuf[(frame.readableBytes() + READ_SIZE - 1) / READ_SIZE];
+    for (int i = 0; i < reads.length; i++) {
+      reads[i] = frame.readSlice(Math.min(READ_SIZE, frame.readableBytes()));
+    }
+
+    final ChannelHandler frameDecoder = decoder.equals("streaming")
+        ? new KeyValueFrameDecoder(MAX_FRAME_SIZE)
+        : new LengthFieldBasedFrameDecoder(MAX_FRAME_SIZE, 8, 4, 12, 0);
+    channel = new EmbeddedChannel(frameDecoder, new ChannelInboundHandlerAdapter() {
+      @Override
+      public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+        ((ByteBuf) msg).release();
+      }
+    });
+    channel.config().setAllocator(UnpooledByteBufAllocator.DEFAULT);
+  }
+
+  /**
+   * Closes the channel.
+   */
+  @TearDown(Level.Trial)
+  public void teardown() {
+    channel.finishAndReleaseAll();
+  }
+
+  /**
+   * Decodes one frame which arrives in many reads.
+   */
+  @Benchmark
+  public void decodeFrame() {
+    for (ByteBuf read : reads) {
+      read.retain().resetReaderIndex();
+      channel.pipeline().fireChannelRead(read);
+    }
+  }
+
+  /**
+   * Runs this benchmark with the GC profiler.
+   */
+  public static void main(String... args) throws Exception {
+    new Runner(new OptionsBuilder()
+        .include(FrameDecoderBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build()).run();
+  }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io.netty;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.couchbase.client.core.env.CompletionConfig;
+import com.couchbase.client.core.env.PipelineConfig;
+import com.couchbase.client.core.error.EndpointDisconnectedException;
+import com.couchbase.client.core.msg.codec.KeyValueCodec;
+import com.couchbase.client.core.msg.kv.GetRequest;
+import com.couchbase.client.core.util.Constants;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Verifies the functionality of the {@link FusedKeyValueHandler}.
+ */
+class FusedKeyValueHandlerTest {
+
+  @Test
+  void shouldCompleteRequestsFromOneRead() {
+    EmbeddedChannel channel = channel();
+    GetRequest first = request();
+    GetRequest second = request();
+    channel.writeOutbound(first, second);
+
+    channel.writeInbound(Unpooled.wrappedBuffer(
+        response(writtenOpaque(channel), "a"),
+        response(writtenOpaque(channel), "bc")
+    ));
+    assertEquals("a", content(first));
+    assertEquals("bc", content(second));
+  }
+
+  @Test
+  void shouldCompleteRequestFromSplitFrame() {
+    EmbeddedChannel channel = channel();
+    GetRequest request = request();
+    channel.writeOutbound(request);
+
+    ByteBuf response = response(writtenOpaque(channel), "content");
+    channel.writeInbound(response.readRetainedSlice(10));
+    channel.writeInbound(response.readRetainedSlice(20));
+    assertFalse(request.hasCompleted());
+    channel.writeInbound(response);
+    assertEquals("content", content(request));
+  }
+
+  @Test
+  void shouldFailOutstandingRequestsWhenClosed() throws Exception {
+    EmbeddedChannel channel = channel();
+    GetRequest request = request();
+    channel.writeOutbound(request);
+    channel.releaseOutbound();
+
+    channel.close().sync();
+    assertTrue(request.hasFailed());
+    ExecutionException thrown = assertThrows(
+        ExecutionException.class, () -> request.response().get());
+    assertTrue(thrown.getCause() instanceof EndpointDisconnectedException);
+  }
+
+  @Test
+  void shouldGatherRequestsIntoOneBuffer() {
+    EmbeddedChannel channel = channel(PipelineConfig.builder().gatheringWrites(true).build());
+    GetRequest first = request();
+    GetRequest second = request();
+    channel.write(first, channel.voidPromise());
+    channel.write(second, channel.voidPromise());
+    channel.flush();
+
+    ByteBuf written = channel.readOutbound();
+    assertNull(channel.readOutbound());
+    assertEquals(2 * (24 + 3), written.readableBytes());
+    int firstOpaque = written.getInt(KeyValueCodec.OPAQUE_OFFSET);
+    int secondOpaque = written.getInt(24 + 3 + KeyValueCodec.OPAQUE_OFFSET);
+    written.release();
+
+    channel.writeInbound(response(secondOpaque, "b"), response(firstOpaque, "a"));
+    assertEquals("a", content(first));
+    assertEquals("b", content(second));
+  }
+
+  @Test
+  void shouldStartNewBufferWhenGatherBufferIsFull() {
+    EmbeddedChannel channel = channel(
+        PipelineConfig.builder().gatheringWrites(true).gatherBufferSize(64).build()
+    );
+    for (int i = 0; i < 3; i++) {
+      channel.write(request(), channel.voidPromise());
+    }
+    channel.flush();
+
+    assertWritten(channel, 2 * (24 + 3));
+    assertWritten(channel, 24 + 3);
+    assertNull(channel.readOutbound());
+  }
+
+  @Test
+  void shouldNotGatherLargeRequests() {
+    EmbeddedChannel channel = channel(
+        PipelineConfig.builder().gatheringWrites(true).maxGatheredSize(30).build()
+    );
+    channel.write(request(), channel.voidPromise());
+    channel.write(
+        new GetRequest("largerkey", Duration.ofSeconds(30), Optional.empty()),
+        channel.voidPromise()
+    );
+    channel.write(request(), channel.voidPromise());
+    channel.flush();
+
+    assertWritten(channel, 24 + 3);
+    assertWritten(channel, 24 + 9);
+    assertWritten(channel, 24 + 3);
+    assertNull(channel.readOutbound());
+  }
+
+  /**
+   * Helper method to create a channel with the fused handler.
+   */
+  private static EmbeddedChannel channel() {
+    return channel(PipelineConfig.defaults());
+  }
+
+  /**
+   * Helper method to create a channel with the fused handler and the given config.
+   */
+  private static EmbeddedChannel channel(final PipelineConfig config) {
+    return new EmbeddedChannel(
+        new FusedKeyValueHandler(1024, config, CompletionConfig.defaults(), null)
+    );
+  }
+
+  /**
+   * Helper method to create a request.
+   */
+  private static GetRequest request() {
+    return new GetRequest("key", Duration.ofSeconds(30), Optional.empty());
+  }
+
+  /**
+   * Helper method to verify the size of the next written buffer.
+   */
+  private static void assertWritten(final EmbeddedChannel channel, final int size) {
+    ByteBuf written = channel.readOutbound();
+    try {
+      assertEquals(size, written.readableBytes());
+    } finally {
+      written.release();
+    }
+  }
+
+  /**
+   * Helper method to read the opaque of the next written request.
+   */
+  private static int writtenOpaque(final EmbeddedChannel channel) {
+    ByteBuf written = channel.readOutbound();
+    try {
+      return written.getInt(KeyValueCodec.OPAQUE_OFFSET);
+    } finally {
+      written.release();
+    }
+  }
+
+  /**
+   * Helper method to create a successful response with the given opaque and content.
+   */
+  private static ByteBuf response(final int opaque, final String content) {
+    final byte[] body = content.getBytes(Constants.CHARSET);
+    return Unpooled.buffer(24 + body.length)
+        .writeByte(0x81)
+        .writeByte(0)
+        .writeZero(6)
+        .writeInt(body.length)
+        .writeInt(opaque)
+        .writeLong(0)
+        .writeBytes(body);
+  }
+
+  /**
+   * Helper method to read the content of a completed request.
+   */
+  private static String content(final GetRequest request) {
+    assertTrue(request.hasSucceeded());
+    return new String(request.response().join().content(), Constants.CHARSET);
+  }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io.netty;
+
+import static com.couchbase.client.core.env.DefaultCoreEnvironment.DEFAULT_MAX_FRAME_SIZE;
+
+import com.couchbase.client.core.env.CompletionConfig;
+import com.couchbase.client.core.env.PipelineConfig;
+import com.couchbase.client.core.msg.codec.KeyValueCodec;
+import com.couchbase.client.core.msg.kv.GetRequest;
+import com.couchbase.client.core.msg.kv.KeyHandle;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing a batch of requests with one buffer per request against gathering
+ * them into shared buffers.
+ *
+ * <p>Every invocation writes a batch of requests like the endpoint does, flushes once
+ * and completes all of them with their responses so the in-flight map stays small.
+ * Run through {@link #main} to get the allocation rate per operation next to the
+ * latency.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class GatheringWriteBenchmark {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(2);
+  private static final KeyHandle KEY = KeyHandle.of("benchmark");
+
+  @Param({"false", "true"})
+  boolean gathering;
+
+  @Param({"16"})
+  int batchSize;
+
+  private EmbeddedChannel channel;
+  private GetRequest[] batch;
+  private ByteBuf response;
+
+  /**
+   * Creates the channel and the response frame which is fed back.
+   */
+  @Setup(Level.Trial)
+  public void setup() {
+    channel = new EmbeddedChannel(new FusedKeyValueHandler(
+        DEFAULT_MAX_FRAME_SIZE,
+        PipelineConfig.builder().fused(true).gatheringWrites(gathering).build(),
+        CompletionConfig.defaults(),
+        null
+    ));
+    batch = new GetRequest[batchSize];
+    response = Unpooled.buffer(32)
+        .writeByte(0x81)
+        .writeZero(3)
+        .writeByte(4)
+        .writeZero(3)
+        .writeInt(8)
+        .writeInt(0)
+        .writeLong(1)
+        .writeInt(0)
+        .writeInt(42);
+  }
+
+  /**
+   * Closes the channel.
+   */
+  @TearDown(Level.Trial)
+  public void teardown() {
+    channel.finishAndReleaseAll();
+    response.release();
+  }
+
+  /**
+   * Writes and flushes a batch of requests and completes them with their responses.
+   */
+  @Benchmark
+  public int writeBatch() {
+    for (int i = 0; i < batch.length; i++) {
+      batch[i] = new GetRequest(KEY, TIMEOUT, Optional.empty());
+      channel.write(batch[i], channel.voidPromise());
+    }
+    channel.flush();
+
+    int buffers = 0;
+    ByteBuf written;
+    while ((written = channel.readOutbound()) != null) {
+      buffers++;
+      while (written.isReadable()) {
+        final int frameSize = FrameAssembler.HEADER_SIZE
+            + written.getInt(written.readerIndex() + 8);
+        respond(written.getInt(written.readerIndex() + KeyValueCodec.OPAQUE_OFFSET));
+        written.skipBytes(frameSize);
+      }
+      written.release();
+    }
+    channel.pipeline().fireChannelReadComplete();
+    for (GetRequest request : batch) {
+      request.response().join();
+    }
+    return buffers;
+  }
+
+  /**
+   * Feeds back the response for the given opaque.
+   */
+  private void respond(final int opaque) {
+    response.retain().resetReaderIndex();
+    response.setInt(KeyValueCodec.OPAQUE_OFFSET, opaque);
+    channel.pipeline().fireChannelRead(response);
+  }
+
+  /**
+   * Runs this benchmark with the GC profiler.
+   */
+  public static void main(String... args) throws Exception {
+    new Runner(new OptionsBuilder()
+        .include(GatheringWriteBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build()).run();
+  }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io.netty;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.TooLongFrameException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Verifies the functionality of the {@link KeyValueFrameDecoder}.
+ */
+class KeyValueFrameDecoderTest {
+
+  private static final int MAX_FRAME_SIZE = 1024;
+
+  @Test
+  void shouldDecodeMultipleFramesInOneRead() {
+    EmbeddedChannel channel = new EmbeddedChannel(new KeyValueFrameDecoder(MAX_FRAME_SIZE));
+    channel.writeInbound(Unpooled.wrappedBuffer(frame(1, 10), frame(2, 0), frame(3, 5)));
+
+    assertFrame(channel.readInbound(), 1, 10);
+    assertFrame(channel.readInbound(), 2, 0);
+    assertFrame(channel.readInbound(), 3, 5);
+    assertNull(channel.readInbound());
+  }
+
+  @Test
+  void shouldAssembleFrameFromManyReadsWithExactCapacity() {
+    EmbeddedChannel channel = new EmbeddedChannel(new KeyValueFrameDecoder(MAX_FRAME_SIZE));
+    final ByteBuf stream = Unpooled.wrappedBuffer(frame(1, 500), frame(2, 3));
+    while (stream.isReadable()) {
+      channel.writeInbound(stream.readRetainedSlice(Math.min(7, stream.readableBytes())));
+    }
+    stream.release();
+
+    final ByteBuf first = channel.readInbound();
+    assertEquals(FrameAssembler.HEADER_SIZE + 500, first.capacity());
+    assertFrame(first, 1, 500);
+    assertFrame(channel.readInbound(), 2, 3);
+    assertNull(channel.readInbound());
+  }
+
+  @Test
+  void shouldDiscardTooLongFrameAndContinue() {
+    EmbeddedChannel channel = new EmbeddedChannel(new KeyValueFrameDecoder(MAX_FRAME_SIZE));
+    final ByteBuf tooLong = frame(1, MAX_FRAME_SIZE);
+
+    assertThrows(TooLongFrameException.class,
+        () -> channel.writeInbound(tooLong.readRetainedSlice(30)));
+    channel.writeInbound(Unpooled.wrappedBuffer(tooLong, frame(2, 4)));
+
+    assertFrame(channel.readInbound(), 2, 4);
+    assertNull(channel.readInbound());
+  }
+
+  @Test
+  void shouldReleasePartialFrameWhenClosed() {
+    EmbeddedChannel channel = new EmbeddedChannel(new KeyValueFrameDecoder(MAX_FRAME_SIZE));
+    final ByteBuf partial = frame(1, 100).retain();
+    channel.writeInbound(partial.slice(0, 50));
+    channel.finish();
+
+    assertEquals(1, partial.refCnt());
+    partial.release();
+  }
+
+  /**
+   * Helper method to create a frame whose opaque identifies it and whose body is filled
+   * with the given number of bytes.
+   */
+  private static ByteBuf frame(final int opaque, final int bodyLength) {
+    final ByteBuf frame = Unpooled.buffer(FrameAssembler.HEADER_SIZE + bodyLength);
+    frame.writeByte(0x81).writeZero(7).writeInt(bodyLength).writeInt(opaque).writeLong(0);
+    for (int i = 0; i < bodyLength; i++) {
+      frame.writeByte(i);
+    }
+    return frame;
+  }
+
+  /**
+   * Helper method to verify and release a decoded frame.
+   */
+  private static void assertFrame(final ByteBuf frame, final int opaque, final int bodyLength) {
+    try {
+      assertEquals(FrameAssembler.HEADER_SIZE + bodyLength, frame.readableBytes());
+      assertEquals(opaque, frame.getInt(12));
+      for (int i = 0; i < bodyLength; i++) {
+        assertEquals((byte) i, frame.getByte(FrameAssembler.HEADER_SIZE + i));
+      }
+    } finally {
+      frame.release();
+    }
+  }
+
+}
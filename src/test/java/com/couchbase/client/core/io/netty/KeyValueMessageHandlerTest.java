@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io.netty;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.couchbase.client.core.msg.CancellationReason;
+import com.couchbase.client.core.msg.codec.KeyValueCodec;
+import com.couchbase.client.core.msg.kv.GetRequest;
+import com.couchbase.client.core.util.Constants;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Verifies the opaque handling of the {@link KeyValueMessageHandler}.
+ */
+class KeyValueMessageHandlerTest {
+
+  @Test
+  void shouldAssignOpaquesPerChannel() {
+    EmbeddedChannel first = new EmbeddedChannel(new KeyValueMessageHandler());
+    EmbeddedChannel second = new EmbeddedChannel(new KeyValueMessageHandler());
+
+    first.writeOutbound(request());
+    second.writeOutbound(request());
+    first.writeOutbound(request());
+
+    assertEquals(1, writtenOpaque(first));
+    assertEquals(2, writtenOpaque(first));
+    assertEquals(1, writtenOpaque(second));
+  }
+
+  @Test
+  void shouldAssignNewOpaqueOnEveryWrite() {
+    EmbeddedChannel channel = new EmbeddedChannel(new KeyValueMessageHandler());
+    GetRequest request = request();
+
+    channel.writeOutbound(request);
+    channel.writeOutbound(request);
+
+    assertEquals(1, writtenOpaque(channel));
+    assertEquals(2, writtenOpaque(channel));
+  }
+
+  @Test
+  void shouldNotMatchLateResponseOfDiscardedRequest() {
+    EmbeddedChannel channel = new EmbeddedChannel(new KeyValueMessageHandler());
+    GetRequest timedOut = request();
+    channel.writeOutbound(timedOut);
+    timedOut.fail(new TimeoutException());
+
+    GetRequest next = request();
+    channel.writeOutbound(next);
+
+    channel.writeInbound(response(writtenOpaque(channel)));
+    assertFalse(next.hasCompleted());
+
+    channel.writeInbound(response(writtenOpaque(channel)));
+    assertTrue(next.hasSucceeded());
+  }
+
+  @Test
+  void shouldSkipCancelledRequest() {
+    EmbeddedChannel channel = new EmbeddedChannel(new KeyValueMessageHandler());
+    GetRequest request = request();
+    request.cancel(CancellationReason.DISPOSED);
+
+    channel.writeOutbound(request);
+    ByteBuf written = channel.readOutbound();
+    assertEquals(0, written.readableBytes());
+  }
+
+  @Test
+  void shouldIgnoreResponseOfCancelledRequest() {
+    EmbeddedChannel channel = new EmbeddedChannel(new KeyValueMessageHandler());
+    GetRequest request = request();
+    channel.writeOutbound(request);
+    int opaque = writtenOpaque(channel);
+
+    request.cancel(CancellationReason.TIMEOUT);
+    channel.writeInbound(response(opaque));
+    assertEquals(Optional.of(CancellationReason.TIMEOUT), request.cancellationReason());
+  }
+
+  @Test
+  void shouldCompleteResponsesOutOfOrder() {
+    EmbeddedChannel channel = new EmbeddedChannel(new KeyValueMessageHandler());
+    GetRequest slow = request();
+    GetRequest fast = request();
+    channel.writeOutbound(slow, fast);
+    final int slowOpaque = writtenOpaque(channel);
+    int fastOpaque = writtenOpaque(channel);
+
+    channel.writeInbound(response(fastOpaque));
+    assertTrue(fast.hasSucceeded());
+    assertFalse(slow.hasCompleted());
+
+    channel.writeInbound(response(slowOpaque));
+    assertTrue(slow.hasSucceeded());
+  }
+
+  @Test
+  void shouldFailRequestWhoseResponseCannotBeDecoded() {
+    EmbeddedChannel channel = new EmbeddedChannel(new KeyValueMessageHandler());
+    GetRequest request = request();
+    channel.writeOutbound(request);
+
+    // flagged as snappy compressed, but the content is no valid snappy value.
+    ByteBuf response = Unpooled.buffer(26)
+        .writeByte(0x81)
+        .writeZero(4)
+        .writeByte(0x02)
+        .writeZero(2)
+        .writeInt(2)
+        .writeInt(writtenOpaque(channel))
+        .writeLong(0)
+        .writeByte(0xff)
+        .writeByte(0xff);
+    channel.writeInbound(response);
+    assertTrue(request.hasFailed());
+  }
+
+  /**
+   * Helper method to create a request.
+   */
+  private static GetRequest request() {
+    return new GetRequest("key".getBytes(Constants.CHARSET), Duration.ofSeconds(30),
+        Optional.empty());
+  }
+
+  /**
+   * Helper method to read the opaque of the next written request.
+   */
+  private static int writtenOpaque(final EmbeddedChannel channel) {
+    ByteBuf written = channel.readOutbound();
+    try {
+      return written.getInt(KeyValueCodec.OPAQUE_OFFSET);
+    } finally {
+      written.release();
+    }
+  }
+
+  /**
+   * Helper method to create an empty successful response with the given opaque.
+   */
+  private static ByteBuf response(final int opaque) {
+    return Unpooled.buffer(24)
+        .writeByte(0x81)
+        .writeByte(0)
+        .writeZero(6)
+        .writeInt(0)
+        .writeInt(opaque)
+        .writeLong(0);
+  }
+
+}
@@ -16,22 +16,477 @@
 
 package com.couchbase.client.core.io.netty;
 
+import static com.couchbase.client.core.env.DefaultCoreEnvironment.DEFAULT_MAX_FRAME_SIZE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.couchbase.client.core.env.CircuitBreakerConfig;
+import com.couchbase.client.core.env.CompletionConfig;
+import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.env.DefaultCoreEnvironment;
+import com.couchbase.client.core.env.PipelineConfig;
+import com.couchbase.client.core.env.ReconnectConfig;
+import com.couchbase.client.core.env.SecurityConfig;
+import com.couchbase.client.core.error.CircuitOpenException;
+import com.couchbase.client.core.error.EndpointDisconnectedException;
+import com.couchbase.client.core.error.RequestBufferFullException;
+import com.couchbase.client.core.io.CircuitBreaker;
+import com.couchbase.client.core.io.EndpointState;
+import com.couchbase.client.core.io.ServiceType;
+import com.couchbase.client.core.msg.CancellationReason;
+import com.couchbase.client.core.msg.ResponseStatus;
+import com.couchbase.client.core.msg.codec.KeyValueCodec;
+import com.couchbase.client.core.msg.kv.BaseKeyValueRequest;
 import com.couchbase.client.core.msg.kv.GetRequest;
+import com.couchbase.client.core.msg.kv.GetResponse;
 import com.couchbase.client.core.util.Constants;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.ssl.JdkSslContext;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
 import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
+/**
+ * Verifies the connection lifecycle of the {@link NettyEndpoint} against a local server.
+ */
 class NettyEndpointTest {
 
+  private static final ReconnectConfig FAST_RECONNECT = ReconnectConfig.builder()
+      .minDelay(Duration.ofMillis(5))
+      .maxDelay(Duration.ofMillis(50))
+      .build();
+
+  private final EventLoopGroup serverGroup = new NioEventLoopGroup(1);
+  private final List<Channel> serverChannels = new CopyOnWriteArrayList<>();
+  private final List<CoreEnvironment> environments = new CopyOnWriteArrayList<>();
+  private volatile boolean respond = true;
+  private NettyEndpoint endpoint;
+
+  @AfterEach
+  void tearDown() {
+    if (endpoint != null) {
+      endpoint.disconnect();
+    }
+    for (CoreEnvironment environment : environments) {
+      environment.shutdown(Duration.ofSeconds(1));
+    }
+    serverGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void shouldBufferUntilConnected() throws Exception {
+    int port = freePort();
+    endpoint = endpoint(FAST_RECONNECT, port);
+    endpoint.connect();
+    assertEquals(EndpointState.CONNECTING, endpoint.state());
+
+    GetRequest request = request();
+    endpoint.dispatch(request);
+    Thread.sleep(50);
+    assertFalse(request.hasCompleted());
+
+    startServer(port);
+    assertEquals(ResponseStatus.SUCCESS, request.response().get(5, TimeUnit.SECONDS).status());
+    assertEquals(EndpointState.CONNECTED, endpoint.state());
+  }
+
+  @Test
+  void shouldFailWhenBufferIsFull() {
+    ReconnectConfig config = ReconnectConfig.builder()
+        .maxBufferedRequests(1)
+        .build();
+    endpoint = endpoint(config, freePort());
+    endpoint.connect();
+
+    GetRequest buffered = request();
+    GetRequest overflow = request();
+    endpoint.dispatch(buffered);
+    endpoint.dispatch(overflow);
+
+    assertFalse(buffered.hasCompleted());
+    assertFailedWith(overflow, RequestBufferFullException.class);
+  }
+
+  @Test
+  void shouldFailInFlightAndReconnect() throws Exception {
+    int port = freePort();
+    startServer(port);
+    respond = false;
+    endpoint = endpoint(FAST_RECONNECT, port);
+    endpoint.connect();
+    waitUntil(() -> endpoint.state() == EndpointState.CONNECTED);
+
+    GetRequest request = request();
+    endpoint.dispatch(request);
+    waitUntil(() -> !serverChannels.isEmpty());
+    Thread.sleep(50);
+    serverChannels.get(0).close();
+
+    assertFailedWith(request, EndpointDisconnectedException.class);
+    waitUntil(() -> serverChannels.size() == 2);
+    waitUntil(() -> endpoint.state() == EndpointState.CONNECTED);
+
+    respond = true;
+    GetRequest next = request();
+    endpoint.dispatch(next);
+    assertEquals(ResponseStatus.SUCCESS, next.response().get(5, TimeUnit.SECONDS).status());
+  }
+
+  @Test
+  void shouldKeepChannelOfWinningAttemptWhenDisconnectRacesWithConnect() throws Exception {
+    int port = freePort();
+    startServer(port);
+    CoreEnvironment environment = DefaultCoreEnvironment.builder()
+        .reconnectConfig(FAST_RECONNECT)
+        .build();
+    environments.add(environment);
+
+    for (int i = 0; i < 20; i++) {
+      // a fresh endpoint has no channel yet, so the disconnect completes right away and
+      // the first attempt completes while the second one is in flight. Only one of them
+      // may become the channel of the endpoint.
+      endpoint = new NettyEndpoint(environment, "127.0.0.1", port);
+      endpoint.connect();
+      endpoint.disconnect();
+      endpoint.connect();
+      waitUntil(() -> endpoint.state() == EndpointState.CONNECTED);
+
+      GetRequest request = request();
+      endpoint.dispatch(request);
+      assertEquals(ResponseStatus.SUCCESS, request.response().get(5, TimeUnit.SECONDS).status());
+
+      endpoint.disconnect();
+      waitUntil(() -> endpoint.state() == EndpointState.DISCONNECTED);
+    }
+    waitUntil(() -> serverChannels.stream().noneMatch(Channel::isActive));
+  }
+
+  @Test
+  void shouldFailBufferedOnDisconnect() {
+    endpoint = endpoint(FAST_RECONNECT, freePort());
+    endpoint.connect();
+
+    GetRequest request = request();
+    endpoint.dispatch(request);
+    endpoint.disconnect();
+
+    assertFailedWith(request, EndpointDisconnectedException.class);
+    waitUntil(() -> endpoint.state() == EndpointState.DISCONNECTED);
+
+    GetRequest late = request();
+    endpoint.dispatch(late);
+    assertFailedWith(late, EndpointDisconnectedException.class);
+  }
+
+  @Test
+  void shouldShedBufferedRequestsPastTheirDeadline() throws Exception {
+    int port = freePort();
+    endpoint = endpoint(FAST_RECONNECT, port);
+    endpoint.connect();
+
+    GetRequest expired = new GetRequest("key".getBytes(Constants.CHARSET),
+        Duration.ofMillis(20), Optional.empty());
+    GetRequest alive = request();
+    endpoint.dispatch(expired);
+    endpoint.dispatch(alive);
+    Thread.sleep(50);
+    assertFalse(expired.hasCompleted());
+
+    startServer(port);
+    assertEquals(ResponseStatus.SUCCESS, alive.response().get(5, TimeUnit.SECONDS).status());
+    assertEquals(CancellationReason.TIMEOUT, expired.cancellationReason().get());
+  }
+
+  @Test
+  void shouldReconnectAfterDisconnect() throws Exception {
+    int port = freePort();
+    startServer(port);
+    endpoint = endpoint(FAST_RECONNECT, port);
+    endpoint.connect();
+    waitUntil(() -> endpoint.state() == EndpointState.CONNECTED);
+
+    endpoint.disconnect();
+    waitUntil(() -> endpoint.state() == EndpointState.DISCONNECTED);
+
+    endpoint.connect();
+    GetRequest request = request();
+    endpoint.dispatch(request);
+    assertEquals(ResponseStatus.SUCCESS, request.response().get(5, TimeUnit.SECONDS).status());
+  }
+
+  @Test
+  void shouldUseEventLoopGroupOfEnvironment() {
+    CoreEnvironment environment = DefaultCoreEnvironment.defaults();
+    environments.add(environment);
+
+    NettyEndpoint first = new NettyEndpoint(environment, "127.0.0.1", freePort());
+    NettyEndpoint second = new NettyEndpoint(environment, "127.0.0.1", freePort());
+    assertSame(first.eventLoopGroup(), second.eventLoopGroup());
+    assertSame(environment.eventLoopGroup(ServiceType.KV), first.eventLoopGroup());
+  }
+
+  @Test
+  void shouldWriteRequestsFromManyThreads() throws Exception {
+    int port = freePort();
+    startServer(port);
+    endpoint = endpoint(FAST_RECONNECT, port);
+    endpoint.connect();
+    waitUntil(() -> endpoint.state() == EndpointState.CONNECTED);
+
+    List<CompletableFuture<GetResponse>> responses = new CopyOnWriteArrayList<>();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (int i = 0; i < 1000; i++) {
+        executor.execute(() -> {
+          GetRequest request = request();
+          responses.add(request.response());
+          endpoint.dispatch(request);
+        });
+      }
+    } finally {
+      executor.shutdown();
+      executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    CompletableFuture.allOf(responses.toArray(new CompletableFuture<?>[0]))
+        .get(5, TimeUnit.SECONDS);
+    assertEquals(1000, responses.size());
+  }
+
+  @Test
+  void shouldWriteInlineOnEventLoop() throws Exception {
+    int port = freePort();
+    startServer(port);
+    endpoint = endpoint(FAST_RECONNECT, port);
+    endpoint.connect();
+    waitUntil(() -> endpoint.state() == EndpointState.CONNECTED);
+
+    GetRequest request = request();
+    endpoint.eventLoopGroup().next().submit(() -> endpoint.dispatch(request)).sync();
+    assertEquals(ResponseStatus.SUCCESS, request.response().get(5, TimeUnit.SECONDS).status());
+  }
+
+  @Test
+  void shouldFailRequestWhichCannotBeEncoded() throws Exception {
+    int port = freePort();
+    startServer(port);
+    endpoint = endpoint(FAST_RECONNECT, port);
+    endpoint.connect();
+    waitUntil(() -> endpoint.state() == EndpointState.CONNECTED);
+
+    NotEncodableRequest request = new NotEncodableRequest();
+    endpoint.dispatch(request);
+    ExecutionException thrown = assertThrows(ExecutionException.class,
+        () -> request.response().get(5, TimeUnit.SECONDS));
+    assertTrue(thrown.getCause() instanceof UnsupportedOperationException);
+
+    GetRequest next = request();
+    endpoint.dispatch(next);
+    assertEquals(ResponseStatus.SUCCESS, next.response().get(5, TimeUnit.SECONDS).status());
+  }
+
+  @Test
+  void shouldCompleteOnCompletionExecutor() throws Exception {
+    int port = freePort();
+    startServer(port);
+    CoreEnvironment environment = DefaultCoreEnvironment.builder()
+        .completionConfig(CompletionConfig.builder()
+            .mode(CompletionConfig.Mode.BATCHED)
+            .poolSize(1)
+            .build())
+        .build();
+    environments.add(environment);
+    endpoint = new NettyEndpoint(environment, "127.0.0.1", port);
+    endpoint.connect();
+
+    GetRequest request = request();
+    CompletableFuture<String> completedOn = new CompletableFuture<>();
+    request.whenComplete((response, throwable) ->
+        completedOn.complete(Thread.currentThread().getName()));
+    endpoint.dispatch(request);
+    assertTrue(completedOn.get(5, TimeUnit.SECONDS).startsWith("cb-completion"));
+  }
+
+  @Test
+  void shouldRoundTripThroughFusedPipeline() throws Exception {
+    int port = freePort();
+    startServer(port);
+    CoreEnvironment environment = DefaultCoreEnvironment.builder()
+        .pipelineConfig(PipelineConfig.builder().fused(true).build())
+        .build();
+    environments.add(environment);
+    endpoint = new NettyEndpoint(environment, "127.0.0.1", port);
+    endpoint.connect();
+
+    GetRequest request = request();
+    endpoint.dispatch(request);
+    assertEquals(ResponseStatus.SUCCESS, request.response().get(5, TimeUnit.SECONDS).status());
+  }
+
+  @Test
+  void shouldRoundTripOverTls() throws Exception {
+    int port = freePort();
+    startServer(port, serverSslContext());
+    CoreEnvironment environment = DefaultCoreEnvironment.builder()
+        .securityConfig(SecurityConfig.enabled().trustCertificates(certificate()).build())
+        .build();
+    environments.add(environment);
+    assertTrue(environment.sslContext().isPresent());
+    endpoint = new NettyEndpoint(environment, "127.0.0.1", port);
+    endpoint.connect();
+
+    GetRequest request = request();
+    endpoint.dispatch(request);
+    assertEquals(ResponseStatus.SUCCESS, request.response().get(5, TimeUnit.SECONDS).status());
+  }
+
+  @Test
+  void shouldResumeTlsSessionOnReconnect() throws Exception {
+    int port = freePort();
+    // session ids only identify resumed sessions up to TLS 1.2.
+    startServer(port, serverSslContextBuilder().protocols("TLSv1.2").build());
+    CoreEnvironment environment = DefaultCoreEnvironment.builder()
+        .reconnectConfig(FAST_RECONNECT)
+        .securityConfig(SecurityConfig.enabled().trustCertificates(certificate()).build())
+        .build();
+    environments.add(environment);
+    assertTrue(environment.sslContext().get() instanceof JdkSslContext);
+    endpoint = new NettyEndpoint(environment, "127.0.0.1", port);
+    endpoint.connect();
+
+    GetRequest request = request();
+    endpoint.dispatch(request);
+    assertEquals(ResponseStatus.SUCCESS, request.response().get(5, TimeUnit.SECONDS).status());
+    final byte[] sessionId = serverSessionId(serverChannels.get(0));
+    assertTrue(sessionId.length > 0);
+    serverChannels.get(0).close();
+
+    waitUntil(() -> serverChannels.size() == 2);
+    GetRequest next = request();
+    endpoint.dispatch(next);
+    assertEquals(ResponseStatus.SUCCESS, next.response().get(5, TimeUnit.SECONDS).status());
+    assertArrayEquals(sessionId, serverSessionId(serverChannels.get(1)));
+  }
+
+  @Test
+  void shouldFailRequestsIfCertificateIsNotTrusted() throws Exception {
+    int port = freePort();
+    startServer(port, serverSslContext());
+    CoreEnvironment environment = DefaultCoreEnvironment.builder()
+        .reconnectConfig(FAST_RECONNECT)
+        .securityConfig(SecurityConfig.enabled().build())
+        .build();
+    environments.add(environment);
+    endpoint = new NettyEndpoint(environment, "127.0.0.1", port);
+    endpoint.connect();
+    waitUntil(() -> endpoint.state() == EndpointState.CONNECTED);
+
+    GetRequest request = request();
+    endpoint.dispatch(request);
+    assertFailedWith(request, EndpointDisconnectedException.class);
+  }
+
+  @Test
+  void shouldFailFastWhileCircuitIsOpen() throws Exception {
+    int port = freePort();
+    startServer(port);
+    respond = false;
+    CoreEnvironment environment = DefaultCoreEnvironment.builder()
+        .circuitBreakerConfig(CircuitBreakerConfig.enabled()
+            .minRequests(2)
+            .openDuration(Duration.ofMillis(200))
+            .probes(1)
+            .build())
+        .build();
+    environments.add(environment);
+    endpoint = new NettyEndpoint(environment, "127.0.0.1", port);
+    endpoint.connect();
+
+    for (int i = 0; i < 2; i++) {
+      GetRequest request = request();
+      endpoint.dispatch(request);
+      request.cancel(CancellationReason.TIMEOUT);
+    }
+    assertEquals(CircuitBreaker.State.OPEN, endpoint.circuitBreaker().state());
+
+    GetRequest rejected = request();
+    endpoint.dispatch(rejected);
+    assertTrue(rejected.hasFailed());
+    assertFailedWith(rejected, CircuitOpenException.class);
+
+    respond = true;
+    Thread.sleep(250);
+    GetRequest probe = request();
+    endpoint.dispatch(probe);
+    assertEquals(ResponseStatus.SUCCESS, probe.response().get(5, TimeUnit.SECONDS).status());
+    waitUntil(() -> endpoint.circuitBreaker().state() == CircuitBreaker.State.CLOSED);
+  }
+
+  @Test
+  void shouldNotCountLifecycleFailuresAgainstCircuit() {
+    CoreEnvironment environment = DefaultCoreEnvironment.builder()
+        .circuitBreakerConfig(CircuitBreakerConfig.enabled().minRequests(1).build())
+        .build();
+    environments.add(environment);
+    endpoint = new NettyEndpoint(environment, "127.0.0.1", freePort());
+
+    GetRequest request = request();
+    endpoint.dispatch(request);
+    assertFailedWith(request, EndpointDisconnectedException.class);
+    assertEquals(CircuitBreaker.State.CLOSED, endpoint.circuitBreaker().state());
+  }
+
+  @Test
+  void shouldCapJitteredBackoff() {
+    ReconnectConfig config = ReconnectConfig.builder()
+        .minDelay(Duration.ofMillis(10))
+        .maxDelay(Duration.ofMillis(100))
+        .build();
+    for (int attempt = 0; attempt < 100; attempt++) {
+      long backoff = NettyEndpoint.backoffNanos(config, attempt);
+      long bound = Math.min(Duration.ofMillis(100).toNanos(),
+          Duration.ofMillis(10).toNanos() << Math.min(attempt, 20));
+      assertTrue(backoff >= 0 && backoff <= bound);
+    }
+  }
+
   @Test
   @Disabled
   void foo() throws Exception {
     NettyEndpoint endpoint = new NettyEndpoint();
+    endpoint.connect();
 
 
     while (true) {
@@ -40,7 +495,7 @@ class NettyEndpointTest {
 
       for (int i = 0; i < batch; i++) {
         GetRequest request = new GetRequest(
-            ("I_DONT_EXIST0000000000000000000" + i).getBytes(Constants.CHARSET),
+            "I_DONT_EXIST0000000000000000000" + i,
             Duration.ofSeconds(2),
             Optional.empty()
         );
@@ -55,4 +510,160 @@ class NettyEndpointTest {
 
   }
 
-}
\ No newline at end of file
+  /**
+   * Helper method to create an endpoint to the local server.
+   */
+  private NettyEndpoint endpoint(final ReconnectConfig config, final int port) {
+    CoreEnvironment environment = DefaultCoreEnvironment.builder()
+        .reconnectConfig(config)
+        .build();
+    environments.add(environment);
+    return new NettyEndpoint(environment, "127.0.0.1", port);
+  }
+
+  /**
+   * Helper method to create a request with a long timeout.
+   */
+  private static GetRequest request() {
+    return new GetRequest("key".getBytes(Constants.CHARSET), Duration.ofSeconds(30),
+        Optional.empty());
+  }
+
+  /**
+   * Helper method to find a port nobody listens on.
+   */
+  private static int freePort() {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    } catch (Exception ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  /**
+   * Starts a server which answers every request with an empty successful response,
+   * unless {@link #respond} is false.
+   */
+  private void startServer(final int port) throws Exception {
+    startServer(port, null);
+  }
+
+  /**
+   * Starts a server like {@link #startServer(int)}, which encrypts its connections with
+   * the given context if it is not null.
+   */
+  private void startServer(final int port, final SslContext sslContext) throws Exception {
+    new ServerBootstrap()
+        .group(serverGroup)
+        .channel(NioServerSocketChannel.class)
+        .childHandler(new ChannelInitializer<SocketChannel>() {
+          @Override
+          protected void initChannel(SocketChannel chan) {
+            serverChannels.add(chan);
+            if (sslContext != null) {
+              chan.pipeline().addLast(sslContext.newHandler(chan.alloc()));
+            }
+            chan.pipeline().addLast(new KeyValueFrameDecoder(DEFAULT_MAX_FRAME_SIZE));
+            chan.pipeline().addLast(new SimpleChannelInboundHandler<ByteBuf>() {
+              @Override
+              protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
+                if (respond) {
+                  ctx.writeAndFlush(ctx.alloc().buffer(24)
+                      .writeByte(0x81)
+                      .writeByte(0)
+                      .writeZero(6)
+                      .writeInt(0)
+                      .writeInt(msg.getInt(KeyValueCodec.OPAQUE_OFFSET))
+                      .writeLong(0));
+                }
+              }
+            });
+          }
+        })
+        .bind("127.0.0.1", port)
+        .sync();
+  }
+
+  /**
+   * Helper method to create the server context from the self-signed test certificate.
+   */
+  private static SslContext serverSslContext() throws Exception {
+    return serverSslContextBuilder().build();
+  }
+
+  /**
+   * Helper method to create the server context builder from the self-signed test
+   * certificate.
+   */
+  private static SslContextBuilder serverSslContextBuilder() throws Exception {
+    try (InputStream cert = resource("server.crt"); InputStream key = resource("server.key")) {
+      return SslContextBuilder.forServer(cert, key);
+    }
+  }
+
+  /**
+   * Helper method to read the id of the TLS session of a server channel once its
+   * handshake is done.
+   */
+  private static byte[] serverSessionId(final Channel channel) throws Exception {
+    SslHandler handler = channel.pipeline().get(SslHandler.class);
+    handler.handshakeFuture().get(5, TimeUnit.SECONDS);
+    return handler.engine().getSession().getId();
+  }
+
+  /**
+   * Helper method to load the self-signed test certificate, valid for 127.0.0.1.
+   */
+  private static X509Certificate certificate() throws Exception {
+    try (InputStream cert = resource("server.crt")) {
+      return (X509Certificate) CertificateFactory.getInstance("X.509")
+          .generateCertificate(cert);
+    }
+  }
+
+  /**
+   * Helper method to open a test resource of the TLS tests.
+   */
+  private static InputStream resource(final String name) {
+    return NettyEndpointTest.class.getResourceAsStream("/tls/" + name);
+  }
+
+  /**
+   * A request which fails to encode.
+   */
+  static class NotEncodableRequest extends BaseKeyValueRequest<GetResponse> {
+
+    NotEncodableRequest() {
+      super(Duration.ofSeconds(30), Optional.empty());
+    }
+
+  }
+
+  /**
+   * Helper method to wait for a condition for up to five seconds.
+   */
+  private static void waitUntil(final BooleanSupplier condition) {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() > deadline) {
+        throw new AssertionError("Condition not met in time.");
+      }
+      try {
+        Thread.sleep(5);
+      } catch (InterruptedException ex) {
+        throw new IllegalStateException(ex);
+      }
+    }
+  }
+
+  /**
+   * Helper method to assert a request failed with the given exception type.
+   */
+  private static void assertFailedWith(final GetRequest request,
+                                       final Class<? extends Throwable> type) {
+    ExecutionException thrown = assertThrows(ExecutionException.class,
+        () -> request.response().get(5, TimeUnit.SECONDS));
+    assertTrue(type.isInstance(thrown.getCause()), thrown.getCause().toString());
+  }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io.netty;
+
+import static com.couchbase.client.core.env.DefaultCoreEnvironment.DEFAULT_MAX_FRAME_SIZE;
+
+import com.couchbase.client.core.env.CompletionConfig;
+import com.couchbase.client.core.env.PipelineConfig;
+import com.couchbase.client.core.msg.codec.KeyValueCodec;
+import com.couchbase.client.core.msg.kv.GetRequest;
+import com.couchbase.client.core.msg.kv.GetResponse;
+import com.couchbase.client.core.msg.kv.KeyHandle;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the round trip of a request through the separate frame decoder and message
+ * handler with the {@link FusedKeyValueHandler}.
+ *
+ * <p>Every invocation writes one request through an {@link EmbeddedChannel} and feeds
+ * back the response with its opaque, which completes the request. Run through
+ * {@link #main} to get the allocation rate per operation next to the latency.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(2);
+  private static final KeyHandle KEY = KeyHandle.of("benchmark");
+
+  @Param({"separate", "fused"})
+  String pipeline;
+
+  private EmbeddedChannel channel;
+  private ByteBuf response;
+
+  /**
+   * Creates the channel and the response frame which is fed back.
+   */
+  @Setup(Level.Trial)
+  public void setup() {
+    if (pipeline.equals("fused")) {
+      channel = new EmbeddedChannel(
+          new FusedKeyValueHandler(DEFAULT_MAX_FRAME_SIZE, PipelineConfig.defaults(),
+              CompletionConfig.defaults(), null)
+      );
+    } else {
+      channel = new EmbeddedChannel(
+          new KeyValueFrameDecoder(DEFAULT_MAX_FRAME_SIZE),
+          new KeyValueMessageHandler()
+      );
+    }
+    response = Unpooled.buffer(32)
+        .writeByte(0x81)
+        .writeZero(3)
+        .writeByte(4)
+        .writeZero(3)
+        .writeInt(8)
+        .writeInt(0)
+        .writeLong(1)
+        .writeInt(0)
+        .writeInt(42);
+  }
+
+  /**
+   * Closes the channel.
+   */
+  @TearDown(Level.Trial)
+  public void teardown() {
+    channel.finishAndReleaseAll();
+    response.release();
+  }
+
+  /**
+   * Writes a request and completes it with its response.
+   */
+  @Benchmark
+  public GetResponse roundTrip() {
+    final GetRequest request = new GetRequest(KEY, TIMEOUT, Optional.empty());
+    channel.writeAndFlush(request);
+    final ByteBuf written = channel.readOutbound();
+    final int opaque = written.getInt(KeyValueCodec.OPAQUE_OFFSET);
+    written.release();
+
+    response.retain().resetReaderIndex();
+    response.setInt(KeyValueCodec.OPAQUE_OFFSET, opaque);
+    channel.pipeline().fireChannelRead(response).fireChannelReadComplete();
+    return request.response().join();
+  }
+
+  /**
+   * Runs this benchmark with the GC profiler.
+   */
+  public static void main(String... args) throws Exception {
+    new Runner(new OptionsBuilder()
+        .include(PipelineBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build()).run();
+  }
+
+}
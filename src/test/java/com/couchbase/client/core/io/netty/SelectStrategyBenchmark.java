@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io.netty;
+
+import static com.couchbase.client.core.env.DefaultCoreEnvironment.DEFAULT_MAX_FRAME_SIZE;
+
+import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.env.DefaultCoreEnvironment;
+import com.couchbase.client.core.env.IoConfig;
+import com.couchbase.client.core.env.SelectStrategyConfig;
+import com.couchbase.client.core.io.EndpointState;
+import com.couchbase.client.core.msg.kv.GetRequest;
+import com.couchbase.client.core.util.Constants;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the round trip latency of Key/Value requests against a local server with the
+ * different select strategies.
+ *
+ * <p>The sample time mode reports the p50 and p99 of every configuration. With one
+ * request in flight the loop is idle between requests, which is where spinning avoids
+ * the wakeup latency. With more requests in flight the loop stays busy and the
+ * strategies converge.</p>
+ *
+ * <p>Run it through the {@link #main} method, for example from the IDE.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SelectStrategyBenchmark {
+
+  @Param({"blocking", "busy-spin", "spin-then-park"})
+  public String strategy;
+
+  @Param({"1", "16"})
+  public int inFlight;
+
+  private EventLoopGroup serverGroup;
+  private CoreEnvironment environment;
+  private NettyEndpoint endpoint;
+  private byte[] key;
+
+  /**
+   * Starts a local server which answers every request and connects an endpoint to it.
+   */
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    serverGroup = new NioEventLoopGroup(1);
+    Channel server = new ServerBootstrap()
+        .group(serverGroup)
+        .channel(NioServerSocketChannel.class)
+        .childHandler(new ChannelInitializer<SocketChannel>() {
+          @Override
+          protected void initChannel(SocketChannel chan) {
+            chan.pipeline().addLast(new KeyValueFrameDecoder(DEFAULT_MAX_FRAME_SIZE));
+            chan.pipeline().addLast(new SimpleChannelInboundHandler<ByteBuf>() {
+              @Override
+              protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
+                ctx.writeAndFlush(ctx.alloc().buffer(24)
+                    .writeByte(0x81)
+                    .writeByte(0)
+                    .writeZero(6)
+                    .writeInt(0)
+                    .writeInt(msg.getInt(12))
+                    .writeLong(0));
+              }
+            });
+          }
+        })
+        .bind("127.0.0.1", 0)
+        .sync()
+        .channel();
+
+    environment = DefaultCoreEnvironment.builder()
+        .ioConfig(IoConfig.builder().poolSize(1).selectStrategy(selectStrategy()).build())
+        .build();
+    endpoint = new NettyEndpoint(
+        environment,
+        "127.0.0.1",
+        ((InetSocketAddress) server.localAddress()).getPort()
+    );
+    endpoint.connect();
+    while (endpoint.state() != EndpointState.CONNECTED) {
+      Thread.sleep(1);
+    }
+    key = "benchmark".getBytes(Constants.CHARSET);
+  }
+
+  /**
+   * Disconnects the endpoint and stops the server.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    endpoint.disconnect();
+    environment.shutdown(Duration.ofSeconds(5));
+    serverGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+  }
+
+  /**
+   * Dispatches a batch of requests and waits for all of them to complete.
+   */
+  @Benchmark
+  public Object roundTrip() {
+    final CompletableFuture<?>[] responses = new CompletableFuture<?>[inFlight];
+    for (int i = 0; i < inFlight; i++) {
+      final GetRequest request = new GetRequest(key, Duration.ofSeconds(5), Optional.empty());
+      endpoint.dispatch(request);
+      responses[i] = request.response();
+    }
+    return CompletableFuture.allOf(responses).join();
+  }
+
+  /**
+   * Converts the strategy parameter into its config.
+   */
+  private SelectStrategyConfig selectStrategy() {
+    switch (strategy) {
+      case "busy-spin":
+        return SelectStrategyConfig.busySpin();
+      case "spin-then-park":
+        return SelectStrategyConfig.spinThenPark();
+      default:
+        return SelectStrategyConfig.blocking();
+    }
+  }
+
+  /**
+   * Runs this benchmark.
+   */
+  public static void main(String... args) throws Exception {
+    new Runner(new OptionsBuilder()
+        .include(SelectStrategyBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+
+}
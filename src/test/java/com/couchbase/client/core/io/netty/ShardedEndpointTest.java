@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io.netty;
+
+import static com.couchbase.client.core.env.DefaultCoreEnvironment.DEFAULT_MAX_FRAME_SIZE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.couchbase.client.core.env.CircuitBreakerConfig;
+import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.env.DefaultCoreEnvironment;
+import com.couchbase.client.core.env.IoConfig;
+import com.couchbase.client.core.io.CircuitBreaker;
+import com.couchbase.client.core.io.EndpointState;
+import com.couchbase.client.core.msg.CancellationReason;
+import com.couchbase.client.core.msg.ResponseStatus;
+import com.couchbase.client.core.msg.codec.KeyValueCodec;
+import com.couchbase.client.core.msg.kv.GetRequest;
+import com.couchbase.client.core.util.Constants;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Verifies that the {@link ShardedEndpoint} keeps one connection per shard.
+ */
+class ShardedEndpointTest {
+
+  private static final int SHARDS = 2;
+
+  private final EventLoopGroup serverGroup = new NioEventLoopGroup(1);
+  private final List<Channel> serverChannels = new CopyOnWriteArrayList<>();
+  private CoreEnvironment environment;
+  private ShardedEndpoint endpoint;
+  private int port;
+
+  @BeforeEach
+  void setup() throws Exception {
+    Channel server = new ServerBootstrap()
+        .group(serverGroup)
+        .channel(NioServerSocketChannel.class)
+        .childHandler(new ChannelInitializer<SocketChannel>() {
+          @Override
+          protected void initChannel(SocketChannel chan) {
+            serverChannels.add(chan);
+            chan.pipeline().addLast(new KeyValueFrameDecoder(DEFAULT_MAX_FRAME_SIZE));
+            chan.pipeline().addLast(new SimpleChannelInboundHandler<ByteBuf>() {
+              @Override
+              protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
+                ctx.writeAndFlush(ctx.alloc().buffer(24)
+                    .writeByte(0x81)
+                    .writeByte(0)
+                    .writeZero(6)
+                    .writeInt(0)
+                    .writeInt(msg.getInt(KeyValueCodec.OPAQUE_OFFSET))
+                    .writeLong(0));
+              }
+            });
+          }
+        })
+        .bind("127.0.0.1", 0)
+        .sync()
+        .channel();
+    port = ((InetSocketAddress) server.localAddress()).getPort();
+    environment = DefaultCoreEnvironment.builder()
+        .ioConfig(IoConfig.builder().poolSize(SHARDS).sharded(true).build())
+        .build();
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (endpoint != null) {
+      endpoint.disconnect();
+    }
+    environment.shutdown(Duration.ofSeconds(1));
+    serverGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void shouldOpenOneConnectionPerShard() throws Exception {
+    endpoint = new ShardedEndpoint(environment, "127.0.0.1", port);
+    assertEquals(EndpointState.DISCONNECTED, endpoint.state());
+
+    endpoint.connect();
+    waitUntil(() -> endpoint.state() == EndpointState.CONNECTED);
+    waitUntil(() -> serverChannels.size() == SHARDS);
+
+    for (int i = 0; i < SHARDS; i++) {
+      assertSame(environment.shards().eventLoop(i), endpoint.shard(i).eventLoopGroup());
+    }
+
+    endpoint.disconnect();
+    waitUntil(() -> endpoint.state() == EndpointState.DISCONNECTED);
+  }
+
+  @Test
+  void shouldDispatchToShardOfEventLoop() throws Exception {
+    endpoint = new ShardedEndpoint(environment, "127.0.0.1", port);
+    endpoint.connect();
+    waitUntil(() -> endpoint.state() == EndpointState.CONNECTED);
+
+    GetRequest request = new GetRequest("key".getBytes(Constants.CHARSET),
+        Duration.ofSeconds(5), Optional.empty());
+    CompletableFuture<Boolean> completedOnShard = new CompletableFuture<>();
+    request.whenComplete((response, throwable) ->
+        completedOnShard.complete(environment.shards().eventLoop(1).inEventLoop()));
+    environment.shards().eventLoop(1).execute(() -> endpoint.dispatch(request));
+    assertEquals(ResponseStatus.SUCCESS, request.response().get(5, TimeUnit.SECONDS).status());
+    assertTrue(completedOnShard.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void shouldDispatchFromOtherThreadsToHomeShard() throws Exception {
+    endpoint = new ShardedEndpoint(environment, "127.0.0.1", port);
+    endpoint.connect();
+    waitUntil(() -> endpoint.state() == EndpointState.CONNECTED);
+
+    for (int i = 0; i < SHARDS; i++) {
+      GetRequest request = new GetRequest("key".getBytes(Constants.CHARSET),
+          Duration.ofSeconds(5), Optional.empty());
+      endpoint.dispatch(request);
+      request.response().get(5, TimeUnit.SECONDS);
+    }
+    waitUntil(() -> endpoint.stats().inFlight() == 0);
+
+    int used = 0;
+    for (int i = 0; i < SHARDS; i++) {
+      if (endpoint.shard(i).stats().latencyNanos() > 0) {
+        used++;
+      }
+    }
+    assertEquals(1, used);
+  }
+
+  @Test
+  void shouldTimeOutOnShardWithoutCore() throws Exception {
+    endpoint = new ShardedEndpoint(environment, "127.0.0.1", freePort());
+    endpoint.connect();
+
+    GetRequest request = new GetRequest("key".getBytes(Constants.CHARSET),
+        Duration.ofMillis(50), Optional.empty());
+    CompletableFuture<Boolean> timedOutOnShard = new CompletableFuture<>();
+    request.whenComplete((response, throwable) -> {
+      boolean onShard = false;
+      for (int i = 0; i < SHARDS; i++) {
+        onShard |= environment.shards().eventLoop(i).inEventLoop();
+      }
+      timedOutOnShard.complete(throwable instanceof TimeoutException && onShard);
+    });
+    endpoint.dispatch(request);
+    assertTrue(timedOutOnShard.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void shouldKeepStatsPerShard() throws Exception {
+    endpoint = new ShardedEndpoint(environment, "127.0.0.1", port);
+    endpoint.connect();
+    waitUntil(() -> endpoint.state() == EndpointState.CONNECTED);
+
+    assertNotSame(endpoint.shard(0).stats(), endpoint.shard(1).stats());
+
+    GetRequest request = new GetRequest("key".getBytes(Constants.CHARSET),
+        Duration.ofSeconds(5), Optional.empty());
+    environment.shards().eventLoop(1).execute(() -> endpoint.dispatch(request));
+    request.response().get(5, TimeUnit.SECONDS);
+    waitUntil(() -> endpoint.shard(1).stats().latencyNanos() > 0);
+
+    assertEquals(0, endpoint.shard(0).stats().latencyNanos());
+    assertTrue(endpoint.stats().latencyNanos() > 0);
+    assertEquals(0, endpoint.stats().inFlight());
+  }
+
+  @Test
+  void shouldKeepCircuitBreakerPerShard() throws Exception {
+    CoreEnvironment breakerEnvironment = DefaultCoreEnvironment.builder()
+        .ioConfig(IoConfig.builder().poolSize(SHARDS).sharded(true).build())
+        .circuitBreakerConfig(CircuitBreakerConfig.enabled()
+            .minRequests(SHARDS)
+            .openDuration(Duration.ofDays(1))
+            .build())
+        .build();
+    try {
+      endpoint = new ShardedEndpoint(breakerEnvironment, "127.0.0.1", port);
+      endpoint.connect();
+      waitUntil(() -> endpoint.state() == EndpointState.CONNECTED);
+
+      assertNotSame(endpoint.shard(0).circuitBreaker(), endpoint.shard(1).circuitBreaker());
+      for (int i = 0; i < SHARDS; i++) {
+        GetRequest request = new GetRequest("key".getBytes(Constants.CHARSET),
+            Duration.ofSeconds(5), Optional.empty());
+        breakerEnvironment.shards().eventLoop(1).submit(() -> {
+          endpoint.dispatch(request);
+          request.cancel(CancellationReason.TIMEOUT);
+        }).get(5, TimeUnit.SECONDS);
+      }
+      assertEquals(CircuitBreaker.State.OPEN, endpoint.shard(1).circuitBreaker().state());
+      assertEquals(CircuitBreaker.State.CLOSED, endpoint.shard(0).circuitBreaker().state());
+
+      GetRequest rejected = new GetRequest("key".getBytes(Constants.CHARSET),
+          Duration.ofSeconds(5), Optional.empty());
+      breakerEnvironment.shards().eventLoop(1).submit(() -> endpoint.dispatch(rejected))
+          .get(5, TimeUnit.SECONDS);
+      assertTrue(rejected.hasFailed());
+
+      GetRequest accepted = new GetRequest("key".getBytes(Constants.CHARSET),
+          Duration.ofSeconds(5), Optional.empty());
+      breakerEnvironment.shards().eventLoop(0).execute(() -> endpoint.dispatch(accepted));
+      assertEquals(ResponseStatus.SUCCESS,
+          accepted.response().get(5, TimeUnit.SECONDS).status());
+    } finally {
+      endpoint.disconnect();
+      breakerEnvironment.shutdown(Duration.ofSeconds(1));
+    }
+  }
+
+  /**
+   * Helper method to find a port nothing listens on.
+   */
+  private static int freePort() {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    } catch (Exception ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  /**
+   * Helper method to wait for a condition for up to five seconds.
+   */
+  private static void waitUntil(final BooleanSupplier condition)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() > deadline) {
+        throw new AssertionError("Condition not met in time.");
+      }
+      Thread.sleep(5);
+    }
+  }
+
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io.netty;
+
+import static com.couchbase.client.core.env.DefaultCoreEnvironment.DEFAULT_MAX_FRAME_SIZE;
+
+import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.env.DefaultCoreEnvironment;
+import com.couchbase.client.core.env.SecurityConfig;
+import com.couchbase.client.core.io.EndpointState;
+import com.couchbase.client.core.io.ServiceType;
+import com.couchbase.client.core.msg.kv.GetRequest;
+import com.couchbase.client.core.util.Constants;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of TLS against a local stand-in server which answers every request.
+ *
+ * <p>{@link #roundTrip} dispatches a batch of requests through a connected endpoint,
+ * which shows the throughput cost of encryption. {@link #connect} opens and closes a
+ * connection through the shared context of the environment, which resumes the session
+ * of the previous connection, while {@link #connectWithoutResumption} invalidates the
+ * session first so that every connection needs a full handshake. With plaintext, both
+ * connect benchmarks measure the TCP connect alone.</p>
+ *
+ * <p>The stand-in server uses the self-signed certificate of the tests. Run it through
+ * the {@link #main} method, for example from the IDE.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TlsBenchmark {
+
+  @Param({"plain", "tls"})
+  public String transport;
+
+  @Param({"16"})
+  public int inFlight;
+
+  private EventLoopGroup serverGroup;
+  private CoreEnvironment environment;
+  private NettyEndpoint endpoint;
+  private Bootstrap bootstrap;
+  private byte[] key;
+
+  /**
+   * Starts the stand-in server and connects an endpoint to it.
+   */
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    final boolean tls = transport.equals("tls");
+    final SslContext serverContext = tls ? serverSslContext() : null;
+    serverGroup = new NioEventLoopGroup(1);
+    final Channel server = new ServerBootstrap()
+        .group(serverGroup)
+        .channel(NioServerSocketChannel.class)
+        .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+        .childHandler(new ChannelInitializer<SocketChannel>() {
+          @Override
+          protected void initChannel(SocketChannel chan) {
+            if (serverContext != null) {
+              chan.pipeline().addLast(serverContext.newHandler(chan.alloc()));
+            }
+            chan.pipeline().addLast(new KeyValueFrameDecoder(DEFAULT_MAX_FRAME_SIZE));
+            chan.pipeline().addLast(new SimpleChannelInboundHandler<ByteBuf>() {
+              @Override
+              protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
+                ctx.writeAndFlush(ctx.alloc().buffer(24)
+                    .writeByte(0x81)
+                    .writeByte(0)
+                    .writeZero(6)
+                    .writeInt(0)
+                    .writeInt(msg.getInt(12))
+                    .writeLong(0));
+              }
+            });
+          }
+        })
+        .bind("127.0.0.1", 0)
+        .sync()
+        .channel();
+    final int port = ((InetSocketAddress) server.localAddress()).getPort();
+
+    environment = DefaultCoreEnvironment.builder()
+        .securityConfig(tls
+            ? SecurityConfig.enabled().trustCertificates(certificate()).build()
+            : SecurityConfig.disabled())
+        .build();
+    endpoint = new NettyEndpoint(environment, "127.0.0.1", port);
+    endpoint.connect();
+    while (endpoint.state() != EndpointState.CONNECTED) {
+      Thread.sleep(1);
+    }
+    final SslContext clientContext = environment.sslContext().orElse(null);
+    bootstrap = new Bootstrap()
+        .group(environment.eventLoopGroup(ServiceType.KV))
+        .channel(NioSocketChannel.class)
+        .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+        .remoteAddress("127.0.0.1", port)
+        .handler(new ChannelInitializer<SocketChannel>() {
+          @Override
+          protected void initChannel(SocketChannel chan) {
+            if (clientContext != null) {
+              chan.pipeline().addLast(clientContext.newHandler(chan.alloc(), "127.0.0.1", port));
+            }
+          }
+        });
+    key = "benchmark".getBytes(Constants.CHARSET);
+  }
+
+  /**
+   * Disconnects the endpoint and stops the server.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    endpoint.disconnect();
+    environment.shutdown(Duration.ofSeconds(5));
+    serverGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+  }
+
+  /**
+   * Dispatches a batch of requests and waits for all of them to complete.
+   */
+  @Benchmark
+  public Object roundTrip() {
+    final CompletableFuture<?>[] responses = new CompletableFuture<?>[inFlight];
+    for (int i = 0; i < inFlight; i++) {
+      final GetRequest request = new GetRequest(key, Duration.ofSeconds(5), Optional.empty());
+      endpoint.dispatch(request);
+      responses[i] = request.response();
+    }
+    return CompletableFuture.allOf(responses).join();
+  }
+
+  /**
+   * Connects, completes the handshake with a resumed session and closes again.
+   */
+  @Benchmark
+  public void connect() throws Exception {
+    openAndClose(false);
+  }
+
+  /**
+   * Connects, completes a full handshake and closes again.
+   */
+  @Benchmark
+  public void connectWithoutResumption() throws Exception {
+    openAndClose(true);
+  }
+
+  /**
+   * Opens a connection, waits for the handshake and closes it again.
+   */
+  private void openAndClose(final boolean invalidate) throws Exception {
+    final Channel chan = bootstrap.connect().sync().channel();
+    final SslHandler handler = chan.pipeline().get(SslHandler.class);
+    if (handler != null) {
+      handler.handshakeFuture().sync();
+      if (invalidate) {
+        handler.engine().getSession().invalidate();
+      }
+    }
+    chan.close().sync();
+  }
+
+  /**
+   * Creates the server context from the self-signed test certificate.
+   */
+  private static SslContext serverSslContext() throws Exception {
+    try (InputStream cert = resource("server.crt"); InputStream key = resource("server.key")) {
+      return SslContextBuilder.forServer(cert, key).build();
+    }
+  }
+
+  /**
+   * Loads the self-signed test certificate.
+   */
+  private static X509Certificate certificate() throws Exception {
+    try (InputStream cert = resource("server.crt")) {
+      return (X509Certificate) CertificateFactory.getInstance("X.509")
+          .generateCertificate(cert);
+    }
+  }
+
+  /**
+   * Opens a test resource of the TLS tests.
+   */
+  private static InputStream resource(final String name) {
+    return TlsBenchmark.class.getResourceAsStream("/tls/" + name);
+  }
+
+  /**
+   * Runs this benchmark with the GC profiler.
+   */
+  public static void main(String... args) throws Exception {
+    new Runner(new OptionsBuilder()
+        .include(TlsBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build()).run();
+  }
+
+}
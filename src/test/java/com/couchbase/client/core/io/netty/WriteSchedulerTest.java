@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.io.netty;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.couchbase.client.core.msg.CancellationReason;
+import com.couchbase.client.core.msg.RequestPriority;
+import com.couchbase.client.core.msg.kv.GetRequest;
+import com.couchbase.client.core.util.Constants;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Verifies the functionality of the {@link WriteScheduler}.
+ *
+ * @since 2.0.0
+ */
+class WriteSchedulerTest {
+
+  @Test
+  void shouldOrderByDeadline() {
+    WriteScheduler scheduler = new WriteScheduler();
+    GetRequest late = request(Duration.ofSeconds(30));
+    GetRequest early = request(Duration.ofSeconds(1));
+    GetRequest middle = request(Duration.ofSeconds(10));
+    scheduler.offer(late);
+    scheduler.offer(early);
+    scheduler.offer(middle);
+    assertEquals(3, scheduler.size());
+
+    long now = System.nanoTime();
+    assertSame(early, scheduler.poll(now));
+    assertSame(middle, scheduler.poll(now));
+    assertSame(late, scheduler.poll(now));
+    assertNull(scheduler.poll(now));
+    assertTrue(scheduler.isEmpty());
+  }
+
+  @Test
+  void shouldWriteInteractiveBeforeBulk() {
+    WriteScheduler scheduler = new WriteScheduler();
+    GetRequest bulk = request(Duration.ofSeconds(1));
+    bulk.priority(RequestPriority.BULK);
+    GetRequest interactive = request(Duration.ofSeconds(30));
+    scheduler.offer(bulk);
+    scheduler.offer(interactive);
+
+    long now = System.nanoTime();
+    assertSame(interactive, scheduler.poll(now));
+    assertSame(bulk, scheduler.poll(now));
+  }
+
+  @Test
+  void shouldShedExpiredRequests() {
+    WriteScheduler scheduler = new WriteScheduler();
+    GetRequest expired = request(Duration.ofMillis(10));
+    GetRequest alive = request(Duration.ofSeconds(30));
+    scheduler.offer(expired);
+    scheduler.offer(alive);
+
+    assertSame(alive, scheduler.poll(System.nanoTime() + Duration.ofMillis(20).toNanos()));
+    assertTrue(expired.hasFailed());
+    assertEquals(CancellationReason.TIMEOUT, expired.cancellationReason().get());
+    assertTrue(scheduler.isEmpty());
+  }
+
+  @Test
+  void shouldShedCompletedRequests() {
+    WriteScheduler scheduler = new WriteScheduler();
+    GetRequest cancelled = request(Duration.ofSeconds(1));
+    scheduler.offer(cancelled);
+    cancelled.cancel(CancellationReason.DISPOSED);
+
+    assertNull(scheduler.poll(System.nanoTime()));
+    assertEquals(CancellationReason.DISPOSED, cancelled.cancellationReason().get());
+  }
+
+  @Test
+  void shouldMoveAllRequestsWithoutShedding() {
+    WriteScheduler scheduler = new WriteScheduler();
+    GetRequest bulk = request(Duration.ofMillis(1));
+    bulk.priority(RequestPriority.BULK);
+    scheduler.offer(bulk);
+    scheduler.offer(request(Duration.ofSeconds(1)));
+
+    int moved = 0;
+    while (scheduler.pollAny() != null) {
+      moved++;
+    }
+    assertEquals(2, moved);
+    assertTrue(!bulk.hasCompleted() && scheduler.isEmpty());
+  }
+
+  /**
+   * Helper method to create a request with the given timeout.
+   */
+  private static GetRequest request(final Duration timeout) {
+    return new GetRequest("key".getBytes(Constants.CHARSET), timeout, Optional.empty());
+  }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.couchbase.client.core.env.WatchdogConfig;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Verifies the functionality of the {@link EventLoopWatchdog}.
+ *
+ * @since 2.0.0
+ */
+class EventLoopWatchdogTest {
+
+  private final EventLoopGroup group = new NioEventLoopGroup(1);
+  private final List<BlockedEventLoop> events = new CopyOnWriteArrayList<>();
+
+  @AfterEach
+  void tearDown() {
+    group.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void shouldReportBlockedEventLoopWithStackTrace() throws Exception {
+    EventLoopWatchdog watchdog = new EventLoopWatchdog(WatchdogConfig.enabled()
+        .threshold(Duration.ofMillis(50))
+        .listener(events::add)
+        .build());
+    watchdog.watch(group);
+    watchdog.watch(group);
+
+    watchdog.check();
+    Thread.sleep(20);
+    CountDownLatch unblock = new CountDownLatch(1);
+    group.execute(() -> {
+      try {
+        unblock.await();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    watchdog.check();
+    Thread.sleep(100);
+    watchdog.check();
+    watchdog.check();
+    unblock.countDown();
+
+    assertEquals(1, events.size());
+    assertEquals(1, watchdog.blockedCount());
+    BlockedEventLoop event = events.get(0);
+    assertTrue(event.blockedFor().toMillis() >= 50);
+    assertTrue(event.threadName().startsWith("nioEventLoopGroup"), event.threadName());
+    assertTrue(Arrays.stream(event.stackTrace())
+        .anyMatch(element -> element.getClassName().equals(CountDownLatch.class.getName())),
+        event.toString());
+  }
+
+  @Test
+  void shouldRecordLag() {
+    EventLoopWatchdog watchdog = new EventLoopWatchdog(WatchdogConfig.enabled()
+        .interval(Duration.ofMillis(5))
+        .window(Duration.ofMillis(100))
+        .listener(events::add)
+        .build());
+    watchdog.watch(group);
+    watchdog.start();
+    try {
+      waitUntil(() -> watchdog.lag().snapshot().count() > 0);
+    } finally {
+      watchdog.stop();
+    }
+    assertTrue(events.isEmpty());
+  }
+
+  /**
+   * Helper method to wait for a condition for up to five seconds.
+   */
+  private static void waitUntil(final BooleanSupplier condition) {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() > deadline) {
+        throw new AssertionError("Condition not met in time.");
+      }
+      try {
+        Thread.sleep(5);
+      } catch (InterruptedException ex) {
+        throw new IllegalStateException(ex);
+      }
+    }
+  }
+
+}
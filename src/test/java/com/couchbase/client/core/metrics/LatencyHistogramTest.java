@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+/**
+ * Verifies the functionality of the {@link LatencyHistogram}.
+ *
+ * @since 2.0.0
+ */
+class LatencyHistogramTest {
+
+  @Test
+  void shouldMapValuesIntoTheirBuckets() {
+    long[] values = { 0, 1, 7, 8, 9, 15, 16, 1000, 123_456_789, Long.MAX_VALUE };
+    for (long value : values) {
+      int index = LatencyHistogram.bucketIndex(value);
+      assertTrue(index >= 0 && index < LatencyHistogram.NUM_BUCKETS);
+      assertTrue(LatencyHistogram.bucketUpperBound(index) >= value);
+      if (index > 0) {
+        assertTrue(LatencyHistogram.bucketUpperBound(index - 1) < value);
+      }
+    }
+  }
+
+  @Test
+  void shouldBoundRelativeError() {
+    for (long value = 8; value < 1_000_000_000L; value = value * 3 + 1) {
+      long upper = LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(value));
+      assertTrue((upper - value) / (double) value <= 0.125);
+    }
+  }
+
+  @Test
+  void shouldReportNothingBeforeFirstWindowCompletes() {
+    LatencyHistogram histogram = new LatencyHistogram(Duration.ofHours(1));
+    histogram.record(1000);
+    assertEquals(0, histogram.snapshot().count());
+    assertEquals(0, histogram.valueAtPercentile(95));
+  }
+
+  @Test
+  void shouldCalculatePercentilesFromCompletedWindow() throws Exception {
+    LatencyHistogram histogram = new LatencyHistogram(Duration.ofMillis(50));
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i * 1000);
+    }
+    Thread.sleep(60);
+
+    LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+    assertEquals(100, snapshot.count());
+    long p50 = snapshot.valueAtPercentile(50);
+    long p95 = snapshot.valueAtPercentile(95);
+    assertTrue(p50 >= 50_000 && p50 <= 50_000 * 1.125, "p50 was " + p50);
+    assertTrue(p95 >= 95_000 && p95 <= 95_000 * 1.125, "p95 was " + p95);
+    assertTrue(snapshot.valueAtPercentile(100) >= 100_000);
+  }
+
+}
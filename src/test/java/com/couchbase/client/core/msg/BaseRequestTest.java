@@ -26,8 +26,15 @@ import static org.junit.jupiter.api.Assertions.fail;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
 
 /**
@@ -126,6 +133,65 @@ class BaseRequestTest {
     );
   }
 
+  @Test
+  void shouldCancelWithReason() throws Exception {
+    DummyRequest request = new DummyRequest(TIMEOUT);
+    assertFalse(request.cancellationReason().isPresent());
+
+    request.cancel(CancellationReason.TIMEOUT);
+    assertTrue(request.hasFailed());
+    assertEquals(Optional.of(CancellationReason.TIMEOUT), request.cancellationReason());
+    try {
+      request.response().get();
+      fail("Exception Expected");
+    } catch (ExecutionException exception) {
+      assertTrue(exception.getCause() instanceof TimeoutException);
+    }
+
+    request.cancel(CancellationReason.DISPOSED);
+    assertEquals(Optional.of(CancellationReason.TIMEOUT), request.cancellationReason());
+  }
+
+  @Test
+  void shouldNotCancelCompletedRequest() {
+    DummyRequest request = new DummyRequest(TIMEOUT);
+    request.succeed("done");
+    request.cancel(CancellationReason.TIMEOUT);
+
+    assertTrue(request.hasSucceeded());
+    assertFalse(request.cancellationReason().isPresent());
+
+    DummyRequest failed = new DummyRequest(TIMEOUT);
+    failed.fail(new Exception());
+    assertFalse(failed.cancellationReason().isPresent());
+  }
+
+  @Test
+  void shouldAssignUniqueIdsAcrossThreads() throws Exception {
+    final int threads = 4;
+    final int perThread = 5000;
+    final Set<Long> ids = ConcurrentHashMap.newKeySet();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(() -> {
+          for (int j = 0; j < perThread; j++) {
+            long id = new DummyRequest(TIMEOUT).id();
+            assertTrue(id > 0);
+            ids.add(id);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(threads * perThread, ids.size());
+  }
+
   /**
    * Helper class to implement a simple {@link Request}.
    */
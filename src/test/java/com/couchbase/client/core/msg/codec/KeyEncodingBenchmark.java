@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.msg.codec;
+
+import com.couchbase.client.core.msg.kv.GetRequest;
+import com.couchbase.client.core.msg.kv.KeyHandle;
+import com.couchbase.client.core.util.Constants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-operation key work of creating and encoding a {@link GetRequest} from a
+ * pre-encoded array, from a char sequence and from a {@link KeyHandle}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class KeyEncodingBenchmark {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(2);
+  private static final String KEY = "user::profile::0000000000001234";
+  private static final KeyHandle HANDLE = KeyHandle.of(KEY);
+
+  /**
+   * Encodes the key into an array first, which is what callers had to do so far.
+   */
+  @Benchmark
+  public ByteBuffer bytes() {
+    final GetRequest request = new GetRequest(KEY.getBytes(Constants.CHARSET), TIMEOUT,
+        Optional.empty());
+    return KeyValueCodec.encode(request, 1);
+  }
+
+  /**
+   * Encodes the key once when the request is created.
+   */
+  @Benchmark
+  public ByteBuffer charSequence() {
+    final GetRequest request = new GetRequest(KEY, TIMEOUT, Optional.empty());
+    return KeyValueCodec.encode(request, 1);
+  }
+
+  /**
+   * Reuses the key encoded and verified up front.
+   */
+  @Benchmark
+  public ByteBuffer handle() {
+    final GetRequest request = new GetRequest(HANDLE, TIMEOUT, Optional.empty());
+    return KeyValueCodec.encode(request, 1);
+  }
+
+  /**
+   * Runs this benchmark with the GC profiler.
+   */
+  public static void main(String... args) throws Exception {
+    new Runner(new OptionsBuilder()
+        .include(KeyEncodingBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build()).run();
+  }
+
+}
@@ -21,13 +21,23 @@ import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.couchbase.client.core.msg.ResponseStatus;
 import com.couchbase.client.core.msg.kv.GetRequest;
+import com.couchbase.client.core.msg.kv.GetResponse;
+import com.couchbase.client.core.msg.kv.HelloRequest;
+import com.couchbase.client.core.msg.kv.HelloResponse;
+import com.couchbase.client.core.msg.kv.ServerFeature;
 import com.couchbase.client.core.util.Constants;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.compression.Snappy;
 import io.opentracing.Span;
 import org.junit.jupiter.api.Test;
 
 import java.nio.ByteBuffer;
 import java.time.Duration;
+import java.util.EnumSet;
 import java.util.Optional;
 
 /**
@@ -47,13 +57,13 @@ class KeyValueCodecTest {
     GetRequest request = new GetRequest(key, TIMEOUT, SPAN);
     request.partition((short) 456);
 
-    final ByteBuffer encoded = KeyValueCodec.encode(request);
+    final ByteBuffer encoded = KeyValueCodec.encode(request, 789);
     assertEquals(KeyValueCodec.HEADER_SIZE + key.length, encoded.position());
 
     assertAll(
         () -> assertRequestMagic(encoded),
         () -> assertOpcode(encoded, KeyValueCodec.OPCODE_GET),
-        () -> assertOpaque(encoded, request.opaque()),
+        () -> assertOpaque(encoded, 789),
         () -> assertPartition(encoded, request.partition()),
         () -> assertCas(encoded, KeyValueCodec.NO_CAS),
         () -> assertDatatype(encoded, KeyValueCodec.NO_DATATYPE),
@@ -62,6 +72,250 @@ class KeyValueCodecTest {
     );
   }
 
+  @Test
+  void shouldEncodeReplicaGetRequest() {
+    byte[] key = "Hello".getBytes(Constants.CHARSET);
+    GetRequest request = new GetRequest(key, TIMEOUT, SPAN).fromReplica(true);
+    request.partition((short) 456);
+
+    final ByteBuffer encoded = KeyValueCodec.encode(request, 789);
+    ByteBuf target = Unpooled.buffer();
+    KeyValueCodec.encode(request, 789, target);
+
+    assertAll(
+        () -> assertOpcode(encoded, KeyValueCodec.OPCODE_GET_REPLICA),
+        () -> assertPartition(encoded, request.partition()),
+        () -> assertKey(encoded, key),
+        () -> assertEquals(KeyValueCodec.OPCODE_GET_REPLICA, target.getByte(1))
+    );
+  }
+
+  @Test
+  void shouldEncodeCharSequenceKeyIntoRequest() {
+    String key = "Hell\u00f6-\uD83D\uDE00"; // non-ascii and surrogate pair
+    GetRequest request = new GetRequest(new StringBuilder(key), TIMEOUT, SPAN);
+
+    final ByteBuffer encoded = KeyValueCodec.encode(request, 1);
+    final byte[] expected = key.getBytes(Constants.CHARSET);
+    assertEquals(KeyValueCodec.HEADER_SIZE + expected.length, encoded.position());
+    assertKey(encoded, expected);
+    assertArrayEquals(expected, request.key());
+  }
+
+  @Test
+  void shouldKeepKeyOfModifiedCharSequence() {
+    StringBuilder key = new StringBuilder("key");
+    GetRequest request = new GetRequest(key, TIMEOUT, SPAN);
+    key.append("-which-grew");
+
+    final ByteBuffer encoded = KeyValueCodec.encode(request, 1);
+    assertEquals(KeyValueCodec.HEADER_SIZE + 3, encoded.position());
+    assertKey(encoded, "key".getBytes(Constants.CHARSET));
+  }
+
+  @Test
+  void shouldEncodeIntoCompositeByteBuf() {
+    String key = "Hell\u00f6"; // non-ascii
+    GetRequest request = new GetRequest(key, TIMEOUT, SPAN);
+
+    // the key spans two components, so it cannot be written through one nio buffer.
+    CompositeByteBuf target = Unpooled.compositeBuffer().addComponents(true,
+        Unpooled.wrappedBuffer(new byte[KeyValueCodec.HEADER_SIZE + 2]),
+        Unpooled.wrappedBuffer(new byte[16]));
+    target.clear();
+    KeyValueCodec.encode(request, 1, target);
+
+    byte[] expected = key.getBytes(Constants.CHARSET);
+    byte[] written = new byte[expected.length];
+    target.getBytes(KeyValueCodec.HEADER_SIZE, written);
+    assertArrayEquals(expected, written);
+    target.release();
+  }
+
+  @Test
+  void shouldEncodeIntoByteBufLikeIntoByteBuffer() {
+    String key = "Hell\u00f6"; // non-ascii
+    GetRequest request = new GetRequest(key, TIMEOUT, SPAN);
+    request.partition((short) 12);
+
+    ByteBuf target = Unpooled.buffer(4).writeByte(0x7f);
+    KeyValueCodec.encode(request, 345, target);
+    assertEquals(1 + KeyValueCodec.encodedSize(request), target.readableBytes());
+
+    final ByteBuffer expected = KeyValueCodec.encode(request, 345);
+    expected.flip();
+    assertEquals(Unpooled.wrappedBuffer(expected), target.skipBytes(1));
+  }
+
+  @Test
+  void shouldEncodeHelloRequest() {
+    HelloRequest request = new HelloRequest(
+        "agent",
+        EnumSet.of(ServerFeature.XERROR, ServerFeature.UNORDERED_EXECUTION),
+        TIMEOUT,
+        SPAN
+    );
+
+    final ByteBuffer encoded = KeyValueCodec.encode(request, 7);
+    assertEquals(KeyValueCodec.encodedSize(request), encoded.position());
+    assertAll(
+        () -> assertRequestMagic(encoded),
+        () -> assertOpcode(encoded, KeyValueCodec.OPCODE_HELLO),
+        () -> assertOpaque(encoded, 7),
+        () -> assertKey(encoded, "agent".getBytes(Constants.CHARSET)),
+        () -> assertNoExtras(encoded),
+        () -> assertEquals(5 + 4, encoded.getInt(KeyValueCodec.BODY_LENGTH_OFFSET)),
+        () -> assertEquals(0x07, encoded.getShort(KeyValueCodec.HEADER_SIZE + 5)),
+        () -> assertEquals(0x0e, encoded.getShort(KeyValueCodec.HEADER_SIZE + 7))
+    );
+  }
+
+  @Test
+  void shouldDecodeHelloResponseSkippingUnknownFeatures() {
+    ByteBuf frame = Unpooled.buffer()
+        .writeByte(KeyValueCodec.MAGIC_RES)
+        .writeByte(KeyValueCodec.OPCODE_HELLO)
+        .writeShort(0)
+        .writeByte(0)
+        .writeByte(KeyValueCodec.NO_DATATYPE)
+        .writeShort(0)
+        .writeInt(6)
+        .writeInt(0)
+        .writeLong(0)
+        .writeShort(0x0a)
+        .writeShort(0x7777)
+        .writeShort(0x0e);
+
+    HelloResponse response = KeyValueCodec.decodeHelloResponse(frame);
+    assertEquals(ResponseStatus.SUCCESS, response.status());
+    assertEquals(
+        EnumSet.of(ServerFeature.SNAPPY, ServerFeature.UNORDERED_EXECUTION),
+        response.features()
+    );
+  }
+
+  @Test
+  void shouldDecompressSnappyContent() {
+    byte[] content = "{\"hello\":\"hello hello hello hello\"}".getBytes(Constants.CHARSET);
+    ByteBuf compressed = Unpooled.buffer();
+    new Snappy().encode(Unpooled.wrappedBuffer(content), compressed, content.length);
+    byte[] body = new byte[compressed.readableBytes()];
+    compressed.readBytes(body);
+    assertTrue(body.length < content.length);
+
+    ByteBuf frame = getResponseFrame((short) 0x00, 1L, 0, body);
+    frame.setByte(KeyValueCodec.DATATYPE_OFFSET, KeyValueCodec.DATATYPE_SNAPPY);
+    assertArrayEquals(content, KeyValueCodec.decodeGetResponse(frame).content());
+  }
+
+  @Test
+  void shouldDecodeGetResponse() {
+    byte[] content = "{\"hello\":true}".getBytes(Constants.CHARSET);
+    ByteBuf frame = getResponseFrame((short) 0x00, 1234L, 0x02000006, content);
+
+    GetResponse response = KeyValueCodec.decodeGetResponse(frame);
+    assertAll(
+        () -> assertEquals(ResponseStatus.SUCCESS, response.status()),
+        () -> assertEquals(1234L, response.cas()),
+        () -> assertEquals(0x02000006, response.flags()),
+        () -> assertArrayEquals(content, response.content())
+    );
+  }
+
+  @Test
+  void shouldDecodeNotFoundGetResponse() {
+    byte[] message = "Not found".getBytes(Constants.CHARSET);
+    ByteBuf frame = Unpooled.buffer()
+        .writeByte(KeyValueCodec.MAGIC_RES)
+        .writeByte(KeyValueCodec.OPCODE_GET)
+        .writeShort(0)
+        .writeByte(0)
+        .writeByte(KeyValueCodec.NO_DATATYPE)
+        .writeShort(0x01)
+        .writeInt(message.length)
+        .writeInt(0)
+        .writeLong(0)
+        .writeBytes(message);
+
+    GetResponse response = KeyValueCodec.decodeGetResponse(frame);
+    assertAll(
+        () -> assertEquals(ResponseStatus.NOT_FOUND, response.status()),
+        () -> assertEquals(0, response.content().length)
+    );
+  }
+
+  @Test
+  void shouldDecodeServerDurationFromFlexibleFraming() {
+    byte[] content = "{}".getBytes(Constants.CHARSET);
+    ByteBuf frame = Unpooled.buffer()
+        .writeByte(KeyValueCodec.MAGIC_RES_FLEXIBLE)
+        .writeByte(KeyValueCodec.OPCODE_GET)
+        .writeByte(5)
+        .writeByte(0)
+        .writeByte(KeyValueCodec.FLAGS_SIZE)
+        .writeByte(KeyValueCodec.NO_DATATYPE)
+        .writeShort(0)
+        .writeInt(5 + KeyValueCodec.FLAGS_SIZE + content.length)
+        .writeInt(0)
+        .writeLong(99)
+        // an unknown frame info with id 1 and one byte, then the server duration.
+        .writeByte(0x11)
+        .writeByte(0x7f)
+        .writeByte(0x02)
+        .writeShort(1000)
+        .writeInt(0x02000006)
+        .writeBytes(content);
+
+    GetResponse response = KeyValueCodec.decodeGetResponse(frame);
+    assertAll(
+        () -> assertEquals(ResponseStatus.SUCCESS, response.status()),
+        () -> assertEquals(99, response.cas()),
+        () -> assertEquals(0x02000006, response.flags()),
+        () -> assertArrayEquals(content, response.content()),
+        () -> assertEquals(
+            Math.round(Math.pow(1000, 1.74) / 2 * 1000),
+            response.serverDurationNanos()
+        )
+    );
+  }
+
+  @Test
+  void shouldReportNoServerDurationWithoutFlexibleFraming() {
+    ByteBuf frame = getResponseFrame((short) 0x00, 1L, 0, new byte[] {1});
+    assertEquals(KeyValueCodec.NO_SERVER_DURATION, KeyValueCodec.serverDurationNanos(frame));
+    assertEquals(-1, KeyValueCodec.decodeGetResponse(frame).serverDurationNanos());
+  }
+
+  @Test
+  void shouldDecodeUnknownStatus() {
+    assertEquals(ResponseStatus.UNKNOWN, KeyValueCodec.decodeStatus((short) 0x7f));
+  }
+
+  /**
+   * Helper method to create a get response frame with flags in the extras.
+   *
+   * @param status the raw status.
+   * @param cas the cas value.
+   * @param flags the document flags.
+   * @param content the document content.
+   * @return the created frame.
+   */
+  private static ByteBuf getResponseFrame(final short status, final long cas, final int flags,
+                                          final byte[] content) {
+    return Unpooled.buffer()
+        .writeByte(KeyValueCodec.MAGIC_RES)
+        .writeByte(KeyValueCodec.OPCODE_GET)
+        .writeShort(0)
+        .writeByte(KeyValueCodec.FLAGS_SIZE)
+        .writeByte(KeyValueCodec.NO_DATATYPE)
+        .writeShort(status)
+        .writeInt(KeyValueCodec.FLAGS_SIZE + content.length)
+        .writeInt(0)
+        .writeLong(cas)
+        .writeInt(flags)
+        .writeBytes(content);
+  }
+
   /**
    * Helper method to assert the request has the proper magic set.
    *
@@ -19,7 +19,6 @@ package com.couchbase.client.core.msg.kv;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
-import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.couchbase.client.core.msg.Request;
 import org.junit.jupiter.api.Test;
@@ -36,18 +35,6 @@ import java.util.Optional;
  */
 class BaseKeyValueRequestTest {
 
-  @Test
-  void shouldIncrementOpaque() {
-    int lastOpaque = 0;
-    for (int i = 0; i < 10; i++) {
-      DummyRequest request = new DummyRequest();
-      int opaque = request.opaque();
-      assertTrue(opaque > 0);
-      assertTrue(opaque != lastOpaque);
-      lastOpaque = opaque;
-    }
-  }
-
   @Test
   void shouldSetPartition() {
     DummyRequest request = new DummyRequest();
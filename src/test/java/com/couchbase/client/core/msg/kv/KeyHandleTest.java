@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.msg.kv;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.couchbase.client.core.util.Constants;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Verifies the functionality of the {@link KeyHandle}.
+ *
+ * @since 2.0.0
+ */
+class KeyHandleTest {
+
+  @Test
+  void shouldEncodeAndHashKey() {
+    KeyHandle handle = KeyHandle.of("key");
+    assertArrayEquals("key".getBytes(Constants.CHARSET), handle.bytes());
+    assertEquals(2704, handle.partitionHash());
+    assertEquals(656, handle.partition(1024));
+    assertEquals(handle, KeyHandle.of("key".getBytes(Constants.CHARSET)));
+  }
+
+  @Test
+  void shouldVerifyKeyLength() {
+    final char[] large = new char[251];
+    Arrays.fill(large, 'A');
+
+    assertThrows(IllegalArgumentException.class, () -> KeyHandle.of(""));
+    assertThrows(IllegalArgumentException.class, () -> KeyHandle.of(new String(large)));
+    assertThrows(IllegalArgumentException.class, () -> KeyHandle.of((byte[]) null));
+  }
+
+  @Test
+  void shouldShareBytesWithRequests() {
+    KeyHandle handle = KeyHandle.of("key");
+    GetRequest request = new GetRequest(handle, Duration.ofSeconds(1), Optional.empty());
+    assertSame(handle.bytes(), request.key());
+    assertEquals(3, request.key().length);
+  }
+
+  @Test
+  void shouldApplyCachedPartitionToRequests() {
+    KeyHandle handle = KeyHandle.of("key");
+    assertEquals(handle.partition(KeyHandle.DEFAULT_PARTITIONS), handle.partition());
+
+    GetRequest request = new GetRequest(handle, Duration.ofSeconds(1), Optional.empty());
+    assertEquals(handle.partition(), request.partition());
+  }
+
+}
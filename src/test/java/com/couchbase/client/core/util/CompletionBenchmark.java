@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Compares the life cycle of a request response on the {@link Completion} with the
+ * previous approach of a state CAS in front of a {@link CompletableFuture}.
+ *
+ * <p>Every iteration creates the completion, registers the two listeners which the
+ * library registers for every request (the timeout cancellation and the endpoint
+ * statistics) and completes it. Run through {@link #main} to get the allocation rate per
+ * operation from the GC profiler next to the latency.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CompletionBenchmark {
+
+  private static final Exception FAILURE = new Exception();
+  private static final String VALUE = "value";
+
+  /**
+   * Succeeds a {@link Completion} with two listeners.
+   */
+  @Benchmark
+  public void completionSucceed(final Blackhole blackhole) {
+    final Completion<String> completion = new Completion<>();
+    completion.whenComplete((value, error) -> blackhole.consume(value));
+    completion.whenComplete((value, error) -> blackhole.consume(error));
+    completion.succeed(VALUE);
+  }
+
+  /**
+   * Fails a {@link Completion} with two listeners.
+   */
+  @Benchmark
+  public void completionFail(final Blackhole blackhole) {
+    final Completion<String> completion = new Completion<>();
+    completion.whenComplete((value, error) -> blackhole.consume(value));
+    completion.whenComplete((value, error) -> blackhole.consume(error));
+    completion.fail(FAILURE);
+  }
+
+  /**
+   * Succeeds a state guarded {@link CompletableFuture} with two listeners.
+   */
+  @Benchmark
+  public void futureSucceed(final Blackhole blackhole) {
+    final GuardedFuture<String> future = new GuardedFuture<>();
+    future.future.whenComplete((value, error) -> blackhole.consume(value));
+    future.future.whenComplete((value, error) -> blackhole.consume(error));
+    future.succeed(VALUE);
+  }
+
+  /**
+   * Fails a state guarded {@link CompletableFuture} with two listeners.
+   */
+  @Benchmark
+  public void futureFail(final Blackhole blackhole) {
+    final GuardedFuture<String> future = new GuardedFuture<>();
+    future.future.whenComplete((value, error) -> blackhole.consume(value));
+    future.future.whenComplete((value, error) -> blackhole.consume(error));
+    future.fail(FAILURE);
+  }
+
+  /**
+   * The previous completion of requests: a separate state transition in front of the
+   * future.
+   */
+  static final class GuardedFuture<T> {
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<GuardedFuture> STATE_UPDATER =
+        AtomicIntegerFieldUpdater.newUpdater(GuardedFuture.class, "state");
+
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+    private volatile int state;
+
+    void succeed(final T value) {
+      if (STATE_UPDATER.compareAndSet(this, 0, 1)) {
+        future.complete(value);
+      }
+    }
+
+    void fail(final Throwable error) {
+      if (STATE_UPDATER.compareAndSet(this, 0, 1)) {
+        future.completeExceptionally(error);
+      }
+    }
+
+  }
+
+  /**
+   * Runs this benchmark with the GC profiler.
+   */
+  public static void main(String... args) throws Exception {
+    new Runner(new OptionsBuilder()
+        .include(CompletionBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build()).run();
+  }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Verifies the functionality of the {@link Completion}.
+ *
+ * @since 2.0.0
+ */
+class CompletionTest {
+
+  @Test
+  void shouldNotifyListenersInOrder() {
+    Completion<String> completion = new Completion<>();
+    List<String> calls = new ArrayList<>();
+    completion.whenComplete((value, error) -> calls.add("first:" + value));
+    completion.whenComplete((value, error) -> calls.add("second:" + value));
+
+    assertFalse(completion.isDone());
+    assertTrue(completion.succeed("value"));
+
+    assertTrue(completion.isDone());
+    assertTrue(completion.hasSucceeded());
+    assertFalse(completion.hasFailed());
+    assertEquals(2, calls.size());
+    assertEquals("first:value", calls.get(0));
+    assertEquals("second:value", calls.get(1));
+  }
+
+  @Test
+  void shouldOnlyCompleteOnce() {
+    Completion<String> completion = new Completion<>();
+    AtomicInteger calls = new AtomicInteger();
+    completion.whenComplete((value, error) -> calls.incrementAndGet());
+
+    Exception failure = new Exception();
+    assertTrue(completion.fail(failure));
+    assertFalse(completion.succeed("value"));
+    assertFalse(completion.fail(new Exception()));
+
+    assertTrue(completion.hasFailed());
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  void shouldNotifyLateListenersRightAway() {
+    Completion<String> completion = new Completion<>();
+    Exception failure = new Exception();
+    completion.fail(failure);
+
+    List<Throwable> errors = new ArrayList<>();
+    completion.whenComplete((value, error) -> errors.add(error));
+    assertEquals(1, errors.size());
+    assertSame(failure, errors.get(0));
+  }
+
+  @Test
+  void shouldSupportNullValues() {
+    Completion<String> completion = new Completion<>();
+    completion.succeed(null);
+
+    assertTrue(completion.hasSucceeded());
+    completion.whenComplete((value, error) -> {
+      assertNull(value);
+      assertNull(error);
+    });
+  }
+
+  @Test
+  void shouldNotifyRemainingListenersIfOneThrows() {
+    Completion<String> completion = new Completion<>();
+    AtomicInteger calls = new AtomicInteger();
+    completion.whenComplete((value, error) -> {
+      throw new IllegalStateException();
+    });
+    completion.whenComplete((value, error) -> calls.incrementAndGet());
+
+    completion.succeed("value");
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  void shouldPassOnVirtualMachineErrorsOfListeners() {
+    Completion<String> completion = new Completion<>();
+    OutOfMemoryError error = new OutOfMemoryError();
+    completion.whenComplete((value, failure) -> {
+      throw error;
+    });
+
+    assertSame(error, assertThrows(OutOfMemoryError.class, () -> completion.succeed("value")));
+    assertTrue(completion.hasSucceeded());
+  }
+
+  @Test
+  void shouldGrowListenersBeyondInitialCapacity() {
+    Completion<String> completion = new Completion<>();
+    List<Integer> order = new ArrayList<>();
+    for (int i = 0; i < 9; i++) {
+      final int index = i;
+      completion.whenComplete((value, error) -> order.add(index));
+    }
+
+    completion.succeed("value");
+    assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8), order);
+  }
+
+  @Test
+  void shouldCreateFutureLazily() throws Exception {
+    Completion<String> completion = new Completion<>();
+    CompletableFuture<String> future = completion.future();
+    assertSame(future, completion.future());
+    assertFalse(future.isDone());
+
+    completion.succeed("value");
+    assertEquals("value", future.get());
+
+    Completion<String> failed = new Completion<>();
+    Exception failure = new Exception();
+    failed.fail(failure);
+    ExecutionException thrown = assertThrows(ExecutionException.class,
+        () -> failed.future().get());
+    assertSame(failure, thrown.getCause());
+  }
+
+  @Test
+  void shouldNotLoseConcurrentListeners() throws Exception {
+    final int threads = 4;
+    final int perThread = 1000;
+    Completion<String> completion = new Completion<>();
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> registering = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      Thread thread = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException ex) {
+          return;
+        }
+        for (int j = 0; j < perThread; j++) {
+          completion.whenComplete((value, error) -> calls.incrementAndGet());
+        }
+      });
+      thread.start();
+      registering.add(thread);
+    }
+
+    start.countDown();
+    completion.succeed("value");
+    for (Thread thread : registering) {
+      thread.join();
+    }
+    assertEquals(threads * perThread, calls.get());
+  }
+
+}
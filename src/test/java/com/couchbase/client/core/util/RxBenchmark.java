@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2018 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.couchbase.client.core.util;
+
+import com.couchbase.client.core.msg.BaseRequest;
+import com.couchbase.client.core.msg.Request;
+import io.reactivex.Single;
+import io.reactivex.SingleObserver;
+import io.reactivex.disposables.Disposable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Compares the subject based {@link Rx#single(Request)} with the cold, fused
+ * {@link Rx#single(Supplier, Consumer)}.
+ *
+ * <p>Every operation creates a request, subscribes to it and completes it right away, so
+ * the difference in time and allocations is the cost of the reactive wrapper. Run
+ * through {@link #main} to get the allocation rate per operation from the GC
+ * profiler.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RxBenchmark {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(1);
+  private static final String VALUE = "value";
+
+  private SingleObserver<String> observer;
+  private Single<String> fused;
+
+  /**
+   * Creates the observer and the fused single, which can be subscribed to many times.
+   */
+  @Setup
+  public void setup(final Blackhole blackhole) {
+    observer = new SingleObserver<String>() {
+      @Override
+      public void onSubscribe(final Disposable disposable) {
+        blackhole.consume(disposable);
+      }
+
+      @Override
+      public void onSuccess(final String value) {
+        blackhole.consume(value);
+      }
+
+      @Override
+      public void onError(final Throwable error) {
+        blackhole.consume(error);
+      }
+    };
+    fused = Rx.single(() -> new BenchmarkRequest(), request -> request.succeed(VALUE));
+  }
+
+  /**
+   * Wraps a request into a subject based single and completes it.
+   */
+  @Benchmark
+  public void subject() {
+    final BenchmarkRequest request = new BenchmarkRequest();
+    Rx.single(request).subscribe(observer);
+    request.succeed(VALUE);
+  }
+
+  /**
+   * Subscribes to a fused single, which creates the request and completes it.
+   */
+  @Benchmark
+  public void fused() {
+    fused.subscribe(observer);
+  }
+
+  /**
+   * A request which does nothing on its own.
+   */
+  static final class BenchmarkRequest extends BaseRequest<String> {
+    BenchmarkRequest() {
+      super(TIMEOUT, Optional.empty());
+    }
+  }
+
+  /**
+   * Runs this benchmark with the GC profiler.
+   */
+  public static void main(String... args) throws Exception {
+    new Runner(new OptionsBuilder()
+        .include(RxBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build()).run();
+  }
+
+}
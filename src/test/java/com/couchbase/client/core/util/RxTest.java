@@ -16,6 +16,11 @@
 
 package com.couchbase.client.core.util;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import com.couchbase.client.core.msg.BaseRequest;
 import com.couchbase.client.core.msg.Request;
 import io.reactivex.Single;
@@ -23,8 +28,12 @@ import io.reactivex.observers.TestObserver;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Verifies the functionality of the {@link Rx} utility class.
@@ -84,6 +93,52 @@ class RxTest {
     testObserver.assertError(NoSuchElementException.class);
   }
 
+  @Test
+  void shouldDispatchOnSubscribe() {
+    List<Request<String>> dispatched = new ArrayList<>();
+    Single<String> single = Rx.single(() -> new DummyRequest(TIMEOUT), dispatched::add);
+    assertTrue(dispatched.isEmpty());
+
+    final TestObserver<String> first = single.test();
+    final TestObserver<String> second = single.test();
+    assertEquals(2, dispatched.size());
+    assertNotSame(dispatched.get(0), dispatched.get(1));
+
+    dispatched.get(0).succeed("first");
+    first.assertValue("first");
+    second.assertNotTerminated();
+
+    Exception exception = new Exception("error");
+    dispatched.get(1).fail(exception);
+    second.assertError(exception);
+  }
+
+  @Test
+  void shouldFailRequestOnDispose() {
+    List<Request<String>> dispatched = new ArrayList<>();
+    TestObserver<String> observer = Rx.single(() -> new DummyRequest(TIMEOUT), dispatched::add)
+        .test();
+
+    observer.dispose();
+    Request<String> request = dispatched.get(0);
+    assertTrue(request.hasFailed());
+    assertThrows(CancellationException.class, () -> {
+      try {
+        request.response().get();
+      } catch (ExecutionException ex) {
+        throw ex.getCause();
+      }
+    });
+    observer.assertNotTerminated();
+  }
+
+  @Test
+  void shouldNotDispatchIfDisposedOnSubscribe() {
+    List<Request<String>> dispatched = new ArrayList<>();
+    Rx.single(() -> new DummyRequest(TIMEOUT), dispatched::add).test(true);
+    assertTrue(dispatched.isEmpty());
+  }
+
   /**
    * Helper class to implement a simple {@link Request}.
    */